@@ -19,6 +19,7 @@ if [ ! -d "$dir" ]; then
     echo "you need to specify a data directory."
 	exit 1
 fi
+shift
 
 java \
 -Xmx512m \
@@ -28,5 +29,6 @@ java \
 -classpath ${classpath} \
 org.visallo.tools.Import \
 --datadir=${dir} \
---queuedups
+--queuedups \
+"$@"
 
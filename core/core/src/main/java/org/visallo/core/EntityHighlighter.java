@@ -9,86 +9,90 @@ import org.visallo.web.clientapi.model.SandboxStatus;
 import org.apache.commons.lang.StringEscapeUtils;
 import org.apache.commons.lang.StringUtils;
 import org.json.JSONException;
-import org.json.JSONObject;
 import org.vertexium.Authorizations;
 import org.vertexium.Vertex;
+import org.visallo.core.exception.VisalloException;
 
+import java.io.*;
 import java.util.*;
 
 public class EntityHighlighter {
+    private static final int COPY_BUFFER_SIZE = 8 * 1024;
+
     public String getHighlightedText(String text, Iterable<Vertex> termMentions, String workspaceId, Authorizations authorizations) {
         List<OffsetItem> offsetItems = convertTermMentionsToOffsetItems(termMentions, workspaceId, authorizations);
         return getHighlightedText(text, offsetItems);
     }
 
-    // TODO: change to use an InputStream?
+    public void writeHighlightedText(Reader text, Iterable<Vertex> termMentions, String workspaceId, Authorizations authorizations, Writer out) throws IOException {
+        List<OffsetItem> offsetItems = convertTermMentionsToOffsetItems(termMentions, workspaceId, authorizations);
+        writeHighlightedText(text, offsetItems, out);
+    }
+
     public static String getHighlightedText(String text, List<OffsetItem> offsetItems) throws JSONException {
+        StringWriter result = new StringWriter(text.length());
+        try {
+            writeHighlightedText(new StringReader(text), offsetItems, result);
+        } catch (IOException ex) {
+            throw new VisalloException("Could not highlight text", ex);
+        }
+        return result.toString();
+    }
+
+    /**
+     * Writes the text as HTML with a span around each highlighted offset item, reading the text once from start to end.
+     *
+     * Offset items are visited in start order. A vertex offset item that overlaps an earlier vertex offset item is
+     * skipped, which only needs the furthest end seen so far, and the open spans are closed from a queue of end offsets.
+     * Offsets past the end of the text are clamped to the end of the text.
+     */
+    public static void writeHighlightedText(Reader text, List<OffsetItem> offsetItems, Writer out) throws IOException, JSONException {
         Collections.sort(offsetItems);
-        StringBuilder result = new StringBuilder();
+        HighlightedTextWriter writer = new HighlightedTextWriter(text, out);
         PriorityQueue<Integer> endOffsets = new PriorityQueue<>();
-        int lastStart = 0;
-        for (int i = 0; i < offsetItems.size(); i++) {
-            OffsetItem offsetItem = offsetItems.get(i);
+        long lastVertexOffsetItemEnd = -1;
+        for (OffsetItem offsetItem : offsetItems) {
+            long start = OffsetItem.getOffset(offsetItem.getStart());
+            long end = OffsetItem.getOffset(offsetItem.getEnd());
 
-            boolean overlapsPreviousItem = false;
             if (offsetItem instanceof VertexOffsetItem) {
-                for (int j = 0; j < i; j++) {
-                    OffsetItem compareItem = offsetItems.get(j);
-                    if (compareItem instanceof VertexOffsetItem
-                            && (OffsetItem.getOffset(compareItem.getEnd()) >= OffsetItem.getOffset(offsetItem.getEnd())
-                            || OffsetItem.getOffset(compareItem.getEnd()) > OffsetItem.getOffset(offsetItem.getStart()))) {
-                        overlapsPreviousItem = true;
-                        offsetItems.remove(i--);
-                        break;
-                    }
+                if (lastVertexOffsetItemEnd >= 0 && (lastVertexOffsetItemEnd >= end || lastVertexOffsetItemEnd > start)) {
+                    continue;
                 }
+                lastVertexOffsetItemEnd = Math.max(lastVertexOffsetItemEnd, end);
             }
-            if (overlapsPreviousItem) {
-                continue;
-            }
-            if (OffsetItem.getOffset(offsetItem.getStart()) < 0 || OffsetItem.getOffset(offsetItem.getEnd()) < 0) {
+            if (start < 0 || end < 0) {
                 continue;
             }
             if (!offsetItem.shouldHighlight()) {
                 continue;
             }
 
-            while (endOffsets.size() > 0 && endOffsets.peek() <= OffsetItem.getOffset(offsetItem.getStart())) {
-                int end = endOffsets.poll();
-                result.append(StringEscapeUtils.escapeHtml(safeSubstring(text, lastStart, end)));
-                result.append("</span>");
-                lastStart = end;
+            while (endOffsets.size() > 0 && endOffsets.peek() <= start) {
+                writer.copyTo(endOffsets.poll());
+                out.write("</span>");
             }
-            result.append(StringEscapeUtils.escapeHtml(safeSubstring(text, lastStart, (int) OffsetItem.getOffset(offsetItem.getStart()))));
-
-            JSONObject infoJson = offsetItem.getInfoJson();
+            writer.copyTo(start);
 
-            result.append("<span");
-            result.append(" class=\"");
-            result.append(StringUtils.join(offsetItem.getCssClasses(), " "));
-            result.append("\"");
+            out.write("<span class=\"");
+            out.write(StringUtils.join(offsetItem.getCssClasses(), " "));
+            out.write("\"");
             if (offsetItem.getTitle() != null) {
-                result.append(" title=\"");
-                result.append(StringEscapeUtils.escapeHtml(offsetItem.getTitle()));
-                result.append("\"");
+                out.write(" title=\"");
+                writer.writeEscaped(offsetItem.getTitle());
+                out.write("\"");
             }
-            result.append(" data-info=\"");
-            result.append(StringEscapeUtils.escapeHtml(infoJson.toString()));
-            result.append("\"");
-            result.append(">");
-            endOffsets.add((int) OffsetItem.getOffset(offsetItem.getEnd()));
-            lastStart = (int) OffsetItem.getOffset(offsetItem.getStart());
+            out.write(" data-info=\"");
+            writer.writeEscaped(offsetItem.getInfoJson().toString());
+            out.write("\">");
+            endOffsets.add((int) end);
         }
 
         while (endOffsets.size() > 0) {
-            int end = endOffsets.poll();
-            result.append(StringEscapeUtils.escapeHtml(safeSubstring(text, lastStart, end)));
-            result.append("</span>");
-            lastStart = end;
+            writer.copyTo(endOffsets.poll());
+            out.write("</span>");
         }
-        result.append(StringEscapeUtils.escapeHtml(safeSubstring(text, lastStart)));
-
-        return result.toString().replaceAll("&nbsp;", " ");
+        writer.copyToEnd();
     }
 
     public VideoTranscript getHighlightedVideoTranscript(VideoTranscript videoTranscript, Iterable<Vertex> termMentions, String workspaceId, Authorizations authorizations) {
@@ -147,17 +151,6 @@ public class EntityHighlighter {
         return videoTranscriptEntryIndex;
     }
 
-    private static String safeSubstring(String text, int beginIndex) {
-        beginIndex = Math.min(beginIndex, text.length());
-        return text.substring(beginIndex);
-    }
-
-    private static String safeSubstring(String text, int beginIndex, int endIndex) {
-        beginIndex = Math.min(beginIndex, text.length());
-        endIndex = Math.min(endIndex, text.length());
-        return text.substring(beginIndex, endIndex);
-    }
-
     public List<OffsetItem> convertTermMentionsToOffsetItems(Iterable<Vertex> termMentions, String workspaceId, Authorizations authorizations) {
         ArrayList<OffsetItem> termMetadataOffsetItems = new ArrayList<>();
         for (Vertex termMention : termMentions) {
@@ -167,4 +160,40 @@ public class EntityHighlighter {
         }
         return termMetadataOffsetItems;
     }
+
+    /**
+     * Copies the text to the output HTML escaped, non-breaking spaces are written as plain spaces.
+     */
+    private static class HighlightedTextWriter {
+        private final Reader text;
+        private final Writer out;
+        private final char[] buffer = new char[COPY_BUFFER_SIZE];
+        private long position;
+        private boolean endOfText;
+
+        public HighlightedTextWriter(Reader text, Writer out) {
+            this.text = text;
+            this.out = out;
+        }
+
+        public void copyTo(long offset) throws IOException {
+            while (!endOfText && position < offset) {
+                int read = text.read(buffer, 0, (int) Math.min(buffer.length, offset - position));
+                if (read < 0) {
+                    endOfText = true;
+                    break;
+                }
+                writeEscaped(new String(buffer, 0, read));
+                position += read;
+            }
+        }
+
+        public void copyToEnd() throws IOException {
+            copyTo(Long.MAX_VALUE);
+        }
+
+        public void writeEscaped(String str) throws IOException {
+            StringEscapeUtils.escapeHtml(out, str.replace('\u00A0', ' '));
+        }
+    }
 }
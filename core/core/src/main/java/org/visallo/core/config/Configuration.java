@@ -69,8 +69,26 @@ public class Configuration {
     public static final String DEFAULT_LOCK_REPOSITORY_PATH_PREFIX = "/visallo/locks";
     public static final String USER_SESSION_COUNTER_PATH_PREFIX = "userSessionCounter.pathPrefix";
     public static final String DEFAULT_TIME_ZONE = "default.timeZone";
+    public static final String WORKSPACE_REPOSITORY_CACHE_EXPIRE_SECONDS = "repository.workspace.cacheExpireSeconds";
+    public static final int DEFAULT_WORKSPACE_REPOSITORY_CACHE_EXPIRE_SECONDS = 15;
+    public static final String USER_REPOSITORY_AUTHORIZATIONS_CACHE_EXPIRE_SECONDS = "repository.user.authorizationsCacheExpireSeconds";
+    public static final int DEFAULT_USER_REPOSITORY_AUTHORIZATIONS_CACHE_EXPIRE_SECONDS = 60;
+    public static final String ARTIFACT_THUMBNAIL_CACHE_MAX_BYTES = "repository.artifactThumbnail.cacheMaxBytes";
+    public static final int DEFAULT_ARTIFACT_THUMBNAIL_CACHE_MAX_BYTES = 64 * 1024 * 1024;
+    public static final String ARTIFACT_THUMBNAIL_MAX_DECODE_PIXELS = "repository.artifactThumbnail.maxDecodePixels";
+    public static final int DEFAULT_ARTIFACT_THUMBNAIL_MAX_DECODE_PIXELS = 16 * 1024 * 1024;
+    public static final String WORKSPACE_PUBLISH_LONG_RUNNING_PROCESS_THRESHOLD = "workspace.publish.longRunningProcessThreshold";
+    public static final int DEFAULT_WORKSPACE_PUBLISH_LONG_RUNNING_PROCESS_THRESHOLD = 1000;
     public static final String RABBITMQ_PREFETCH_COUNT = "rabbitmq.prefetch.count";
+    public static final String RABBITMQ_PUBLISH_BATCH_SIZE = "rabbitmq.publish.batchSize";
+    public static final String RABBITMQ_PUBLISH_LINGER_MS = "rabbitmq.publish.lingerMs";
+    public static final String RABBITMQ_PUBLISH_CHANNEL_POOL_SIZE = "rabbitmq.publish.channelPoolSize";
+    public static final String RABBITMQ_PUBLISH_CONFIRM_TIMEOUT_MS = "rabbitmq.publish.confirmTimeoutMs";
+    public static final String RABBITMQ_GRAPH_PROPERTY_QUEUE_BINARY_ENCODING = "rabbitmq.graphPropertyQueue.binaryEncoding";
     public static final String QUEUE_PREFIX = "queue.prefix";
+    public static final String GRAPH_PROPERTY_RUNNER_IN_FLIGHT_MESSAGES = "graphPropertyRunner.inFlightMessages";
+    public static final int DEFAULT_GRAPH_PROPERTY_RUNNER_IN_FLIGHT_MESSAGES = 1;
+    public static final String GRAPH_PROPERTY_RUNNER_LOCAL_FILE_MODE = "graphPropertyRunner.localFileMode";
     public static final String STATUS_ZK_PATH = "status.zkPathPrefix";
     public static final String DEFAULT_STATUS_ZK_PATH = "/visallo/status";
     public static final String STATUS_PORT_RANGE = "status.portRange";
@@ -52,9 +52,8 @@ public abstract class QueueExternalResourceWorker extends ExternalResourceWorker
 
         shouldRun = true;
         while (shouldRun) {
-            WorkerTuple tuple = workerSpout.nextTuple();
+            WorkerTuple tuple = workerSpout.nextTuple(100);
             if (tuple == null) {
-                Thread.sleep(100);
                 continue;
             }
             try (Timer.Context t = processingTimeTimer.time()) {
@@ -1,13 +1,17 @@
 package org.visallo.core.formula;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import com.google.inject.Inject;
-import org.apache.commons.io.IOUtils;
 import org.mozilla.javascript.Context;
 import org.mozilla.javascript.Function;
 import org.mozilla.javascript.Scriptable;
 import org.mozilla.javascript.ScriptableObject;
 import org.vertexium.Authorizations;
+import org.vertexium.Property;
 import org.vertexium.Vertex;
 import org.visallo.core.config.Configuration;
 import org.visallo.core.exception.VisalloException;
@@ -19,22 +23,37 @@ import org.visallo.web.clientapi.model.ClientApiOntology;
 import org.visallo.web.clientapi.model.ClientApiVertex;
 import org.visallo.web.clientapi.util.ObjectMapperFactory;
 
-import java.io.IOException;
-import java.io.InputStream;
-import java.util.HashMap;
-import java.util.Locale;
-import java.util.Map;
+import java.util.*;
 import java.util.concurrent.*;
 
+/**
+ * Evaluates the title, subtitle and time formulas of the web app's vertex formatters with Rhino.
+ *
+ * Each pool thread keeps its own scope per locale and time zone, the scripts loaded into the scopes are compiled once
+ * and shared. {@link #evaluateFormulas(List, UserContext, Authorizations)} evaluates all three formulas of a batch of
+ * vertices with one conversion of each vertex to JSON, a formula that fails only fails its own result. Results can be
+ * cached by vertex, property versions, workspace, locale and time zone by setting
+ * {@link #CONFIGURATION_PARAMETER_CACHE_SIZE}, results with a failed formula are not cached.
+ */
 public class FormulaEvaluator {
     private static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(FormulaEvaluator.class);
     public static final String CONFIGURATION_PARAMETER_MAX_THREADS = FormulaEvaluator.class.getName() + ".max.threads";
-    public static final int CONFIGURATION_DEFAULT_MAX_THREADS = 1;
+    public static final int CONFIGURATION_DEFAULT_MAX_THREADS = Runtime.getRuntime().availableProcessors();
+    public static final String CONFIGURATION_PARAMETER_CACHE_SIZE = FormulaEvaluator.class.getName() + ".cache.size";
+    public static final int CONFIGURATION_DEFAULT_CACHE_SIZE = 0;
+    public static final String CONFIGURATION_PARAMETER_CACHE_EXPIRE_SECONDS = FormulaEvaluator.class.getName() + ".cache.expireSeconds";
+    public static final int CONFIGURATION_DEFAULT_CACHE_EXPIRE_SECONDS = 300;
+    private static final String TITLE = "Title";
+    private static final String SUBTITLE = "Subtitle";
+    private static final String TIME = "Time";
+    private static final String[] FORMULA_TYPES = new String[]{TITLE, SUBTITLE, TIME};
 
     private Configuration configuration;
     private OntologyRepository ontologyRepository;
 
     private ExecutorService executorService;
+    private final int threadCount;
+    private final Cache<String, FormulaResult> resultCache;
 
     private static final ThreadLocal<Map<String, Scriptable>> threadLocalScope = new ThreadLocal<Map<String, Scriptable>>() {
         @Override protected Map<String, Scriptable> initialValue() {
@@ -47,7 +66,18 @@ public class FormulaEvaluator {
         this.configuration = configuration;
         this.ontologyRepository = ontologyRepository;
 
-        executorService = Executors.newFixedThreadPool(configuration.getInt(CONFIGURATION_PARAMETER_MAX_THREADS, CONFIGURATION_DEFAULT_MAX_THREADS));
+        threadCount = configuration.getInt(CONFIGURATION_PARAMETER_MAX_THREADS, CONFIGURATION_DEFAULT_MAX_THREADS);
+        executorService = Executors.newFixedThreadPool(threadCount);
+
+        int cacheSize = configuration.getInt(CONFIGURATION_PARAMETER_CACHE_SIZE, CONFIGURATION_DEFAULT_CACHE_SIZE);
+        if (cacheSize > 0) {
+            resultCache = CacheBuilder.newBuilder()
+                    .maximumSize(cacheSize)
+                    .expireAfterWrite(configuration.getInt(CONFIGURATION_PARAMETER_CACHE_EXPIRE_SECONDS, CONFIGURATION_DEFAULT_CACHE_EXPIRE_SECONDS), TimeUnit.SECONDS)
+                    .build();
+        } else {
+            resultCache = null;
+        }
     }
 
     public void close() {
@@ -55,18 +85,66 @@ public class FormulaEvaluator {
     }
 
     public String evaluateTitleFormula(Vertex vertex, UserContext userContext, Authorizations authorizations) {
-        return evaluateFormula("Title", vertex, userContext, authorizations);
+        return evaluateFormula(TITLE, vertex, userContext, authorizations);
     }
 
     public String evaluateTimeFormula(Vertex vertex, UserContext userContext, Authorizations authorizations) {
-        return evaluateFormula("Time", vertex, userContext, authorizations);
+        return evaluateFormula(TIME, vertex, userContext, authorizations);
     }
 
     public String evaluateSubtitleFormula(Vertex vertex, UserContext userContext, Authorizations authorizations) {
-        return evaluateFormula("Subtitle", vertex, userContext, authorizations);
+        return evaluateFormula(SUBTITLE, vertex, userContext, authorizations);
+    }
+
+    /**
+     * Evaluates the title, subtitle and time formulas of the vertices, split across the pool threads.
+     *
+     * @return the results in the order of the vertices
+     */
+    public List<FormulaResult> evaluateFormulas(List<Vertex> vertices, UserContext userContext, Authorizations authorizations) {
+        FormulaResult[] results = new FormulaResult[vertices.size()];
+        List<Integer> uncachedIndexes = new ArrayList<>();
+        for (int i = 0; i < vertices.size(); i++) {
+            results[i] = getCachedResult(vertices.get(i), userContext);
+            if (results[i] == null) {
+                uncachedIndexes.add(i);
+            }
+        }
+
+        int chunkCount = Math.max(1, Math.min(threadCount, uncachedIndexes.size()));
+        int chunkSize = (uncachedIndexes.size() + chunkCount - 1) / chunkCount;
+        List<Callable<List<FormulaResult>>> tasks = new ArrayList<>(chunkCount);
+        for (int start = 0; start < uncachedIndexes.size(); start += chunkSize) {
+            List<Vertex> chunk = new ArrayList<>(chunkSize);
+            for (int index : uncachedIndexes.subList(start, Math.min(start + chunkSize, uncachedIndexes.size()))) {
+                chunk.add(vertices.get(index));
+            }
+            tasks.add(new FormulasEvaluatorCallable(chunk, userContext, authorizations));
+        }
+
+        try {
+            int i = 0;
+            for (Future<List<FormulaResult>> future : executorService.invokeAll(tasks)) {
+                for (FormulaResult result : future.get()) {
+                    int index = uncachedIndexes.get(i++);
+                    results[index] = result;
+                    putCachedResult(vertices.get(index), userContext, result);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new VisalloException("Formula evaluation interrupted", e);
+        } catch (ExecutionException e) {
+            throw new VisalloException("Error encountered during formula evaluation", e.getCause());
+        }
+        return Arrays.asList(results);
     }
 
     private String evaluateFormula(String type, Vertex vertex, UserContext userContext, Authorizations authorizations) {
+        if (resultCache != null && vertex != null) {
+            return evaluateFormulas(Collections.singletonList(vertex), userContext, authorizations).get(0).get(type);
+        }
+
         FormulaEvaluatorCallable evaluationCallable = new FormulaEvaluatorCallable(type, vertex, userContext, authorizations);
 
         try {
@@ -77,7 +155,7 @@ public class FormulaEvaluator {
             LOGGER.error("Error encountered during " + type + " evaluation", e);
         }
 
-        return "Unable to Evaluate " + type;
+        return unableToEvaluate(type);
     }
 
     public Scriptable getScriptable(UserContext userContext) {
@@ -92,6 +170,40 @@ public class FormulaEvaluator {
         return scope;
     }
 
+    private FormulaResult getCachedResult(Vertex vertex, UserContext userContext) {
+        if (resultCache == null || vertex == null) {
+            return null;
+        }
+        return resultCache.getIfPresent(getCacheKey(vertex, userContext));
+    }
+
+    private void putCachedResult(Vertex vertex, UserContext userContext, FormulaResult result) {
+        if (resultCache != null && vertex != null && !result.failed) {
+            resultCache.put(getCacheKey(vertex, userContext), result);
+        }
+    }
+
+    /**
+     * The properties of the vertex are hashed into the key, so changing, adding or removing a property, or reading
+     * the vertex with authorizations that see other properties, gives a new key.
+     */
+    private static String getCacheKey(Vertex vertex, UserContext userContext) {
+        Hasher hasher = Hashing.md5().newHasher();
+        for (Property property : vertex.getProperties()) {
+            putString(hasher, property.getKey());
+            putString(hasher, property.getName());
+            putString(hasher, property.getVisibility().getVisibilityString());
+            hasher.putLong(property.getTimestamp());
+        }
+        return vertex.getId() + "|" + hasher.hash() + "|" + userContext.getWorkspaceId()
+                + "|" + userContext.getLocale() + "|" + userContext.getTimeZone();
+    }
+
+    private static void putString(Hasher hasher, String value) {
+        hasher.putInt(value.length());
+        hasher.putString(value);
+    }
+
     private Scriptable setupContext(String ontologyJson, String configurationJson, String timeZone) {
         Context context = Context.enter();
         context.setLanguageVersion(Context.VERSION_1_6);
@@ -141,15 +253,8 @@ public class FormulaEvaluator {
     }
 
     private Object evaluateFile(ScriptableObject scope, String filename) {
-        InputStream is = FormulaEvaluator.class.getResourceAsStream(filename);
-        if (is != null) {
-            try {
-                return Context.getCurrentContext().evaluateString(scope, IOUtils.toString(is), filename, 0, null);
-            } catch (IOException e) {
-                LOGGER.error("File not readable %s", filename);
-            }
-        } else LOGGER.error("File not found %s", filename);
-        return null;
+        Context context = Context.getCurrentContext();
+        return RequireJsSupport.getCompiledScript(context, filename).exec(context, scope);
     }
 
     protected String toJson(Vertex vertex, String workspaceId, Authorizations authorizations) {
@@ -181,6 +286,107 @@ public class FormulaEvaluator {
         }
     }
 
+    /**
+     * The title, subtitle and time of a vertex.
+     */
+    public static class FormulaResult {
+        private final String title;
+        private final String subtitle;
+        private final String time;
+        private final boolean failed;
+
+        public FormulaResult(String title, String subtitle, String time) {
+            this(title, subtitle, time, false);
+        }
+
+        private FormulaResult(String title, String subtitle, String time, boolean failed) {
+            this.title = title;
+            this.subtitle = subtitle;
+            this.time = time;
+            this.failed = failed;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public String getSubtitle() {
+            return subtitle;
+        }
+
+        public String getTime() {
+            return time;
+        }
+
+        private String get(String type) {
+            switch (type) {
+                case TITLE:
+                    return title;
+                case SUBTITLE:
+                    return subtitle;
+                case TIME:
+                    return time;
+                default:
+                    throw new VisalloException("Unknown formula type: " + type);
+            }
+        }
+    }
+
+    private class FormulasEvaluatorCallable implements Callable<List<FormulaResult>> {
+        private final List<Vertex> vertices;
+        private final UserContext userContext;
+        private final Authorizations authorizations;
+
+        public FormulasEvaluatorCallable(List<Vertex> vertices, UserContext userContext, Authorizations authorizations) {
+            this.vertices = vertices;
+            this.userContext = userContext;
+            this.authorizations = authorizations;
+        }
+
+        @Override
+        public List<FormulaResult> call() throws Exception {
+            Scriptable scope = getScriptable(userContext);
+            Function parseFunction = (Function) scope.get("parseVertexJson", scope);
+            List<FormulaResult> results = new ArrayList<>(vertices.size());
+            for (Vertex vertex : vertices) {
+                Object vertexObject;
+                try {
+                    String json = toJson(vertex, userContext.getWorkspaceId(), authorizations);
+                    vertexObject = parseFunction.call(Context.getCurrentContext(), scope, scope, new Object[]{json});
+                } catch (Exception e) {
+                    LOGGER.error("Error encountered converting vertex for formula evaluation", e);
+                    results.add(new FormulaResult(unableToEvaluate(TITLE), unableToEvaluate(SUBTITLE), unableToEvaluate(TIME), true));
+                    continue;
+                }
+
+                // a failing formula does not fail the other formulas of the vertex
+                String[] values = new String[FORMULA_TYPES.length];
+                boolean failed = false;
+                for (int i = 0; i < FORMULA_TYPES.length; i++) {
+                    try {
+                        values[i] = evaluate(FORMULA_TYPES[i], scope, vertexObject);
+                    } catch (Exception e) {
+                        LOGGER.error("Error encountered during " + FORMULA_TYPES[i] + " evaluation", e);
+                        values[i] = unableToEvaluate(FORMULA_TYPES[i]);
+                        failed = true;
+                    }
+                }
+                results.add(new FormulaResult(values[0], values[1], values[2], failed));
+            }
+            return results;
+        }
+
+        private String evaluate(String type, Scriptable scope, Object vertexObject) {
+            Function function = (Function) scope.get("evaluate" + type + "Formula", scope);
+            Object result = function.call(Context.getCurrentContext(), scope, scope, new Object[]{vertexObject});
+            return (String) Context.jsToJava(result, String.class);
+        }
+    }
+
+    private static String unableToEvaluate(String type) {
+        return "Unable to Evaluate " + type;
+    }
+
     private class FormulaEvaluatorCallable implements Callable<String> {
         private UserContext userContext;
         private String fieldName;
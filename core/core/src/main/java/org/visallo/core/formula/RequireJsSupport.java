@@ -1,21 +1,26 @@
 package org.visallo.core.formula;
 
+import org.visallo.core.exception.VisalloException;
 import org.visallo.core.util.VisalloLogger;
 import org.visallo.core.util.VisalloLoggerFactory;
 import org.apache.commons.io.IOUtils;
 import org.mozilla.javascript.Context;
 import org.mozilla.javascript.Function;
+import org.mozilla.javascript.Script;
 import org.mozilla.javascript.Scriptable;
 import org.mozilla.javascript.ScriptableObject;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class RequireJsSupport extends ScriptableObject {
 
     private static final long serialVersionUID = 1L;
     private static VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(RequireJsSupport.class);
+    private static final ConcurrentMap<String, Script> compiledScripts = new ConcurrentHashMap<>();
 
     @Override
     public String getClassName() {
@@ -51,20 +56,49 @@ public class RequireJsSupport extends ScriptableObject {
 
     public static String readFile(Context cx, Scriptable thisObj, Object[] args,
                             Function funObj) throws FileNotFoundException, IOException {
-        RequireJsSupport shell = (RequireJsSupport) getTopLevelScope(thisObj);
         if (args.length == 1) {
-            return shell.getFileContents(Context.toString(args[0]));
+            return getFileContents(Context.toString(args[0]));
         }
         return null;
     }
 
     private void processSource(Context cx, String filename)
             throws FileNotFoundException, IOException {
-        String fileContents = getFileContents(filename);
-        cx.evaluateString(this, fileContents, filename, 1, null);
+        getCompiledScript(cx, filename).exec(cx, this);
+    }
+
+    /**
+     * Compiles a script resource the first time it is used. Compiled scripts hold no scope, so every thread's scope
+     * runs the same compiled script instead of parsing the source again. A missing script fails here rather than
+     * being compiled as an empty script and cached.
+     */
+    public static Script getCompiledScript(Context cx, String filename) {
+        Script script = compiledScripts.get(filename);
+        if (script == null) {
+            script = cx.compileString(getScriptSource(filename), filename, 1, null);
+            Script existingScript = compiledScripts.putIfAbsent(filename, script);
+            if (existingScript != null) {
+                script = existingScript;
+            }
+        }
+        return script;
+    }
+
+    private static String getScriptSource(String filename) {
+        InputStream is = RequireJsSupport.class.getResourceAsStream(filename);
+        if (is == null) {
+            throw new VisalloException("Could not find script: " + filename);
+        }
+        try {
+            return IOUtils.toString(is);
+        } catch (IOException e) {
+            throw new VisalloException("Could not read script: " + filename, e);
+        } finally {
+            IOUtils.closeQuietly(is);
+        }
     }
 
-    private String getFileContents(String file) {
+    private static String getFileContents(String file) {
         InputStream is = RequireJsSupport.class.getResourceAsStream(file);
         if (is != null) {
             try {
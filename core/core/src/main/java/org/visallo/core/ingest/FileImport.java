@@ -1,11 +1,15 @@
 package org.visallo.core.ingest;
 
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
 import org.apache.commons.io.IOUtils;
 import org.json.JSONObject;
 import org.vertexium.*;
 import org.vertexium.property.StreamingPropertyValue;
+import org.vertexium.query.Contains;
 import org.visallo.core.config.Configuration;
+import org.visallo.core.exception.VisalloException;
 import org.visallo.core.model.WorkQueueNames;
 import org.visallo.core.model.ontology.OntologyProperty;
 import org.visallo.core.model.ontology.OntologyRepository;
@@ -27,17 +31,24 @@ import org.visallo.core.util.VisalloLoggerFactory;
 import org.visallo.web.clientapi.model.ClientApiImportProperty;
 import org.visallo.web.clientapi.model.VisibilityJson;
 
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.IOException;
+import java.io.*;
+import java.nio.file.Files;
 import java.text.ParseException;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static org.vertexium.util.IterableUtils.toList;
 
 public class FileImport {
     private static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(FileImport.class);
     public static final String MULTI_VALUE_KEY = FileImport.class.getName();
+    private static final int DIRECTORY_BATCH_FILES_PER_THREAD = 10;
+    private static final int MAX_DIRECTORY_BATCH_SIZE = 100;
+    private static final long IN_MEMORY_MAX_BYTES = 1024 * 1024;
     private final VisibilityTranslator visibilityTranslator;
     private final Graph graph;
     private final WorkQueueRepository workQueueRepository;
@@ -68,6 +79,15 @@ public class FileImport {
     }
 
     public void importDirectory(File dataDir, boolean queueDuplicates, String conceptTypeIRI, String visibilitySource, Workspace workspace, Priority priority, User user, Authorizations authorizations) throws IOException {
+        importDirectory(dataDir, queueDuplicates, conceptTypeIRI, visibilitySource, workspace, priority, 1, user, authorizations);
+    }
+
+    /**
+     * Imports the files of a directory in batches, in file name order. The files of a batch are hashed, looked up by
+     * hash with one query and imported, hashing and importing up to parallelism files at a time.
+     */
+    public void importDirectory(File dataDir, boolean queueDuplicates, String conceptTypeIRI, String visibilitySource, Workspace workspace, Priority priority, int parallelism, User user, Authorizations authorizations) throws IOException {
+        checkArgument(parallelism >= 1, "parallelism must be at least 1, was %s", parallelism);
         ensureInitialized();
 
         LOGGER.debug("Importing files from %s", dataDir);
@@ -75,33 +95,146 @@ public class FileImport {
         if (files == null || files.length == 0) {
             return;
         }
+        Arrays.sort(files);
 
-        int totalFileCount = files.length;
-        int fileCount = 0;
-        int importedFileCount = 0;
+        List<File> importFiles = new ArrayList<>();
+        for (File f : files) {
+            if (f.getName().startsWith(".") || f.length() == 0) {
+                continue;
+            }
+            if (isSupportingFile(f)) {
+                continue;
+            }
+            importFiles.add(f);
+        }
+
+        long startTime = System.nanoTime();
+        DirectoryImportStatistics statistics = new DirectoryImportStatistics();
+        ExecutorService executor = Executors.newFixedThreadPool(
+                parallelism,
+                new ThreadFactoryBuilder()
+                        .setDaemon(true)
+                        .setNameFormat("visallo-file-import-%d")
+                        .build()
+        );
         try {
-            for (File f : files) {
-                if (f.getName().startsWith(".") || f.length() == 0) {
-                    continue;
-                }
-                if (isSupportingFile(f)) {
-                    continue;
+            for (List<File> batch : Lists.partition(importFiles, Math.min(MAX_DIRECTORY_BATCH_SIZE, parallelism * DIRECTORY_BATCH_FILES_PER_THREAD))) {
+                importDirectoryBatch(batch, queueDuplicates, conceptTypeIRI, visibilitySource, workspace, priority, executor, statistics, user, authorizations);
+                LOGGER.debug("Imported %d/%d files from %s", statistics.importedFileCount + statistics.failedFileCount, importFiles.size(), dataDir);
+            }
+        } finally {
+            executor.shutdownNow();
+            graph.flush();
+        }
+
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        double megabytes = statistics.importedBytes / (1024.0 * 1024.0);
+        LOGGER.info(
+                "Imported %d, skipped %d files (%.1f MB) from %s in %.1fs: %.1f files/s, %.1f MB/s (hash %.1fs, duplicate lookup %.1fs, import %.1fs)",
+                statistics.importedFileCount, statistics.failedFileCount, megabytes, dataDir, seconds,
+                statistics.importedFileCount / seconds, megabytes / seconds,
+                statistics.hashNanos / 1e9, statistics.lookupNanos / 1e9, statistics.importNanos / 1e9
+        );
+    }
+
+    private void importDirectoryBatch(
+            List<File> batch,
+            final boolean queueDuplicates,
+            final String conceptTypeIRI,
+            final String visibilitySource,
+            final Workspace workspace,
+            final Priority priority,
+            ExecutorService executor,
+            DirectoryImportStatistics statistics,
+            final User user,
+            final Authorizations authorizations
+    ) {
+        long startTime = System.nanoTime();
+        List<Callable<HashedFile>> hashTasks = new ArrayList<>(batch.size());
+        for (final File f : batch) {
+            hashTasks.add(new Callable<HashedFile>() {
+                @Override
+                public HashedFile call() throws Exception {
+                    return hashFile(f);
                 }
+            });
+        }
+        List<Future<HashedFile>> hashFutures = invokeAll(executor, hashTasks);
+        List<HashedFile> hashedFiles = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            try {
+                hashedFiles.add(hashFutures.get(i).get());
+            } catch (Exception ex) {
+                LOGGER.error("Could not import %s", batch.get(i).getAbsolutePath(), ex);
+                statistics.failedFileCount++;
+            }
+        }
+        statistics.hashNanos += System.nanoTime() - startTime;
 
-                LOGGER.debug("Importing file (%d/%d): %s", fileCount + 1, totalFileCount, f.getAbsolutePath());
-                try {
-                    importFile(f, queueDuplicates, conceptTypeIRI, null, visibilitySource, workspace, priority, user, authorizations);
-                    importedFileCount++;
-                } catch (Exception ex) {
-                    LOGGER.error("Could not import %s", f.getAbsolutePath(), ex);
+        startTime = System.nanoTime();
+        Set<String> hashes = new HashSet<>();
+        for (HashedFile hashedFile : hashedFiles) {
+            hashes.add(hashedFile.getHash());
+        }
+        final Map<String, Vertex> existingVertices = findExistingVerticesWithHashes(hashes, authorizations);
+        statistics.lookupNanos += System.nanoTime() - startTime;
+
+        // files repeating the content of an earlier file in the batch are imported after it, as its duplicates
+        startTime = System.nanoTime();
+        List<HashedFile> firstFiles = new ArrayList<>();
+        List<HashedFile> repeatedFiles = new ArrayList<>();
+        Set<String> firstFileHashes = new HashSet<>();
+        for (HashedFile hashedFile : hashedFiles) {
+            if (firstFileHashes.add(hashedFile.getHash())) {
+                firstFiles.add(hashedFile);
+            } else {
+                repeatedFiles.add(hashedFile);
+            }
+        }
+
+        List<Callable<Vertex>> importTasks = new ArrayList<>(firstFiles.size());
+        for (final HashedFile hashedFile : firstFiles) {
+            importTasks.add(new Callable<Vertex>() {
+                @Override
+                public Vertex call() throws Exception {
+                    LOGGER.debug("Importing file: %s", hashedFile.getFile().getAbsolutePath());
+                    Vertex existingVertex = existingVertices.get(hashedFile.getHash());
+                    return importFile(hashedFile, existingVertex, queueDuplicates, conceptTypeIRI, null, visibilitySource, workspace, priority, user, authorizations);
                 }
-                fileCount++;
+            });
+        }
+        List<Future<Vertex>> importFutures = invokeAll(executor, importTasks);
+        for (int i = 0; i < firstFiles.size(); i++) {
+            HashedFile hashedFile = firstFiles.get(i);
+            try {
+                existingVertices.put(hashedFile.getHash(), importFutures.get(i).get());
+                statistics.addImportedFile(hashedFile);
+            } catch (Exception ex) {
+                LOGGER.error("Could not import %s", hashedFile.getFile().getAbsolutePath(), ex);
+                statistics.failedFileCount++;
+            }
+        }
+
+        for (HashedFile hashedFile : repeatedFiles) {
+            try {
+                Vertex existingVertex = existingVertices.get(hashedFile.getHash());
+                importFile(hashedFile, existingVertex, queueDuplicates, conceptTypeIRI, null, visibilitySource, workspace, priority, user, authorizations);
+                statistics.addImportedFile(hashedFile);
+            } catch (Exception ex) {
+                LOGGER.error("Could not import %s", hashedFile.getFile().getAbsolutePath(), ex);
+                statistics.failedFileCount++;
             }
-        } finally {
-            graph.flush();
         }
+        statistics.importNanos += System.nanoTime() - startTime;
+    }
 
-        LOGGER.debug(String.format("Imported %d, skipped %d files from %s", importedFileCount, fileCount - importedFileCount, dataDir));
+    private static <T> List<Future<T>> invokeAll(ExecutorService executor, List<Callable<T>> tasks) {
+        try {
+            return executor.invokeAll(tasks);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new VisalloException("Interrupted while importing", ex);
+        }
     }
 
     private boolean isSupportingFile(File f) {
@@ -120,9 +253,15 @@ public class FileImport {
     public Vertex importFile(File f, boolean queueDuplicates, String conceptId, ClientApiImportProperty[] properties, String visibilitySource, Workspace workspace, Priority priority, User user, Authorizations authorizations) throws Exception {
         ensureInitialized();
 
-        String hash = calculateFileHash(f);
+        HashedFile hashedFile = hashFile(f);
+        Vertex existingVertex = findExistingVertexWithHash(hashedFile.getHash(), authorizations);
+        return importFile(hashedFile, existingVertex, queueDuplicates, conceptId, properties, visibilitySource, workspace, priority, user, authorizations);
+    }
 
-        Vertex vertex = findExistingVertexWithHash(hash, authorizations);
+    private Vertex importFile(HashedFile hashedFile, Vertex existingVertex, boolean queueDuplicates, String conceptId, ClientApiImportProperty[] properties, String visibilitySource, Workspace workspace, Priority priority, User user, Authorizations authorizations) throws Exception {
+        File f = hashedFile.getFile();
+        String hash = hashedFile.getHash();
+        Vertex vertex = existingVertex;
         if (vertex != null) {
             LOGGER.warn("vertex already exists with hash %s", hash);
             if (queueDuplicates) {
@@ -146,7 +285,7 @@ public class FileImport {
 
         List<FileImportSupportingFileHandler.AddSupportingFilesResult> addSupportingFilesResults = new ArrayList<>();
 
-        try (FileInputStream fileInputStream = new FileInputStream(f)) {
+        try (InputStream fileInputStream = hashedFile.openInputStream()) {
             JSONObject metadataJson = loadMetadataJson(f);
             String predefinedId = null;
             if (metadataJson != null) {
@@ -297,9 +436,103 @@ public class FileImport {
         return null;
     }
 
-    private String calculateFileHash(File f) throws IOException {
+    /**
+     * Finds a vertex for each of the hashes which already has that content hash.
+     */
+    private Map<String, Vertex> findExistingVerticesWithHashes(Set<String> hashes, Authorizations authorizations) {
+        Map<String, Vertex> existingVertices = new HashMap<>();
+        if (hashes.isEmpty()) {
+            return existingVertices;
+        }
+        int vertexCount = 0;
+        for (Vertex vertex : findVerticesWithAnyHash(hashes, hashes.size(), authorizations)) {
+            vertexCount++;
+            for (Object hash : vertex.getPropertyValues(VisalloProperties.CONTENT_HASH.getPropertyName())) {
+                if (hashes.contains(hash) && !existingVertices.containsKey(hash)) {
+                    existingVertices.put((String) hash, vertex);
+                }
+            }
+        }
+
+        // several vertices with the same hash may have filled the limit, look the missing hashes up one at a time
+        if (vertexCount == hashes.size()) {
+            for (String hash : hashes) {
+                if (!existingVertices.containsKey(hash)) {
+                    Vertex vertex = findExistingVertexWithHash(hash, authorizations);
+                    if (vertex != null) {
+                        existingVertices.put(hash, vertex);
+                    }
+                }
+            }
+        }
+        return existingVertices;
+    }
+
+    /**
+     * Queries for at most limit vertices having any of the content hashes.
+     */
+    protected Iterable<Vertex> findVerticesWithAnyHash(Set<String> hashes, int limit, Authorizations authorizations) {
+        return this.graph.query(authorizations)
+                .has(VisalloProperties.CONTENT_HASH.getPropertyName(), Contains.IN, hashes)
+                .limit(limit)
+                .vertices();
+    }
+
+    /**
+     * Hashes the file, keeping its contents in memory when it is small enough so it is only read once.
+     */
+    private HashedFile hashFile(File f) throws IOException {
+        if (f.length() <= IN_MEMORY_MAX_BYTES) {
+            byte[] data = Files.readAllBytes(f.toPath());
+            return new HashedFile(f, RowKeyHelper.buildSHA256KeyString(data), data);
+        }
         try (FileInputStream fileInputStream = new FileInputStream(f)) {
-            return RowKeyHelper.buildSHA256KeyString(fileInputStream);
+            return new HashedFile(f, RowKeyHelper.buildSHA256KeyString(fileInputStream), null);
+        }
+    }
+
+    private static class HashedFile {
+        private final File file;
+        private final String hash;
+        private final byte[] data;
+
+        public HashedFile(File file, String hash, byte[] data) {
+            this.file = file;
+            this.hash = hash;
+            this.data = data;
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        public String getHash() {
+            return hash;
+        }
+
+        public long getLength() {
+            return data == null ? file.length() : data.length;
+        }
+
+        public InputStream openInputStream() throws IOException {
+            if (data == null) {
+                return new FileInputStream(file);
+            }
+            return new ByteArrayInputStream(data);
+        }
+    }
+
+    private static class DirectoryImportStatistics {
+        private int importedFileCount;
+        private int failedFileCount;
+        private long importedBytes;
+        private long hashNanos;
+        private long lookupNanos;
+        private long importNanos;
+
+        public void addImportedFile(HashedFile hashedFile) {
+            importedFileCount++;
+            importedBytes += hashedFile.getLength();
         }
     }
 
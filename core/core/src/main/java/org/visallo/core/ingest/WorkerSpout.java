@@ -17,4 +17,18 @@ public abstract class WorkerSpout {
     }
 
     public abstract WorkerTuple nextTuple() throws Exception;
+
+    /**
+     * Waits up to waitMillis for the next tuple. Spouts that can block until a message arrives should override
+     * this, the default implementation polls {@link #nextTuple()} and sleeps if nothing is available.
+     *
+     * @return the next tuple or null if none arrived in time
+     */
+    public WorkerTuple nextTuple(long waitMillis) throws Exception {
+        WorkerTuple tuple = nextTuple();
+        if (tuple == null) {
+            Thread.sleep(waitMillis);
+        }
+        return tuple;
+    }
 }
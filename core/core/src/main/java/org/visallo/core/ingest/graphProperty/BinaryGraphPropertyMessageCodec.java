@@ -0,0 +1,158 @@
+package org.visallo.core.ingest.graphProperty;
+
+import org.json.JSONObject;
+import org.visallo.core.exception.VisalloException;
+import org.visallo.core.model.workQueue.Priority;
+
+import java.nio.charset.Charset;
+import java.util.Iterator;
+
+/**
+ * Compact binary wire format for graph property messages, an alternative to the message's JSON text.
+ *
+ * Version 1 is a version byte, a byte with one bit per field that is present, then each present field in
+ * {@link #FIELDS} order. String fields are a varint byte length followed by UTF-8, priority is its ordinal byte.
+ * Encoded messages never start with '{' so they can be told apart from JSON messages.
+ */
+public class BinaryGraphPropertyMessageCodec {
+    public static final byte VERSION_1 = 1;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final String[] FIELDS = new String[]{
+            GraphPropertyMessage.GRAPH_VERTEX_ID,
+            GraphPropertyMessage.GRAPH_EDGE_ID,
+            GraphPropertyMessage.PROPERTY_KEY,
+            GraphPropertyMessage.PROPERTY_NAME,
+            GraphPropertyMessage.WORKSPACE_ID,
+            GraphPropertyMessage.VISIBILITY_SOURCE
+    };
+    private static final int PRIORITY_FIELD_BIT = 1 << FIELDS.length;
+    private static final Priority[] PRIORITIES = Priority.values();
+
+    public static boolean isEncoded(byte[] data) {
+        return data.length > 0 && data[0] == VERSION_1;
+    }
+
+    /**
+     * @return true if every field of the message has a binary encoding, messages with other fields have to be sent as JSON.
+     */
+    public static boolean canEncode(JSONObject json) {
+        Iterator keys = json.keys();
+        while (keys.hasNext()) {
+            String key = (String) keys.next();
+            if (GraphPropertyMessage.PRIORITY.equals(key)) {
+                if (!(json.get(key) instanceof String) || !isPriority((String) json.get(key))) {
+                    return false;
+                }
+                continue;
+            }
+            if (indexOfField(key) < 0 || !(json.get(key) instanceof String)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static byte[] encode(JSONObject json) {
+        byte[][] values = new byte[FIELDS.length][];
+        int fieldBits = 0;
+        int length = 2;
+        for (int i = 0; i < FIELDS.length; i++) {
+            String value = json.optString(FIELDS[i], null);
+            if (value == null) {
+                continue;
+            }
+            values[i] = value.getBytes(UTF8);
+            fieldBits |= 1 << i;
+            length += varIntLength(values[i].length) + values[i].length;
+        }
+        String priorityString = json.optString(GraphPropertyMessage.PRIORITY, null);
+        if (priorityString != null) {
+            fieldBits |= PRIORITY_FIELD_BIT;
+            length++;
+        }
+
+        byte[] data = new byte[length];
+        int offset = 0;
+        data[offset++] = VERSION_1;
+        data[offset++] = (byte) fieldBits;
+        for (byte[] value : values) {
+            if (value == null) {
+                continue;
+            }
+            offset = writeVarInt(data, offset, value.length);
+            System.arraycopy(value, 0, data, offset, value.length);
+            offset += value.length;
+        }
+        if (priorityString != null) {
+            data[offset] = (byte) Priority.valueOf(priorityString).ordinal();
+        }
+        return data;
+    }
+
+    public static JSONObject decode(byte[] data) {
+        if (!isEncoded(data)) {
+            throw new VisalloException("Unsupported graph property message version: " + (data.length == 0 ? "empty" : data[0]));
+        }
+        try {
+            JSONObject json = new JSONObject();
+            int fieldBits = data[1] & 0xff;
+            int offset = 2;
+            for (int i = 0; i < FIELDS.length; i++) {
+                if ((fieldBits & (1 << i)) == 0) {
+                    continue;
+                }
+                int length = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = data[offset++];
+                    length |= (b & 0x7f) << shift;
+                    shift += 7;
+                } while ((b & 0x80) != 0);
+                json.put(FIELDS[i], new String(data, offset, length, UTF8));
+                offset += length;
+            }
+            if ((fieldBits & PRIORITY_FIELD_BIT) != 0) {
+                json.put(GraphPropertyMessage.PRIORITY, PRIORITIES[data[offset]].name());
+            }
+            return json;
+        } catch (IndexOutOfBoundsException ex) {
+            throw new VisalloException("Truncated graph property message", ex);
+        }
+    }
+
+    private static boolean isPriority(String priorityString) {
+        for (Priority priority : PRIORITIES) {
+            if (priority.name().equals(priorityString)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int indexOfField(String key) {
+        for (int i = 0; i < FIELDS.length; i++) {
+            if (FIELDS[i].equals(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int varIntLength(int value) {
+        int length = 1;
+        while ((value >>>= 7) != 0) {
+            length++;
+        }
+        return length;
+    }
+
+    private static int writeVarInt(byte[] data, int offset, int value) {
+        while ((value & ~0x7f) != 0) {
+            data[offset++] = (byte) ((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        data[offset++] = (byte) value;
+        return offset;
+    }
+}
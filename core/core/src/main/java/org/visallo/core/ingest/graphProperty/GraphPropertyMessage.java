@@ -81,6 +81,25 @@ public class GraphPropertyMessage {
         throw new VisalloException(String.format("Unable to determine processing type from invalid message %s", _obj.toString()));
     }
 
+    /**
+     * @return a key that is equal for messages asking for the same work, ignoring priority, or null if the message
+     * is not valid
+     */
+    public String getCoalesceKey() {
+        if (!isValid()) {
+            return null;
+        }
+        return StringUtils.join(new Object[]{
+                findProcessingType(),
+                getVertexId(),
+                getEdgeId(),
+                getPropertyKey(),
+                getPropertyName(),
+                getWorkspaceId(),
+                getVisibilitySource()
+        }, '\u0000');
+    }
+
     private static boolean canHandleElementById(String id){
         return StringUtils.isNotEmpty(id);
     }
@@ -1,6 +1,8 @@
 package org.visallo.core.ingest.graphProperty;
 
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.google.inject.Inject;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.io.IOUtils;
@@ -23,32 +25,43 @@ import org.visallo.core.status.StatusServer;
 import org.visallo.core.status.model.GraphPropertyRunnerStatus;
 import org.visallo.core.status.model.ProcessStatus;
 import org.visallo.core.user.User;
+import org.visallo.core.util.ByteBufferInputStream;
 import org.visallo.core.util.ServiceLoaderUtil;
 import org.visallo.core.util.TeeInputStream;
 import org.visallo.core.util.VisalloLogger;
 import org.visallo.core.util.VisalloLoggerFactory;
 
 import java.io.*;
+import java.lang.reflect.Method;
 import java.net.URI;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicLong;
 
 import static org.vertexium.util.IterableUtils.toList;
 
 public class GraphPropertyRunner extends WorkerBase {
     private static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(GraphPropertyRunner.class);
+    private static final long STREAMING_RESULT_WAIT_SECONDS = 10;
     private Graph graph;
     private Authorizations authorizations;
     private List<GraphPropertyThreadedWrapper> workerWrappers = Lists.newArrayList();
+    private volatile GraphPropertyWorkerInterestIndex workerInterestIndex = new GraphPropertyWorkerInterestIndex(workerWrappers);
     private User user;
     private UserRepository userRepository;
     private WorkQueueNames workQueueNames;
     private Configuration configuration;
     private VisibilityTranslator visibilityTranslator;
     private AtomicLong lastProcessedPropertyTime = new AtomicLong(0);
+    private final Object streamingEnqueueLock = new Object();
+    private LocalFileMode localFileMode = LocalFileMode.TEE;
 
     @Override
     public void process(Object messageId, JSONObject json) throws Exception {
@@ -117,7 +130,7 @@ public class GraphPropertyRunner extends WorkerBase {
                 failedToPrepareAtLeastOneGraphPropertyWorker = true;
             }
 
-            GraphPropertyThreadedWrapper wrapper = new GraphPropertyThreadedWrapper(worker);
+            GraphPropertyThreadedWrapper wrapper = new GraphPropertyThreadedWrapper(worker, getInFlightMessageCount());
             InjectHelper.inject(wrapper);
             wrappers.add(wrapper);
             Thread thread = new Thread(wrapper);
@@ -147,10 +160,11 @@ public class GraphPropertyRunner extends WorkerBase {
 
     public void addGraphPropertyThreadedWrappers(List<GraphPropertyThreadedWrapper> wrappers) {
         this.workerWrappers.addAll(wrappers);
+        this.workerInterestIndex = new GraphPropertyWorkerInterestIndex(Lists.newArrayList(this.workerWrappers));
     }
 
     public void addGraphPropertyThreadedWrappers(GraphPropertyThreadedWrapper... wrappers) {
-        this.workerWrappers.addAll(Lists.newArrayList(wrappers));
+        addGraphPropertyThreadedWrappers(Lists.newArrayList(wrappers));
     }
 
     private List<TermMentionFilter> loadTermMentionFilters(FileSystem hdfsFileSystem) {
@@ -179,6 +193,7 @@ public class GraphPropertyRunner extends WorkerBase {
             @Override
             protected ProcessStatus createStatus() {
                 GraphPropertyRunnerStatus status = new GraphPropertyRunnerStatus();
+                status.setLocalFileMode(localFileMode.name());
                 for (GraphPropertyThreadedWrapper graphPropertyThreadedWrapper : workerWrappers) {
                     status.getRunningWorkers().add(graphPropertyThreadedWrapper.getStatus());
                 }
@@ -189,8 +204,9 @@ public class GraphPropertyRunner extends WorkerBase {
 
     private void safeExecuteHandleEntireElement(GraphPropertyMessage message) throws Exception {
         Element element = getElement(message);
+        WorkerNameFilter workerNameFilter = new WorkerNameFilter(element);
         for (Property property : element.getProperties()) {
-            safeExecuteHandlePropertyOnElement(element, property, message);
+            safeExecuteHandlePropertyOnElement(element, property, message, workerNameFilter);
         }
     }
 
@@ -231,13 +247,13 @@ public class GraphPropertyRunner extends WorkerBase {
             }
         }
 
-        safeExecuteHandlePropertyOnElement(element, property, message);
+        safeExecuteHandlePropertyOnElement(element, property, message, new WorkerNameFilter(element));
     }
 
-    private void safeExecuteHandlePropertyOnElement(Element element, Property property, GraphPropertyMessage message) throws Exception {
+    private void safeExecuteHandlePropertyOnElement(Element element, Property property, GraphPropertyMessage message, WorkerNameFilter workerNameFilter) throws Exception {
         String propertyText = getPropertyText(property);
 
-        List<GraphPropertyThreadedWrapper> interestedWorkerWrappers = findInterestedWorkers(element, property);
+        List<GraphPropertyThreadedWrapper> interestedWorkerWrappers = findInterestedWorkers(element, property, workerNameFilter);
         if (interestedWorkerWrappers.size() == 0) {
             LOGGER.debug("Could not find interested workers for element %s property %s", element.getId(), propertyText);
             return;
@@ -278,13 +294,11 @@ public class GraphPropertyRunner extends WorkerBase {
     }
 
     private void safeExecuteNonStreamingProperty(List<GraphPropertyThreadedWrapper> interestedWorkerWrappers, GraphPropertyWorkData workData) throws Exception {
-        for (GraphPropertyThreadedWrapper interestedWorkerWrapper1 : interestedWorkerWrappers) {
-            interestedWorkerWrapper1.enqueueWork(null, workData);
-        }
-
+        List<ListenableFuture<GraphPropertyThreadedWrapper.WorkResult>> results = new ArrayList<>(interestedWorkerWrappers.size());
         for (GraphPropertyThreadedWrapper interestedWorkerWrapper : interestedWorkerWrappers) {
-            interestedWorkerWrapper.dequeueResult(true);
+            results.add(interestedWorkerWrapper.enqueueWork(null, workData));
         }
+        Futures.allAsList(results).get();
     }
 
     private void safeExecuteStreamingPropertyValue(List<GraphPropertyThreadedWrapper> interestedWorkerWrappers, GraphPropertyWorkData workData, StreamingPropertyValue streamingPropertyValue) throws Exception {
@@ -295,16 +309,29 @@ public class GraphPropertyRunner extends WorkerBase {
             boolean requiresLocalFile = isLocalFileRequired(interestedWorkerWrappers);
             if (requiresLocalFile) {
                 tempFile = copyToTempFile(in, workData);
+                if (localFileMode == LocalFileMode.MEMORY_MAPPED) {
+                    safeExecuteMemoryMappedLocalFile(interestedWorkerWrappers, workData, tempFile);
+                    return;
+                }
                 in = new FileInputStream(tempFile);
             }
 
             TeeInputStream teeInputStream = new TeeInputStream(in, workerNames);
-            for (int i = 0; i < interestedWorkerWrappers.size(); i++) {
-                interestedWorkerWrappers.get(i).enqueueWork(teeInputStream.getTees()[i], workData);
+            List<ListenableFuture<GraphPropertyThreadedWrapper.WorkResult>> results = new ArrayList<>(interestedWorkerWrappers.size());
+            // Every tee has to be read for the source to advance, so all tees of a message must be queued
+            // before any tee of a later message. Otherwise two messages each waiting on a worker busy with
+            // the other message's tee would deadlock.
+            synchronized (streamingEnqueueLock) {
+                for (int i = 0; i < interestedWorkerWrappers.size(); i++) {
+                    results.add(interestedWorkerWrappers.get(i).enqueueWork(teeInputStream.getTees()[i], workData));
+                }
             }
             teeInputStream.loopUntilTeesAreClosed();
-            for (GraphPropertyThreadedWrapper interestedWorkerWrapper : interestedWorkerWrappers) {
-                interestedWorkerWrapper.dequeueResult(false);
+            // every worker has closed its tee, so the results should follow shortly
+            try {
+                Futures.allAsList(results).get(STREAMING_RESULT_WAIT_SECONDS, TimeUnit.SECONDS);
+            } catch (TimeoutException ex) {
+                throw new VisalloException("Timed out waiting for the results of " + Arrays.toString(workerNames) + " after their input was closed", ex);
             }
         } finally {
             if (tempFile != null) {
@@ -315,6 +342,69 @@ public class GraphPropertyRunner extends WorkerBase {
         }
     }
 
+    private void safeExecuteMemoryMappedLocalFile(List<GraphPropertyThreadedWrapper> interestedWorkerWrappers, GraphPropertyWorkData workData, File localFile) throws Exception {
+        MappedByteBuffer localFileByteBuffer = mapLocalFile(localFile);
+        workData.setLocalFileByteBuffer(localFileByteBuffer);
+
+        // every worker reads its own view of the file so, unlike tees, they don't need to be queued together
+        List<ListenableFuture<GraphPropertyThreadedWrapper.WorkResult>> results = new ArrayList<>(interestedWorkerWrappers.size());
+        boolean workersCompleted = false;
+        try {
+            for (GraphPropertyThreadedWrapper interestedWorkerWrapper : interestedWorkerWrappers) {
+                InputStream workerIn;
+                if (localFileByteBuffer == null) {
+                    workerIn = new FileInputStream(localFile);
+                } else {
+                    workerIn = new ByteBufferInputStream(localFileByteBuffer.duplicate());
+                }
+                results.add(interestedWorkerWrapper.enqueueWork(workerIn, workData));
+            }
+            Futures.allAsList(results).get();
+            workersCompleted = true;
+        } finally {
+            workData.setLocalFileByteBuffer(null);
+            // a worker still reading an unmapped buffer would crash the JVM, so only unmap once every worker is done
+            if (localFileByteBuffer != null && workersCompleted) {
+                unmap(localFileByteBuffer);
+            }
+        }
+    }
+
+    /**
+     * Releases the mapping right away instead of when the buffer is garbage collected, so the pages are not held
+     * and the file can be deleted on every platform. There is no public API for this, if the JVM does not support
+     * it the mapping is released by the garbage collector.
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        try {
+            Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            Object cleaner = cleanerMethod.invoke(buffer);
+            if (cleaner != null) {
+                Method cleanMethod = cleaner.getClass().getMethod("clean");
+                cleanMethod.setAccessible(true);
+                cleanMethod.invoke(cleaner);
+            }
+        } catch (Exception ex) {
+            LOGGER.debug("Could not unmap local file buffer, it will be released when garbage collected", ex);
+        }
+    }
+
+    /**
+     * @return the mapped file or null if the file is too large to be mapped into a single buffer.
+     */
+    private MappedByteBuffer mapLocalFile(File localFile) throws IOException {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(localFile, "r")) {
+            FileChannel channel = randomAccessFile.getChannel();
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                LOGGER.debug("%s is too large to memory map (%d bytes), workers will read the file", localFile.getAbsolutePath(), size);
+                return null;
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+    }
+
     private File copyToTempFile(InputStream in, GraphPropertyWorkData workData) throws IOException {
         String fileExt = null;
         String fileName = VisalloProperties.FILE_NAME.getOnlyPropertyValue(workData.getElement());
@@ -344,26 +434,41 @@ public class GraphPropertyRunner extends WorkerBase {
         return false;
     }
 
-    private List<GraphPropertyThreadedWrapper> findInterestedWorkers(Element element, Property property) {
-        Set<String> graphPropertyWorkerWhiteList = IterableUtils.toSet(VisalloProperties.GRAPH_PROPERTY_WORKER_WHITE_LIST.getPropertyValues(element));
-        Set<String> graphPropertyWorkerBlackList = IterableUtils.toSet(VisalloProperties.GRAPH_PROPERTY_WORKER_BLACK_LIST.getPropertyValues(element));
+    private List<GraphPropertyThreadedWrapper> findInterestedWorkers(Element element, Property property, WorkerNameFilter workerNameFilter) {
+        List<GraphPropertyThreadedWrapper> candidates = workerInterestIndex.findCandidates(element, property);
 
-        List<GraphPropertyThreadedWrapper> interestedWorkers = new ArrayList<>();
-        for (GraphPropertyThreadedWrapper wrapper : workerWrappers) {
-            String graphPropertyWorkerName = wrapper.getWorker().getClass().getName();
-            if (graphPropertyWorkerWhiteList.size() > 0 && !graphPropertyWorkerWhiteList.contains(graphPropertyWorkerName)) {
-                continue;
-            }
-            if (graphPropertyWorkerBlackList.contains(graphPropertyWorkerName)) {
+        List<GraphPropertyThreadedWrapper> interestedWorkers = new ArrayList<>(candidates.size());
+        for (GraphPropertyThreadedWrapper wrapper : candidates) {
+            if (!workerNameFilter.isAllowed(wrapper.getWorker().getClass().getName())) {
                 continue;
             }
-            if (wrapper.getWorker().isHandled(element, property)) {
+            if (wrapper.isHandled(element, property)) {
                 interestedWorkers.add(wrapper);
             }
         }
         return interestedWorkers;
     }
 
+    /**
+     * The element's graph property worker white and black lists, read once per element.
+     */
+    private static class WorkerNameFilter {
+        private final Set<String> whiteList;
+        private final Set<String> blackList;
+
+        public WorkerNameFilter(Element element) {
+            this.whiteList = IterableUtils.toSet(VisalloProperties.GRAPH_PROPERTY_WORKER_WHITE_LIST.getPropertyValues(element));
+            this.blackList = IterableUtils.toSet(VisalloProperties.GRAPH_PROPERTY_WORKER_BLACK_LIST.getPropertyValues(element));
+        }
+
+        public boolean isAllowed(String graphPropertyWorkerName) {
+            if (whiteList.size() > 0 && !whiteList.contains(graphPropertyWorkerName)) {
+                return false;
+            }
+            return !blackList.contains(graphPropertyWorkerName);
+        }
+    }
+
     private String[] graphPropertyThreadedWrapperToNames(List<GraphPropertyThreadedWrapper> interestedWorkerWrappers) {
         String[] names = new String[interestedWorkerWrappers.size()];
         for (int i = 0; i < names.length; i++) {
@@ -412,6 +517,12 @@ public class GraphPropertyRunner extends WorkerBase {
     @Inject
     public void setConfiguration(Configuration configuration) {
         this.configuration = configuration;
+        String localFileModeString = configuration.get(Configuration.GRAPH_PROPERTY_RUNNER_LOCAL_FILE_MODE, LocalFileMode.TEE.name());
+        try {
+            this.localFileMode = LocalFileMode.valueOf(localFileModeString.trim().toUpperCase());
+        } catch (IllegalArgumentException ex) {
+            throw new VisalloException("Invalid value for " + Configuration.GRAPH_PROPERTY_RUNNER_LOCAL_FILE_MODE + ": \"" + localFileModeString + "\", expected one of " + Arrays.toString(LocalFileMode.values()), ex);
+        }
     }
 
     @Inject
@@ -435,6 +546,17 @@ public class GraphPropertyRunner extends WorkerBase {
         return this.user;
     }
 
+    @Override
+    protected int getInFlightMessageCount() {
+        if (configuration == null) {
+            return Configuration.DEFAULT_GRAPH_PROPERTY_RUNNER_IN_FLIGHT_MESSAGES;
+        }
+        return configuration.getInt(
+                Configuration.GRAPH_PROPERTY_RUNNER_IN_FLIGHT_MESSAGES,
+                Configuration.DEFAULT_GRAPH_PROPERTY_RUNNER_IN_FLIGHT_MESSAGES
+        );
+    }
+
     @Override
     protected String getQueueName() {
         return workQueueNames.getGraphPropertyQueueName();
@@ -2,6 +2,8 @@ package org.visallo.core.ingest.graphProperty;
 
 import com.codahale.metrics.Counter;
 import com.codahale.metrics.Timer;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
 import com.google.inject.Inject;
 import org.visallo.core.status.MetricsManager;
 import org.visallo.core.status.PausableTimerContext;
@@ -12,49 +14,69 @@ import org.visallo.core.status.model.Status;
 import org.visallo.core.util.VisalloLogger;
 import org.visallo.core.util.VisalloLoggerFactory;
 import org.vertexium.Element;
+import org.vertexium.Property;
+import org.visallo.core.exception.VisalloException;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.Date;
-import java.util.LinkedList;
-import java.util.Queue;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 public class GraphPropertyThreadedWrapper implements Runnable {
     private static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(GraphPropertyThreadedWrapper.class);
+    public static final int DEFAULT_WORK_QUEUE_CAPACITY = 1;
+    private static final Work STOP_WORK = new Work(null, null);
     private final GraphPropertyWorker worker;
+    private final BlockingQueue<Work> workItems;
 
     public GraphPropertyThreadedWrapper(GraphPropertyWorker worker) {
+        this(worker, DEFAULT_WORK_QUEUE_CAPACITY);
+    }
+
+    /**
+     * @param workQueueCapacity the number of work items that can be waiting for this worker, typically the
+     *                          number of messages the runner processes at the same time. Once full,
+     *                          {@link #enqueueWork(InputStream, GraphPropertyWorkData)} blocks.
+     */
+    public GraphPropertyThreadedWrapper(GraphPropertyWorker worker, int workQueueCapacity) {
         this.worker = worker;
+        this.workItems = new ArrayBlockingQueue<>(Math.max(1, workQueueCapacity));
     }
 
     private Counter totalProcessedCounter = null;
     private Counter processingCounter;
     private Counter totalErrorCounter;
     private Timer processingTimeTimer;
-    private boolean stopped;
-    private final Queue<Work> workItems = new LinkedList<>();
-    private final Queue<WorkResult> workResults = new LinkedList<>();
+    private Timer queueTimeTimer;
+    private Counter isHandledCallsCounter;
+    private Counter isHandledMatchesCounter;
+    private volatile boolean stopped;
     private MetricsManager metricsManager;
 
     @Override
     public final void run() {
         ensureMetricsInitialized();
 
-        stopped = false;
         try {
             while (!stopped) {
-                Work work;
-                synchronized (workItems) {
-                    if (workItems.size() == 0) {
-                        workItems.wait(1000);
-                        continue;
-                    }
-                    work = workItems.remove();
+                Work work = workItems.take();
+                if (work == STOP_WORK) {
+                    continue;
+                }
+                if (stopped) {
+                    failWork(work);
+                    continue;
                 }
+                queueTimeTimer.update(System.nanoTime() - work.getEnqueuedTime(), TimeUnit.NANOSECONDS);
+
                 InputStream in = work.getIn();
                 String workerClassName = this.worker.getClass().getName();
                 Element element = work.getData() == null ? null : work.getData().getElement();
                 String elementId = element == null ? null : element.getId();
+                Throwable error = null;
                 try {
                     LOGGER.debug("BEGIN doWork (%s): %s", workerClassName, elementId);
                     PausableTimerContext timerContext = new PausableTimerContext(processingTimeTimer);
@@ -70,75 +92,118 @@ public class GraphPropertyThreadedWrapper implements Runnable {
                         totalProcessedCounter.inc();
                         timerContext.stop();
                     }
-                    synchronized (workResults) {
-                        workResults.add(new WorkResult(null));
-                        workResults.notifyAll();
-                    }
                 } catch (Throwable ex) {
                     LOGGER.error("failed to complete work (%s): %s", workerClassName, elementId, ex);
                     totalErrorCounter.inc();
-                    synchronized (workResults) {
-                        workResults.add(new WorkResult(ex));
-                        workResults.notifyAll();
-                    }
+                    error = ex;
                 } finally {
                     try {
                         if (in != null) {
                             in.close();
                         }
                     } catch (IOException ex) {
-                        synchronized (workResults) {
-                            workResults.add(new WorkResult(ex));
-                            workResults.notifyAll();
+                        if (error == null) {
+                            error = ex;
                         }
                     }
+                    work.getResult().set(new WorkResult(error));
                 }
             }
         } catch (InterruptedException ex) {
             LOGGER.error("thread was interrupted", ex);
+        } finally {
+            failPendingWork();
         }
     }
 
-    private void ensureMetricsInitialized() {
+    private synchronized void ensureMetricsInitialized() {
         if (totalProcessedCounter == null) {
             String namePrefix = metricsManager.getNamePrefix(this.worker);
             totalProcessedCounter = metricsManager.counter(namePrefix + "total-processed");
             processingCounter = metricsManager.counter(namePrefix + "processing");
             totalErrorCounter = metricsManager.counter(namePrefix + "total-errors");
             processingTimeTimer = metricsManager.timer(namePrefix + "processing-time");
+            queueTimeTimer = metricsManager.timer(namePrefix + "queue-time");
+            isHandledCallsCounter = metricsManager.counter(namePrefix + "is-handled-calls");
+            isHandledMatchesCounter = metricsManager.counter(namePrefix + "is-handled-matches");
         }
     }
 
-    public void enqueueWork(InputStream in, GraphPropertyWorkData data) {
-        synchronized (workItems) {
-            workItems.add(new Work(in, data));
-            workItems.notifyAll();
+    /**
+     * Queues work for this worker, blocking while the work queue is full. Work queued from different
+     * messages is processed in the order it was queued.
+     *
+     * @return a future that completes with the result of this work item once the worker has finished with it, or
+     * with an error if the wrapper is stopped before the worker gets to it
+     */
+    public ListenableFuture<WorkResult> enqueueWork(InputStream in, GraphPropertyWorkData data) {
+        Work work = new Work(in, data);
+        if (stopped) {
+            failWork(work);
+            return work.getResult();
         }
+        try {
+            workItems.put(work);
+        } catch (InterruptedException e) {
+            throw new VisalloException("Interrupted waiting to enqueue work", e);
+        }
+        // the wrapper may have been stopped while waiting for room, after its thread stopped taking work
+        if (stopped) {
+            failPendingWork();
+        }
+        return work.getResult();
     }
 
-    public WorkResult dequeueResult(boolean waitForever) {
-        synchronized (workResults) {
-            if (workResults.size() == 0) {
-                long startTime = new Date().getTime();
-                while (workResults.size() == 0 && (waitForever || (new Date().getTime() - startTime < 10 * 1000))) {
-                    try {
-                        if (new Date().getTime() - startTime > 5 * 1000) {
-                            LOGGER.warn("worker has zero results. sleeping waiting for results.");
-                        } else {
-                            LOGGER.debug("worker has zero results. sleeping waiting for results.");
-                        }
-                        workResults.wait(waitForever ? 30 * 1000 : 1000);
-                    } catch (InterruptedException e) {
-                        throw new RuntimeException(e);
-                    }
-                }
+    /**
+     * Asks the worker if it handles the property, counting the calls and matches.
+     */
+    public boolean isHandled(Element element, Property property) {
+        boolean handled = this.worker.isHandled(element, property);
+        // the counters only exist once a metrics manager was injected
+        if (isHandledCallsCounter != null) {
+            isHandledCallsCounter.inc();
+            if (handled) {
+                isHandledMatchesCounter.inc();
             }
-            return workResults.remove();
         }
+        return handled;
     }
 
+    /**
+     * Stops the worker thread once it has finished the work it is processing. Work still waiting in the queue is
+     * not processed, its futures complete with an error.
+     */
     public void stop() {
         stopped = true;
+        failPendingWork();
+        // wake the worker thread if it is idle
+        while (!workItems.offer(STOP_WORK)) {
+            failPendingWork();
+        }
+    }
+
+    private void failPendingWork() {
+        List<Work> pendingWork = new ArrayList<>();
+        workItems.drainTo(pendingWork);
+        for (Work work : pendingWork) {
+            if (work == STOP_WORK) {
+                // the worker thread may still be waiting for it
+                workItems.offer(STOP_WORK);
+                continue;
+            }
+            failWork(work);
+        }
+    }
+
+    private void failWork(Work work) {
+        try {
+            if (work.getIn() != null) {
+                work.getIn().close();
+            }
+        } catch (IOException ex) {
+            LOGGER.warn("Could not close input of unprocessed work (%s)", this.worker.getClass().getName(), ex);
+        }
+        work.getResult().set(new WorkResult(new VisalloException("Worker " + this.worker.getClass().getName() + " was stopped before processing the work")));
     }
 
     public GraphPropertyWorker getWorker() {
@@ -152,12 +217,17 @@ public class GraphPropertyThreadedWrapper implements Runnable {
         status.getMetrics().put("processing", Status.Metric.create(processingCounter));
         status.getMetrics().put("totalErrors", Status.Metric.create(totalErrorCounter));
         status.getMetrics().put("processingTime", Status.Metric.create(processingTimeTimer));
+        status.getMetrics().put("queueTime", Status.Metric.create(queueTimeTimer));
+        status.getMetrics().put("isHandledCalls", Status.Metric.create(isHandledCallsCounter));
+        status.getMetrics().put("isHandledMatches", Status.Metric.create(isHandledMatchesCounter));
         return status;
     }
 
-    private class Work {
+    private static class Work {
         private final InputStream in;
         private final GraphPropertyWorkData data;
+        private final SettableFuture<WorkResult> result = SettableFuture.create();
+        private final long enqueuedTime = System.nanoTime();
 
         public Work(InputStream in, GraphPropertyWorkData data) {
             this.in = in;
@@ -171,6 +241,14 @@ public class GraphPropertyThreadedWrapper implements Runnable {
         private GraphPropertyWorkData getData() {
             return data;
         }
+
+        private SettableFuture<WorkResult> getResult() {
+            return result;
+        }
+
+        private long getEnqueuedTime() {
+            return enqueuedTime;
+        }
     }
 
     public static class WorkResult {
@@ -188,6 +266,8 @@ public class GraphPropertyThreadedWrapper implements Runnable {
     @Inject
     public void setMetricsManager(MetricsManager metricsManager) {
         this.metricsManager = metricsManager;
+        // the runner asks isHandled from its own threads, possibly before this wrapper's thread has started
+        ensureMetricsInitialized();
     }
 
     @Override
@@ -7,6 +7,7 @@ import org.visallo.web.clientapi.model.VisibilityJson;
 import org.vertexium.*;
 
 import java.io.File;
+import java.nio.ByteBuffer;
 
 public class GraphPropertyWorkData {
     private final VisibilityTranslator visibilityTranslator;
@@ -16,6 +17,7 @@ public class GraphPropertyWorkData {
     private final String visibilitySource;
     private final Priority priority;
     private File localFile;
+    private ByteBuffer localFileByteBuffer;
 
     public GraphPropertyWorkData(
             VisibilityTranslator visibilityTranslator,
@@ -49,6 +51,20 @@ public class GraphPropertyWorkData {
         return localFile;
     }
 
+    public void setLocalFileByteBuffer(ByteBuffer localFileByteBuffer) {
+        this.localFileByteBuffer = localFileByteBuffer;
+    }
+
+    /**
+     * @return a read-only view of the memory mapped local file, independent of any other view, or null if
+     * the local file is not memory mapped. The mapping is released once the worker returns from
+     * {@link GraphPropertyWorker#execute(java.io.InputStream, GraphPropertyWorkData)}, so the view must not be
+     * kept beyond it.
+     */
+    public ByteBuffer getLocalFileByteBuffer() {
+        return localFileByteBuffer == null ? null : localFileByteBuffer.asReadOnlyBuffer();
+    }
+
     public Visibility getVisibility() {
         return getElement().getVisibility();
     }
@@ -5,6 +5,7 @@ import org.vertexium.*;
 import org.vertexium.mutation.ExistingElementMutation;
 import org.vertexium.property.StreamingPropertyValue;
 import org.visallo.core.config.Configuration;
+import org.visallo.core.exception.VisalloException;
 import org.visallo.core.ingest.video.VideoTranscript;
 import org.visallo.core.model.graph.GraphRepository;
 import org.visallo.core.model.ontology.OntologyRepository;
@@ -67,6 +68,29 @@ public abstract class GraphPropertyWorker {
 
     public abstract boolean isHandled(Element element, Property property);
 
+    /**
+     * Optionally declares which properties this worker can handle so the runner only calls
+     * {@link #isHandled(Element, Property)} for matching properties. Return null, the default, to be asked
+     * about every property.
+     */
+    public GraphPropertyWorkerInterest getInterest() {
+        return null;
+    }
+
+    /**
+     * Base classes that derive an interest from their own {@link #isHandled(Element, Property)} use this to
+     * only declare it when no subclass overrides isHandled, since an overriding subclass may accept more.
+     *
+     * @return true if this worker's isHandled is declared by a class other than baseClass.
+     */
+    protected final boolean isHandledOverriddenBelow(Class<? extends GraphPropertyWorker> baseClass) {
+        try {
+            return getClass().getMethod("isHandled", Element.class, Property.class).getDeclaringClass() != baseClass;
+        } catch (NoSuchMethodException ex) {
+            throw new VisalloException("Could not find isHandled of " + getClass().getName(), ex);
+        }
+    }
+
     public boolean isLocalFileRequired() {
         return false;
     }
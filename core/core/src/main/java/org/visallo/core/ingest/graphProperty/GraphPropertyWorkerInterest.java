@@ -0,0 +1,106 @@
+package org.visallo.core.ingest.graphProperty;
+
+import com.google.common.collect.ImmutableSet;
+import org.vertexium.Element;
+import org.vertexium.Property;
+import org.visallo.core.model.properties.VisalloProperties;
+
+import java.util.Set;
+
+/**
+ * Static description of the properties a {@link GraphPropertyWorker} can handle. The
+ * {@link GraphPropertyRunner} uses it to skip calling {@link GraphPropertyWorker#isHandled(Element, Property)}
+ * on workers that could never handle a property, so an interest must never be narrower than isHandled.
+ * An empty set of property names, mime type prefixes or concept IRIs matches anything.
+ *
+ * Workers that declare an interest are never offered messages without a property.
+ */
+public class GraphPropertyWorkerInterest {
+    private final Set<String> propertyNames;
+    private final Set<String> mimeTypePrefixes;
+    private final Set<String> conceptIris;
+
+    private GraphPropertyWorkerInterest(Set<String> propertyNames, Set<String> mimeTypePrefixes, Set<String> conceptIris) {
+        this.propertyNames = propertyNames;
+        this.mimeTypePrefixes = mimeTypePrefixes;
+        this.conceptIris = conceptIris;
+    }
+
+    public static GraphPropertyWorkerInterest anyProperty() {
+        return new GraphPropertyWorkerInterest(ImmutableSet.<String>of(), ImmutableSet.<String>of(), ImmutableSet.<String>of());
+    }
+
+    public static GraphPropertyWorkerInterest forPropertyNames(String... propertyNames) {
+        return anyProperty().withPropertyNames(propertyNames);
+    }
+
+    public GraphPropertyWorkerInterest withPropertyNames(String... propertyNames) {
+        return new GraphPropertyWorkerInterest(ImmutableSet.copyOf(propertyNames), mimeTypePrefixes, conceptIris);
+    }
+
+    public GraphPropertyWorkerInterest withMimeTypePrefixes(String... mimeTypePrefixes) {
+        return new GraphPropertyWorkerInterest(propertyNames, ImmutableSet.copyOf(mimeTypePrefixes), conceptIris);
+    }
+
+    /**
+     * Concept IRIs are matched exactly against the element's concept type, sub concepts must be listed too.
+     */
+    public GraphPropertyWorkerInterest withConceptIris(String... conceptIris) {
+        return new GraphPropertyWorkerInterest(propertyNames, mimeTypePrefixes, ImmutableSet.copyOf(conceptIris));
+    }
+
+    public Set<String> getPropertyNames() {
+        return propertyNames;
+    }
+
+    public Set<String> getMimeTypePrefixes() {
+        return mimeTypePrefixes;
+    }
+
+    public Set<String> getConceptIris() {
+        return conceptIris;
+    }
+
+    /**
+     * Checks the mime type and concept parts of this interest, property names are checked by the runner's index.
+     */
+    public boolean matchesMimeTypeAndConcept(Element element, Property property) {
+        if (property == null) {
+            return false;
+        }
+
+        if (mimeTypePrefixes.size() > 0) {
+            String mimeType = VisalloProperties.MIME_TYPE_METADATA.getMetadataValue(property.getMetadata(), null);
+            if (mimeType == null || !startsWithAny(mimeType, mimeTypePrefixes)) {
+                return false;
+            }
+        }
+
+        if (conceptIris.size() > 0) {
+            String conceptType = VisalloProperties.CONCEPT_TYPE.getPropertyValue(element);
+            if (conceptType == null || !conceptIris.contains(conceptType)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean startsWithAny(String value, Set<String> prefixes) {
+        for (String prefix : prefixes) {
+            if (value.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "GraphPropertyWorkerInterest{" +
+                "propertyNames=" + propertyNames +
+                ", mimeTypePrefixes=" + mimeTypePrefixes +
+                ", conceptIris=" + conceptIris +
+                '}';
+    }
+}
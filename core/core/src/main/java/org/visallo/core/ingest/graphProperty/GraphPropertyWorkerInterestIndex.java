@@ -0,0 +1,112 @@
+package org.visallo.core.ingest.graphProperty;
+
+import org.vertexium.Element;
+import org.vertexium.Property;
+
+import java.util.*;
+
+/**
+ * Immutable lookup from a property to the workers that might handle it, built from each worker's
+ * {@link GraphPropertyWorker#getInterest()}. Candidates are returned in the order the workers were registered.
+ */
+class GraphPropertyWorkerInterestIndex {
+    private final List<Candidate> undeclaredCandidates;
+    private final List<Candidate> anyPropertyNameCandidates;
+    private final Map<String, List<Candidate>> candidatesByPropertyName;
+
+    GraphPropertyWorkerInterestIndex(List<GraphPropertyThreadedWrapper> wrappers) {
+        List<Candidate> undeclaredCandidates = new ArrayList<>();
+        List<Candidate> anyPropertyNameCandidates = new ArrayList<>();
+        Map<String, List<Candidate>> candidatesByPropertyName = new HashMap<>();
+        for (int i = 0; i < wrappers.size(); i++) {
+            GraphPropertyThreadedWrapper wrapper = wrappers.get(i);
+            Candidate candidate = new Candidate(i, wrapper, wrapper.getWorker().getInterest());
+            if (candidate.getInterest() == null) {
+                undeclaredCandidates.add(candidate);
+                anyPropertyNameCandidates.add(candidate);
+            } else if (candidate.getInterest().getPropertyNames().size() == 0) {
+                anyPropertyNameCandidates.add(candidate);
+            } else {
+                for (String propertyName : candidate.getInterest().getPropertyNames()) {
+                    List<Candidate> candidates = candidatesByPropertyName.get(propertyName);
+                    if (candidates == null) {
+                        candidates = new ArrayList<>();
+                        candidatesByPropertyName.put(propertyName, candidates);
+                    }
+                    candidates.add(candidate);
+                }
+            }
+        }
+        this.undeclaredCandidates = undeclaredCandidates;
+        this.anyPropertyNameCandidates = anyPropertyNameCandidates;
+        this.candidatesByPropertyName = candidatesByPropertyName;
+    }
+
+    /**
+     * @return the workers whose interest matches the property, isHandled still has to be asked.
+     */
+    List<GraphPropertyThreadedWrapper> findCandidates(Element element, Property property) {
+        if (property == null) {
+            return toWrappers(undeclaredCandidates, element, null);
+        }
+
+        List<Candidate> named = candidatesByPropertyName.get(property.getName());
+        if (named == null) {
+            return toWrappers(anyPropertyNameCandidates, element, property);
+        }
+        return toWrappers(merge(named, anyPropertyNameCandidates), element, property);
+    }
+
+    private static List<GraphPropertyThreadedWrapper> toWrappers(List<Candidate> candidates, Element element, Property property) {
+        List<GraphPropertyThreadedWrapper> results = new ArrayList<>(candidates.size());
+        for (Candidate candidate : candidates) {
+            if (candidate.getInterest() == null || candidate.getInterest().matchesMimeTypeAndConcept(element, property)) {
+                results.add(candidate.getWrapper());
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Merges two lists sorted by registration order.
+     */
+    private static List<Candidate> merge(List<Candidate> a, List<Candidate> b) {
+        List<Candidate> results = new ArrayList<>(a.size() + b.size());
+        int ai = 0;
+        int bi = 0;
+        while (ai < a.size() && bi < b.size()) {
+            if (a.get(ai).getOrder() < b.get(bi).getOrder()) {
+                results.add(a.get(ai++));
+            } else {
+                results.add(b.get(bi++));
+            }
+        }
+        results.addAll(a.subList(ai, a.size()));
+        results.addAll(b.subList(bi, b.size()));
+        return results;
+    }
+
+    private static class Candidate {
+        private final int order;
+        private final GraphPropertyThreadedWrapper wrapper;
+        private final GraphPropertyWorkerInterest interest;
+
+        private Candidate(int order, GraphPropertyThreadedWrapper wrapper, GraphPropertyWorkerInterest interest) {
+            this.order = order;
+            this.wrapper = wrapper;
+            this.interest = interest;
+        }
+
+        public int getOrder() {
+            return order;
+        }
+
+        public GraphPropertyThreadedWrapper getWrapper() {
+            return wrapper;
+        }
+
+        public GraphPropertyWorkerInterest getInterest() {
+            return interest;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package org.visallo.core.ingest.graphProperty;
+
+/**
+ * How {@link GraphPropertyRunner} shares a streaming property value with its workers when at least one
+ * interested worker requires a local file.
+ */
+public enum LocalFileMode {
+    /**
+     * Copy the value to a temp file, then read the temp file once and split it between the workers
+     * with a {@link org.visallo.core.util.TeeInputStream}.
+     */
+    TEE,
+
+    /**
+     * Copy the value to a temp file and memory map it. Each worker gets its own stream over the mapped file,
+     * so the file is only read by the workers that need it and the workers do not wait on each other.
+     */
+    MEMORY_MAPPED
+}
@@ -49,6 +49,17 @@ public abstract class MimeTypeGraphPropertyWorker extends GraphPropertyWorker {
         return true;
     }
 
+    /**
+     * Only raw properties are of interest, unless a subclass overrides {@link #isHandled(Element, Property)}.
+     */
+    @Override
+    public GraphPropertyWorkerInterest getInterest() {
+        if (isHandledOverriddenBelow(MimeTypeGraphPropertyWorker.class)) {
+            return null;
+        }
+        return GraphPropertyWorkerInterest.forPropertyNames(VisalloProperties.RAW.getPropertyName());
+    }
+
     @Override
     public void execute(InputStream in, GraphPropertyWorkData data) throws Exception {
         String fileName = VisalloProperties.FILE_NAME.getOnlyPropertyValue(data.getElement());
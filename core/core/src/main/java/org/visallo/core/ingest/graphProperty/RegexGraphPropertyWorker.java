@@ -7,13 +7,12 @@ import org.vertexium.Property;
 import org.vertexium.Vertex;
 import org.visallo.core.model.ontology.Concept;
 import org.visallo.core.model.properties.VisalloProperties;
-import org.visallo.core.model.termMention.TermMentionBuilder;
+import org.visallo.core.model.termMention.TermMentionBatch;
 import org.visallo.core.util.VisalloLogger;
 import org.visallo.core.util.VisalloLoggerFactory;
 
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -44,24 +43,21 @@ public abstract class RegexGraphPropertyWorker extends GraphPropertyWorker {
 
         Vertex sourceVertex = (Vertex) data.getElement();
 
-        List<Vertex> termMentions = new ArrayList<>();
+        TermMentionBatch termMentionBatch = new TermMentionBatch(sourceVertex, data.getProperty().getKey());
         while (matcher.find()) {
             final String patternGroup = matcher.group();
             int start = matcher.start();
             int end = matcher.end();
 
-            Vertex termMention = new TermMentionBuilder()
-                    .sourceVertex(sourceVertex)
-                    .propertyKey(data.getProperty().getKey())
+            termMentionBatch.add()
                     .start(start)
                     .end(end)
                     .title(patternGroup)
                     .conceptIri(getConcept().getIRI())
                     .visibilityJson(data.getVisibilityJson())
-                    .process(getClass().getName())
-                    .save(getGraph(), getVisibilityTranslator(), getAuthorizations());
-            termMentions.add(termMention);
+                    .process(getClass().getName());
         }
+        List<Vertex> termMentions = termMentionBatch.save(getGraph(), getVisibilityTranslator(), getAuthorizations());
         applyTermMentionFilters(sourceVertex, termMentions);
         pushTextUpdated(data);
     }
@@ -79,4 +75,16 @@ public abstract class RegexGraphPropertyWorker extends GraphPropertyWorker {
         String mimeType = (String) property.getMetadata().getValue(VisalloProperties.MIME_TYPE.getPropertyName());
         return !(mimeType == null || !mimeType.startsWith("text"));
     }
+
+    /**
+     * Only properties with a text mime type are of interest. A subclass that overrides
+     * {@link #isHandled(Element, Property)} is asked about every property instead.
+     */
+    @Override
+    public GraphPropertyWorkerInterest getInterest() {
+        if (isHandledOverriddenBelow(RegexGraphPropertyWorker.class)) {
+            return null;
+        }
+        return GraphPropertyWorkerInterest.anyProperty().withMimeTypePrefixes("text");
+    }
 }
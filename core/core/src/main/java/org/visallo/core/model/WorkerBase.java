@@ -1,5 +1,6 @@
 package org.visallo.core.model;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
 import org.visallo.core.ingest.WorkerSpout;
 import org.visallo.core.ingest.WorkerTuple;
@@ -12,8 +13,17 @@ import org.apache.curator.framework.CuratorFramework;
 import org.json.JSONObject;
 
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 public abstract class WorkerBase {
+    private static final long NEXT_TUPLE_WAIT_MILLIS = 100;
+    // in-flight tuples are acked by the runner thread, so it can't wait long for the next tuple
+    private static final long CONCURRENT_NEXT_TUPLE_WAIT_MILLIS = 10;
     private WorkQueueRepository workQueueRepository;
     private CuratorFramework curatorFramework;
     private boolean shouldRun;
@@ -27,28 +37,112 @@ public abstract class WorkerBase {
         StatusServer statusServer = null;
         try {
             statusServer = createStatusServer();
+            int inFlightMessageCount = getInFlightMessageCount();
+            if (inFlightMessageCount > 1) {
+                logger.debug("processing up to %d messages concurrently", inFlightMessageCount);
+                runConcurrent(workerSpout, inFlightMessageCount, logger);
+            } else {
+                runSequential(workerSpout, logger);
+            }
+        } finally {
+            if (statusServer != null) {
+                statusServer.shutdown();
+            }
+            logger.debug("end runner");
+        }
+    }
+
+    private void runSequential(WorkerSpout workerSpout, VisalloLogger logger) throws Exception {
+        while (shouldRun) {
+            WorkerTuple tuple = workerSpout.nextTuple(NEXT_TUPLE_WAIT_MILLIS);
+            if (tuple == null) {
+                continue;
+            }
+            completeTuple(workerSpout, tuple, processTuple(tuple, logger));
+        }
+    }
+
+    /**
+     * Processes up to inFlightMessageCount tuples at the same time. Tuples are pulled from the spout and
+     * acked/failed only on the calling thread, so spouts do not need to be thread safe. Once the window
+     * is full no more tuples are pulled until one of the in-flight tuples completes.
+     */
+    private void runConcurrent(final WorkerSpout workerSpout, int inFlightMessageCount, final VisalloLogger logger) throws Exception {
+        final Semaphore inFlightPermits = new Semaphore(inFlightMessageCount);
+        final Queue<CompletedTuple> completedTuples = new ConcurrentLinkedQueue<>();
+        ExecutorService executorService = Executors.newFixedThreadPool(
+                inFlightMessageCount,
+                new ThreadFactoryBuilder()
+                        .setNameFormat(this.getClass().getSimpleName() + "-inFlight-%d")
+                        .setDaemon(true)
+                        .build()
+        );
+        try {
             while (shouldRun) {
-                WorkerTuple tuple = workerSpout.nextTuple();
-                if (tuple == null) {
-                    Thread.sleep(100);
+                completeTuples(workerSpout, completedTuples);
+                if (!inFlightPermits.tryAcquire(100, TimeUnit.MILLISECONDS)) {
                     continue;
                 }
+
+                // tuples that completed while waiting for a permit still hold the spout's prefetch window
+                completeTuples(workerSpout, completedTuples);
+                final WorkerTuple tuple;
                 try {
-                    long startTime = System.currentTimeMillis();
-                    process(tuple.getMessageId(), tuple.getJson());
-                    long endTime = System.currentTimeMillis();
-                    logger.debug("completed processing in (%dms)", endTime - startTime);
-                    workerSpout.ack(tuple.getMessageId());
-                } catch (Throwable ex) {
-                    logger.error("Could not process tuple: %s", tuple, ex);
-                    workerSpout.fail(tuple.getMessageId());
+                    tuple = workerSpout.nextTuple(CONCURRENT_NEXT_TUPLE_WAIT_MILLIS);
+                } catch (Exception ex) {
+                    inFlightPermits.release();
+                    throw ex;
                 }
+                if (tuple == null) {
+                    inFlightPermits.release();
+                    continue;
+                }
+
+                executorService.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            completedTuples.add(new CompletedTuple(tuple, processTuple(tuple, logger)));
+                        } finally {
+                            inFlightPermits.release();
+                        }
+                    }
+                });
             }
         } finally {
-            if (statusServer != null) {
-                statusServer.shutdown();
+            executorService.shutdown();
+            while (!executorService.awaitTermination(10, TimeUnit.SECONDS)) {
+                logger.warn("waiting for in-flight messages to complete");
             }
-            logger.debug("end runner");
+            completeTuples(workerSpout, completedTuples);
+        }
+    }
+
+    private Throwable processTuple(WorkerTuple tuple, VisalloLogger logger) {
+        try {
+            long startTime = System.currentTimeMillis();
+            process(tuple.getMessageId(), tuple.getJson());
+            long endTime = System.currentTimeMillis();
+            logger.debug("completed processing in (%dms)", endTime - startTime);
+            return null;
+        } catch (Throwable ex) {
+            logger.error("Could not process tuple: %s", tuple, ex);
+            return ex;
+        }
+    }
+
+    private void completeTuples(WorkerSpout workerSpout, Queue<CompletedTuple> completedTuples) {
+        CompletedTuple completedTuple;
+        while ((completedTuple = completedTuples.poll()) != null) {
+            completeTuple(workerSpout, completedTuple.getTuple(), completedTuple.getError());
+        }
+    }
+
+    private void completeTuple(WorkerSpout workerSpout, WorkerTuple tuple, Throwable error) {
+        if (error == null) {
+            workerSpout.ack(tuple.getMessageId());
+        } else {
+            workerSpout.fail(tuple.getMessageId());
         }
     }
 
@@ -56,6 +150,14 @@ public abstract class WorkerBase {
 
     protected abstract void process(Object messageId, JSONObject json) throws Exception;
 
+    /**
+     * The number of messages this worker may process at the same time. Subclasses that are safe to call
+     * {@link #process(Object, JSONObject)} from multiple threads can override this to allow more than one.
+     */
+    protected int getInFlightMessageCount() {
+        return 1;
+    }
+
     public void stop() {
         shouldRun = false;
     }
@@ -86,5 +188,21 @@ public abstract class WorkerBase {
         return curatorFramework;
     }
 
+    private static class CompletedTuple {
+        private final WorkerTuple tuple;
+        private final Throwable error;
+
+        public CompletedTuple(WorkerTuple tuple, Throwable error) {
+            this.tuple = tuple;
+            this.error = error;
+        }
+
+        public WorkerTuple getTuple() {
+            return tuple;
+        }
 
+        public Throwable getError() {
+            return error;
+        }
+    }
 }
@@ -1,5 +1,6 @@
 package org.visallo.core.model.artifactThumbnails;
 
+import com.google.common.hash.Hashing;
 import org.apache.commons.lang.StringUtils;
 import com.v5analytics.simpleorm.Entity;
 import com.v5analytics.simpleorm.Field;
@@ -21,6 +22,8 @@ public class ArtifactThumbnail {
     @Field
     private String format;
 
+    private String eTag;
+
     // Used by SimpleOrm to create instance
     @SuppressWarnings("UnusedDeclaration")
     protected ArtifactThumbnail() {
@@ -33,7 +36,11 @@ public class ArtifactThumbnail {
             String format,
             int width, int height
     ) {
-        this.id = createId(artifactVertexId, type, width, height);
+        this(createId(artifactVertexId, type, width, height), data, format);
+    }
+
+    public ArtifactThumbnail(String id, byte[] data, String format) {
+        this.id = id;
         this.data = data;
         this.format = format;
     }
@@ -45,6 +52,24 @@ public class ArtifactThumbnail {
                 + ":" + StringUtils.leftPad(Integer.toString(height), 8, '0');
     }
 
+    /**
+     * The id of a thumbnail of the image after it is flipped and rotated, so changing the orientation of an image
+     * never finds a thumbnail of the old orientation. An image that is neither flipped nor rotated keeps the id
+     * without orientation.
+     */
+    public static String createId(String artifactVertexId, String type, int width, int height, boolean yAxisFlipped, int clockwiseRotation) {
+        String id = createId(artifactVertexId, type, width, height);
+        clockwiseRotation = clockwiseRotation % 360;
+        if (!yAxisFlipped && clockwiseRotation == 0) {
+            return id;
+        }
+        return id + ":" + clockwiseRotation + (yAxisFlipped ? ":flipped" : "");
+    }
+
+    public String getId() {
+        return id;
+    }
+
     public byte[] getData() {
         return data;
     }
@@ -53,6 +78,16 @@ public class ArtifactThumbnail {
         return format;
     }
 
+    /**
+     * MD5 of the image data, computed the first time it is asked for.
+     */
+    public String getETag() {
+        if (eTag == null && data != null) {
+            eTag = Hashing.md5().hashBytes(data).toString();
+        }
+        return eTag;
+    }
+
     public BufferedImage getImage() {
         try {
             byte[] data = getData();
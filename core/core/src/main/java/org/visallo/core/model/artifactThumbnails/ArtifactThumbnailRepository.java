@@ -1,15 +1,25 @@
 package org.visallo.core.model.artifactThumbnails;
 
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Timer;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
 import com.google.inject.Inject;
+import com.google.inject.Singleton;
 import com.v5analytics.simpleorm.SimpleOrmSession;
+import org.visallo.core.config.Configuration;
+import org.visallo.core.exception.VisalloException;
 import org.visallo.core.exception.VisalloResourceNotFoundException;
 import org.visallo.core.model.ontology.OntologyRepository;
 import org.visallo.core.model.properties.types.BooleanVisalloProperty;
 import org.visallo.core.model.properties.types.IntegerVisalloProperty;
+import org.visallo.core.status.MetricsManager;
 import org.visallo.core.user.User;
 import org.visallo.core.util.VisalloLogger;
 import org.visallo.core.util.VisalloLoggerFactory;
 import org.vertexium.Vertex;
+import org.vertexium.property.StreamingPropertyValue;
 
 import javax.imageio.ImageIO;
 import java.awt.*;
@@ -17,9 +27,21 @@ import java.awt.image.BufferedImage;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+/**
+ * Stores thumbnails of artifact images.
+ *
+ * Recently used thumbnails are kept in memory up to {@link Configuration#ARTIFACT_THUMBNAIL_CACHE_MAX_BYTES} in front
+ * of the store, and {@link #getOrCreateThumbnail(Vertex, String, String, StreamingPropertyValue, int[], User)}
+ * generates a missing thumbnail once however many requests ask for it at the same time.
+ */
+@Singleton
 public class ArtifactThumbnailRepository {
     private static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(ArtifactThumbnailRepository.class);
     private static final String VISIBILITY_STRING = "";
@@ -29,14 +51,39 @@ public class ArtifactThumbnailRepository {
     private final SimpleOrmSession simpleOrmSession;
     private BooleanVisalloProperty yAxisFlippedProperty;
     private IntegerVisalloProperty clockwiseRotationProperty;
+    private final Cache<String, ArtifactThumbnail> thumbnailCache;
+    private final ConcurrentMap<String, FutureTask<ArtifactThumbnail>> thumbnailGenerations = new ConcurrentHashMap<>();
+    private final Meter hitMeter;
+    private final Meter storeHitMeter;
+    private final Meter missMeter;
+    private final Timer generateTimer;
+    private final int maxDecodePixels;
 
     @Inject
     public ArtifactThumbnailRepository(
             SimpleOrmSession simpleOrmSession,
-            final OntologyRepository ontologyRepository
+            final OntologyRepository ontologyRepository,
+            Configuration configuration,
+            MetricsManager metricsManager
     ) {
         this.simpleOrmSession = simpleOrmSession;
 
+        this.maxDecodePixels = configuration.getInt(Configuration.ARTIFACT_THUMBNAIL_MAX_DECODE_PIXELS, Configuration.DEFAULT_ARTIFACT_THUMBNAIL_MAX_DECODE_PIXELS);
+        this.thumbnailCache = CacheBuilder.newBuilder()
+                .maximumWeight(configuration.getInt(Configuration.ARTIFACT_THUMBNAIL_CACHE_MAX_BYTES, Configuration.DEFAULT_ARTIFACT_THUMBNAIL_CACHE_MAX_BYTES))
+                .weigher(new Weigher<String, ArtifactThumbnail>() {
+                    @Override
+                    public int weigh(String id, ArtifactThumbnail thumbnail) {
+                        return thumbnail.getData().length;
+                    }
+                })
+                .build();
+        String namePrefix = metricsManager.getNamePrefix(this);
+        this.hitMeter = metricsManager.meter(namePrefix + "hits");
+        this.storeHitMeter = metricsManager.meter(namePrefix + "storeHits");
+        this.missMeter = metricsManager.meter(namePrefix + "misses");
+        this.generateTimer = metricsManager.timer(namePrefix + "generate");
+
         String yAxisFlippedPropertyIri = ontologyRepository.getPropertyIRIByIntent("media.yAxisFlipped");
         if (yAxisFlippedPropertyIri != null) {
             this.yAxisFlippedProperty = new BooleanVisalloProperty(yAxisFlippedPropertyIri);
@@ -48,9 +95,93 @@ public class ArtifactThumbnailRepository {
         }
     }
 
+    /**
+     * Looks up the thumbnail of an image that is neither flipped nor rotated.
+     */
     public ArtifactThumbnail getThumbnail(String artifactVertexId, String thumbnailType, int width, int height, User user) {
         String id = ArtifactThumbnail.createId(artifactVertexId, thumbnailType, width, height);
-        return simpleOrmSession.findById(ArtifactThumbnail.class, id, user.getSimpleOrmContext());
+        return findThumbnail(id, user);
+    }
+
+    private ArtifactThumbnail findThumbnail(String id, User user) {
+        ArtifactThumbnail thumbnail = thumbnailCache.getIfPresent(id);
+        if (thumbnail != null) {
+            hitMeter.mark();
+            return thumbnail;
+        }
+        thumbnail = simpleOrmSession.findById(ArtifactThumbnail.class, id, user.getSimpleOrmContext());
+        if (thumbnail == null || thumbnail.getData() == null) {
+            return null;
+        }
+        storeHitMeter.mark();
+        thumbnailCache.put(id, thumbnail);
+        return thumbnail;
+    }
+
+    /**
+     * Gets the thumbnail, generating and storing it from the source image if it does not exist yet. Concurrent calls
+     * for the same thumbnail wait for the first one to generate it.
+     *
+     * @param source the image to generate the thumbnail from, may be null to only look the thumbnail up
+     * @return the thumbnail, or null if it does not exist and there is no source
+     */
+    public ArtifactThumbnail getOrCreateThumbnail(
+            final Vertex artifactVertex,
+            final String propertyKey,
+            final String thumbnailType,
+            final StreamingPropertyValue source,
+            final int[] boundaryDims,
+            final User user
+    ) throws IOException {
+        final String id = getThumbnailId(artifactVertex, propertyKey, thumbnailType, boundaryDims);
+        ArtifactThumbnail thumbnail = findThumbnail(id, user);
+        if (thumbnail != null || source == null) {
+            return thumbnail;
+        }
+
+        FutureTask<ArtifactThumbnail> generation = new FutureTask<>(new Callable<ArtifactThumbnail>() {
+            @Override
+            public ArtifactThumbnail call() throws Exception {
+                // an earlier generation may have finished between the lookup and this generation starting
+                ArtifactThumbnail thumbnail = findThumbnail(id, user);
+                if (thumbnail != null) {
+                    return thumbnail;
+                }
+                LOGGER.debug("Generating thumbnail: %s", id);
+                missMeter.mark();
+                Timer.Context timerContext = generateTimer.time();
+                try (InputStream in = source.getInputStream()) {
+                    return createThumbnail(artifactVertex, propertyKey, thumbnailType, in, boundaryDims, user);
+                } finally {
+                    timerContext.stop();
+                }
+            }
+        });
+        FutureTask<ArtifactThumbnail> existingGeneration = thumbnailGenerations.putIfAbsent(id, generation);
+        if (existingGeneration == null) {
+            try {
+                generation.run();
+            } finally {
+                thumbnailGenerations.remove(id, generation);
+            }
+        } else {
+            generation = existingGeneration;
+        }
+
+        try {
+            return generation.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new VisalloException("Interrupted while waiting for thumbnail: " + id, ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof IOException) {
+                throw (IOException) ex.getCause();
+            }
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new VisalloException("Could not generate thumbnail: " + id, ex.getCause());
+        }
     }
 
     public byte[] getThumbnailData(String artifactVertexId, String thumbnailType, int width, int height, User user) {
@@ -64,69 +195,113 @@ public class ArtifactThumbnailRepository {
     public ArtifactThumbnail createThumbnail(Vertex artifactVertex, String propertyKey, String thumbnailType, InputStream in, int[] boundaryDims, User user) throws IOException {
         ArtifactThumbnail thumbnail = generateThumbnail(artifactVertex, propertyKey, thumbnailType, in, boundaryDims);
         simpleOrmSession.save(thumbnail, VISIBILITY_STRING, user.getSimpleOrmContext());
+        thumbnailCache.put(thumbnail.getId(), thumbnail);
         return thumbnail;
     }
 
+    /**
+     * Generates and stores a thumbnail of the image for each of the boundary dimensions, decoding and reorienting the
+     * image once for all of them.
+     */
+    public List<ArtifactThumbnail> createThumbnails(Vertex artifactVertex, String propertyKey, String thumbnailType, InputStream in, List<int[]> boundaryDimsList, User user) {
+        List<ArtifactThumbnail> thumbnails = generateThumbnails(artifactVertex, propertyKey, thumbnailType, in, boundaryDimsList);
+        for (ArtifactThumbnail thumbnail : thumbnails) {
+            simpleOrmSession.save(thumbnail, VISIBILITY_STRING, user.getSimpleOrmContext());
+            thumbnailCache.put(thumbnail.getId(), thumbnail);
+        }
+        return thumbnails;
+    }
+
     public ArtifactThumbnail generateThumbnail(Vertex artifactVertex, String propertyKey, String thumbnailType, InputStream in, int[] boundaryDims) {
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-        String format;
-        int type;
+        return generateThumbnails(artifactVertex, propertyKey, thumbnailType, in, Collections.singletonList(boundaryDims)).get(0);
+    }
+
+    public List<ArtifactThumbnail> generateThumbnails(Vertex artifactVertex, String propertyKey, String thumbnailType, InputStream in, List<int[]> boundaryDimsList) {
+        int maxSide = 0;
+        for (int[] boundaryDims : boundaryDimsList) {
+            maxSide = Math.max(maxSide, Math.max(boundaryDims[0], boundaryDims[1]));
+        }
         try {
-            BufferedImage originalImage = ImageIO.read(in);
+            BufferedImage originalImage = ImageUtils.readSubsampled(in, maxSide, maxDecodePixels);
             checkNotNull(originalImage, "Could not generateThumbnail: read original image for artifact " + artifactVertex.getId());
-            type = ImageUtils.thumbnailType(originalImage);
-            format = ImageUtils.thumbnailFormat(originalImage);
-
-            BufferedImage transformedImage = getTransformedImage(originalImage, artifactVertex, propertyKey);
-
-            //Get new image dimensions, which will be used for the icon.
-            int[] transformedImageDims = new int[]{transformedImage.getWidth(), transformedImage.getHeight()};
-            int[] newImageDims = getScaledDimension(transformedImageDims, boundaryDims);
-            if (newImageDims[0] >= transformedImageDims[0] || newImageDims[1] >= transformedImageDims[1]) {
-                LOGGER.info("Original image dimensions %d x %d are smaller "
-                                + "than requested dimensions %d x %d returning original.",
-                        transformedImageDims[0], transformedImageDims[1],
-                        newImageDims[0], newImageDims[1]);
-            }
-            //Resize the image.
-            BufferedImage resizedImage = new BufferedImage(newImageDims[0], newImageDims[1], type);
-            Graphics2D g = resizedImage.createGraphics();
-            int width = resizedImage.getWidth();
-            int height = resizedImage.getHeight();
-            if (transformedImage.getColorModel().getNumComponents() > 3) {
-                g.drawImage(transformedImage, 0, 0, width, height, null);
-            } else {
-                g.drawImage(transformedImage, 0, 0, width, height, Color.BLACK, null);
-            }
-            g.dispose();
+            int type = ImageUtils.thumbnailType(originalImage);
+            String format = ImageUtils.thumbnailFormat(originalImage);
 
-            //Write the bufferedImage to a file.
-            ImageIO.write(resizedImage, format, out);
+            boolean yAxisFlipNeeded = isYAxisFlipped(artifactVertex, propertyKey);
+            int cwRotationNeeded = getClockwiseRotation(artifactVertex, propertyKey);
+            BufferedImage transformedImage = ImageUtils.reOrientImage(originalImage, yAxisFlipNeeded, cwRotationNeeded);
 
-            return new ArtifactThumbnail(artifactVertex.getId(), thumbnailType, out.toByteArray(), format, width, height);
+            List<ArtifactThumbnail> thumbnails = new ArrayList<>(boundaryDimsList.size());
+            for (int[] boundaryDims : boundaryDimsList) {
+                String id = ArtifactThumbnail.createId(artifactVertex.getId(), thumbnailType, boundaryDims[0], boundaryDims[1], yAxisFlipNeeded, cwRotationNeeded);
+                thumbnails.add(generateThumbnail(id, transformedImage, boundaryDims, type, format));
+            }
+            return thumbnails;
         } catch (IOException e) {
             throw new VisalloResourceNotFoundException("Error reading InputStream");
         }
     }
 
+    private ArtifactThumbnail generateThumbnail(String id, BufferedImage transformedImage, int[] boundaryDims, int type, String format) throws IOException {
+        //Get new image dimensions, which will be used for the icon.
+        int[] transformedImageDims = new int[]{transformedImage.getWidth(), transformedImage.getHeight()};
+        int[] newImageDims = getScaledDimension(transformedImageDims, boundaryDims);
+        if (newImageDims[0] >= transformedImageDims[0] || newImageDims[1] >= transformedImageDims[1]) {
+            LOGGER.info("Original image dimensions %d x %d are smaller "
+                            + "than requested dimensions %d x %d returning original.",
+                    transformedImageDims[0], transformedImageDims[1],
+                    newImageDims[0], newImageDims[1]);
+        }
+        //Resize the image.
+        Color background = transformedImage.getColorModel().getNumComponents() > 3 ? null : Color.BLACK;
+        BufferedImage resizedImage = ImageUtils.progressiveResize(transformedImage, newImageDims[0], newImageDims[1], type, background);
+
+        //Write the bufferedImage to a file.
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(resizedImage, format, out);
+
+        // stored under the requested boundary, which is what thumbnails are looked up by
+        return new ArtifactThumbnail(id, out.toByteArray(), format);
+    }
+
+    /**
+     * The id the thumbnail is stored and cached under, which includes the current orientation of the image so a
+     * thumbnail generated before the image was flipped or rotated is never served afterwards.
+     */
+    public String getThumbnailId(Vertex artifactVertex, String propertyKey, String thumbnailType, int[] boundaryDims) {
+        return ArtifactThumbnail.createId(
+                artifactVertex.getId(),
+                thumbnailType,
+                boundaryDims[0],
+                boundaryDims[1],
+                isYAxisFlipped(artifactVertex, propertyKey),
+                getClockwiseRotation(artifactVertex, propertyKey)
+        );
+    }
+
     public BufferedImage getTransformedImage(BufferedImage originalImage, Vertex artifactVertex, String propertyKey) {
-        int cwRotationNeeded = 0;
+        //Rotate and flip image.
+        return ImageUtils.reOrientImage(originalImage, isYAxisFlipped(artifactVertex, propertyKey), getClockwiseRotation(artifactVertex, propertyKey));
+    }
+
+    private int getClockwiseRotation(Vertex artifactVertex, String propertyKey) {
         if (clockwiseRotationProperty != null) {
             Integer nullable = clockwiseRotationProperty.getPropertyValue(artifactVertex, propertyKey);
             if (nullable != null) {
-                cwRotationNeeded = nullable;
+                return nullable;
             }
         }
-        boolean yAxisFlipNeeded = false;
+        return 0;
+    }
+
+    private boolean isYAxisFlipped(Vertex artifactVertex, String propertyKey) {
         if (yAxisFlippedProperty != null) {
             Boolean nullable = yAxisFlippedProperty.getPropertyValue(artifactVertex, propertyKey);
             if (nullable != null) {
-                yAxisFlipNeeded = nullable;
+                return nullable;
             }
         }
-
-        //Rotate and flip image.
-        return ImageUtils.reOrientImage(originalImage, yAxisFlipNeeded, cwRotationNeeded);
+        return false;
     }
 
     public int[] getScaledDimension(int[] imgSize, int[] boundary) {
@@ -1,10 +1,104 @@
 package org.visallo.core.model.artifactThumbnails;
 
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
 import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
 
 public class ImageUtils {
+    /**
+     * How many times larger than the thumbnail a subsampled image is decoded, so
+     * {@link #progressiveResize(BufferedImage, int, int, int, Color)} has enough pixels to average over.
+     */
+    private static final int SUBSAMPLING_OVERSAMPLE = 4;
+
+    /**
+     * Decodes the first image of the stream, skipping source pixels so the decoded image is a few times larger than a
+     * thumbnail fitting in maxSide x maxSide, whatever its orientation, and has at most maxPixels pixels. Only the
+     * subsampled image is held in memory, so the size of the source image does not matter.
+     *
+     * @return the decoded image, or null if no reader supports the image format
+     */
+    public static BufferedImage readSubsampled(InputStream in, int maxSide, long maxPixels) throws IOException {
+        try (ImageInputStream imageIn = ImageIO.createImageInputStream(in)) {
+            if (imageIn == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(imageIn);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(imageIn, true, true);
+                int subsampling = getSubsampling(reader.getWidth(0), reader.getHeight(0), maxSide, maxPixels);
+                ImageReadParam param = reader.getDefaultReadParam();
+                if (subsampling > 1) {
+                    param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                }
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * The largest source subsampling that keeps the longer side of the image at least {@link #SUBSAMPLING_OVERSAMPLE}
+     * times maxSide, raised until the subsampled image has at most maxPixels pixels.
+     */
+    public static int getSubsampling(int width, int height, int maxSide, long maxPixels) {
+        int longSide = Math.max(width, height);
+        long budget = Math.max(1, maxPixels);
+        int subsampling = (int) Math.max(1, longSide / Math.max(1, (long) maxSide * SUBSAMPLING_OVERSAMPLE));
+        // start from the smallest subsampling the budget could allow, so huge headers don't loop for billions of steps
+        subsampling = Math.max(subsampling, (int) Math.sqrt((double) width * height / budget));
+        subsampling = (int) Math.max(subsampling, (longSide - 1) / budget + 1);
+        while (getSubsampledPixels(width, height, subsampling) > budget) {
+            subsampling++;
+        }
+        return subsampling;
+    }
+
+    /**
+     * The number of pixels the image reader decodes with the given subsampling, counting the partial last row and
+     * column.
+     */
+    static long getSubsampledPixels(int width, int height, int subsampling) {
+        return (((long) width + subsampling - 1) / subsampling) * (((long) height + subsampling - 1) / subsampling);
+    }
 
+    /**
+     * Scales the image to width x height, halving it with bilinear interpolation while it is more than twice the
+     * requested size, so every source pixel contributes to the result instead of a single nearest-neighbour pass
+     * skipping most of them.
+     *
+     * @param background the color transparent pixels are drawn on, or null to keep the transparency
+     */
+    public static BufferedImage progressiveResize(BufferedImage image, int width, int height, int type, Color background) {
+        BufferedImage result = image;
+        do {
+            int stepWidth = Math.max(width, result.getWidth() / 2);
+            int stepHeight = Math.max(height, result.getHeight() / 2);
+            BufferedImage step = new BufferedImage(stepWidth, stepHeight, type);
+            Graphics2D g = step.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            if (background == null) {
+                g.drawImage(result, 0, 0, stepWidth, stepHeight, null);
+            } else {
+                g.drawImage(result, 0, 0, stepWidth, stepHeight, background, null);
+            }
+            g.dispose();
+            result = step;
+        } while (result.getWidth() != width || result.getHeight() != height);
+        return result;
+    }
 
     /**
      * Flipping (Mirroring) is performed BEFORE Rotating the image. Example: Flipping the image over the y Axis, and then rotating it 90 degrees CW
@@ -0,0 +1,42 @@
+package org.visallo.core.model.longRunningProcess;
+
+import org.json.JSONObject;
+import org.vertexium.Authorizations;
+import org.visallo.core.util.ClientApiConverter;
+import org.visallo.web.clientapi.model.ClientApiPublishItem;
+
+public class PublishLongRunningProcessQueueItem {
+    private ClientApiPublishItem[] publishData;
+    private String workspaceId;
+    private String[] authorizations;
+
+    public PublishLongRunningProcessQueueItem() {
+
+    }
+
+    public PublishLongRunningProcessQueueItem(ClientApiPublishItem[] publishData, String workspaceId, Authorizations authorizations) {
+        this.publishData = publishData;
+        this.workspaceId = workspaceId;
+        this.authorizations = authorizations.getAuthorizations();
+    }
+
+    public ClientApiPublishItem[] getPublishData() {
+        return publishData;
+    }
+
+    public String getWorkspaceId() {
+        return workspaceId;
+    }
+
+    public String[] getAuthorizations() {
+        return authorizations;
+    }
+
+    public String getType() {
+        return "publish";
+    }
+
+    public JSONObject toJson() {
+        return new JSONObject(ClientApiConverter.clientApiToString(this));
+    }
+}
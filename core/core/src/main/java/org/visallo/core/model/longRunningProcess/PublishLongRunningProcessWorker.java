@@ -0,0 +1,69 @@
+package org.visallo.core.model.longRunningProcess;
+
+import com.google.inject.Inject;
+import org.json.JSONObject;
+import org.vertexium.Authorizations;
+import org.vertexium.Graph;
+import org.visallo.core.model.Description;
+import org.visallo.core.model.Name;
+import org.visallo.core.model.workspace.WorkspaceRepository;
+import org.visallo.core.util.ClientApiConverter;
+import org.visallo.web.clientapi.model.ClientApiWorkspacePublishResponse;
+
+@Name("Publish")
+@Description("Publishes workspace changes")
+public class PublishLongRunningProcessWorker extends LongRunningProcessWorker {
+    private static final int PROGRESS_PERCENT_STEP = 5;
+    private Graph graph;
+    private WorkspaceRepository workspaceRepository;
+    private LongRunningProcessRepository longRunningProcessRepository;
+
+    @Override
+    public boolean isHandled(JSONObject longRunningProcessQueueItem) {
+        return longRunningProcessQueueItem.getString("type").equals("publish");
+    }
+
+    @Override
+    public void processInternal(final JSONObject longRunningProcessQueueItem) {
+        PublishLongRunningProcessQueueItem publish = ClientApiConverter.toClientApi(longRunningProcessQueueItem.toString(), PublishLongRunningProcessQueueItem.class);
+
+        Authorizations authorizations = graph.createAuthorizations(publish.getAuthorizations());
+        WorkspaceRepository.PublishProgressCallback progressCallback = new WorkspaceRepository.PublishProgressCallback() {
+            private int lastReportedPercent;
+
+            @Override
+            public void progress(int publishedCount, int totalCount) {
+                int percent = publishedCount * 100 / totalCount;
+                if (percent - lastReportedPercent >= PROGRESS_PERCENT_STEP) {
+                    longRunningProcessRepository.reportProgress(
+                            longRunningProcessQueueItem,
+                            percent / 100.0,
+                            String.format("Published %d of %d changes", publishedCount, totalCount)
+                    );
+                    lastReportedPercent = percent;
+                }
+            }
+        };
+        ClientApiWorkspacePublishResponse results = workspaceRepository.publish(publish.getPublishData(), publish.getWorkspaceId(), progressCallback, authorizations);
+
+        String resultsString = ClientApiConverter.clientApiToString(results);
+        JSONObject resultsJson = new JSONObject(resultsString);
+        longRunningProcessQueueItem.put("results", resultsJson);
+        longRunningProcessQueueItem.put("resultsCount", results.getFailures().size());
+    }
+
+    @Inject
+    public void setLongRunningProcessRepository(LongRunningProcessRepository longRunningProcessRepository) {
+        this.longRunningProcessRepository = longRunningProcessRepository;
+    }
+
+    @Inject
+    public void setWorkspaceRepository(WorkspaceRepository workspaceRepository) {
+        this.workspaceRepository = workspaceRepository;
+    }
+
+    @Inject
+    public void setGraph(Graph graph) {
+        this.graph = graph;
+    }
+}
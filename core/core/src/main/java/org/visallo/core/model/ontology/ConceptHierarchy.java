@@ -0,0 +1,81 @@
+package org.visallo.core.model.ontology;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import java.util.*;
+
+/**
+ * Ancestor and descendant closure of the concept hierarchy, computed once from each concept's parent IRI so that
+ * "this concept and all its children" is a map lookup instead of a walk of the hierarchy.
+ */
+public class ConceptHierarchy {
+    private final Map<String, Integer> indexesByIri;
+    private final List<ImmutableSet<String>> conceptAndAllChildrenIris;
+    private final List<ImmutableList<String>> conceptAndAllAncestorIris;
+
+    /**
+     * @param parentIrisByIri each concept IRI mapped to its parent concept IRI, or null for the root
+     */
+    public ConceptHierarchy(Map<String, String> parentIrisByIri) {
+        int conceptCount = parentIrisByIri.size();
+        indexesByIri = new HashMap<>(conceptCount * 2);
+        String[] iris = new String[conceptCount];
+        for (String iri : parentIrisByIri.keySet()) {
+            iris[indexesByIri.size()] = iri;
+            indexesByIri.put(iri, indexesByIri.size());
+        }
+
+        List<List<String>> children = new ArrayList<>(conceptCount);
+        for (int i = 0; i < conceptCount; i++) {
+            children.add(new ArrayList<String>());
+        }
+        List<ImmutableList<String>> ancestors = new ArrayList<>(conceptCount);
+        for (int i = 0; i < conceptCount; i++) {
+            ImmutableList.Builder<String> conceptAncestors = ImmutableList.builder();
+            Integer ancestor = i;
+            // bounded by the concept count so a cycle in bad ontology data can't loop forever
+            for (int depth = 0; ancestor != null && depth < conceptCount; depth++) {
+                conceptAncestors.add(iris[ancestor]);
+                children.get(ancestor).add(iris[i]);
+                ancestor = indexesByIri.get(parentIrisByIri.get(iris[ancestor]));
+            }
+            ancestors.add(conceptAncestors.build());
+        }
+        conceptAndAllAncestorIris = ancestors;
+
+        conceptAndAllChildrenIris = new ArrayList<>(conceptCount);
+        for (List<String> conceptChildren : children) {
+            conceptAndAllChildrenIris.add(ImmutableSet.copyOf(conceptChildren));
+        }
+    }
+
+    public static ConceptHierarchy create(Iterable<Concept> concepts) {
+        Map<String, String> parentIrisByIri = new LinkedHashMap<>();
+        for (Concept concept : concepts) {
+            parentIrisByIri.put(concept.getIRI(), concept.getParentConceptIRI());
+        }
+        return new ConceptHierarchy(parentIrisByIri);
+    }
+
+    /**
+     * @return the concept's IRI and the IRIs of all concepts below it, or null if the concept is unknown
+     */
+    public Set<String> getConceptAndAllChildrenIris(String conceptIri) {
+        Integer index = indexesByIri.get(conceptIri);
+        return index == null ? null : conceptAndAllChildrenIris.get(index);
+    }
+
+    /**
+     * @return the concept's IRI followed by its parent's IRI and so on up to the root, or null if the concept is unknown
+     */
+    public List<String> getConceptAndAllAncestorIris(String conceptIri) {
+        Integer index = indexesByIri.get(conceptIri);
+        return index == null ? null : conceptAndAllAncestorIris.get(index);
+    }
+
+    public boolean isConceptOrChildOf(String conceptIri, String ancestorConceptIri) {
+        Set<String> conceptAndAllChildrenIris = getConceptAndAllChildrenIris(ancestorConceptIri);
+        return conceptAndAllChildrenIris != null && conceptAndAllChildrenIris.contains(conceptIri);
+    }
+}
@@ -50,6 +50,11 @@ public interface OntologyRepository {
 
     Set<Concept> getConceptAndAllChildren(Concept concept);
 
+    /**
+     * @return the IRI of the concept and of all concepts below it, or null if the concept does not exist
+     */
+    Set<String> getConceptAndAllChildrenIris(String conceptIRI);
+
     Concept getOrCreateConcept(Concept parent, String conceptIRI, String displayName, File inDir);
 
     Relationship getOrCreateRelationshipType(Iterable<Concept> domainConcepts, Iterable<Concept> rangeConcepts, String relationshipIRI, String displayName, String[] intents, boolean userVisible);
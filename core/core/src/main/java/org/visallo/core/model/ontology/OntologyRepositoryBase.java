@@ -226,13 +226,13 @@ public abstract class OntologyRepositoryBase implements OntologyRepository {
 
         long startTime = System.currentTimeMillis();
         importOntologyAnnotationProperties(o, inDir, authorizations);
-        clearCache(); // this is required to cause a new lookup of classes for data and object properties.
+        importStepCompleted(); // this is required to cause a new lookup of classes for data and object properties.
         long endTime = System.currentTimeMillis();
         long importAnnotationPropertiesTime = endTime - startTime;
 
         startTime = System.currentTimeMillis();
         importOntologyClasses(o, inDir, authorizations);
-        clearCache(); // this is required to cause a new lookup of classes for data and object properties.
+        importStepCompleted(); // this is required to cause a new lookup of classes for data and object properties.
         endTime = System.currentTimeMillis();
         long importConceptsTime = endTime - startTime;
 
@@ -243,7 +243,7 @@ public abstract class OntologyRepositoryBase implements OntologyRepository {
 
         startTime = System.currentTimeMillis();
         importObjectProperties(o);
-        clearCache(); // needed to find the relationship for inverse of
+        importStepCompleted(); // needed to find the relationship for inverse of
         endTime = System.currentTimeMillis();
         long importObjectPropertiesTime = endTime - startTime;
 
@@ -263,6 +263,14 @@ public abstract class OntologyRepositoryBase implements OntologyRepository {
         // do this last after everything was successful so that isOntologyDefined can be used
         storeOntologyFile(new ByteArrayInputStream(inFileData), documentIRI);
 
+        importStepCompleted();
+    }
+
+    /**
+     * Called between the steps of {@link #importFileData(byte[], IRI, File, Authorizations)} so the next step sees
+     * what the previous one saved. Repositories that keep their cache current as they save can skip the reload.
+     */
+    protected void importStepCompleted() {
         clearCache();
     }
 
@@ -874,6 +882,18 @@ public abstract class OntologyRepositoryBase implements OntologyRepository {
         return result;
     }
 
+    @Override
+    public Set<String> getConceptAndAllChildrenIris(String conceptIRI) {
+        return getConceptHierarchy().getConceptAndAllChildrenIris(conceptIRI);
+    }
+
+    /**
+     * Built from all the concepts on each call, repositories that cache the ontology should cache this with it.
+     */
+    protected ConceptHierarchy getConceptHierarchy() {
+        return ConceptHierarchy.create(getConceptsWithProperties());
+    }
+
     protected abstract List<Concept> getChildConcepts(Concept concept);
 
     @Override
@@ -980,7 +1000,7 @@ public abstract class OntologyRepositoryBase implements OntologyRepository {
         return concept;
     }
 
-    private List<Concept> findLoadedConceptsByIntent(String intent) {
+    protected List<Concept> findLoadedConceptsByIntent(String intent) {
         List<Concept> results = new ArrayList<>();
         for (Concept concept : getConceptsWithProperties()) {
             String[] conceptIntents = concept.getIntents();
@@ -1041,7 +1061,7 @@ public abstract class OntologyRepositoryBase implements OntologyRepository {
         return getRequiredRelationshipByIntent(intent).getIRI();
     }
 
-    private List<Relationship> findLoadedRelationshipsByIntent(String intent) {
+    protected List<Relationship> findLoadedRelationshipsByIntent(String intent) {
         List<Relationship> results = new ArrayList<>();
         for (Relationship relationship : getRelationships()) {
             String[] relationshipIntents = relationship.getIntents();
@@ -1126,7 +1146,7 @@ public abstract class OntologyRepositoryBase implements OntologyRepository {
         return result;
     }
 
-    private List<OntologyProperty> findLoadedPropertiesByIntent(String intent) {
+    protected List<OntologyProperty> findLoadedPropertiesByIntent(String intent) {
         List<OntologyProperty> results = new ArrayList<>();
         for (OntologyProperty property : getProperties()) {
             String[] propertyIntents = property.getIntents();
@@ -2,6 +2,7 @@ package org.visallo.core.model.properties;
 
 import org.visallo.core.model.properties.types.*;
 import org.visallo.core.model.termMention.TermMentionForProperty;
+import org.visallo.core.model.termMention.TermMentionOffsetIndexProperty;
 
 public class VisalloProperties {
     public static final String CONCEPT_TYPE_THING = "http://www.w3.org/2002/07/owl#Thing";
@@ -62,6 +63,7 @@ public class VisalloProperties {
     public static final StringSingleValueVisalloProperty TERM_MENTION_FOR_ELEMENT_ID = new StringSingleValueVisalloProperty("http://visallo.org/termMention#forElementId");
     public static final TermMentionForProperty TERM_MENTION_FOR_TYPE = new TermMentionForProperty("http://visallo.org/termMention#forType");
     public static final StringSingleValueVisalloProperty TERM_MENTION_SNIPPET = new StringSingleValueVisalloProperty("http://visallo.org/termMention#snippet");
+    public static final TermMentionOffsetIndexProperty TERM_MENTION_OFFSET_INDEX = new TermMentionOffsetIndexProperty("http://visallo.org/termMention#offsetIndex");
     public static final String TERM_MENTION_LABEL_HAS_TERM_MENTION = "http://visallo.org/termMention#hasTermMention";
     public static final String TERM_MENTION_LABEL_RESOLVED_TO = "http://visallo.org/termMention#resolvedTo";
 
@@ -0,0 +1,67 @@
+package org.visallo.core.model.termMention;
+
+import org.vertexium.Authorizations;
+import org.vertexium.Graph;
+import org.vertexium.Vertex;
+import org.vertexium.mutation.ExistingElementMutation;
+import org.visallo.core.security.VisibilityTranslator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects the term mentions found in one property of a source vertex and saves them together.
+ * <p/>
+ * The offset index entries of all the term mentions are added to the source vertex with a single mutation, and the
+ * graph is flushed once after all term mentions are saved instead of after each of them.
+ */
+public class TermMentionBatch {
+    private final Vertex sourceVertex;
+    private final String propertyKey;
+    private final List<TermMentionBuilder> termMentions = new ArrayList<>();
+
+    /**
+     * @param sourceVertex The vertex that contains the term mentions (ie Document, Html page, etc).
+     * @param propertyKey  The property key of the {@link org.visallo.core.model.properties.VisalloProperties#TEXT}
+     *                     the term mentions reference.
+     */
+    public TermMentionBatch(Vertex sourceVertex, String propertyKey) {
+        this.sourceVertex = sourceVertex;
+        this.propertyKey = propertyKey;
+    }
+
+    /**
+     * Adds a term mention to the batch.
+     *
+     * @return the builder of the term mention, with the source vertex and property key of the batch already set.
+     */
+    public TermMentionBuilder add() {
+        TermMentionBuilder termMention = new TermMentionBuilder()
+                .sourceVertex(sourceVertex)
+                .propertyKey(propertyKey);
+        termMentions.add(termMention);
+        return termMention;
+    }
+
+    public int size() {
+        return termMentions.size();
+    }
+
+    /**
+     * Saves the term mentions of the batch and flushes the graph.
+     *
+     * @return the term mention vertices, in the order they were added.
+     */
+    public List<Vertex> save(Graph graph, VisibilityTranslator visibilityTranslator, Authorizations authorizations) {
+        List<Vertex> termMentionVertices = new ArrayList<>(termMentions.size());
+        if (termMentions.size() > 0) {
+            ExistingElementMutation<Vertex> sourceVertexMutation = sourceVertex.prepareMutation();
+            for (TermMentionBuilder termMention : termMentions) {
+                termMentionVertices.add(termMention.save(graph, visibilityTranslator, sourceVertexMutation, authorizations));
+            }
+            sourceVertexMutation.save(authorizations);
+        }
+        graph.flush();
+        return termMentionVertices;
+    }
+}
@@ -7,6 +7,7 @@ import org.visallo.core.util.ClientApiConverter;
 import org.visallo.web.clientapi.model.VisibilityJson;
 import org.vertexium.*;
 import org.vertexium.mutation.EdgeMutation;
+import org.vertexium.mutation.ExistingElementMutation;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -166,8 +167,25 @@ public class TermMentionBuilder {
      * <p/>
      * Source  -- Has --> Term    -- Resolved To --> Resolved
      * Vertex             Mention                    Vertex
+     * <p/>
+     * The term mention is also added to the offset index on the source vertex, which is one more write to the source
+     * vertex for each term mention saved this way.
+     * <p/>
+     * To save many term mentions of the same property use {@link TermMentionBatch}, and to save several term mentions
+     * of a source vertex in a loop use
+     * {@link #save(Graph, VisibilityTranslator, ExistingElementMutation, Authorizations)}.
      */
     public Vertex save(Graph graph, VisibilityTranslator visibilityTranslator, Authorizations authorizations) {
+        return save(graph, visibilityTranslator, null, authorizations);
+    }
+
+    /**
+     * Saves the term mention and adds its offset index entry to sourceVertexMutation instead of writing it to the
+     * source vertex, so the entries of all the term mentions saved with the same mutation are written to the source
+     * vertex at once. The caller saves sourceVertexMutation after the last term mention. If sourceVertexMutation is
+     * null the entry is written to the source vertex right away.
+     */
+    public Vertex save(Graph graph, VisibilityTranslator visibilityTranslator, ExistingElementMutation<Vertex> sourceVertexMutation, Authorizations authorizations) {
         checkNotNull(sourceVertex, "sourceVertex cannot be null");
         checkNotNull(propertyKey, "propertyKey cannot be null");
         checkNotNull(title, "title cannot be null");
@@ -217,6 +235,13 @@ public class TermMentionBuilder {
             resolvedToEdgeBuilder.save(authorizations);
         }
 
+        TermMentionOffsetIndexEntry offsetIndexEntry = new TermMentionOffsetIndexEntry(vertexId, this.propertyKey, this.start, this.end, this.conceptIri, this.resolvedToVertexId);
+        if (sourceVertexMutation == null) {
+            VisalloProperties.TERM_MENTION_OFFSET_INDEX.addPropertyValue(this.sourceVertex, vertexId, offsetIndexEntry, visibility, authorizations);
+        } else {
+            VisalloProperties.TERM_MENTION_OFFSET_INDEX.addPropertyValue(sourceVertexMutation, vertexId, offsetIndexEntry, visibility);
+        }
+
         return termMentionVertex;
     }
 
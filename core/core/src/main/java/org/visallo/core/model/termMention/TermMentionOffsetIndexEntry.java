@@ -0,0 +1,117 @@
+package org.visallo.core.model.termMention;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.vertexium.Vertex;
+import org.visallo.core.model.properties.VisalloProperties;
+
+/**
+ * One term mention in the offset index kept on the term mention's source vertex, see
+ * {@link TermMentionRepository#findBySourceGraphVertexAndPropertyKey(String, String, org.vertexium.Authorizations)}.
+ */
+public class TermMentionOffsetIndexEntry implements Comparable<TermMentionOffsetIndexEntry> {
+    private final String termMentionId;
+    private final String propertyKey;
+    private final long start;
+    private final long end;
+    private final String conceptIri;
+    private final String resolvedToVertexId;
+
+    public TermMentionOffsetIndexEntry(
+            String termMentionId,
+            String propertyKey,
+            long start,
+            long end,
+            String conceptIri,
+            String resolvedToVertexId
+    ) {
+        this.termMentionId = termMentionId;
+        this.propertyKey = propertyKey;
+        this.start = start;
+        this.end = end;
+        this.conceptIri = conceptIri;
+        this.resolvedToVertexId = resolvedToVertexId;
+    }
+
+    public static TermMentionOffsetIndexEntry create(Vertex termMention) {
+        String resolvedToVertexId = null;
+        if (VisalloProperties.TERM_MENTION_FOR_TYPE.getPropertyValue(termMention) == TermMentionFor.VERTEX) {
+            resolvedToVertexId = VisalloProperties.TERM_MENTION_FOR_ELEMENT_ID.getPropertyValue(termMention);
+        }
+        return new TermMentionOffsetIndexEntry(
+                termMention.getId(),
+                VisalloProperties.TERM_MENTION_PROPERTY_KEY.getPropertyValue(termMention),
+                VisalloProperties.TERM_MENTION_START_OFFSET.getPropertyValue(termMention, 0),
+                VisalloProperties.TERM_MENTION_END_OFFSET.getPropertyValue(termMention, 0),
+                VisalloProperties.TERM_MENTION_CONCEPT_TYPE.getPropertyValue(termMention),
+                resolvedToVertexId
+        );
+    }
+
+    public String getTermMentionId() {
+        return termMentionId;
+    }
+
+    public String getPropertyKey() {
+        return propertyKey;
+    }
+
+    public long getStart() {
+        return start;
+    }
+
+    public long getEnd() {
+        return end;
+    }
+
+    public String getConceptIri() {
+        return conceptIri;
+    }
+
+    public String getResolvedToVertexId() {
+        return resolvedToVertexId;
+    }
+
+    public JSONArray toJson() {
+        JSONArray json = new JSONArray();
+        json.put(termMentionId);
+        json.put(propertyKey == null ? JSONObject.NULL : propertyKey);
+        json.put(start);
+        json.put(end);
+        json.put(conceptIri == null ? JSONObject.NULL : conceptIri);
+        json.put(resolvedToVertexId == null ? JSONObject.NULL : resolvedToVertexId);
+        return json;
+    }
+
+    public static TermMentionOffsetIndexEntry fromJson(JSONArray json) {
+        return new TermMentionOffsetIndexEntry(
+                json.getString(0),
+                json.isNull(1) ? null : json.getString(1),
+                json.getLong(2),
+                json.getLong(3),
+                json.isNull(4) ? null : json.getString(4),
+                json.isNull(5) ? null : json.getString(5)
+        );
+    }
+
+    @Override
+    public int compareTo(TermMentionOffsetIndexEntry other) {
+        if (start != other.start) {
+            return start < other.start ? -1 : 1;
+        }
+        if (end != other.end) {
+            return end < other.end ? -1 : 1;
+        }
+        return termMentionId.compareTo(other.termMentionId);
+    }
+
+    @Override
+    public String toString() {
+        return "TermMentionOffsetIndexEntry{" +
+                "termMentionId='" + termMentionId + '\'' +
+                ", propertyKey='" + propertyKey + '\'' +
+                ", start=" + start +
+                ", end=" + end +
+                '}';
+    }
+}
@@ -0,0 +1,23 @@
+package org.visallo.core.model.termMention;
+
+import org.json.JSONArray;
+import org.visallo.core.model.properties.types.VisalloProperty;
+
+public class TermMentionOffsetIndexProperty extends VisalloProperty<TermMentionOffsetIndexEntry, String> {
+    public TermMentionOffsetIndexProperty(final String key) {
+        super(key);
+    }
+
+    @Override
+    public String wrap(TermMentionOffsetIndexEntry value) {
+        return value.toJson().toString();
+    }
+
+    @Override
+    public TermMentionOffsetIndexEntry unwrap(final Object value) {
+        if (value == null) {
+            return null;
+        }
+        return TermMentionOffsetIndexEntry.fromJson(new JSONArray(value.toString()));
+    }
+}
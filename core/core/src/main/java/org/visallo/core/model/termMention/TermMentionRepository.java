@@ -1,5 +1,7 @@
 package org.visallo.core.model.termMention;
 
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.SetMultimap;
 import com.google.inject.Inject;
 import org.visallo.core.model.PropertyJustificationMetadata;
 import org.visallo.core.model.properties.VisalloProperties;
@@ -13,6 +15,14 @@ import org.vertexium.mutation.ExistingElementMutation;
 import org.vertexium.util.FilterIterable;
 import org.vertexium.util.JoinIterable;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 import static org.vertexium.util.IterableUtils.single;
 import static org.vertexium.util.IterableUtils.singleOrDefault;
 
@@ -26,17 +36,67 @@ public class TermMentionRepository {
     public TermMentionRepository(Graph graph, AuthorizationRepository authorizationRepository) {
         this.graph = graph;
         authorizationRepository.addAuthorizationToGraph(VISIBILITY_STRING);
+        graph.defineProperty(VisalloProperties.TERM_MENTION_OFFSET_INDEX.getPropertyName())
+                .dataType(String.class)
+                .textIndexHint(TextIndexHint.NONE)
+                .define();
     }
 
+    /**
+     * Finds the term mentions of one text property using the offset index on the source vertex, so only the term
+     * mentions of that property are read. The index entries have the visibility of their term mention and the term
+     * mentions are read with the caller's authorizations, so an entry never exposes a term mention the caller can't see.
+     * Term mentions saved before the index existed have no entry. They are found by comparing the ids of the has term
+     * mention edges, which are loaded with the source vertex, to the indexed ids, so a vertex with both kinds returns
+     * both and only the unindexed term mentions are read to check their property key.
+     */
     public Iterable<Vertex> findBySourceGraphVertexAndPropertyKey(String sourceVertexId, final String propertyKey, Authorizations authorizations) {
         authorizations = getAuthorizations(authorizations);
-        return new FilterIterable<Vertex>(findBySourceGraphVertex(sourceVertexId, authorizations)) {
+        Vertex sourceVertex = graph.getVertex(sourceVertexId, authorizations);
+        Set<String> indexedTermMentionIds = new HashSet<>();
+        List<String> termMentionIds = new ArrayList<>();
+        for (Property property : VisalloProperties.TERM_MENTION_OFFSET_INDEX.getProperties(sourceVertex)) {
+            TermMentionOffsetIndexEntry entry = VisalloProperties.TERM_MENTION_OFFSET_INDEX.getPropertyValue(property);
+            indexedTermMentionIds.add(entry.getTermMentionId());
+            if (propertyKey.equals(entry.getPropertyKey())) {
+                termMentionIds.add(entry.getTermMentionId());
+            }
+        }
+        List<String> unindexedTermMentionIds = new ArrayList<>();
+        for (String termMentionId : sourceVertex.getVertexIds(Direction.OUT, VisalloProperties.TERM_MENTION_LABEL_HAS_TERM_MENTION, authorizations)) {
+            if (!indexedTermMentionIds.contains(termMentionId)) {
+                unindexedTermMentionIds.add(termMentionId);
+            }
+        }
+
+        Iterable<Vertex> indexedTermMentions = graph.getVertices(termMentionIds, authorizations);
+        if (unindexedTermMentionIds.size() == 0) {
+            return indexedTermMentions;
+        }
+        LOGGER.debug("%d term mentions of vertex %s are not in the offset index", unindexedTermMentionIds.size(), sourceVertexId);
+        Iterable<Vertex> unindexedTermMentions = new FilterIterable<Vertex>(graph.getVertices(unindexedTermMentionIds, authorizations)) {
             @Override
             protected boolean isIncluded(Vertex v) {
                 String vertexPropertyKey = VisalloProperties.TERM_MENTION_PROPERTY_KEY.getPropertyValue(v);
                 return propertyKey.equals(vertexPropertyKey);
             }
         };
+        return new JoinIterable<>(indexedTermMentions, unindexedTermMentions);
+    }
+
+    /**
+     * @return the offset index entries of the text property in start offset order, empty if the source vertex has none
+     */
+    public List<TermMentionOffsetIndexEntry> findOffsetIndexEntries(Vertex sourceVertex, String propertyKey) {
+        List<TermMentionOffsetIndexEntry> results = new ArrayList<>();
+        for (Property property : VisalloProperties.TERM_MENTION_OFFSET_INDEX.getProperties(sourceVertex)) {
+            TermMentionOffsetIndexEntry entry = VisalloProperties.TERM_MENTION_OFFSET_INDEX.getPropertyValue(property);
+            if (propertyKey.equals(entry.getPropertyKey())) {
+                results.add(entry);
+            }
+        }
+        Collections.sort(results);
+        return results;
     }
 
     public Iterable<Vertex> findBySourceGraphVertex(String sourceVertexId, Authorizations authorizations) {
@@ -93,6 +153,44 @@ public class TermMentionRepository {
         };
     }
 
+    /**
+     * Finds the term mention vertices that were created for the justification of each of the vertices. The term
+     * mentions of all the vertices are read with a single multi-get.
+     *
+     * @param vertexIds The ids of the vertices with the justifications.
+     * @return term mention vertices by the id of the vertex they were created for, with an entry for every vertex found.
+     */
+    public Map<String, List<Vertex>> findByVertexIdsForVertices(Iterable<String> vertexIds, Authorizations authorizations) {
+        Authorizations authorizationsWithTermMention = getAuthorizations(authorizations);
+        String[] labels = new String[]{
+                VisalloProperties.TERM_MENTION_LABEL_HAS_TERM_MENTION,
+                VisalloProperties.TERM_MENTION_LABEL_RESOLVED_TO
+        };
+        Map<String, List<Vertex>> results = new HashMap<>();
+        SetMultimap<String, String> vertexIdsByTermMentionId = HashMultimap.create();
+        for (Vertex vertex : graph.getVertices(vertexIds, authorizationsWithTermMention)) {
+            results.put(vertex.getId(), new ArrayList<Vertex>());
+            for (String termMentionId : vertex.getVertexIds(Direction.BOTH, labels, authorizationsWithTermMention)) {
+                vertexIdsByTermMentionId.put(termMentionId, vertex.getId());
+            }
+        }
+
+        for (Vertex termMention : graph.getVertices(vertexIdsByTermMentionId.keySet(), authorizationsWithTermMention)) {
+            String forElementId = VisalloProperties.TERM_MENTION_FOR_ELEMENT_ID.getPropertyValue(termMention);
+            if (forElementId == null || !vertexIdsByTermMentionId.containsEntry(termMention.getId(), forElementId)) {
+                continue;
+            }
+
+            TermMentionFor forType = VisalloProperties.TERM_MENTION_FOR_TYPE.getPropertyValue(termMention);
+            if (forType == null || forType != TermMentionFor.VERTEX) {
+                continue;
+            }
+
+            results.get(forElementId).add(termMention);
+        }
+        return results;
+    }
+
     /**
      * Finds term mention vertices that were created for the justification of a new edge.
      *
@@ -192,6 +290,12 @@ public class TermMentionRepository {
             VisalloProperties.TERM_MENTION_REF_PROPERTY_VISIBILITY.setProperty(m, newVisibility.getVisibilityString(), refPropertyVisibility.getMetadata(), newVisibilityWithTermMention);
         }
         m.save(authorizationsWithTermMention);
+        Vertex sourceVertex = findSourceVertex(termMention, authorizationsWithTermMention);
+        if (sourceVertex != null && VisalloProperties.TERM_MENTION_OFFSET_INDEX.hasProperty(sourceVertex, termMention.getId())) {
+            ExistingElementMutation<Vertex> sourceVertexMutation = sourceVertex.prepareMutation();
+            VisalloProperties.TERM_MENTION_OFFSET_INDEX.alterVisibility(sourceVertexMutation, termMention.getId(), newVisibilityWithTermMention);
+            sourceVertexMutation.save(authorizationsWithTermMention);
+        }
         for (Edge edge : termMention.getEdges(Direction.BOTH, authorizationsWithTermMention)) {
             ExistingElementMutation<Edge> edgeMutation = edge.prepareMutation();
             edgeMutation.alterElementVisibility(newVisibilityWithTermMention);
@@ -210,9 +314,17 @@ public class TermMentionRepository {
 
     public void delete(Vertex termMention, Authorizations authorizations) {
         Authorizations authorizationsWithTermMention = getAuthorizations(authorizations);
+        removeFromOffsetIndex(termMention, authorizationsWithTermMention);
         graph.softDeleteVertex(termMention, authorizationsWithTermMention);
     }
 
+    private void removeFromOffsetIndex(Vertex termMention, Authorizations authorizationsWithTermMention) {
+        Vertex sourceVertex = findSourceVertex(termMention, authorizationsWithTermMention);
+        if (sourceVertex != null && VisalloProperties.TERM_MENTION_OFFSET_INDEX.hasProperty(sourceVertex, termMention.getId())) {
+            VisalloProperties.TERM_MENTION_OFFSET_INDEX.removeProperty(sourceVertex, termMention.getId(), authorizationsWithTermMention);
+        }
+    }
+
     public void markHidden(Vertex termMention, Visibility hiddenVisibility, Authorizations authorizations) {
         Authorizations authorizationsWithTermMention = getAuthorizations(authorizations);
         graph.markVertexHidden(termMention, hiddenVisibility, authorizationsWithTermMention);
@@ -367,6 +479,7 @@ public class TermMentionRepository {
 
         graph.addEdge(VisalloProperties.TERM_MENTION_LABEL_HAS_TERM_MENTION + termMentionVertexId, sourceVertex, termMention, VisalloProperties.TERM_MENTION_LABEL_HAS_TERM_MENTION, visibility, authorizations);
         graph.addEdge(VisalloProperties.TERM_MENTION_LABEL_RESOLVED_TO + termMentionVertexId, termMention, vertex, VisalloProperties.TERM_MENTION_LABEL_RESOLVED_TO, visibility, authorizations);
+        VisalloProperties.TERM_MENTION_OFFSET_INDEX.addPropertyValue(sourceVertex, termMentionVertexId, TermMentionOffsetIndexEntry.create(termMention), visibility, authorizations);
 
         graph.flush();
         LOGGER.debug("added source info: %s", termMention.getId());
@@ -432,6 +545,7 @@ public class TermMentionRepository {
     public void removeSourceInfoEdgeFromVertex(String vertexId, String sourceInfoElementId, String propertyKey, String propertyName, VisalloVisibility visalloVisibility, Authorizations authorizations) {
         Vertex termMention = findTermMention(vertexId, sourceInfoElementId, propertyKey, propertyName, visalloVisibility.getVisibility(), authorizations);
         if (termMention != null) {
+            removeFromOffsetIndex(termMention, getAuthorizations(authorizations));
             graph.softDeleteVertex(termMention, authorizations);
         }
     }
@@ -20,6 +20,7 @@ import org.visallo.core.util.VisalloLoggerFactory;
 import org.visallo.web.clientapi.model.ClientApiWorkspace;
 import org.visallo.web.clientapi.model.UserStatus;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -27,6 +28,9 @@ import static com.google.common.base.Preconditions.checkNotNull;
 
 public abstract class WorkQueueRepository {
     protected static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(WorkQueueRepository.class);
+    public static final String WORKSPACE_CACHE_INVALIDATE_TYPE = "workspaceCacheInvalidate";
+    public static final String USER_AUTHORIZATIONS_INVALIDATE_TYPE = "userAuthorizationsInvalidate";
+    public static final String ONTOLOGY_CACHE_INVALIDATE_TYPE = "ontologyCacheInvalidate";
     protected final Configuration configuration;
     protected final WorkQueueNames workQueueNames;
     private final Graph graph;
@@ -62,7 +66,7 @@ public abstract class WorkQueueRepository {
     }
 
     public void pushGraphPropertyQueue(final Element element, final Property property, String workspaceId, String visibilitySource, Priority priority, FlushFlag flushFlag) {
-        pushGraphPropertyQueue(element, property.getKey(), property.getName(), workspaceId, visibilitySource, priority);
+        pushGraphPropertyQueue(element, property.getKey(), property.getName(), workspaceId, visibilitySource, priority, flushFlag);
     }
 
     public void pushElementImageQueue(final Element element, final Property property, Priority priority) {
@@ -70,7 +74,7 @@ public abstract class WorkQueueRepository {
     }
 
     public void pushElementImageQueue(final Element element, String propertyKey, final String propertyName, Priority priority) {
-        getGraph().flush();
+        flushGraphBeforePush(FlushFlag.DEFAULT);
         checkNotNull(element);
         JSONObject data = new JSONObject();
         if (element instanceof Vertex) {
@@ -111,7 +115,7 @@ public abstract class WorkQueueRepository {
             Priority priority,
             FlushFlag flushFlag
     ) {
-        getGraph().flush();
+        flushGraphBeforePush(flushFlag);
         checkNotNull(element);
         JSONObject data = new JSONObject();
         if (element instanceof Vertex) {
@@ -146,7 +150,7 @@ public abstract class WorkQueueRepository {
             Priority priority,
             FlushFlag flushFlag
     ) {
-        getGraph().flush();
+        flushGraphBeforePush(flushFlag);
         checkNotNull(element);
         JSONObject data = new JSONObject();
         if (element instanceof Vertex) {
@@ -165,6 +169,16 @@ public abstract class WorkQueueRepository {
         pushOnQueue(workQueueNames.getGraphPropertyQueueName(), flushFlag, data, priority);
     }
 
+    /**
+     * Flushes the graph so the element's changes are visible to the workers that receive the message.
+     * Repositories that publish in batches can override this and flush the graph once per batch instead.
+     */
+    protected void flushGraphBeforePush(FlushFlag flushFlag) {
+        if (flushFlag != FlushFlag.NO_FLUSH) {
+            getGraph().flush();
+        }
+    }
+
     protected boolean shouldBroadcastGraphPropertyChange(Element element, String propertyKey, String propertyName, String workspaceId, Priority priority) {
         return shouldBroadcast(priority);
     }
@@ -380,6 +394,52 @@ public abstract class WorkQueueRepository {
         broadcastJson(json);
     }
 
+    /**
+     * Tells every server to drop what it has cached for the workspace. Not forwarded to web clients.
+     */
+    public void pushWorkspaceCacheInvalidate(String workspaceId) {
+        JSONObject json = new JSONObject();
+        json.put("type", WORKSPACE_CACHE_INVALIDATE_TYPE);
+        json.put("workspaceId", workspaceId);
+        broadcastJson(json);
+    }
+
+    /**
+     * Tells every server to drop the authorizations it has cached for the user. Not forwarded to web clients.
+     */
+    public void pushUserAuthorizationsInvalidate(String userId) {
+        JSONObject json = new JSONObject();
+        json.put("type", USER_AUTHORIZATIONS_INVALIDATE_TYPE);
+        json.put("userId", userId);
+        broadcastJson(json);
+    }
+
+    /**
+     * Tells every server to reload the given ontology concepts, properties and relationships. If the IRI collections
+     * are null the whole ontology is reloaded. The sourceId lets the sender skip its own message. Not forwarded to web
+     * clients.
+     */
+    public void pushOntologyCacheInvalidate(
+            String sourceId,
+            Collection<String> conceptIris,
+            Collection<String> propertyIris,
+            Collection<String> relationshipIris
+    ) {
+        JSONObject json = new JSONObject();
+        json.put("type", ONTOLOGY_CACHE_INVALIDATE_TYPE);
+        json.put("sourceId", sourceId);
+        if (conceptIris != null) {
+            json.put("conceptIris", new JSONArray(conceptIris));
+        }
+        if (propertyIris != null) {
+            json.put("propertyIris", new JSONArray(propertyIris));
+        }
+        if (relationshipIris != null) {
+            json.put("relationshipIris", new JSONArray(relationshipIris));
+        }
+        broadcastJson(json);
+    }
+
     private JSONObject getPermissionsWithUsers(ClientApiWorkspace workspace, List<ClientApiWorkspace.User> previousUsers) {
         JSONObject permissions = new JSONObject();
         JSONArray users = new JSONArray();
@@ -135,7 +135,14 @@ public abstract class WorkspaceRepository {
 
     public abstract void updateUserOnWorkspace(Workspace workspace, String userId, WorkspaceAccess workspaceAccess, User user);
 
-    public abstract ClientApiWorkspaceDiff getDiff(Workspace workspace, User user, Locale locale, String timeZone);
+    public ClientApiWorkspaceDiff getDiff(Workspace workspace, User user, Locale locale, String timeZone) {
+        return getDiff(workspace, user, locale, timeZone, null);
+    }
+
+    /**
+     * @param since the marker of an earlier diff to only diff the elements changed after it, or null for a full diff
+     */
+    public abstract ClientApiWorkspaceDiff getDiff(Workspace workspace, User user, Locale locale, String timeZone, Long since);
 
     public String getCreatorUserId(String workspaceId, User user) {
         for (WorkspaceUser workspaceUser : findUsersWithAccess(workspaceId, user)) {
@@ -317,29 +324,94 @@ public abstract class WorkspaceRepository {
     }
 
     public ClientApiWorkspacePublishResponse publish(ClientApiPublishItem[] publishData, String workspaceId, Authorizations authorizations) {
+        return publish(publishData, workspaceId, null, authorizations);
+    }
+
+    /**
+     * Publishes vertices, then edges, then properties. The elements of each kind are read with one multi-get and their
+     * mutations are flushed together, the broadcasts for a kind are sent once its mutations have been flushed.
+     *
+     * @param progressCallback called after each item, may be null
+     */
+    public ClientApiWorkspacePublishResponse publish(ClientApiPublishItem[] publishData, String workspaceId, PublishProgressCallback progressCallback, Authorizations authorizations) {
         if (this.entityHasImageIri == null) {
             this.entityHasImageIri = ontologyRepository.getRequiredRelationshipIRIByIntent("entityHasImage");
         }
 
         ClientApiWorkspacePublishResponse workspacePublishResponse = new ClientApiWorkspacePublishResponse();
-        publishVertices(publishData, workspacePublishResponse, workspaceId, authorizations);
-        publishEdges(publishData, workspacePublishResponse, workspaceId, authorizations);
-        publishProperties(publishData, workspacePublishResponse, workspaceId, authorizations);
+        PublishProgress progress = new PublishProgress(publishData.length, progressCallback);
+        publishVertices(publishData, workspacePublishResponse, workspaceId, progress, authorizations);
+        publishEdges(publishData, workspacePublishResponse, workspaceId, progress, authorizations);
+        publishProperties(publishData, workspacePublishResponse, workspaceId, progress, authorizations);
         return workspacePublishResponse;
     }
 
-    private void publishVertices(ClientApiPublishItem[] publishData, ClientApiWorkspacePublishResponse workspacePublishResponse, String workspaceId, Authorizations authorizations) {
-        LOGGER.debug("BEGIN publishVertices");
+    public interface PublishProgressCallback {
+        void progress(int publishedCount, int totalCount);
+    }
+
+    private static class PublishProgress {
+        private final int totalCount;
+        private final PublishProgressCallback callback;
+        private int publishedCount;
+
+        PublishProgress(int totalCount, PublishProgressCallback callback) {
+            this.totalCount = totalCount;
+            this.callback = callback;
+        }
+
+        void itemPublished() {
+            publishedCount++;
+            if (callback != null) {
+                callback.progress(publishedCount, totalCount);
+            }
+        }
+    }
+
+    private static <T extends ClientApiPublishItem> List<T> getPublishItems(ClientApiPublishItem[] publishData, Class<T> publishItemClass) {
+        List<T> publishItems = new ArrayList<>();
         for (ClientApiPublishItem data : publishData) {
+            if (publishItemClass.isInstance(data)) {
+                publishItems.add(publishItemClass.cast(data));
+            }
+        }
+        return publishItems;
+    }
+
+    private static <T extends Element> Map<String, T> indexById(Iterable<T> elements) {
+        Map<String, T> elementsById = new HashMap<>();
+        for (T element : elements) {
+            elementsById.put(element.getId(), element);
+        }
+        return elementsById;
+    }
+
+    private void flushAndBroadcast(List<Runnable> broadcasts) {
+        graph.flush();
+        for (Runnable broadcast : broadcasts) {
+            broadcast.run();
+        }
+    }
+
+    private void publishVertices(ClientApiPublishItem[] publishData, ClientApiWorkspacePublishResponse workspacePublishResponse, String workspaceId, PublishProgress progress, Authorizations authorizations) {
+        LOGGER.debug("BEGIN publishVertices");
+        List<ClientApiVertexPublishItem> vertexPublishItems = getPublishItems(publishData, ClientApiVertexPublishItem.class);
+        List<String> vertexIds = new ArrayList<>();
+        for (ClientApiVertexPublishItem vertexPublishItem : vertexPublishItems) {
+            if (vertexPublishItem.getVertexId() != null) {
+                vertexIds.add(vertexPublishItem.getVertexId());
+            }
+        }
+        Map<String, Vertex> verticesById = indexById(graph.getVertices(vertexIds, FetchHint.ALL_INCLUDING_HIDDEN, authorizations));
+
+        Map<ClientApiVertexPublishItem, Vertex> verticesToPublish = new LinkedHashMap<>();
+        List<String> vertexIdsToPublish = new ArrayList<>();
+        for (ClientApiVertexPublishItem data : vertexPublishItems) {
             try {
-                if (!(data instanceof ClientApiVertexPublishItem)) {
-                    continue;
-                }
-                ClientApiVertexPublishItem vertexPublishItem = (ClientApiVertexPublishItem) data;
-                String vertexId = vertexPublishItem.getVertexId();
+                String vertexId = data.getVertexId();
                 checkNotNull(vertexId);
-                Vertex vertex = graph.getVertex(vertexId, FetchHint.ALL_INCLUDING_HIDDEN, authorizations);
-                checkNotNull(vertex);
+                Vertex vertex = verticesById.get(vertexId);
+                checkNotNull(vertex, "Could not find vertex with id: " + vertexId);
                 if (SandboxStatusUtil.getSandboxStatus(vertex, workspaceId) == SandboxStatus.PUBLIC && !WorkspaceDiffHelper.isPublicDelete(vertex, authorizations)) {
                     String msg;
                     if (data.getAction() == ClientApiPublishItem.Action.delete) {
@@ -350,30 +422,84 @@ public abstract class WorkspaceRepository {
                     LOGGER.warn(msg);
                     data.setErrorMessage(msg);
                     workspacePublishResponse.addFailure(data);
+                    progress.itemPublished();
                     continue;
                 }
-                publishVertex(vertex, data.getAction(), authorizations, workspaceId);
+                verticesToPublish.put(data, vertex);
+                if (!isDelete(data.getAction(), vertex, authorizations)) {
+                    vertexIdsToPublish.add(vertexId);
+                }
             } catch (Exception ex) {
                 LOGGER.error("Error publishing %s", data.toString(), ex);
                 data.setErrorMessage(ex.getMessage());
                 workspacePublishResponse.addFailure(data);
+                progress.itemPublished();
             }
         }
+
+        // Need to elevate with videoFrame auth to be able to publish VideoFrame properties
+        Authorizations authWithVideoFrame = graph.createAuthorizations(authorizations, VideoFrameInfo.VISIBILITY_STRING);
+        Map<String, Vertex> verticesWithVideoFramesById = indexById(graph.getVertices(vertexIdsToPublish, authWithVideoFrame));
+        Map<String, List<Vertex>> termMentionsByVertexId = termMentionRepository.findByVertexIdsForVertices(vertexIdsToPublish, authorizations);
+
+        List<Runnable> broadcasts = new ArrayList<>();
+        for (Map.Entry<ClientApiVertexPublishItem, Vertex> vertexToPublish : verticesToPublish.entrySet()) {
+            ClientApiVertexPublishItem data = vertexToPublish.getKey();
+            Vertex vertex = vertexToPublish.getValue();
+            try {
+                if (isDelete(data.getAction(), vertex, authorizations)) {
+                    deleteVertex(vertex, broadcasts, authorizations);
+                } else {
+                    Vertex vertexWithVideoFrames = verticesWithVideoFramesById.get(vertex.getId());
+                    checkNotNull(vertexWithVideoFrames, "Could not find vertex with id: " + vertex.getId());
+                    List<Vertex> termMentions = termMentionsByVertexId.get(vertex.getId());
+                    publishVertex(
+                            vertexWithVideoFrames,
+                            termMentions == null ? Collections.<Vertex>emptyList() : termMentions,
+                            broadcasts,
+                            workspaceId,
+                            authorizations
+                    );
+                }
+            } catch (Exception ex) {
+                LOGGER.error("Error publishing %s", data.toString(), ex);
+                data.setErrorMessage(ex.getMessage());
+                workspacePublishResponse.addFailure(data);
+            }
+            progress.itemPublished();
+        }
         LOGGER.debug("END publishVertices");
-        graph.flush();
+        flushAndBroadcast(broadcasts);
+    }
+
+    private static boolean isDelete(ClientApiPublishItem.Action action, Element element, Authorizations authorizations) {
+        return action == ClientApiPublishItem.Action.delete || WorkspaceDiffHelper.isPublicDelete(element, authorizations);
     }
 
-    private void publishEdges(ClientApiPublishItem[] publishData, ClientApiWorkspacePublishResponse workspacePublishResponse, String workspaceId, Authorizations authorizations) {
+    private void publishEdges(ClientApiPublishItem[] publishData, ClientApiWorkspacePublishResponse workspacePublishResponse, String workspaceId, PublishProgress progress, Authorizations authorizations) {
         LOGGER.debug("BEGIN publishEdges");
-        for (ClientApiPublishItem data : publishData) {
+        List<ClientApiRelationshipPublishItem> relationshipPublishItems = getPublishItems(publishData, ClientApiRelationshipPublishItem.class);
+        List<String> edgeIds = new ArrayList<>();
+        for (ClientApiRelationshipPublishItem relationshipPublishItem : relationshipPublishItems) {
+            if (relationshipPublishItem.getEdgeId() != null) {
+                edgeIds.add(relationshipPublishItem.getEdgeId());
+            }
+        }
+        Map<String, Edge> edgesById = indexById(graph.getEdges(edgeIds, FetchHint.ALL_INCLUDING_HIDDEN, authorizations));
+        Set<String> edgeVertexIds = new HashSet<>();
+        for (Edge edge : edgesById.values()) {
+            edgeVertexIds.add(edge.getVertexId(Direction.OUT));
+            edgeVertexIds.add(edge.getVertexId(Direction.IN));
+        }
+        Map<String, Vertex> edgeVerticesById = indexById(graph.getVertices(edgeVertexIds, authorizations));
+
+        List<Runnable> broadcasts = new ArrayList<>();
+        for (ClientApiRelationshipPublishItem data : relationshipPublishItems) {
             try {
-                if (!(data instanceof ClientApiRelationshipPublishItem)) {
-                    continue;
-                }
-                ClientApiRelationshipPublishItem relationshipPublishItem = (ClientApiRelationshipPublishItem) data;
-                Edge edge = graph.getEdge(relationshipPublishItem.getEdgeId(), FetchHint.ALL_INCLUDING_HIDDEN, authorizations);
-                Vertex sourceVertex = edge.getVertex(Direction.OUT, authorizations);
-                Vertex destVertex = edge.getVertex(Direction.IN, authorizations);
+                Edge edge = edgesById.get(data.getEdgeId());
+                checkNotNull(edge, "Could not find edge with id: " + data.getEdgeId());
+                Vertex sourceVertex = edgeVerticesById.get(edge.getVertexId(Direction.OUT));
+                Vertex destVertex = edgeVerticesById.get(edge.getVertexId(Direction.IN));
                 if (SandboxStatusUtil.getSandboxStatus(edge, workspaceId) == SandboxStatus.PUBLIC && !WorkspaceDiffHelper.isPublicDelete(edge, authorizations)) {
                     String error_msg;
                     if (data.getAction() == ClientApiPublishItem.Action.delete) {
@@ -396,29 +522,38 @@ public abstract class WorkspaceRepository {
                     workspacePublishResponse.addFailure(data);
                     continue;
                 }
-                publishEdge(edge, sourceVertex, destVertex, data.getAction(), workspaceId, authorizations);
+                publishEdge(edge, sourceVertex, destVertex, data.getAction(), broadcasts, workspaceId, authorizations);
             } catch (Exception ex) {
                 LOGGER.error("Error publishing %s", data.toString(), ex);
                 data.setErrorMessage(ex.getMessage());
                 workspacePublishResponse.addFailure(data);
+            } finally {
+                progress.itemPublished();
             }
         }
         LOGGER.debug("END publishEdges");
-        graph.flush();
+        flushAndBroadcast(broadcasts);
     }
 
-    private void publishProperties(ClientApiPublishItem[] publishData, ClientApiWorkspacePublishResponse workspacePublishResponse, String workspaceId, Authorizations authorizations) {
+    private void publishProperties(ClientApiPublishItem[] publishData, ClientApiWorkspacePublishResponse workspacePublishResponse, String workspaceId, PublishProgress progress, Authorizations authorizations) {
         LOGGER.debug("BEGIN publishProperties");
-        for (ClientApiPublishItem data : publishData) {
+        List<ClientApiPropertyPublishItem> propertyPublishItems = getPublishItems(publishData, ClientApiPropertyPublishItem.class);
+        PropertyElements propertyElements = new PropertyElements(propertyPublishItems, authorizations);
+
+        List<Runnable> broadcasts = new ArrayList<>();
+        Set<List<String>> publishedProperties = new HashSet<>();
+        for (ClientApiPropertyPublishItem data : propertyPublishItems) {
             try {
-                if (!(data instanceof ClientApiPropertyPublishItem)) {
-                    continue;
+                Element element = propertyElements.getPropertyElement(data);
+
+                String propertyKey = data.getKey();
+                String propertyName = data.getName();
+                if (!publishedProperties.add(Arrays.asList(element.getId(), propertyKey, propertyName))) {
+                    // an earlier item changed the same property, continue from what it left
+                    flushAndBroadcast(broadcasts);
+                    broadcasts.clear();
+                    element = propertyElements.reload(element, authorizations);
                 }
-                ClientApiPropertyPublishItem propertyPublishItem = (ClientApiPropertyPublishItem) data;
-                Element element = getPropertyElement(propertyPublishItem, authorizations);
-
-                String propertyKey = propertyPublishItem.getKey();
-                String propertyName = propertyPublishItem.getName();
 
                 OntologyProperty ontologyProperty = ontologyRepository.getPropertyByIRI(propertyName);
                 checkNotNull(ontologyProperty, "Could not find ontology property: " + propertyName);
@@ -435,57 +570,98 @@ public abstract class WorkspaceRepository {
                     continue;
                 }
 
-                publishProperty(element, data.getAction(), propertyKey, propertyName, workspaceId, authorizations);
+                publishProperty(element, data.getAction(), propertyKey, propertyName, broadcasts, workspaceId, authorizations);
             } catch (Exception ex) {
                 LOGGER.error("Error publishing %s", data.toString(), ex);
                 data.setErrorMessage(ex.getMessage());
                 workspacePublishResponse.addFailure(data);
+            } finally {
+                progress.itemPublished();
             }
         }
         LOGGER.debug("END publishProperties");
-        graph.flush();
+        flushAndBroadcast(broadcasts);
     }
 
-    private Element getPropertyElement(ClientApiPropertyPublishItem data, Authorizations authorizations) {
-        Element element = null;
-
-        String elementId = data.getEdgeId();
-        if (elementId != null) {
-            element = graph.getEdge(elementId, FetchHint.ALL_INCLUDING_HIDDEN, authorizations);
+    /**
+     * The elements referenced by property publish items, read with one multi-get for edges and one for vertices.
+     */
+    private class PropertyElements {
+        private final Map<String, Edge> edgesById;
+        private final Map<String, Vertex> verticesById;
+
+        PropertyElements(List<ClientApiPropertyPublishItem> propertyPublishItems, Authorizations authorizations) {
+            Set<String> edgeIds = new HashSet<>();
+            Set<String> vertexIds = new HashSet<>();
+            for (ClientApiPropertyPublishItem data : propertyPublishItems) {
+                if (data.getEdgeId() != null) {
+                    edgeIds.add(data.getEdgeId());
+                }
+                if (data.getVertexId() != null) {
+                    vertexIds.add(data.getVertexId());
+                }
+                if (data.getElementId() != null) {
+                    edgeIds.add(data.getElementId());
+                    vertexIds.add(data.getElementId());
+                }
+            }
+            this.edgesById = indexById(graph.getEdges(edgeIds, FetchHint.ALL_INCLUDING_HIDDEN, authorizations));
+            this.verticesById = indexById(graph.getVertices(vertexIds, FetchHint.ALL_INCLUDING_HIDDEN, authorizations));
         }
 
-        if (element == null) {
-            elementId = data.getVertexId();
+        Element getPropertyElement(ClientApiPropertyPublishItem data) {
+            Element element = null;
+
+            String elementId = data.getEdgeId();
             if (elementId != null) {
-                element = graph.getVertex(elementId, FetchHint.ALL_INCLUDING_HIDDEN, authorizations);
+                element = edgesById.get(elementId);
             }
-        }
 
-        if (element == null) {
-            elementId = data.getElementId();
-            checkNotNull(elementId, "elementId, vertexId, or edgeId is required to publish a property");
-            element = graph.getVertex(elementId, FetchHint.ALL_INCLUDING_HIDDEN, authorizations);
             if (element == null) {
-                element = graph.getEdge(elementId, FetchHint.ALL_INCLUDING_HIDDEN, authorizations);
+                elementId = data.getVertexId();
+                if (elementId != null) {
+                    element = verticesById.get(elementId);
+                }
             }
-        }
 
-        checkNotNull(element, "Could not find edge/vertex with id: " + elementId);
-        return element;
-    }
+            if (element == null) {
+                elementId = data.getElementId();
+                checkNotNull(elementId, "elementId, vertexId, or edgeId is required to publish a property");
+                element = verticesById.get(elementId);
+                if (element == null) {
+                    element = edgesById.get(elementId);
+                }
+            }
 
-    private void publishVertex(Vertex vertex, ClientApiPublishItem.Action action, Authorizations authorizations, String workspaceId) throws IOException {
-        if (action == ClientApiPublishItem.Action.delete || WorkspaceDiffHelper.isPublicDelete(vertex, authorizations)) {
-            graph.softDeleteVertex(vertex, authorizations);
-            graph.flush();
-            workQueueRepository.broadcastPublishVertexDelete(vertex);
-            return;
+            checkNotNull(element, "Could not find edge/vertex with id: " + elementId);
+            return element;
         }
 
-        // Need to elevate with videoFrame auth to be able to publish VideoFrame properties
-        Authorizations authWithVideoFrame = graph.createAuthorizations(authorizations, VideoFrameInfo.VISIBILITY_STRING);
-        vertex = graph.getVertex(vertex.getId(), authWithVideoFrame);
+        Element reload(Element element, Authorizations authorizations) {
+            if (element instanceof Edge) {
+                Edge edge = graph.getEdge(element.getId(), FetchHint.ALL_INCLUDING_HIDDEN, authorizations);
+                checkNotNull(edge, "Could not find edge with id: " + element.getId());
+                edgesById.put(edge.getId(), edge);
+                return edge;
+            }
+            Vertex vertex = graph.getVertex(element.getId(), FetchHint.ALL_INCLUDING_HIDDEN, authorizations);
+            checkNotNull(vertex, "Could not find vertex with id: " + element.getId());
+            verticesById.put(vertex.getId(), vertex);
+            return vertex;
+        }
+    }
 
+    private void deleteVertex(final Vertex vertex, List<Runnable> broadcasts, Authorizations authorizations) {
+        graph.softDeleteVertex(vertex, authorizations);
+        broadcasts.add(new Runnable() {
+            @Override
+            public void run() {
+                workQueueRepository.broadcastPublishVertexDelete(vertex);
+            }
+        });
+    }
+
+    private void publishVertex(final Vertex vertex, List<Vertex> termMentions, List<Runnable> broadcasts, String workspaceId, Authorizations authorizations) throws IOException {
         LOGGER.debug("publishing vertex %s(%s)", vertex.getId(), vertex.getVisibility().toString());
         VisibilityJson visibilityJson = VisalloProperties.VISIBILITY_JSON.getPropertyValue(vertex);
 
@@ -514,19 +690,22 @@ public abstract class WorkspaceRepository {
         VisalloProperties.VISIBILITY_JSON.setProperty(vertexElementMutation, visibilityJson, metadata, visalloVisibility.getVisibility());
         vertexElementMutation.save(authorizations);
 
-        for (Vertex termMention : termMentionRepository.findByVertexIdForVertex(vertex.getId(), authorizations)) {
+        for (Vertex termMention : termMentions) {
             termMentionRepository.updateVisibility(termMention, visalloVisibility.getVisibility(), authorizations);
         }
 
-        graph.flush();
-        workQueueRepository.broadcastPublishVertex(vertex);
+        broadcasts.add(new Runnable() {
+            @Override
+            public void run() {
+                workQueueRepository.broadcastPublishVertex(vertex);
+            }
+        });
     }
 
-    private void publishProperty(Element element, ClientApiPublishItem.Action action, String key, String name, String workspaceId, Authorizations authorizations) {
+    private void publishProperty(Element element, ClientApiPublishItem.Action action, String key, String name, List<Runnable> broadcasts, String workspaceId, Authorizations authorizations) {
         if (action == ClientApiPublishItem.Action.delete) {
             element.softDeleteProperty(key, name, authorizations);
-            graph.flush();
-            workQueueRepository.broadcastPublishPropertyDelete(element, key, name);
+            broadcastPublishPropertyDeleteAfterFlush(element, key, name, broadcasts);
             return;
         }
         ExistingElementMutation elementMutation = element.prepareMutation();
@@ -551,8 +730,7 @@ public abstract class WorkspaceRepository {
             if (WorkspaceDiffHelper.isPublicDelete(property, authorizations)) {
                 if (publicProperty == null) {
                     element.softDeleteProperty(key, name, new Visibility(workspaceId), authorizations);
-                    graph.flush();
-                    workQueueRepository.broadcastPublishPropertyDelete(element, key, name);
+                    broadcastPublishPropertyDeleteAfterFlush(element, key, name, broadcasts);
                     foundProperty = true;
                 }
             } else if (sandboxStatus == SandboxStatus.PUBLIC_CHANGED) {
@@ -575,13 +753,11 @@ public abstract class WorkspaceRepository {
                     }
                     element.addPropertyValue(key, name, property.getValue(), metadata, newVisibility, authorizations);
                 }
-                graph.flush();
-                workQueueRepository.broadcastPublishProperty(element, key, name);
+                broadcastPublishPropertyAfterFlush(element, key, name, broadcasts);
                 foundProperty = true;
             } else if (publishNewProperty(elementMutation, property, workspaceId)) {
                 elementMutation.save(authorizations);
-                graph.flush();
-                workQueueRepository.broadcastPublishProperty(element, key, name);
+                broadcastPublishPropertyAfterFlush(element, key, name, broadcasts);
                 foundProperty = true;
             }
 
@@ -602,6 +778,24 @@ public abstract class WorkspaceRepository {
         }
     }
 
+    private void broadcastPublishPropertyAfterFlush(final Element element, final String key, final String name, List<Runnable> broadcasts) {
+        broadcasts.add(new Runnable() {
+            @Override
+            public void run() {
+                workQueueRepository.broadcastPublishProperty(element, key, name);
+            }
+        });
+    }
+
+    private void broadcastPublishPropertyDeleteAfterFlush(final Element element, final String key, final String name, List<Runnable> broadcasts) {
+        broadcasts.add(new Runnable() {
+            @Override
+            public void run() {
+                workQueueRepository.broadcastPublishPropertyDelete(element, key, name);
+            }
+        });
+    }
+
     private boolean publishNewProperty(ExistingElementMutation elementMutation, Property property, String workspaceId) {
         VisibilityJson visibilityJson = VisalloProperties.VISIBILITY_JSON_METADATA.getMetadataValue(property.getMetadata());
         if (visibilityJson == null) {
@@ -629,13 +823,19 @@ public abstract class WorkspaceRepository {
             @SuppressWarnings("UnusedParameters") Vertex sourceVertex,
             Vertex destVertex,
             ClientApiPublishItem.Action action,
+            List<Runnable> broadcasts,
             String workspaceId,
             Authorizations authorizations
     ) {
-        if (action == ClientApiPublishItem.Action.delete || WorkspaceDiffHelper.isPublicDelete(edge, authorizations)) {
+        if (isDelete(action, edge, authorizations)) {
             graph.softDeleteEdge(edge, authorizations);
-            graph.flush();
-            workQueueRepository.broadcastPublishEdgeDelete(edge);
+            final Edge deletedEdge = edge;
+            broadcasts.add(new Runnable() {
+                @Override
+                public void run() {
+                    workQueueRepository.broadcastPublishEdgeDelete(deletedEdge);
+                }
+            });
             return;
         }
 
@@ -682,8 +882,13 @@ public abstract class WorkspaceRepository {
             termMentionRepository.updateVisibility(termMention, visalloVisibility.getVisibility(), authorizations);
         }
 
-        graph.flush();
-        workQueueRepository.broadcastPublishEdge(edge);
+        final Edge publishedEdge = edge;
+        broadcasts.add(new Runnable() {
+            @Override
+            public void run() {
+                workQueueRepository.broadcastPublishEdge(publishedEdge);
+            }
+        });
     }
 
     private void publishGlyphIconProperty(Edge hasImageEdge, String workspaceId, Authorizations authorizations) {
@@ -1,6 +1,8 @@
 package org.visallo.core.model.workspace.diff;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.base.Function;
+import com.google.common.collect.Lists;
 import com.google.inject.Inject;
 import org.vertexium.*;
 import org.visallo.core.formula.FormulaEvaluator;
@@ -13,16 +15,31 @@ import org.visallo.core.trace.Traced;
 import org.visallo.core.user.User;
 import org.visallo.core.util.JSONUtil;
 import org.visallo.core.util.JsonSerializer;
+import org.visallo.core.util.ParallelConvertingIterable;
 import org.visallo.core.util.SandboxStatusUtil;
 import org.visallo.web.clientapi.model.ClientApiWorkspaceDiff;
 import org.visallo.web.clientapi.model.SandboxStatus;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
 
 import static org.vertexium.util.IterableUtils.toList;
 
+/**
+ * Computes the changes a workspace makes to the published graph.
+ *
+ * Entity vertices are read a batch at a time with one multi-get per batch, and the entities and edges of each batch
+ * are diffed on the {@link ParallelConvertingIterable} pool. A diff can be limited to the elements changed since the
+ * marker of an earlier diff, see {@link #diff(Workspace, Iterable, Iterable, FormulaEvaluator.UserContext, User, Long)}.
+ * The titles of the entity vertices of a batch are evaluated together with
+ * {@link FormulaEvaluator#evaluateFormulas(List, FormulaEvaluator.UserContext, Authorizations)}.
+ */
 public class WorkspaceDiffHelper {
+    private static final int VERTEX_BATCH_SIZE = 1000;
+    /**
+     * Property timestamps come from the clock of the server that wrote them and a write can become visible after the
+     * diff that started later has read the element, so the marker is moved back by this much.
+     */
+    static final long MARKER_SAFETY_WINDOW_MILLIS = 60 * 1000;
     private final Graph graph;
     private final UserRepository userRepository;
     private final FormulaEvaluator formulaEvaluator;
@@ -40,24 +57,118 @@ public class WorkspaceDiffHelper {
 
     @Traced
     public ClientApiWorkspaceDiff diff(Workspace workspace, Iterable<WorkspaceEntity> workspaceEntities, Iterable<Edge> workspaceEdges, FormulaEvaluator.UserContext userContext, User user) {
-        Authorizations authorizations = userRepository.getAuthorizations(user, WorkspaceRepository.VISIBILITY_STRING, workspace.getWorkspaceId());
+        return diff(workspace, workspaceEntities, workspaceEdges, userContext, user, null);
+    }
+
+    /**
+     * @param since the marker of an earlier diff. If not null only the elements with a property written at or after
+     *              the marker, or with a hidden property, are diffed. Items removed since the marker, by a publish,
+     *              an undo or a deleted property, are only dropped by a full diff.
+     */
+    @Traced
+    public ClientApiWorkspaceDiff diff(
+            final Workspace workspace,
+            Iterable<WorkspaceEntity> workspaceEntities,
+            Iterable<Edge> workspaceEdges,
+            final FormulaEvaluator.UserContext userContext,
+            User user,
+            final Long since
+    ) {
+        final Authorizations authorizations = userRepository.getAuthorizations(user, WorkspaceRepository.VISIBILITY_STRING, workspace.getWorkspaceId());
 
         ClientApiWorkspaceDiff result = new ClientApiWorkspaceDiff();
+        result.setMarker(System.currentTimeMillis() - MARKER_SAFETY_WINDOW_MILLIS);
+        result.setIncremental(since != null);
+
+        for (List<WorkspaceEntity> batch : Lists.partition(Lists.newArrayList(workspaceEntities), VERTEX_BATCH_SIZE)) {
+            final Map<String, Vertex> entityVertices = getChangedEntityVertices(batch, since, authorizations);
+            final Map<String, String> titles = evaluateTitles(workspace, entityVertices.values(), userContext, authorizations);
+            Iterable<List<ClientApiWorkspaceDiff.Item>> entityDiffs = new ParallelConvertingIterable<>(batch, new Function<WorkspaceEntity, List<ClientApiWorkspaceDiff.Item>>() {
+                @Override
+                public List<ClientApiWorkspaceDiff.Item> apply(WorkspaceEntity workspaceEntity) {
+                    Vertex entityVertex = entityVertices.get(workspaceEntity.getEntityVertexId());
+                    // vertex can be null if the user doesn't have access to the entity or it did not change
+                    if (entityVertex == null) {
+                        return null;
+                    }
+                    return diffWorkspaceEntity(workspace, workspaceEntity, entityVertex, titles, authorizations);
+                }
+            });
+            addAll(result, entityDiffs);
+        }
+
+        Iterable<List<ClientApiWorkspaceDiff.Item>> edgeDiffs = new ParallelConvertingIterable<>(workspaceEdges, new Function<Edge, List<ClientApiWorkspaceDiff.Item>>() {
+            @Override
+            public List<ClientApiWorkspaceDiff.Item> apply(Edge workspaceEdge) {
+                if (!isChangedSince(workspaceEdge, since, authorizations)) {
+                    return null;
+                }
+                return diffEdge(workspace, workspaceEdge, authorizations);
+            }
+        });
+        addAll(result, edgeDiffs);
+
+        return result;
+    }
+
+    private Map<String, Vertex> getChangedEntityVertices(List<WorkspaceEntity> workspaceEntities, Long since, Authorizations authorizations) {
+        List<String> vertexIds = new ArrayList<>(workspaceEntities.size());
         for (WorkspaceEntity workspaceEntity : workspaceEntities) {
-            List<ClientApiWorkspaceDiff.Item> entityDiffs = diffWorkspaceEntity(workspace, workspaceEntity, userContext, authorizations);
-            if (entityDiffs != null) {
-                result.addAll(entityDiffs);
+            vertexIds.add(workspaceEntity.getEntityVertexId());
+        }
+        Map<String, Vertex> vertices = new HashMap<>(vertexIds.size());
+        for (Vertex vertex : graph.getVertices(vertexIds, FetchHint.ALL_INCLUDING_HIDDEN, authorizations)) {
+            if (isChangedSince(vertex, since, authorizations)) {
+                vertices.put(vertex.getId(), vertex);
             }
         }
+        return vertices;
+    }
 
-        for (Edge workspaceEdge : workspaceEdges) {
-            List<ClientApiWorkspaceDiff.Item> entityDiffs = diffEdge(workspace, workspaceEdge, authorizations);
-            if (entityDiffs != null) {
-                result.addAll(entityDiffs);
+    /**
+     * @return the titles of the vertices that get a vertex item, by vertex id
+     */
+    private Map<String, String> evaluateTitles(Workspace workspace, Collection<Vertex> vertices, FormulaEvaluator.UserContext userContext, Authorizations authorizations) {
+        List<Vertex> titledVertices = new ArrayList<>();
+        for (Vertex vertex : vertices) {
+            if (isVertexChange(workspace, vertex, authorizations)) {
+                titledVertices.add(vertex);
             }
         }
+        Map<String, String> titles = new HashMap<>(titledVertices.size());
+        if (titledVertices.isEmpty()) {
+            return titles;
+        }
+        List<FormulaEvaluator.FormulaResult> results = formulaEvaluator.evaluateFormulas(titledVertices, userContext, null);
+        for (int i = 0; i < titledVertices.size(); i++) {
+            titles.put(titledVertices.get(i).getId(), results.get(i).getTitle());
+        }
+        return titles;
+    }
 
-        return result;
+    private static boolean isVertexChange(Workspace workspace, Vertex vertex, Authorizations authorizations) {
+        return SandboxStatusUtil.getSandboxStatus(vertex, workspace.getWorkspaceId()) != SandboxStatus.PUBLIC
+                || WorkspaceDiffHelper.isPublicDelete(vertex, authorizations);
+    }
+
+    private static boolean isChangedSince(Element element, Long since, Authorizations authorizations) {
+        if (since == null || element.isHidden(authorizations)) {
+            return true;
+        }
+        for (Property property : element.getProperties()) {
+            if (property.getTimestamp() >= since || property.isHidden(authorizations)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void addAll(ClientApiWorkspaceDiff result, Iterable<List<ClientApiWorkspaceDiff.Item>> diffs) {
+        for (List<ClientApiWorkspaceDiff.Item> diff : diffs) {
+            if (diff != null) {
+                result.addAll(diff);
+            }
+        }
     }
 
     @Traced
@@ -104,8 +215,6 @@ public class WorkspaceDiffHelper {
 
     @Traced
     public List<ClientApiWorkspaceDiff.Item> diffWorkspaceEntity(Workspace workspace, WorkspaceEntity workspaceEntity, FormulaEvaluator.UserContext userContext, Authorizations authorizations) {
-        List<ClientApiWorkspaceDiff.Item> result = new ArrayList<>();
-
         Vertex entityVertex = this.graph.getVertex(workspaceEntity.getEntityVertexId(), FetchHint.ALL_INCLUDING_HIDDEN, authorizations);
 
         // vertex can be null if the user doesn't have access to the entity
@@ -113,11 +222,22 @@ public class WorkspaceDiffHelper {
             return null;
         }
 
+        return diffWorkspaceEntity(workspace, workspaceEntity, entityVertex, userContext, authorizations);
+    }
+
+    protected List<ClientApiWorkspaceDiff.Item> diffWorkspaceEntity(Workspace workspace, WorkspaceEntity workspaceEntity, Vertex entityVertex, FormulaEvaluator.UserContext userContext, Authorizations authorizations) {
+        Map<String, String> titles = evaluateTitles(workspace, Collections.singletonList(entityVertex), userContext, authorizations);
+        return diffWorkspaceEntity(workspace, workspaceEntity, entityVertex, titles, authorizations);
+    }
+
+    private List<ClientApiWorkspaceDiff.Item> diffWorkspaceEntity(Workspace workspace, WorkspaceEntity workspaceEntity, Vertex entityVertex, Map<String, String> titles, Authorizations authorizations) {
+        List<ClientApiWorkspaceDiff.Item> result = new ArrayList<>();
+
         SandboxStatus sandboxStatus = SandboxStatusUtil.getSandboxStatus(entityVertex, workspace.getWorkspaceId());
         boolean isPrivateChange = sandboxStatus != SandboxStatus.PUBLIC;
         boolean isPublicDelete = WorkspaceDiffHelper.isPublicDelete(entityVertex, authorizations);
         if (isPrivateChange || isPublicDelete) {
-            result.add(createWorkspaceDiffVertexItem(entityVertex, sandboxStatus, userContext, workspaceEntity.isVisible(), isPublicDelete));
+            result.add(createWorkspaceDiffVertexItem(entityVertex, sandboxStatus, titles.get(entityVertex.getId()), workspaceEntity.isVisible(), isPublicDelete));
         }
 
         diffProperties(workspace, entityVertex, result, authorizations);
@@ -125,9 +245,8 @@ public class WorkspaceDiffHelper {
         return result;
     }
 
-    private ClientApiWorkspaceDiff.VertexItem createWorkspaceDiffVertexItem(Vertex vertex, SandboxStatus sandboxStatus, FormulaEvaluator.UserContext userContext, boolean visible, boolean deleted) {
+    private ClientApiWorkspaceDiff.VertexItem createWorkspaceDiffVertexItem(Vertex vertex, SandboxStatus sandboxStatus, String title, boolean visible, boolean deleted) {
         String vertexId = vertex.getId();
-        String title = formulaEvaluator.evaluateTitleFormula(vertex, userContext, null);
         String conceptType = VisalloProperties.CONCEPT_TYPE.getPropertyValue(vertex);
         Property visibilityJsonProperty = VisalloProperties.VISIBILITY_JSON.getProperty(vertex);
         JsonNode visibilityJson = visibilityJsonProperty == null ? null : JSONUtil.toJsonNode(JsonSerializer.toJsonProperty(visibilityJsonProperty));
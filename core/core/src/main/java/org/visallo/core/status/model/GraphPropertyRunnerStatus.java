@@ -4,6 +4,16 @@ import com.fasterxml.jackson.annotation.JsonTypeName;
 
 @JsonTypeName("graphPropertyRunner")
 public class GraphPropertyRunnerStatus extends WorkerRunnerStatus {
+    private String localFileMode;
+
+    public String getLocalFileMode() {
+        return localFileMode;
+    }
+
+    public void setLocalFileMode(String localFileMode) {
+        this.localFileMode = localFileMode;
+    }
+
     @JsonTypeName("graphPropertyWorkerStatus")
     public static class GraphPropertyWorkerStatus extends WorkerStatus {
 
@@ -1,5 +1,6 @@
 package org.visallo.core.util;
 
+import com.google.common.base.Function;
 import org.visallo.core.ingest.video.VideoFrameInfo;
 import org.visallo.core.ingest.video.VideoPropertyHelper;
 import org.visallo.core.model.properties.VisalloProperties;
@@ -36,11 +37,24 @@ public class ClientApiConverter extends org.visallo.web.clientapi.util.ClientApi
     }
 
     public static List<ClientApiVertex> toClientApiVertices(Iterable<? extends Vertex> vertices, String workspaceId, Authorizations authorizations) {
-        List<ClientApiVertex> clientApiElements = new ArrayList<>();
-        for (Vertex v : vertices) {
-            clientApiElements.add(toClientApiVertex(v, workspaceId, authorizations));
-        }
-        return clientApiElements;
+        return IterableUtils.toList(toClientApiVerticesInBatches(vertices, workspaceId, authorizations));
+    }
+
+    /**
+     * Converts the vertices in parallel batches as the returned iterable is read, results are in the same order as
+     * the vertices. See {@link ParallelConvertingIterable}.
+     */
+    public static Iterable<ClientApiVertex> toClientApiVerticesInBatches(
+            Iterable<? extends Vertex> vertices,
+            final String workspaceId,
+            final Authorizations authorizations
+    ) {
+        return new ParallelConvertingIterable<>(vertices, new Function<Vertex, ClientApiVertex>() {
+            @Override
+            public ClientApiVertex apply(Vertex vertex) {
+                return toClientApiVertex(vertex, workspaceId, authorizations);
+            }
+        });
     }
 
     public static ClientApiElement toClientApi(org.vertexium.Element element, String workspaceId, Authorizations authorizations) {
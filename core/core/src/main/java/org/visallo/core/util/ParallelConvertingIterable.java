@@ -0,0 +1,121 @@
+package org.visallo.core.util;
+
+import com.google.common.base.Function;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.visallo.core.exception.VisalloException;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Converts the items of a source iterable on a shared pool and returns the results in source order.
+ *
+ * The source is read on the calling thread a batch at a time, so the source iterator is never shared between threads,
+ * and each batch is split into one chunk per processor. Only one batch of source items and results is held in memory,
+ * and a batch too small to be worth splitting is converted on the calling thread.
+ */
+public class ParallelConvertingIterable<TSource, TDest> implements Iterable<TDest> {
+    public static final int DEFAULT_BATCH_SIZE = 100;
+    private static final int MIN_CHUNK_SIZE = 10;
+    private static final int THREAD_COUNT = Runtime.getRuntime().availableProcessors();
+    private static final ExecutorService pool = Executors.newFixedThreadPool(
+            THREAD_COUNT,
+            new ThreadFactoryBuilder()
+                    .setDaemon(true)
+                    .setNameFormat("visallo-parallel-converter-%d")
+                    .build()
+    );
+    private final Iterable<? extends TSource> source;
+    private final Function<? super TSource, ? extends TDest> converter;
+    private final int batchSize;
+
+    public ParallelConvertingIterable(Iterable<? extends TSource> source, Function<? super TSource, ? extends TDest> converter) {
+        this(source, converter, DEFAULT_BATCH_SIZE);
+    }
+
+    public ParallelConvertingIterable(Iterable<? extends TSource> source, Function<? super TSource, ? extends TDest> converter, int batchSize) {
+        this.source = source;
+        this.converter = converter;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public Iterator<TDest> iterator() {
+        final Iterator<? extends TSource> sourceIterator = source.iterator();
+        return new Iterator<TDest>() {
+            private Iterator<TDest> batch = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                if (!batch.hasNext() && sourceIterator.hasNext()) {
+                    batch = convertBatch(readBatch(sourceIterator)).iterator();
+                }
+                return batch.hasNext();
+            }
+
+            @Override
+            public TDest next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return batch.next();
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    private List<TSource> readBatch(Iterator<? extends TSource> sourceIterator) {
+        List<TSource> batch = new ArrayList<>(batchSize);
+        while (batch.size() < batchSize && sourceIterator.hasNext()) {
+            batch.add(sourceIterator.next());
+        }
+        return batch;
+    }
+
+    private List<TDest> convertBatch(List<TSource> batch) {
+        int chunkCount = Math.min(THREAD_COUNT, batch.size() / MIN_CHUNK_SIZE);
+        if (chunkCount <= 1) {
+            return convertChunk(batch);
+        }
+
+        int chunkSize = (batch.size() + chunkCount - 1) / chunkCount;
+        List<Callable<List<TDest>>> tasks = new ArrayList<>(chunkCount);
+        for (int start = 0; start < batch.size(); start += chunkSize) {
+            final List<TSource> chunk = batch.subList(start, Math.min(start + chunkSize, batch.size()));
+            tasks.add(new Callable<List<TDest>>() {
+                @Override
+                public List<TDest> call() throws Exception {
+                    return convertChunk(chunk);
+                }
+            });
+        }
+
+        List<TDest> results = new ArrayList<>(batch.size());
+        try {
+            for (Future<List<TDest>> future : pool.invokeAll(tasks)) {
+                results.addAll(future.get());
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new VisalloException("Interrupted while converting", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new VisalloException("Could not convert", ex.getCause());
+        }
+        return results;
+    }
+
+    private List<TDest> convertChunk(List<TSource> chunk) {
+        List<TDest> results = new ArrayList<>(chunk.size());
+        for (TSource item : chunk) {
+            results.add(converter.apply(item));
+        }
+        return results;
+    }
+}
@@ -6,7 +6,9 @@ import org.visallo.web.clientapi.model.VisibilityJson;
 import org.vertexium.Element;
 import org.vertexium.Property;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 public class SandboxStatusUtil {
     public static SandboxStatus getSandboxStatus(Element element, String workspaceId) {
@@ -14,36 +16,58 @@ public class SandboxStatusUtil {
         return SandboxStatus.getFromVisibilityJsonString(visibilityJson, workspaceId);
     }
 
+    /**
+     * A private property is {@link SandboxStatus#PUBLIC_CHANGED} when a public property with the same key and name
+     * exists. Public properties are grouped by key and name first so this is linear in the number of properties.
+     */
     public static SandboxStatus[] getPropertySandboxStatuses(List<Property> properties, String workspaceId) {
         SandboxStatus[] sandboxStatuses = new SandboxStatus[properties.size()];
+        Set<PropertyKeyAndName> publicProperties = new HashSet<>();
         for (int i = 0; i < properties.size(); i++) {
             Property property = properties.get(i);
             VisibilityJson visibilityJson = VisalloProperties.VISIBILITY_JSON_METADATA.getMetadataValue(property.getMetadata());
             sandboxStatuses[i] = SandboxStatus.getFromVisibilityJsonString(visibilityJson, workspaceId);
+            if (sandboxStatuses[i] == SandboxStatus.PUBLIC) {
+                publicProperties.add(new PropertyKeyAndName(property));
+            }
         }
 
+        if (publicProperties.isEmpty()) {
+            return sandboxStatuses;
+        }
         for (int i = 0; i < properties.size(); i++) {
-            Property property = properties.get(i);
-            if (sandboxStatuses[i] != SandboxStatus.PRIVATE) {
-                continue;
-            }
-            VisibilityJson propertyVisibilityJson = VisalloProperties.VISIBILITY_JSON_METADATA.getMetadataValue(property.getMetadata());
-            for (int j = 0; j < properties.size(); j++) {
-                Property p = properties.get(j);
-                VisibilityJson pVisibilityJson = VisalloProperties.VISIBILITY_JSON_METADATA.getMetadataValue(p.getMetadata());
-                if (i == j) {
-                    continue;
-                }
-
-                if (sandboxStatuses[j] == SandboxStatus.PUBLIC &&
-                        sandboxStatuses[i] == SandboxStatus.PRIVATE &&
-                        property.getKey().equals(p.getKey()) &&
-                        property.getName().equals(p.getName())) {
-                    sandboxStatuses[i] = SandboxStatus.PUBLIC_CHANGED;
-                }
+            if (sandboxStatuses[i] == SandboxStatus.PRIVATE && publicProperties.contains(new PropertyKeyAndName(properties.get(i)))) {
+                sandboxStatuses[i] = SandboxStatus.PUBLIC_CHANGED;
             }
         }
 
         return sandboxStatuses;
     }
+
+    private static class PropertyKeyAndName {
+        private final String key;
+        private final String name;
+
+        public PropertyKeyAndName(Property property) {
+            this.key = property.getKey();
+            this.name = property.getName();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            PropertyKeyAndName other = (PropertyKeyAndName) o;
+            return key.equals(other.key) && name.equals(other.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * key.hashCode() + name.hashCode();
+        }
+    }
 }
@@ -6,19 +6,29 @@ import org.visallo.core.status.PausableTimerContextAware;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Date;
-
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Splits a single source stream into several tees which can be read independently on different threads.
+ * <p/>
+ * The source is read into a ring buffer by the thread calling {@link #loopUntilTeesAreClosed()} (the producer).
+ * The producer and every tee keep their own sequence counter (the total number of bytes written or read) so
+ * no lock is shared between them. The producer only overwrites bytes that every open tee has already read, and
+ * both sides park instead of spinning when there is nothing to do, being unparked by the other side once it
+ * makes progress.
+ */
 public class TeeInputStream {
     private static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(TeeInputStream.class);
     private static final int DEFAULT_BUFFER_SIZE = 1 * 1024 * 1024;
     public static final int LOOP_REPORT_INTERVAL = 10 * 1000; // report to the user every 10 seconds that a queue is waiting
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
     private final InputStream source;
     private final MyInputStream[] tees;
     private final byte[] cyclicBuffer;
-    private int cyclicBufferOffsetIndex; /* Index into the buffer for which cyclicBufferOffset represents */
-    private long cyclicBufferOffset; /* Offset of the source input stream that begins the cyclic buffer */
-    private int cyclicBufferValidSize; /* number of bytes in the cyclicBuffer which are valid */
-    private final Object cyclicBufferLock = new Object();
-    private boolean sourceComplete;
+    private volatile long writeSequence; /* total number of bytes read from the source into the buffer */
+    private volatile boolean sourceComplete;
+    private volatile Thread waitingProducer;
 
     public TeeInputStream(InputStream source, String[] splitNames) {
         this(source, splitNames, DEFAULT_BUFFER_SIZE);
@@ -35,9 +45,7 @@ public class TeeInputStream {
     public TeeInputStream(InputStream source, String[] splitNames, int bufferSize) {
         this.source = source;
         cyclicBuffer = new byte[bufferSize];
-        cyclicBufferOffsetIndex = 0;
-        cyclicBufferOffset = 0;
-        cyclicBufferValidSize = 0;
+        writeSequence = 0;
         sourceComplete = false;
         tees = new MyInputStream[splitNames.length];
         for (int i = 0; i < tees.length; i++) {
@@ -72,93 +80,128 @@ public class TeeInputStream {
                         if (teeWithLowestOffset == null) {
                             LOGGER.debug("All tees are complete");
                         } else {
-                            LOGGER.debug("Waiting for tee: %s (offset: %d)", teeWithLowestOffset.splitName, teeWithLowestOffset.offset);
+                            LOGGER.debug("Waiting for tee: %s (offset: %d)", teeWithLowestOffset.splitName, teeWithLowestOffset.readSequence);
                         }
                         lastReport = new Date().getTime();
                     }
                     break;
                 }
             }
-            loop();
+            if (!allClosed) {
+                loop();
+            }
         }
     }
 
+    /**
+     * Reads as much of the source as fits into the free part of the buffer. If the buffer is full, or the
+     * source is complete, parks until a tee reads or is closed.
+     */
     protected void loop() throws Exception {
-        synchronized (cyclicBufferLock) {
-
-            // TODO: shouldn't need to do this each loop. Should really only be done if a read occurs.
-            updateOffsets();
-
-            if (!sourceComplete && cyclicBufferValidSize < cyclicBuffer.length) {
-                int readOffset = cyclicBufferOffsetIndex + cyclicBufferValidSize;
-                int readLen = cyclicBuffer.length - cyclicBufferValidSize;
+        if (isProducerBlocked()) {
+            waitingProducer = Thread.currentThread();
+            // re-check after publishing ourselves so we can't miss an unpark from a tee
+            if (isProducerBlocked()) {
+                LockSupport.parkNanos(this, MAX_PARK_NANOS);
+            }
+            waitingProducer = null;
+            return;
+        }
+        if (sourceComplete) {
+            return;
+        }
 
-                // read from readOffset to end of buffer
-                int partialRedLen = Math.min(cyclicBuffer.length - readOffset, readLen);
-                if (partialRedLen > 0) {
-                    int read = source.read(cyclicBuffer, readOffset, partialRedLen);
-                    if (read == -1) {
-                        sourceComplete = true;
-                    } else {
-                        cyclicBufferValidSize += read;
-                        readLen -= read;
-                        readOffset += read;
-                    }
+        long write = writeSequence;
+        int free = cyclicBuffer.length - (int) (write - findLowestTeeOffset(write));
+        boolean complete = false;
+
+        // read from the write index to the end of the buffer
+        int readOffset = (int) (write % cyclicBuffer.length);
+        int partialReadLen = Math.min(cyclicBuffer.length - readOffset, free);
+        int read = source.read(cyclicBuffer, readOffset, partialReadLen);
+        if (read == -1) {
+            complete = true;
+        } else {
+            write += read;
+            free -= read;
+
+            // wrap and read from the beginning of the buffer
+            if (read == partialReadLen && free > 0) {
+                read = source.read(cyclicBuffer, 0, free);
+                if (read == -1) {
+                    complete = true;
+                } else {
+                    write += read;
                 }
+            }
+        }
 
-                // wrap and read from the beginning of the buffer
-                if (!sourceComplete && readLen > 0 && readOffset >= cyclicBuffer.length) {
-                    readOffset = readOffset % cyclicBuffer.length;
-                    int read = source.read(cyclicBuffer, readOffset, readLen);
-                    if (read == -1) {
-                        sourceComplete = true;
-                    } else {
-                        cyclicBufferValidSize += read;
-                    }
-                }
+        // publish the data before marking the source complete so tees never see completion without the last bytes
+        writeSequence = write;
+        if (complete) {
+            sourceComplete = true;
+        }
+        unparkWaitingTees();
+    }
+
+    /**
+     * @return true if the buffer is full, or the source is complete but some tees have not been closed yet.
+     */
+    private boolean isProducerBlocked() {
+        if (sourceComplete) {
+            return !allTeesClosed();
+        }
+        long write = writeSequence;
+        return write - findLowestTeeOffset(write) >= cyclicBuffer.length;
+    }
 
-                cyclicBufferLock.notifyAll();
-            } else {
-                cyclicBufferLock.wait(100);
+    private void unparkWaitingTees() {
+        for (MyInputStream tee : tees) {
+            Thread waitingThread = tee.waitingThread;
+            if (waitingThread != null) {
+                LockSupport.unpark(waitingThread);
             }
         }
     }
 
-    private void updateOffsets() {
-        synchronized (cyclicBufferLock) {
-            long lowestOffset = findLowestTeeOffset();
-            if (lowestOffset > cyclicBufferOffset) {
-                int delta = (int) (lowestOffset - cyclicBufferOffset);
-                cyclicBufferOffset += delta;
-                cyclicBufferOffsetIndex += delta;
-                cyclicBufferOffsetIndex = cyclicBufferOffsetIndex % cyclicBuffer.length;
-                cyclicBufferValidSize -= delta;
+    private void unparkWaitingProducer() {
+        Thread producer = waitingProducer;
+        if (producer != null) {
+            LockSupport.unpark(producer);
+        }
+    }
+
+    private boolean allTeesClosed() {
+        for (MyInputStream tee : tees) {
+            if (!tee.isClosed()) {
+                return false;
             }
         }
+        return true;
     }
 
-    private long findLowestTeeOffset() {
-        synchronized (cyclicBufferLock) {
-            long lowestOffset = Long.MAX_VALUE;
-            for (MyInputStream tee : tees) {
-                if (!tee.isClosed() && tee.offset < lowestOffset) {
-                    lowestOffset = tee.offset;
-                }
+    /**
+     * @return the lowest read sequence of the open tees, or the write sequence if all tees are closed.
+     */
+    private long findLowestTeeOffset(long write) {
+        long lowestOffset = write;
+        for (MyInputStream tee : tees) {
+            long readSequence = tee.readSequence;
+            if (!tee.isClosed() && readSequence < lowestOffset) {
+                lowestOffset = readSequence;
             }
-            return lowestOffset;
         }
+        return lowestOffset;
     }
 
     private MyInputStream findTeeWithLowestTeeOffset() {
-        synchronized (cyclicBufferLock) {
-            MyInputStream teeWithLowestOffset = null;
-            for (MyInputStream tee : tees) {
-                if (!tee.isClosed() && (teeWithLowestOffset == null || tee.offset < teeWithLowestOffset.offset)) {
-                    teeWithLowestOffset = tee;
-                }
+        MyInputStream teeWithLowestOffset = null;
+        for (MyInputStream tee : tees) {
+            if (!tee.isClosed() && (teeWithLowestOffset == null || tee.readSequence < teeWithLowestOffset.readSequence)) {
+                teeWithLowestOffset = tee;
             }
-            return teeWithLowestOffset;
         }
+        return teeWithLowestOffset;
     }
 
     public int getMaxNonblockingReadLength(int teeIndex) {
@@ -167,13 +210,15 @@ public class TeeInputStream {
 
     private class MyInputStream extends InputStream implements PausableTimerContextAware {
         private final String splitName;
-        private boolean closed;
-        private long offset;
+        private volatile boolean closed;
+        /* only advanced by the thread reading this tee */
+        private volatile long readSequence;
+        private volatile Thread waitingThread;
         private PausableTimerContext pausableTimerContext;
 
         public MyInputStream(String splitName) {
             closed = false;
-            offset = 0;
+            readSequence = 0;
             this.splitName = splitName;
         }
 
@@ -181,18 +226,14 @@ public class TeeInputStream {
         public int read() throws IOException {
             pauseTimer();
             try {
-                synchronized (cyclicBufferLock) {
-                    if (closed) {
-                        return -1;
-                    }
-
-                    int result = readInternal();
-                    if (result != -1) {
-                        offset++;
-                    }
-                    cyclicBufferLock.notifyAll();
-                    return result;
+                if (!waitForData()) {
+                    return -1;
                 }
+                long position = readSequence;
+                int result = cyclicBuffer[(int) (position % cyclicBuffer.length)] & 0xff;
+                readSequence = position + 1;
+                unparkWaitingProducer();
+                return result;
             } finally {
                 resumeTimer();
             }
@@ -202,62 +243,18 @@ public class TeeInputStream {
         public int read(byte[] b, int off, int len) throws IOException {
             pauseTimer();
             try {
-                synchronized (cyclicBufferLock) {
-                    if (closed) {
-                        return -1;
-                    }
-                    if (b.length == 0 || len == 0) {
-                        return 0;
-                    }
-
-                    int readLength = readInternal(b, off, len);
-                    if (readLength != -1) {
-                        offset += readLength;
-                    }
-                    cyclicBufferLock.notifyAll();
-                    return readLength;
+                if (closed) {
+                    return -1;
                 }
-            } finally {
-                resumeTimer();
-            }
-        }
-
-        private int readInternal() throws IOException {
-            synchronized (cyclicBufferLock) {
-                if (offset < cyclicBufferOffset) {
-                    throw new IOException("attempting to read previous data is not permitted. offset: " + offset + ", cyclicBufferOffset: " + cyclicBufferOffset);
+                if (b.length == 0 || len == 0) {
+                    return 0;
                 }
-                while (getMaxNonblockingReadLength() <= 0) {
-                    if (sourceComplete) {
-                        return -1;
-                    }
-                    try {
-                        cyclicBufferLock.wait();
-                    } catch (InterruptedException e) {
-                        throw new IOException("Cyclic buffer wait failed", e);
-                    }
+                if (!waitForData()) {
+                    return -1;
                 }
-                int readOffset = (int) (offset - cyclicBufferOffset + cyclicBufferOffsetIndex) % cyclicBuffer.length;
-                return cyclicBuffer[readOffset];
-            }
-        }
 
-        private int readInternal(byte[] b, int off, int len) throws IOException {
-            synchronized (cyclicBufferLock) {
-                if (offset < cyclicBufferOffset) {
-                    throw new IOException("attempting to read previous data is not permitted. offset: " + offset + ", cyclicBufferOffset: " + cyclicBufferOffset);
-                }
-                while (getMaxNonblockingReadLength() <= 0) {
-                    if (sourceComplete) {
-                        return -1;
-                    }
-                    try {
-                        cyclicBufferLock.wait();
-                    } catch (InterruptedException e) {
-                        throw new IOException("Cyclic buffer wait failed", e);
-                    }
-                }
-                int readOffset = (int) (offset - cyclicBufferOffset + cyclicBufferOffsetIndex) % cyclicBuffer.length;
+                long position = readSequence;
+                int readOffset = (int) (position % cyclicBuffer.length);
                 int readLen = Math.min(len, getMaxNonblockingReadLength());
                 int bytesRead = 0;
 
@@ -267,18 +264,46 @@ public class TeeInputStream {
                     System.arraycopy(cyclicBuffer, readOffset, b, off, partialReadLen);
                     readLen -= partialReadLen;
                     off += partialReadLen;
-                    readOffset += partialReadLen;
                     bytesRead += partialReadLen;
                 }
 
                 // read from start of buffer to readLen
                 if (readLen > 0) {
-                    readOffset = readOffset % cyclicBuffer.length;
-                    System.arraycopy(cyclicBuffer, readOffset, b, off, readLen);
+                    System.arraycopy(cyclicBuffer, 0, b, off, readLen);
                     bytesRead += readLen;
                 }
 
+                readSequence = position + bytesRead;
+                unparkWaitingProducer();
                 return bytesRead;
+            } finally {
+                resumeTimer();
+            }
+        }
+
+        /**
+         * @return true if there is data to read, false if this tee is closed or the source is exhausted.
+         */
+        private boolean waitForData() throws IOException {
+            while (true) {
+                if (closed) {
+                    return false;
+                }
+                if (getMaxNonblockingReadLength() > 0) {
+                    return true;
+                }
+                if (sourceComplete) {
+                    // the producer publishes the final write sequence before marking the source complete
+                    return getMaxNonblockingReadLength() > 0;
+                }
+                waitingThread = Thread.currentThread();
+                if (getMaxNonblockingReadLength() <= 0 && !sourceComplete && !closed) {
+                    LockSupport.parkNanos(this, MAX_PARK_NANOS);
+                }
+                waitingThread = null;
+                if (Thread.interrupted()) {
+                    throw new IOException("Interrupted waiting for data");
+                }
             }
         }
 
@@ -288,11 +313,8 @@ public class TeeInputStream {
             try {
                 super.close();
             } finally {
-                synchronized (cyclicBufferLock) {
-                    closed = true;
-                    offset = Long.MAX_VALUE;
-                    cyclicBufferLock.notifyAll();
-                }
+                closed = true;
+                unparkWaitingProducer();
             }
         }
 
@@ -301,9 +323,10 @@ public class TeeInputStream {
         }
 
         public int getMaxNonblockingReadLength() {
-            synchronized (cyclicBufferLock) {
-                return (int) (cyclicBufferValidSize - (offset - cyclicBufferOffset));
+            if (closed) {
+                return 0;
             }
+            return (int) (writeSequence - readSequence);
         }
 
         @Override
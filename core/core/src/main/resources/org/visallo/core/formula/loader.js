@@ -62,6 +62,20 @@ require(['util/vertex/formatters'], function(F) {
     window.evaluateTitleFormulaJson = createFunction('title');
     window.evaluateTimeFormulaJson = createFunction('time');
     window.evaluateSubtitleFormulaJson = createFunction('subtitle');
+
+    // Parse a vertex once and evaluate each formula on the parsed vertex
+    window.parseVertexJson = function(json) {
+        return JSON.parse(json);
+    };
+    window.evaluateTitleFormula = function(vertex) {
+        return F.vertex.title(vertex);
+    };
+    window.evaluateTimeFormula = function(vertex) {
+        return F.vertex.time(vertex);
+    };
+    window.evaluateSubtitleFormula = function(vertex) {
+        return F.vertex.subtitle(vertex);
+    };
 });
 
 timerLoop();
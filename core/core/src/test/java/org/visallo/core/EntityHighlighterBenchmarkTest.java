@@ -0,0 +1,209 @@
+package org.visallo.core;
+
+import org.apache.commons.lang.StringEscapeUtils;
+import org.apache.commons.lang.StringUtils;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.vertexium.inmemory.InMemoryAuthorizations;
+import org.visallo.core.model.termMention.TermMentionFor;
+import org.visallo.core.model.termMention.TermMentionRepository;
+import org.visallo.core.model.textHighlighting.OffsetItem;
+import org.visallo.core.model.textHighlighting.VertexOffsetItem;
+import org.visallo.core.util.VisalloLogger;
+import org.visallo.core.util.VisalloLoggerFactory;
+import org.visallo.web.clientapi.model.SandboxStatus;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares {@link EntityHighlighter#writeHighlightedText(java.io.Reader, List, java.io.Writer)} with the previous
+ * implementation, which compared each offset item with every earlier one, on a 5 MB document with 50,000 mentions.
+ */
+public class EntityHighlighterBenchmarkTest {
+    private static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(EntityHighlighterBenchmarkTest.class);
+    private static final int TEXT_LENGTH = 5 * 1024 * 1024;
+    private static final int MENTION_COUNT = 50000;
+    private static final int MENTION_LENGTH = 10;
+    private static final int ITERATIONS = 3;
+
+    @Test
+    public void benchmark() throws Exception {
+        String text = createText();
+        List<OffsetItem> offsetItems = createOffsetItems();
+
+        long startTime = System.nanoTime();
+        String expected = getPairwiseHighlightedText(text, new ArrayList<>(offsetItems));
+        double pairwiseMillis = (System.nanoTime() - startTime) / 1e6;
+
+        String highlightedText = null;
+        startTime = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            StringWriter out = new StringWriter(TEXT_LENGTH * 2);
+            EntityHighlighter.writeHighlightedText(new StringReader(text), new ArrayList<>(offsetItems), out);
+            highlightedText = out.toString();
+        }
+        double sweepMillis = (System.nanoTime() - startTime) / 1e6 / ITERATIONS;
+
+        assertEquals(expected, highlightedText);
+        LOGGER.info("%d mentions in %d characters: pairwise %8.1fms, sweep %8.1fms (%.1fx)",
+                MENTION_COUNT, TEXT_LENGTH, pairwiseMillis, sweepMillis, pairwiseMillis / sweepMillis);
+    }
+
+    private static String createText() {
+        Random random = new Random(0);
+        StringBuilder text = new StringBuilder(TEXT_LENGTH);
+        String alphabet = "abcdefghijklmnopqrstuvwxyz <>&\u00e9\u00a0";
+        for (int i = 0; i < TEXT_LENGTH; i++) {
+            text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return text.toString();
+    }
+
+    /**
+     * Evenly spaced mentions, every tenth one overlapping the mention before it.
+     */
+    private static List<OffsetItem> createOffsetItems() {
+        InMemoryAuthorizations authorizations = new InMemoryAuthorizations(TermMentionRepository.VISIBILITY_STRING);
+        int spacing = TEXT_LENGTH / MENTION_COUNT;
+        List<OffsetItem> offsetItems = new ArrayList<>(MENTION_COUNT);
+        for (int i = 0; i < MENTION_COUNT; i++) {
+            long start = (long) i * spacing;
+            if (i % 10 == 9) {
+                start -= spacing - MENTION_LENGTH / 2;
+            }
+            offsetItems.add(new BenchmarkOffsetItem("tm" + i, start, start + MENTION_LENGTH, authorizations));
+        }
+        Collections.shuffle(offsetItems, new Random(0));
+        return offsetItems;
+    }
+
+    private static class BenchmarkOffsetItem extends VertexOffsetItem {
+        private final String id;
+        private final long start;
+        private final long end;
+
+        public BenchmarkOffsetItem(String id, long start, long end, InMemoryAuthorizations authorizations) {
+            super(null, SandboxStatus.PUBLIC, authorizations);
+            this.id = id;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        public long getStart() {
+            return start;
+        }
+
+        @Override
+        public long getEnd() {
+            return end;
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public String getResolvedToVertexId() {
+            return null;
+        }
+
+        @Override
+        public TermMentionFor getTermMentionFor() {
+            return null;
+        }
+
+        @Override
+        public String getTitle() {
+            return "title\u00a0" + id;
+        }
+
+        @Override
+        public boolean shouldHighlight() {
+            return true;
+        }
+
+        @Override
+        public JSONObject getInfoJson() {
+            JSONObject infoJson = new JSONObject();
+            infoJson.put("id", id);
+            infoJson.put("start", start);
+            infoJson.put("end", end);
+            return infoJson;
+        }
+
+        @Override
+        public List<String> getCssClasses() {
+            List<String> cssClasses = new ArrayList<>();
+            cssClasses.add("vertex");
+            return cssClasses;
+        }
+    }
+
+    /**
+     * The implementation {@link EntityHighlighter#writeHighlightedText(java.io.Reader, List, java.io.Writer)} replaced.
+     */
+    private static String getPairwiseHighlightedText(String text, List<OffsetItem> offsetItems) {
+        Collections.sort(offsetItems);
+        StringBuilder result = new StringBuilder();
+        PriorityQueue<Integer> endOffsets = new PriorityQueue<>();
+        int lastStart = 0;
+        for (int i = 0; i < offsetItems.size(); i++) {
+            OffsetItem offsetItem = offsetItems.get(i);
+
+            boolean overlapsPreviousItem = false;
+            if (offsetItem instanceof VertexOffsetItem) {
+                for (int j = 0; j < i; j++) {
+                    OffsetItem compareItem = offsetItems.get(j);
+                    if (compareItem instanceof VertexOffsetItem
+                            && (OffsetItem.getOffset(compareItem.getEnd()) >= OffsetItem.getOffset(offsetItem.getEnd())
+                            || OffsetItem.getOffset(compareItem.getEnd()) > OffsetItem.getOffset(offsetItem.getStart()))) {
+                        overlapsPreviousItem = true;
+                        offsetItems.remove(i--);
+                        break;
+                    }
+                }
+            }
+            if (overlapsPreviousItem) {
+                continue;
+            }
+
+            while (endOffsets.size() > 0 && endOffsets.peek() <= OffsetItem.getOffset(offsetItem.getStart())) {
+                int end = endOffsets.poll();
+                result.append(StringEscapeUtils.escapeHtml(text.substring(lastStart, end)));
+                result.append("</span>");
+                lastStart = end;
+            }
+            result.append(StringEscapeUtils.escapeHtml(text.substring(lastStart, (int) OffsetItem.getOffset(offsetItem.getStart()))));
+
+            result.append("<span class=\"");
+            result.append(StringUtils.join(offsetItem.getCssClasses(), " "));
+            result.append("\" title=\"");
+            result.append(StringEscapeUtils.escapeHtml(offsetItem.getTitle()));
+            result.append("\" data-info=\"");
+            result.append(StringEscapeUtils.escapeHtml(offsetItem.getInfoJson().toString()));
+            result.append("\">");
+            endOffsets.add((int) OffsetItem.getOffset(offsetItem.getEnd()));
+            lastStart = (int) OffsetItem.getOffset(offsetItem.getStart());
+        }
+
+        while (endOffsets.size() > 0) {
+            int end = endOffsets.poll();
+            result.append(StringEscapeUtils.escapeHtml(text.substring(lastStart, end)));
+            result.append("</span>");
+            lastStart = end;
+        }
+        result.append(StringEscapeUtils.escapeHtml(text.substring(lastStart)));
+
+        return result.toString().replaceAll("&nbsp;", " ");
+    }
+}
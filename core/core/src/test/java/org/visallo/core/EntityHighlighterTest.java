@@ -24,6 +24,8 @@ import org.visallo.core.security.DirectVisibilityTranslator;
 import org.visallo.core.security.VisibilityTranslator;
 import org.visallo.core.user.User;
 
+import java.io.StringReader;
+import java.io.StringWriter;
 import java.util.*;
 
 import static org.junit.Assert.assertEquals;
@@ -221,6 +223,40 @@ public class EntityHighlighterTest {
         assertHighlightedTextSame(highlightText, expectedText);
     }
 
+    @Test
+    public void testWriteHighlightedTextFromReader() throws Exception {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            text.append('a');
+        }
+        String prefix = text.toString();
+        text.append("b<c\u00A0d");
+
+        List<OffsetItem> offsetItems = new ArrayList<>();
+        OffsetItem mockEntity1 = mock(VertexOffsetItem.class);
+        when(mockEntity1.getStart()).thenReturn(10000l);
+        when(mockEntity1.getEnd()).thenReturn(10002l);
+        when(mockEntity1.getCssClasses()).thenReturn(asList(new String[]{"first"}));
+        when(mockEntity1.shouldHighlight()).thenReturn(true);
+        when(mockEntity1.getInfoJson()).thenReturn(new JSONObject("{\"data\":\"attribute\"}"));
+        offsetItems.add(mockEntity1);
+
+        OffsetItem mockEntity2 = mock(VertexOffsetItem.class);
+        when(mockEntity2.getStart()).thenReturn(10004l);
+        when(mockEntity2.getEnd()).thenReturn(20000l);
+        when(mockEntity2.getCssClasses()).thenReturn(asList(new String[]{"second"}));
+        when(mockEntity2.shouldHighlight()).thenReturn(true);
+        when(mockEntity2.getInfoJson()).thenReturn(new JSONObject("{\"data\":\"attribute\"}"));
+        offsetItems.add(mockEntity2);
+
+        StringWriter out = new StringWriter();
+        EntityHighlighter.writeHighlightedText(new StringReader(text.toString()), offsetItems, out);
+        assertEquals(prefix + "<span class=\"first\" data-info=\"{&quot;data&quot;:&quot;attribute&quot;}\">b&lt;</span>c " +
+                        "<span class=\"second\" data-info=\"{&quot;data&quot;:&quot;attribute&quot;}\">d</span>",
+                out.toString()
+        );
+    }
+
     private List<String> asList(String[] strings) {
         List<String> results = new ArrayList<>();
         Collections.addAll(results, strings);
@@ -5,48 +5,67 @@ import org.mockito.runners.MockitoJUnitRunner;
 import org.visallo.core.config.Configuration;
 import org.visallo.core.config.ConfigurationLoader;
 import org.visallo.core.config.HashMapConfigurationLoader;
+import org.visallo.core.exception.VisalloException;
 import org.visallo.core.model.ontology.OntologyRepository;
 import org.apache.commons.io.IOUtils;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 import org.mockito.Mock;
+import org.mozilla.javascript.Context;
 import org.vertexium.Authorizations;
+import org.vertexium.Property;
 import org.vertexium.Vertex;
+import org.vertexium.Visibility;
 
-import java.util.HashMap;
-import java.util.Locale;
-import java.util.Map;
-import java.util.TimeZone;
+import java.io.IOException;
+import java.util.*;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
 public class FormulaEvaluatorTest {
 
     private FormulaEvaluator evaluator;
     private FormulaEvaluator.UserContext userContext;
+    private final AtomicInteger toJsonCount = new AtomicInteger();
 
     @Mock
     private OntologyRepository ontologyRepository;
 
+    @Mock
+    private Vertex vertex;
+
     @Before
     public void setUp() throws Exception {
-        Map<String, String> map = new HashMap<>();
-        ConfigurationLoader configurationLoader = new HashMapConfigurationLoader(map);
-        Configuration configuration = configurationLoader.createConfiguration();
-
         Locale locale = Locale.getDefault();
         String timeZone = TimeZone.getDefault().getDisplayName();
         userContext = new FormulaEvaluator.UserContext(locale, timeZone, null);
 
-        final String ontologyJson = IOUtils.toString(FormulaEvaluatorTest.class.getResourceAsStream("ontology.json"), "utf-8");
+        evaluator = createEvaluator(new HashMap<String, String>());
+    }
+
+    private FormulaEvaluator createEvaluator(Map<String, String> map) throws IOException {
+        return createEvaluator(map, getOntologyJson());
+    }
+
+    private static String getOntologyJson() throws IOException {
+        return IOUtils.toString(FormulaEvaluatorTest.class.getResourceAsStream("ontology.json"), "utf-8");
+    }
+
+    private FormulaEvaluator createEvaluator(Map<String, String> map, final String ontologyJson) throws IOException {
+        ConfigurationLoader configurationLoader = new HashMapConfigurationLoader(map);
+        Configuration configuration = configurationLoader.createConfiguration();
+
         final String configurationJson = IOUtils.toString(FormulaEvaluatorTest.class.getResourceAsStream("configuration.json"), "utf-8");
         final String vertexJson = IOUtils.toString(FormulaEvaluatorTest.class.getResourceAsStream("vertex.json"), "utf-8");
 
-        evaluator = new FormulaEvaluator(configuration, ontologyRepository) {
+        return new FormulaEvaluator(configuration, ontologyRepository) {
             @Override
             protected String getOntologyJson() {
                 return ontologyJson;
@@ -59,6 +78,7 @@ public class FormulaEvaluatorTest {
 
             @Override
             protected String toJson(Vertex vertex, String workspaceId, Authorizations authorizations) {
+                toJsonCount.incrementAndGet();
                 return vertexJson;
             }
         };
@@ -90,6 +110,118 @@ public class FormulaEvaluatorTest {
         assertEquals("2014-11-20", evaluator.evaluateTimeFormula(null, userContext, null));
     }
 
+    @Test
+    public void testEvaluateFormulas() {
+        List<FormulaEvaluator.FormulaResult> results = evaluator.evaluateFormulas(Arrays.<Vertex>asList(null, null, null), userContext, null);
+
+        assertEquals(3, results.size());
+        for (FormulaEvaluator.FormulaResult result : results) {
+            assertEquals("Prop A Value, Prop B Value", result.getTitle());
+            assertEquals("Prop C Value", result.getSubtitle());
+            assertEquals("2014-11-20", result.getTime());
+        }
+        assertEquals(3, toJsonCount.get());
+    }
+
+    @Test
+    public void testEvaluateFormulasCached() throws Exception {
+        Map<String, String> map = new HashMap<>();
+        map.put(FormulaEvaluator.CONFIGURATION_PARAMETER_CACHE_SIZE, "10");
+        FormulaEvaluator cachingEvaluator = createEvaluator(map);
+        try {
+            when(vertex.getId()).thenReturn("v1");
+            when(vertex.getProperties()).thenReturn(Collections.<Property>emptyList());
+
+            assertEquals("Prop A Value, Prop B Value", cachingEvaluator.evaluateTitleFormula(vertex, userContext, null));
+            assertEquals("Prop C Value", cachingEvaluator.evaluateSubtitleFormula(vertex, userContext, null));
+            assertEquals("2014-11-20", cachingEvaluator.evaluateFormulas(Collections.singletonList(vertex), userContext, null).get(0).getTime());
+            assertEquals(1, toJsonCount.get());
+
+            Property property = mock(Property.class);
+            when(property.getKey()).thenReturn("k1");
+            when(property.getName()).thenReturn("name");
+            when(property.getVisibility()).thenReturn(new Visibility(""));
+            when(vertex.getProperties()).thenReturn(Collections.singletonList(property));
+            cachingEvaluator.evaluateTitleFormula(vertex, userContext, null);
+            assertEquals(2, toJsonCount.get());
+        } finally {
+            cachingEvaluator.close();
+        }
+    }
+
+    @Test
+    public void testEvaluateFormulasWithFailingFormula() throws Exception {
+        Map<String, String> map = new HashMap<>();
+        map.put(FormulaEvaluator.CONFIGURATION_PARAMETER_CACHE_SIZE, "10");
+        // the formula result can not be converted to a string
+        String ontologyJson = getOntologyJson().replace(
+                "\"timeFormula\":\"prop('http://visallo.org/dev#titleFormulaEntityPropD') || ''\"",
+                "\"timeFormula\":\"({ toString: function() { throw new Error('broken'); } })\""
+        );
+        FormulaEvaluator failingEvaluator = createEvaluator(map, ontologyJson);
+        try {
+            when(vertex.getId()).thenReturn("v1");
+            when(vertex.getProperties()).thenReturn(Collections.<Property>emptyList());
+
+            FormulaEvaluator.FormulaResult result = failingEvaluator.evaluateFormulas(Collections.singletonList(vertex), userContext, null).get(0);
+            assertEquals("Prop A Value, Prop B Value", result.getTitle());
+            assertEquals("Prop C Value", result.getSubtitle());
+            assertEquals("Unable to Evaluate Time", result.getTime());
+
+            // failed results are not cached
+            failingEvaluator.evaluateFormulas(Collections.singletonList(vertex), userContext, null);
+            assertEquals(2, toJsonCount.get());
+        } finally {
+            failingEvaluator.close();
+        }
+    }
+
+    @Test
+    public void testCacheKeyChangesWithThePropertyTimestampAndIsNotAmbiguous() throws Exception {
+        Map<String, String> map = new HashMap<>();
+        map.put(FormulaEvaluator.CONFIGURATION_PARAMETER_CACHE_SIZE, "10");
+        FormulaEvaluator cachingEvaluator = createEvaluator(map);
+        try {
+            when(vertex.getId()).thenReturn("v1");
+            when(vertex.getProperties()).thenReturn(Collections.singletonList(createProperty("ab", "c", 1L)));
+            cachingEvaluator.evaluateTitleFormula(vertex, userContext, null);
+            cachingEvaluator.evaluateTitleFormula(vertex, userContext, null);
+            assertEquals(1, toJsonCount.get());
+
+            when(vertex.getProperties()).thenReturn(Collections.singletonList(createProperty("ab", "c", 2L)));
+            cachingEvaluator.evaluateTitleFormula(vertex, userContext, null);
+            assertEquals(2, toJsonCount.get());
+
+            when(vertex.getProperties()).thenReturn(Collections.singletonList(createProperty("a", "bc", 2L)));
+            cachingEvaluator.evaluateTitleFormula(vertex, userContext, null);
+            assertEquals(3, toJsonCount.get());
+        } finally {
+            cachingEvaluator.close();
+        }
+    }
+
+    private static Property createProperty(String key, String name, long timestamp) {
+        Property property = mock(Property.class);
+        when(property.getKey()).thenReturn(key);
+        when(property.getName()).thenReturn(name);
+        when(property.getVisibility()).thenReturn(new Visibility(""));
+        when(property.getTimestamp()).thenReturn(timestamp);
+        return property;
+    }
+
+    @Test
+    public void testMissingScriptNamesTheFile() {
+        Context context = Context.enter();
+        try {
+            RequireJsSupport.getCompiledScript(context, "libs/missing.js");
+            fail("expected a missing script to fail");
+        } catch (VisalloException ex) {
+            assertTrue(ex.getMessage(), ex.getMessage().contains("libs/missing.js"));
+        } finally {
+            Context.exit();
+        }
+    }
+
     @Test
     public void testThreading() throws InterruptedException {
         Thread[] threads = new Thread[4];
@@ -10,8 +10,11 @@ import org.vertexium.Authorizations;
 import org.vertexium.Graph;
 import org.vertexium.Property;
 import org.vertexium.Vertex;
+import org.vertexium.VertexBuilder;
+import org.vertexium.Visibility;
 import org.vertexium.inmemory.InMemoryGraph;
 import org.visallo.core.config.Configuration;
+import org.visallo.core.model.properties.VisalloProperties;
 import org.visallo.core.model.WorkQueueNames;
 import org.visallo.core.model.ontology.OntologyProperty;
 import org.visallo.core.model.ontology.OntologyRepository;
@@ -23,15 +26,14 @@ import org.visallo.core.model.workspace.WorkspaceRepository;
 import org.visallo.core.security.DirectVisibilityTranslator;
 import org.visallo.core.security.VisibilityTranslator;
 import org.visallo.core.user.User;
+import org.visallo.core.util.RowKeyHelper;
 import org.visallo.web.clientapi.model.ClientApiImportProperty;
 
 import java.io.File;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.nio.file.Files;
+import java.util.*;
 
-import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.*;
 import static org.mockito.Mockito.when;
 import static org.vertexium.util.IterableUtils.toList;
 
@@ -70,6 +72,14 @@ public class FileImportTest {
     @Mock
     OntologyProperty ontologyProperty;
 
+    private List<Integer> hashQuerySizes = new ArrayList<>();
+
+    /**
+     * When set, the content hash query returns the vertices with this hash ahead of the others, like a search index
+     * whose result is filled by several vertices sharing one hash.
+     */
+    private String crowdingHash;
+
     @Before
     public void setup() {
         graph = InMemoryGraph.create();
@@ -97,6 +107,25 @@ public class FileImportTest {
             protected List<FileImportSupportingFileHandler> getFileImportSupportingFileHandlers() {
                 return new ArrayList<>();
             }
+
+            @Override
+            protected Iterable<Vertex> findVerticesWithAnyHash(Set<String> hashes, int limit, Authorizations authorizations) {
+                hashQuerySizes.add(hashes.size());
+                if (crowdingHash == null) {
+                    return super.findVerticesWithAnyHash(hashes, limit, authorizations);
+                }
+                List<Vertex> vertices = new ArrayList<>();
+                List<Vertex> otherVertices = new ArrayList<>();
+                for (Vertex vertex : super.findVerticesWithAnyHash(hashes, Integer.MAX_VALUE, authorizations)) {
+                    if (crowdingHash.equals(getContentHash(vertex))) {
+                        vertices.add(vertex);
+                    } else {
+                        otherVertices.add(vertex);
+                    }
+                }
+                vertices.addAll(otherVertices);
+                return vertices.subList(0, Math.min(limit, vertices.size()));
+            }
         };
     }
 
@@ -140,4 +169,100 @@ public class FileImportTest {
             }
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testImportDirectory() throws Exception {
+        File dataDir = Files.createTempDirectory("fileImportTest").toFile();
+        for (int i = 0; i < 25; i++) {
+            FileUtils.writeStringToFile(new File(dataDir, "file" + i + ".txt"), "contents " + (i % 20));
+        }
+        FileUtils.writeStringToFile(new File(dataDir, ".hidden"), "hidden");
+        try {
+            fileImport.importDirectory(dataDir, false, null, "", null, Priority.NORMAL, 4, user, authorizations);
+            assertEquals(20, toList(graph.getVertices(authorizations)).size());
+
+            fileImport.importDirectory(dataDir, false, null, "", null, Priority.NORMAL, 4, user, authorizations);
+            List<Vertex> vertices = toList(graph.getVertices(authorizations));
+            assertEquals(20, vertices.size());
+            for (Vertex vertex : vertices) {
+                assertTrue(VisalloProperties.CONTENT_HASH.getPropertyValue(vertex, FileImport.MULTI_VALUE_KEY).startsWith("urn"));
+            }
+        } finally {
+            FileUtils.deleteDirectory(dataDir);
+        }
+    }
+
+    @Test
+    public void testImportDirectoryFindsDuplicatesAcrossBatches() throws Exception {
+        File dataDir = Files.createTempDirectory("fileImportTest").toFile();
+        for (int i = 0; i < 25; i++) {
+            FileUtils.writeStringToFile(new File(dataDir, String.format("file%02d.txt", i)), "contents " + (i % 20));
+        }
+        try {
+            // one thread imports batches of 10 files, so file20 to file24 repeat files of the first batch
+            fileImport.importDirectory(dataDir, false, null, "", null, Priority.NORMAL, 1, user, authorizations);
+
+            assertEquals(Arrays.asList(10, 10, 5), hashQuerySizes);
+            assertEquals(20, toList(graph.getVertices(authorizations)).size());
+            Vertex vertex = findVertexWithContent("contents 0");
+            assertEquals(Collections.singletonList("file00.txt"), toList(VisalloProperties.FILE_NAME.getPropertyValues(vertex)));
+        } finally {
+            FileUtils.deleteDirectory(dataDir);
+        }
+    }
+
+    @Test
+    public void testImportDirectoryLooksHashesUpOneAtATimeWhenTheResultIsFull() throws Exception {
+        String crowdedHash = RowKeyHelper.buildSHA256KeyString("crowded".getBytes());
+        String otherHash = RowKeyHelper.buildSHA256KeyString("other".getBytes());
+        for (String vertexId : new String[]{"crowded1", "crowded2"}) {
+            VertexBuilder vertexBuilder = graph.prepareVertex(vertexId, new Visibility(""));
+            VisalloProperties.CONTENT_HASH.addPropertyValue(vertexBuilder, FileImport.MULTI_VALUE_KEY, crowdedHash, new Visibility(""));
+            vertexBuilder.save(authorizations);
+        }
+        VertexBuilder vertexBuilder = graph.prepareVertex("other", new Visibility(""));
+        VisalloProperties.CONTENT_HASH.addPropertyValue(vertexBuilder, FileImport.MULTI_VALUE_KEY, otherHash, new Visibility(""));
+        vertexBuilder.save(authorizations);
+        graph.flush();
+        crowdingHash = crowdedHash;
+
+        File dataDir = Files.createTempDirectory("fileImportTest").toFile();
+        FileUtils.writeStringToFile(new File(dataDir, "a.txt"), "crowded");
+        FileUtils.writeStringToFile(new File(dataDir, "b.txt"), "other");
+        try {
+            fileImport.importDirectory(dataDir, false, null, "", null, Priority.NORMAL, 1, user, authorizations);
+
+            assertEquals(Collections.singletonList(2), hashQuerySizes);
+            assertEquals(3, toList(graph.getVertices(authorizations)).size());
+        } finally {
+            FileUtils.deleteDirectory(dataDir);
+        }
+    }
+
+    @Test
+    public void testImportDirectoryRejectsParallelismBelowOne() throws Exception {
+        File dataDir = Files.createTempDirectory("fileImportTest").toFile();
+        try {
+            fileImport.importDirectory(dataDir, false, null, "", null, Priority.NORMAL, 0, user, authorizations);
+            fail("expected the parallelism to be rejected");
+        } catch (IllegalArgumentException ex) {
+            assertEquals("parallelism must be at least 1, was 0", ex.getMessage());
+        } finally {
+            FileUtils.deleteDirectory(dataDir);
+        }
+    }
+
+    private Vertex findVertexWithContent(String contents) {
+        String hash = RowKeyHelper.buildSHA256KeyString(contents.getBytes());
+        for (Vertex vertex : graph.getVertices(authorizations)) {
+            if (hash.equals(getContentHash(vertex))) {
+                return vertex;
+            }
+        }
+        throw new AssertionError("no vertex with contents: " + contents);
+    }
+
+    private static String getContentHash(Vertex vertex) {
+        return VisalloProperties.CONTENT_HASH.getPropertyValue(vertex, FileImport.MULTI_VALUE_KEY);
+    }
+}
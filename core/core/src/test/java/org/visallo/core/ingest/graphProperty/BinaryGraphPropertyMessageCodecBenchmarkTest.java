@@ -0,0 +1,107 @@
+package org.visallo.core.ingest.graphProperty;
+
+import org.json.JSONObject;
+import org.junit.Test;
+import org.visallo.core.model.workQueue.Priority;
+import org.visallo.core.util.VisalloLogger;
+import org.visallo.core.util.VisalloLoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares the cost of encoding and decoding a graph property message as JSON text and with
+ * {@link BinaryGraphPropertyMessageCodec}, in time and bytes allocated per message.
+ */
+public class BinaryGraphPropertyMessageCodecBenchmarkTest {
+    private static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(BinaryGraphPropertyMessageCodecBenchmarkTest.class);
+    private static final int WARM_UP_MESSAGES = 200000;
+    private static final int MESSAGES = 1000000;
+
+    @Test
+    public void benchmark() {
+        JSONObject message = new JSONObject();
+        message.put(GraphPropertyMessage.GRAPH_VERTEX_ID, "ARTIFACT_3f2a7b9c8d1e4f5a6b7c8d9e0f1a2b3c");
+        message.put(GraphPropertyMessage.PROPERTY_KEY, "com.example.ingest.FileImport");
+        message.put(GraphPropertyMessage.PROPERTY_NAME, "http://visallo.org#raw");
+        message.put(GraphPropertyMessage.WORKSPACE_ID, "WORKSPACE_8e7d6c5b4a39");
+        message.put(GraphPropertyMessage.VISIBILITY_SOURCE, "");
+        message.put(GraphPropertyMessage.PRIORITY, Priority.NORMAL.name());
+
+        Codec json = new Codec() {
+            @Override
+            public byte[] encode(JSONObject message) {
+                return message.toString().getBytes();
+            }
+
+            @Override
+            public JSONObject decode(byte[] data) {
+                return new JSONObject(new String(data));
+            }
+        };
+        Codec binary = new Codec() {
+            @Override
+            public byte[] encode(JSONObject message) {
+                return BinaryGraphPropertyMessageCodec.encode(message);
+            }
+
+            @Override
+            public JSONObject decode(byte[] data) {
+                return BinaryGraphPropertyMessageCodec.decode(data);
+            }
+        };
+
+        run(json, message, WARM_UP_MESSAGES);
+        run(binary, message, WARM_UP_MESSAGES);
+        Result jsonResult = run(json, message, MESSAGES);
+        Result binaryResult = run(binary, message, MESSAGES);
+
+        LOGGER.info("json:   %d bytes, %6.0f ns/message, %6d bytes allocated/message",
+                json.encode(message).length, jsonResult.nanosPerMessage, jsonResult.allocatedBytesPerMessage);
+        LOGGER.info("binary: %d bytes, %6.0f ns/message, %6d bytes allocated/message",
+                binary.encode(message).length, binaryResult.nanosPerMessage, binaryResult.allocatedBytesPerMessage);
+    }
+
+    private Result run(Codec codec, JSONObject message, int count) {
+        long allocatedBefore = getAllocatedBytes();
+        long startTime = System.nanoTime();
+        int checksum = 0;
+        for (int i = 0; i < count; i++) {
+            JSONObject decoded = codec.decode(codec.encode(message));
+            checksum += decoded.length();
+        }
+        long nanos = System.nanoTime() - startTime;
+        long allocated = allocatedBefore < 0 ? -1 : getAllocatedBytes() - allocatedBefore;
+        assertEquals(message.length() * count, checksum);
+        return new Result((double) nanos / count, allocated < 0 ? -1 : allocated / count);
+    }
+
+    /**
+     * @return bytes allocated by this thread, or a negative number if the JVM can't tell
+     */
+    private static long getAllocatedBytes() {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threadMXBean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+
+    private interface Codec {
+        byte[] encode(JSONObject message);
+
+        JSONObject decode(byte[] data);
+    }
+
+    private static class Result {
+        private final double nanosPerMessage;
+        private final long allocatedBytesPerMessage;
+
+        private Result(double nanosPerMessage, long allocatedBytesPerMessage) {
+            this.nanosPerMessage = nanosPerMessage;
+            this.allocatedBytesPerMessage = allocatedBytesPerMessage;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package org.visallo.core.ingest.graphProperty;
+
+import org.json.JSONObject;
+import org.junit.Test;
+import org.visallo.core.exception.VisalloException;
+import org.visallo.core.model.workQueue.Priority;
+
+import static org.junit.Assert.*;
+
+public class BinaryGraphPropertyMessageCodecTest {
+    @Test
+    public void testRoundTrip() {
+        JSONObject json = new JSONObject();
+        json.put(GraphPropertyMessage.GRAPH_VERTEX_ID, "v1");
+        json.put(GraphPropertyMessage.PROPERTY_KEY, "k\u00e9y");
+        json.put(GraphPropertyMessage.PROPERTY_NAME, "http://visallo.org#" + repeat('x', 300));
+        json.put(GraphPropertyMessage.WORKSPACE_ID, "");
+        json.put(GraphPropertyMessage.PRIORITY, Priority.HIGH.name());
+        assertTrue(BinaryGraphPropertyMessageCodec.canEncode(json));
+
+        byte[] data = BinaryGraphPropertyMessageCodec.encode(json);
+        assertTrue(BinaryGraphPropertyMessageCodec.isEncoded(data));
+        JSONObject decoded = BinaryGraphPropertyMessageCodec.decode(data);
+
+        assertEquals(json.length(), decoded.length());
+        for (Object key : json.keySet()) {
+            assertEquals(json.get((String) key), decoded.get((String) key));
+        }
+        GraphPropertyMessage message = new GraphPropertyMessage(decoded);
+        assertEquals("v1", message.getVertexId());
+        assertFalse(message.canHandleEdge());
+        assertEquals(Priority.HIGH, message.getPriority());
+    }
+
+    @Test
+    public void testElementMessage() {
+        JSONObject json = new JSONObject();
+        json.put(GraphPropertyMessage.GRAPH_EDGE_ID, "e1");
+
+        JSONObject decoded = BinaryGraphPropertyMessageCodec.decode(BinaryGraphPropertyMessageCodec.encode(json));
+
+        assertEquals(1, decoded.length());
+        assertEquals(GraphPropertyMessage.ProcessingType.ELEMENT, new GraphPropertyMessage(decoded).findProcessingType());
+    }
+
+    @Test
+    public void testCanEncode() {
+        JSONObject json = new JSONObject();
+        json.put(GraphPropertyMessage.GRAPH_VERTEX_ID, "v1");
+        json.put("other", "value");
+        assertFalse(BinaryGraphPropertyMessageCodec.canEncode(json));
+
+        json = new JSONObject();
+        json.put(GraphPropertyMessage.GRAPH_VERTEX_ID, 1);
+        assertFalse(BinaryGraphPropertyMessageCodec.canEncode(json));
+
+        json = new JSONObject();
+        json.put(GraphPropertyMessage.PRIORITY, "URGENT");
+        assertFalse(BinaryGraphPropertyMessageCodec.canEncode(json));
+    }
+
+    @Test
+    public void testJsonIsNotEncoded() {
+        assertFalse(BinaryGraphPropertyMessageCodec.isEncoded("{\"graphVertexId\":\"v1\"}".getBytes()));
+        assertFalse(BinaryGraphPropertyMessageCodec.isEncoded(new byte[0]));
+    }
+
+    @Test(expected = VisalloException.class)
+    public void testTruncatedMessage() {
+        JSONObject json = new JSONObject();
+        json.put(GraphPropertyMessage.GRAPH_VERTEX_ID, "v1");
+        byte[] data = BinaryGraphPropertyMessageCodec.encode(json);
+        byte[] truncated = new byte[data.length - 1];
+        System.arraycopy(data, 0, truncated, 0, truncated.length);
+        BinaryGraphPropertyMessageCodec.decode(truncated);
+    }
+
+    private static String repeat(char c, int count) {
+        StringBuilder result = new StringBuilder(count);
+        for (int i = 0; i < count; i++) {
+            result.append(c);
+        }
+        return result.toString();
+    }
+}
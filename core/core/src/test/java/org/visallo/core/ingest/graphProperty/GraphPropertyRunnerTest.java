@@ -2,21 +2,28 @@ package org.visallo.core.ingest.graphProperty;
 
 import com.codahale.metrics.Counter;
 import com.google.common.collect.Lists;
+import org.apache.commons.io.IOUtils;
 import org.json.JSONObject;
 import org.junit.Before;
 import org.junit.Test;
 import org.vertexium.*;
+import org.vertexium.property.StreamingPropertyValue;
+import org.visallo.core.config.Configuration;
+import org.visallo.core.config.HashMapConfigurationLoader;
 import org.visallo.core.exception.VisalloException;
 import org.visallo.core.model.workQueue.Priority;
 import org.visallo.core.model.workQueue.WorkQueueRepository;
 import org.visallo.core.status.MetricsManager;
 
+import java.io.ByteArrayInputStream;
 import java.io.InputStream;
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.ByteBuffer;
+import java.util.*;
 import java.util.concurrent.atomic.AtomicLong;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
@@ -72,6 +79,45 @@ public class GraphPropertyRunnerTest {
         assertThat(countingGPWStub.isHandledCount.get(), is(11L));
     }
 
+    @Test
+    public void testWorkerInterestLimitsIsHandledCalls() throws Exception {
+        CountingGPWStub countingGPWStub = new PropertyNameInterestGPWStub(PROP_NAME + "3");
+
+        JSONObject message = createVertexIdJSONGPWMessage(VERTEX_ID);
+        inflateVertexAndAddToGraph(VERTEX_ID, 11L);
+        runTests(countingGPWStub, message);
+
+        assertThat(countingGPWStub.isExecutingCount.get(), is(1L));
+        assertThat(countingGPWStub.isHandledCount.get(), is(1L));
+    }
+
+    @Test
+    public void testOverriddenIsHandledIsAskedAboutEveryProperty() throws Exception {
+        final AtomicLong isHandledCount = new AtomicLong(0);
+        final AtomicLong getMimeTypeCount = new AtomicLong(0);
+        MimeTypeGraphPropertyWorker worker = new MimeTypeGraphPropertyWorker() {
+            @Override
+            public boolean isHandled(Element element, Property property) {
+                isHandledCount.incrementAndGet();
+                return property.getName().equals(PROP_NAME + "3");
+            }
+
+            @Override
+            protected String getMimeType(InputStream in, String fileName) throws Exception {
+                getMimeTypeCount.incrementAndGet();
+                return null;
+            }
+        };
+        assertThat(worker.getInterest(), is(nullValue()));
+
+        JSONObject message = createVertexIdJSONGPWMessage(VERTEX_ID);
+        inflateVertexAndAddToGraph(VERTEX_ID, 11L);
+        runTests(worker, message);
+
+        assertThat(isHandledCount.get(), is(11L));
+        assertThat(getMimeTypeCount.get(), is(1L));
+    }
+
     @Test
     public void testHandlePropertyOnEdgeIsHandledByGPWS() throws Exception {
         CountingGPWStub countingGPWStub = new CountingGPWStub();
@@ -96,6 +142,72 @@ public class GraphPropertyRunnerTest {
         assertThat(countingGPWStub.isHandledCount.get(), is(14L));
     }
 
+    @Test
+    public void testConcurrentMessagesShareGraphPropertyWorkers() throws Exception {
+        CountingGPWStub countingGPWStub = new CountingGPWStub();
+        GraphPropertyThreadedWrapper graphPropertyThreadedWrapper = createTestGPWThreadedWrapper(countingGPWStub, 2);
+        new Thread(graphPropertyThreadedWrapper).start();
+        _testSubject.addGraphPropertyThreadedWrappers(graphPropertyThreadedWrapper);
+
+        final int messageCount = 10;
+        List<Thread> threads = new ArrayList<>();
+        final AtomicLong errorCount = new AtomicLong(0);
+        for (int i = 0; i < messageCount; i++) {
+            final JSONObject message = createVertexIdJSONGPWMessage(VERTEX_ID + i);
+            inflateVertexAndAddToGraph(VERTEX_ID + i, 3L);
+            threads.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        _testSubject.process(MESSAGE_ID, message);
+                    } catch (Exception e) {
+                        errorCount.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        stopInThread(graphPropertyThreadedWrapper);
+
+        assertThat(errorCount.get(), is(0L));
+        assertThat(countingGPWStub.isExecutingCount.get(), is(messageCount * 3L));
+    }
+
+    @Test
+    public void testMemoryMappedLocalFileIsSharedWithWorkersAndReleased() throws Exception {
+        _testSubject.setConfiguration(createConfiguration(Configuration.GRAPH_PROPERTY_RUNNER_LOCAL_FILE_MODE, "memory_mapped"));
+        byte[] data = new byte[64 * 1024];
+        new Random(0).nextBytes(data);
+        LocalFileGPWStub localFileGPWStub = new LocalFileGPWStub();
+
+        JSONObject message = createVertexPropertyGPWMessage(VERTEX_ID, PROP_NAME + "0", PROP_KEY + "0");
+        Property[] props = createNumProperties(1L);
+        when(props[0].getValue()).thenReturn(new StreamingPropertyValue(new ByteArrayInputStream(data), byte[].class));
+        registerVertexWithGraph(VERTEX_ID, createMockedVertex(VERTEX_ID, props));
+        runTests(localFileGPWStub, message);
+
+        assertArrayEquals(data, localFileGPWStub.streamData);
+        assertArrayEquals(data, localFileGPWStub.byteBufferData);
+        assertThat(localFileGPWStub.workData.getLocalFileByteBuffer(), is(nullValue()));
+        assertThat(localFileGPWStub.workData.getLocalFile().exists(), is(false));
+    }
+
+    @Test(expected = VisalloException.class)
+    public void testInvalidLocalFileModeThrowsException() throws Exception {
+        _testSubject.setConfiguration(createConfiguration(Configuration.GRAPH_PROPERTY_RUNNER_LOCAL_FILE_MODE, "bogus"));
+    }
+
+    private static Configuration createConfiguration(String key, String value) {
+        Map<String, String> config = new HashMap<>();
+        config.put(key, value);
+        return new HashMapConfigurationLoader(config).createConfiguration();
+    }
+
     private void runTests(GraphPropertyWorker worker, JSONObject message) throws Exception {
         GraphPropertyThreadedWrapper graphPropertyThreadedWrapper = startInThread(worker);
 
@@ -119,7 +231,11 @@ public class GraphPropertyRunnerTest {
     }
 
     private GraphPropertyThreadedWrapper createTestGPWThreadedWrapper(GraphPropertyWorker worker){
-        GraphPropertyThreadedWrapper stubGraphPropertyThreadedWrapper = new GraphPropertyThreadedWrapper(worker);
+        return createTestGPWThreadedWrapper(worker, GraphPropertyThreadedWrapper.DEFAULT_WORK_QUEUE_CAPACITY);
+    }
+
+    private GraphPropertyThreadedWrapper createTestGPWThreadedWrapper(GraphPropertyWorker worker, int workQueueCapacity){
+        GraphPropertyThreadedWrapper stubGraphPropertyThreadedWrapper = new GraphPropertyThreadedWrapper(worker, workQueueCapacity);
         MetricsManager manager = mock(MetricsManager.class);
         when(manager.counter(anyString())).thenReturn(mock(Counter.class));
         when(manager.timer(anyString())).thenReturn(mock(com.codahale.metrics.Timer.class));
@@ -163,6 +279,44 @@ public class GraphPropertyRunnerTest {
         }
     }
 
+    private class LocalFileGPWStub extends GraphPropertyWorker {
+        public byte[] streamData;
+        public byte[] byteBufferData;
+        public GraphPropertyWorkData workData;
+
+        @Override
+        public void execute(InputStream in, GraphPropertyWorkData data) throws Exception {
+            workData = data;
+            streamData = IOUtils.toByteArray(in);
+            ByteBuffer byteBuffer = data.getLocalFileByteBuffer();
+            byteBufferData = new byte[byteBuffer.remaining()];
+            byteBuffer.get(byteBufferData);
+        }
+
+        @Override
+        public boolean isHandled(Element element, Property property) {
+            return true;
+        }
+
+        @Override
+        public boolean isLocalFileRequired() {
+            return true;
+        }
+    }
+
+    private class PropertyNameInterestGPWStub extends CountingGPWStub {
+        private final String propertyName;
+
+        public PropertyNameInterestGPWStub(String propertyName) {
+            this.propertyName = propertyName;
+        }
+
+        @Override
+        public GraphPropertyWorkerInterest getInterest() {
+            return GraphPropertyWorkerInterest.forPropertyNames(propertyName);
+        }
+    }
+
     private Edge createMockedEdge(String edgeId, Property... props) {
         List<Property> propList = Lists.newArrayList(props);
         Edge e = mock(Edge.class);
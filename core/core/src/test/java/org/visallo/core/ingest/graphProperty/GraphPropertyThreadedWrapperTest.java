@@ -0,0 +1,154 @@
+package org.visallo.core.ingest.graphProperty;
+
+import com.codahale.metrics.Counter;
+import com.google.common.util.concurrent.ListenableFuture;
+import org.junit.After;
+import org.junit.Test;
+import org.vertexium.Element;
+import org.vertexium.Property;
+import org.visallo.core.exception.VisalloException;
+import org.visallo.core.status.MetricsManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class GraphPropertyThreadedWrapperTest {
+    private static final long TIMEOUT_SECONDS = 10;
+    private final CountDownLatch executeStarted = new CountDownLatch(1);
+    private final CountDownLatch releaseExecute = new CountDownLatch(1);
+    private Thread thread;
+
+    @After
+    public void after() throws InterruptedException {
+        releaseExecute.countDown();
+        if (thread != null) {
+            thread.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+        }
+    }
+
+    @Test
+    public void testStopFailsQueuedWork() throws Exception {
+        BlockingGPWStub worker = new BlockingGPWStub();
+        GraphPropertyThreadedWrapper wrapper = start(worker);
+
+        ListenableFuture<GraphPropertyThreadedWrapper.WorkResult> running = wrapper.enqueueWork(null, null);
+        assertTrue(executeStarted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        // the queue holds a single item, so the stop sentinel does not fit next to this one
+        ClosingInputStream queuedIn = new ClosingInputStream();
+        ListenableFuture<GraphPropertyThreadedWrapper.WorkResult> queued = wrapper.enqueueWork(queuedIn, null);
+
+        wrapper.stop();
+
+        Throwable queuedError = queued.get(TIMEOUT_SECONDS, TimeUnit.SECONDS).getError();
+        assertTrue(queuedError instanceof VisalloException);
+        assertTrue(queuedIn.closed);
+        assertFalse(running.isDone());
+
+        releaseExecute.countDown();
+        assertNull(running.get(TIMEOUT_SECONDS, TimeUnit.SECONDS).getError());
+        thread.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+        assertFalse(thread.isAlive());
+        assertEquals(1, worker.executeCount.get());
+    }
+
+    @Test
+    public void testWorkEnqueuedAfterStopFails() throws Exception {
+        BlockingGPWStub worker = new BlockingGPWStub();
+        GraphPropertyThreadedWrapper wrapper = start(worker);
+        wrapper.stop();
+        thread.join(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+        assertFalse(thread.isAlive());
+
+        ListenableFuture<GraphPropertyThreadedWrapper.WorkResult> result = wrapper.enqueueWork(null, null);
+
+        assertTrue(result.get(TIMEOUT_SECONDS, TimeUnit.SECONDS).getError() instanceof VisalloException);
+        assertEquals(0, worker.executeCount.get());
+    }
+
+    @Test
+    public void testWorkerExceptionIsReturnedAndLaterWorkIsProcessed() throws Exception {
+        final RuntimeException workerException = new RuntimeException("expected");
+        final AtomicLong executeCount = new AtomicLong();
+        GraphPropertyWorker worker = new TestGPWStub() {
+            @Override
+            public void execute(InputStream in, GraphPropertyWorkData data) throws Exception {
+                if (executeCount.incrementAndGet() == 1) {
+                    throw workerException;
+                }
+            }
+        };
+        GraphPropertyThreadedWrapper wrapper = start(worker);
+
+        ClosingInputStream failedIn = new ClosingInputStream();
+        GraphPropertyThreadedWrapper.WorkResult failed = wrapper.enqueueWork(failedIn, null).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        GraphPropertyThreadedWrapper.WorkResult succeeded = wrapper.enqueueWork(null, null).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        wrapper.stop();
+
+        assertSame(workerException, failed.getError());
+        assertTrue(failedIn.closed);
+        assertNull(succeeded.getError());
+        assertEquals(2, executeCount.get());
+    }
+
+    @Test
+    public void testIsHandledWithoutMetricsManager() {
+        GraphPropertyThreadedWrapper wrapper = new GraphPropertyThreadedWrapper(new TestGPWStub() {
+            @Override
+            public void execute(InputStream in, GraphPropertyWorkData data) throws Exception {
+            }
+        });
+
+        assertTrue(wrapper.isHandled(null, null));
+    }
+
+    private GraphPropertyThreadedWrapper start(GraphPropertyWorker worker) {
+        GraphPropertyThreadedWrapper wrapper = new GraphPropertyThreadedWrapper(worker, 1);
+        MetricsManager metricsManager = mock(MetricsManager.class);
+        when(metricsManager.counter(anyString())).thenReturn(mock(Counter.class));
+        when(metricsManager.timer(anyString())).thenReturn(mock(com.codahale.metrics.Timer.class));
+        wrapper.setMetricsManager(metricsManager);
+        thread = new Thread(wrapper);
+        thread.start();
+        return wrapper;
+    }
+
+    private static abstract class TestGPWStub extends GraphPropertyWorker {
+        @Override
+        public boolean isHandled(Element element, Property property) {
+            return true;
+        }
+    }
+
+    private class BlockingGPWStub extends TestGPWStub {
+        private final AtomicInteger executeCount = new AtomicInteger();
+
+        @Override
+        public void execute(InputStream in, GraphPropertyWorkData data) throws Exception {
+            executeCount.incrementAndGet();
+            executeStarted.countDown();
+            assertTrue(releaseExecute.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        }
+    }
+
+    private static class ClosingInputStream extends ByteArrayInputStream {
+        private volatile boolean closed;
+
+        public ClosingInputStream() {
+            super(new byte[0]);
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
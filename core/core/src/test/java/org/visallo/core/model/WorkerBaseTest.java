@@ -0,0 +1,141 @@
+package org.visallo.core.model;
+
+import org.json.JSONObject;
+import org.junit.Test;
+import org.visallo.core.ingest.WorkerSpout;
+import org.visallo.core.ingest.WorkerTuple;
+import org.visallo.core.status.StatusServer;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class WorkerBaseTest {
+    private static final long TIMEOUT_SECONDS = 10;
+
+    @Test
+    public void testConcurrentTuplesAreAckedAndFailedAsTheyComplete() throws Exception {
+        final CountDownLatch othersCompleted = new CountDownLatch(3);
+        final TestWorkerSpout spout = new TestWorkerSpout(Arrays.asList("slow", "fast1", "error", "fast2"), othersCompleted);
+        TestWorker worker = new TestWorker(spout, 4) {
+            @Override
+            protected void process(Object messageId, JSONObject json) throws Exception {
+                if ("slow".equals(messageId)) {
+                    // only completes once the tuples pulled after it were acked or failed
+                    assertTrue("later tuples were not completed first", othersCompleted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+                } else if ("error".equals(messageId)) {
+                    throw new RuntimeException("expected");
+                }
+            }
+        };
+        spout.setWorker(worker);
+
+        worker.run();
+
+        assertEquals(3, spout.acked.size());
+        assertEquals(new HashSet<>(Arrays.asList("fast1", "fast2")), new HashSet<>(spout.acked.subList(0, 2)));
+        assertEquals("slow", spout.acked.get(2));
+        assertEquals(Collections.singletonList("error"), spout.failed);
+    }
+
+    @Test
+    public void testSequentialTuplesAreAckedAndFailedInOrder() throws Exception {
+        TestWorkerSpout spout = new TestWorkerSpout(Arrays.asList("first", "error", "last"), null);
+        TestWorker worker = new TestWorker(spout, 1) {
+            @Override
+            protected void process(Object messageId, JSONObject json) throws Exception {
+                if ("error".equals(messageId)) {
+                    throw new RuntimeException("expected");
+                }
+            }
+        };
+        spout.setWorker(worker);
+
+        worker.run();
+
+        assertEquals(Arrays.asList("first", "last"), spout.acked);
+        assertEquals(Collections.singletonList("error"), spout.failed);
+    }
+
+    private static abstract class TestWorker extends WorkerBase {
+        private final WorkerSpout spout;
+        private final int inFlightMessageCount;
+
+        protected TestWorker(WorkerSpout spout, int inFlightMessageCount) {
+            this.spout = spout;
+            this.inFlightMessageCount = inFlightMessageCount;
+        }
+
+        @Override
+        protected StatusServer createStatusServer() throws Exception {
+            return null;
+        }
+
+        @Override
+        protected int getInFlightMessageCount() {
+            return inFlightMessageCount;
+        }
+
+        @Override
+        protected WorkerSpout prepareWorkerSpout() {
+            return spout;
+        }
+
+        @Override
+        protected String getQueueName() {
+            return "test";
+        }
+    }
+
+    /**
+     * Hands out the given message ids once and stops the worker when all of them were acked or failed.
+     */
+    private static class TestWorkerSpout extends WorkerSpout {
+        private final Queue<String> messageIds;
+        private final int messageCount;
+        private final CountDownLatch completedLatch;
+        private final List<String> acked = Collections.synchronizedList(new ArrayList<String>());
+        private final List<String> failed = Collections.synchronizedList(new ArrayList<String>());
+        private WorkerBase worker;
+
+        public TestWorkerSpout(List<String> messageIds, CountDownLatch completedLatch) {
+            this.messageIds = new LinkedList<>(messageIds);
+            this.messageCount = messageIds.size();
+            this.completedLatch = completedLatch;
+        }
+
+        public void setWorker(WorkerBase worker) {
+            this.worker = worker;
+        }
+
+        @Override
+        public WorkerTuple nextTuple() throws Exception {
+            String messageId = messageIds.poll();
+            return messageId == null ? null : new WorkerTuple(messageId, new JSONObject());
+        }
+
+        @Override
+        public void ack(Object msgId) {
+            acked.add((String) msgId);
+            completed();
+        }
+
+        @Override
+        public void fail(Object msgId) {
+            failed.add((String) msgId);
+            completed();
+        }
+
+        private void completed() {
+            if (completedLatch != null) {
+                completedLatch.countDown();
+            }
+            if (acked.size() + failed.size() == messageCount) {
+                worker.stop();
+            }
+        }
+    }
+}
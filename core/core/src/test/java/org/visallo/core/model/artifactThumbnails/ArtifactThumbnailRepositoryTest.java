@@ -0,0 +1,217 @@
+package org.visallo.core.model.artifactThumbnails;
+
+import com.v5analytics.simpleorm.SimpleOrmContext;
+import com.v5analytics.simpleorm.SimpleOrmSession;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+import org.vertexium.Vertex;
+import org.vertexium.property.StreamingPropertyValue;
+import org.visallo.core.config.Configuration;
+import org.visallo.core.config.HashMapConfigurationLoader;
+import org.visallo.core.model.ontology.OntologyRepository;
+import org.visallo.core.status.JmxMetricsManager;
+import org.visallo.core.user.User;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ArtifactThumbnailRepositoryTest {
+    private static final long TIMEOUT_SECONDS = 10;
+    private static final int[] BOUNDARY_DIMS = new int[]{50, 50};
+    private static final String CLOCKWISE_ROTATION_IRI = "http://visallo.org/test#media.clockwiseRotation";
+    private static final String Y_AXIS_FLIPPED_IRI = "http://visallo.org/test#media.yAxisFlipped";
+
+    @Mock
+    private SimpleOrmSession simpleOrmSession;
+    @Mock
+    private OntologyRepository ontologyRepository;
+    @Mock
+    private User user;
+    @Mock
+    private Vertex artifactVertex;
+    @Mock
+    private StreamingPropertyValue source;
+
+    private byte[] imageData;
+
+    @Before
+    public void before() throws IOException {
+        when(artifactVertex.getId()).thenReturn("v1");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(100, 80, BufferedImage.TYPE_INT_RGB), "png", out);
+        imageData = out.toByteArray();
+    }
+
+    @Test
+    public void testConcurrentCallersShareOneGeneration() throws Exception {
+        final ArtifactThumbnailRepository repository = createRepository(Configuration.DEFAULT_ARTIFACT_THUMBNAIL_CACHE_MAX_BYTES);
+        final CountDownLatch generationStarted = new CountDownLatch(1);
+        final CountDownLatch releaseGeneration = new CountDownLatch(1);
+        final AtomicInteger sourceReads = new AtomicInteger();
+        when(source.getInputStream()).thenAnswer(new Answer<InputStream>() {
+            @Override
+            public InputStream answer(InvocationOnMock invocation) throws Throwable {
+                sourceReads.incrementAndGet();
+                generationStarted.countDown();
+                assertTrue(releaseGeneration.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+                return new ByteArrayInputStream(imageData);
+            }
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Callable<ArtifactThumbnail> getThumbnail = new Callable<ArtifactThumbnail>() {
+                @Override
+                public ArtifactThumbnail call() throws Exception {
+                    return repository.getOrCreateThumbnail(artifactVertex, "key1", "raw", source, BOUNDARY_DIMS, user);
+                }
+            };
+            Future<ArtifactThumbnail> first = executor.submit(getThumbnail);
+            assertTrue(generationStarted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            Future<ArtifactThumbnail> second = executor.submit(getThumbnail);
+            // the second caller looked the thumbnail up before joining the running generation
+            verify(simpleOrmSession, timeout(TIMEOUT_SECONDS * 1000).times(3)).findById(eq(ArtifactThumbnail.class), anyString(), any(SimpleOrmContext.class));
+            releaseGeneration.countDown();
+
+            ArtifactThumbnail thumbnail = first.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            assertSame(thumbnail, second.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            assertEquals(1, sourceReads.get());
+            verify(simpleOrmSession, times(1)).save(eq(thumbnail), anyString(), any(SimpleOrmContext.class));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testFailedGenerationIsNotCached() throws Exception {
+        ArtifactThumbnailRepository repository = createRepository(Configuration.DEFAULT_ARTIFACT_THUMBNAIL_CACHE_MAX_BYTES);
+        when(source.getInputStream())
+                .thenThrow(new RuntimeException("could not read"))
+                .thenReturn(new ByteArrayInputStream(imageData));
+
+        try {
+            repository.getOrCreateThumbnail(artifactVertex, "key1", "raw", source, BOUNDARY_DIMS, user);
+            fail("expected the generation to fail");
+        } catch (RuntimeException ex) {
+            assertEquals("could not read", ex.getMessage());
+        }
+        assertNull(repository.getThumbnail("v1", "raw", BOUNDARY_DIMS[0], BOUNDARY_DIMS[1], user));
+
+        ArtifactThumbnail thumbnail = repository.getOrCreateThumbnail(artifactVertex, "key1", "raw", source, BOUNDARY_DIMS, user);
+        assertNotNull(thumbnail);
+        assertEquals(ArtifactThumbnail.createId("v1", "raw", BOUNDARY_DIMS[0], BOUNDARY_DIMS[1]), thumbnail.getId());
+        assertSame(thumbnail, repository.getThumbnail("v1", "raw", BOUNDARY_DIMS[0], BOUNDARY_DIMS[1], user));
+        verify(simpleOrmSession, times(1)).save(eq(thumbnail), anyString(), any(SimpleOrmContext.class));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedThumbnailIsEvictedByByteWeight() {
+        // below 20 bytes the cache has a single segment, so the weight limit applies to all entries together
+        ArtifactThumbnailRepository repository = createRepository(15);
+        final Map<String, ArtifactThumbnail> stored = new HashMap<>();
+        for (String vertexId : new String[]{"a", "b", "c"}) {
+            ArtifactThumbnail thumbnail = new ArtifactThumbnail(vertexId, "raw", new byte[6], "png", 50, 50);
+            stored.put(thumbnail.getId(), thumbnail);
+        }
+        when(simpleOrmSession.findById(eq(ArtifactThumbnail.class), anyString(), any(SimpleOrmContext.class))).thenAnswer(new Answer<ArtifactThumbnail>() {
+            @Override
+            public ArtifactThumbnail answer(InvocationOnMock invocation) throws Throwable {
+                return stored.get((String) invocation.getArguments()[1]);
+            }
+        });
+
+        repository.getThumbnail("a", "raw", 50, 50, user);
+        repository.getThumbnail("b", "raw", 50, 50, user);
+        repository.getThumbnail("a", "raw", 50, 50, user);
+        repository.getThumbnail("c", "raw", 50, 50, user);
+        repository.getThumbnail("a", "raw", 50, 50, user);
+        repository.getThumbnail("b", "raw", 50, 50, user);
+
+        verify(simpleOrmSession, times(1)).findById(ArtifactThumbnail.class, ArtifactThumbnail.createId("a", "raw", 50, 50), null);
+        verify(simpleOrmSession, times(2)).findById(ArtifactThumbnail.class, ArtifactThumbnail.createId("b", "raw", 50, 50), null);
+        verify(simpleOrmSession, times(1)).findById(ArtifactThumbnail.class, ArtifactThumbnail.createId("c", "raw", 50, 50), null);
+    }
+
+    @Test
+    public void testCreateThumbnailsStoresAndCachesEverySize() {
+        ArtifactThumbnailRepository repository = createRepository(Configuration.DEFAULT_ARTIFACT_THUMBNAIL_CACHE_MAX_BYTES);
+        List<int[]> boundaryDimsList = Arrays.asList(new int[]{50, 50}, new int[]{20, 20}, new int[]{200, 200});
+
+        List<ArtifactThumbnail> thumbnails = repository.createThumbnails(artifactVertex, "key1", "raw", new ByteArrayInputStream(imageData), boundaryDimsList, user);
+
+        assertEquals(3, thumbnails.size());
+        int[][] expectedImageDims = new int[][]{{50, 40}, {20, 16}, {100, 80}};
+        for (int i = 0; i < thumbnails.size(); i++) {
+            int[] boundaryDims = boundaryDimsList.get(i);
+            ArtifactThumbnail thumbnail = thumbnails.get(i);
+            assertEquals(ArtifactThumbnail.createId("v1", "raw", boundaryDims[0], boundaryDims[1]), thumbnail.getId());
+            assertEquals("jpg", thumbnail.getFormat());
+            assertEquals(expectedImageDims[i][0], thumbnail.getImage().getWidth());
+            assertEquals(expectedImageDims[i][1], thumbnail.getImage().getHeight());
+            verify(simpleOrmSession, times(1)).save(eq(thumbnail), anyString(), any(SimpleOrmContext.class));
+            assertSame(thumbnail, repository.getThumbnail("v1", "raw", boundaryDims[0], boundaryDims[1], user));
+        }
+        verify(simpleOrmSession, never()).findById(eq(ArtifactThumbnail.class), anyString(), any(SimpleOrmContext.class));
+    }
+
+    @Test
+    public void testThumbnailOfTheOldOrientationIsNotServedAfterTheImageIsRotated() throws Exception {
+        when(ontologyRepository.getPropertyIRIByIntent("media.clockwiseRotation")).thenReturn(CLOCKWISE_ROTATION_IRI);
+        when(ontologyRepository.getPropertyIRIByIntent("media.yAxisFlipped")).thenReturn(Y_AXIS_FLIPPED_IRI);
+        ArtifactThumbnailRepository repository = createRepository(Configuration.DEFAULT_ARTIFACT_THUMBNAIL_CACHE_MAX_BYTES);
+        when(source.getInputStream()).thenAnswer(new Answer<InputStream>() {
+            @Override
+            public InputStream answer(InvocationOnMock invocation) throws Throwable {
+                return new ByteArrayInputStream(imageData);
+            }
+        });
+
+        ArtifactThumbnail original = repository.getOrCreateThumbnail(artifactVertex, "key1", "raw", source, BOUNDARY_DIMS, user);
+        assertEquals(50, original.getImage().getWidth());
+        assertEquals(40, original.getImage().getHeight());
+
+        when(artifactVertex.getPropertyValue("key1", CLOCKWISE_ROTATION_IRI)).thenReturn(90);
+        when(artifactVertex.getPropertyValue("key1", Y_AXIS_FLIPPED_IRI)).thenReturn(true);
+        ArtifactThumbnail rotated = repository.getOrCreateThumbnail(artifactVertex, "key1", "raw", source, BOUNDARY_DIMS, user);
+        assertNotSame(original, rotated);
+        assertEquals(ArtifactThumbnail.createId("v1", "raw", BOUNDARY_DIMS[0], BOUNDARY_DIMS[1], true, 90), rotated.getId());
+        assertEquals(rotated.getId(), repository.getThumbnailId(artifactVertex, "key1", "raw", BOUNDARY_DIMS));
+        assertEquals(40, rotated.getImage().getWidth());
+        assertEquals(50, rotated.getImage().getHeight());
+        assertSame(rotated, repository.getOrCreateThumbnail(artifactVertex, "key1", "raw", source, BOUNDARY_DIMS, user));
+
+        when(artifactVertex.getPropertyValue("key1", CLOCKWISE_ROTATION_IRI)).thenReturn(null);
+        when(artifactVertex.getPropertyValue("key1", Y_AXIS_FLIPPED_IRI)).thenReturn(null);
+        assertSame(original, repository.getOrCreateThumbnail(artifactVertex, "key1", "raw", source, BOUNDARY_DIMS, user));
+        verify(source, times(2)).getInputStream();
+    }
+
+    private ArtifactThumbnailRepository createRepository(int cacheMaxBytes) {
+        Map<String, String> config = new HashMap<>();
+        config.put(Configuration.ARTIFACT_THUMBNAIL_CACHE_MAX_BYTES, Integer.toString(cacheMaxBytes));
+        Configuration configuration = new HashMapConfigurationLoader(config).createConfiguration();
+        return new ArtifactThumbnailRepository(simpleOrmSession, ontologyRepository, configuration, new JmxMetricsManager());
+    }
+}
@@ -0,0 +1,42 @@
+package org.visallo.core.model.artifactThumbnails;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ArtifactThumbnailTest {
+    @Test
+    public void testETagIsTheMd5OfTheData() {
+        ArtifactThumbnail thumbnail = new ArtifactThumbnail("v1", "raw", "hello".getBytes(), "png", 200, 200);
+
+        assertEquals("5d41402abc4b2a76b9719d911017c592", thumbnail.getETag());
+        assertSame(thumbnail.getETag(), thumbnail.getETag());
+    }
+
+    @Test
+    public void testETagChangesWithTheData() {
+        ArtifactThumbnail thumbnail1 = new ArtifactThumbnail("v1", "raw", new byte[]{1, 2, 3}, "png", 200, 200);
+        ArtifactThumbnail thumbnail2 = new ArtifactThumbnail("v1", "raw", new byte[]{1, 2, 4}, "png", 200, 200);
+
+        assertNotEquals(thumbnail1.getETag(), thumbnail2.getETag());
+    }
+
+    @Test
+    public void testETagWithoutData() {
+        assertNull(new ArtifactThumbnail("v1", "raw", null, "png", 200, 200).getETag());
+    }
+
+    @Test
+    public void testCreateIdPadsTheDimensions() {
+        assertEquals("v1:raw:00000200:00000100", ArtifactThumbnail.createId("v1", "raw", 200, 100));
+    }
+
+    @Test
+    public void testCreateIdIncludesTheOrientation() {
+        assertEquals("v1:raw:00000200:00000100", ArtifactThumbnail.createId("v1", "raw", 200, 100, false, 0));
+        assertEquals("v1:raw:00000200:00000100", ArtifactThumbnail.createId("v1", "raw", 200, 100, false, 360));
+        assertEquals("v1:raw:00000200:00000100:90", ArtifactThumbnail.createId("v1", "raw", 200, 100, false, 90));
+        assertEquals("v1:raw:00000200:00000100:0:flipped", ArtifactThumbnail.createId("v1", "raw", 200, 100, true, 0));
+        assertEquals("v1:raw:00000200:00000100:270:flipped", ArtifactThumbnail.createId("v1", "raw", 200, 100, true, 630));
+    }
+}
@@ -0,0 +1,157 @@
+package org.visallo.core.model.artifactThumbnails;
+
+import org.junit.Test;
+import org.visallo.core.config.Configuration;
+import org.visallo.core.util.VisalloLogger;
+import org.visallo.core.util.VisalloLoggerFactory;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares generating a 200 x 200 thumbnail from a fully decoded 24 megapixel JPEG, PNG and TIFF image with
+ * {@link ImageUtils#readSubsampled(InputStream, int, long)} and
+ * {@link ImageUtils#progressiveResize(BufferedImage, int, int, int, Color)}, reporting latency and peak heap use.
+ */
+public class ImageUtilsBenchmarkTest {
+    private static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(ImageUtilsBenchmarkTest.class);
+    private static final int IMAGE_WIDTH = 6000;
+    private static final int IMAGE_HEIGHT = 4000;
+    private static final int THUMBNAIL_SIZE = 200;
+    private static final int WARM_UP_ITERATIONS = 1;
+    private static final int ITERATIONS = 3;
+
+    @Test
+    public void benchmarkJpeg() throws Exception {
+        benchmark("jpg");
+    }
+
+    @Test
+    public void benchmarkPng() throws Exception {
+        benchmark("png");
+    }
+
+    @Test
+    public void benchmarkTiff() throws Exception {
+        if (!ImageIO.getImageWritersByFormatName("tiff").hasNext()) {
+            LOGGER.info("no TIFF image writer available, skipping");
+            return;
+        }
+        benchmark("tiff");
+    }
+
+    private void benchmark(String format) throws Exception {
+        byte[] imageData = createImageData(format);
+
+        Measurement fullDecode = measure(imageData, new Thumbnailer() {
+            @Override
+            public BufferedImage create(InputStream in) throws IOException {
+                BufferedImage image = ImageIO.read(in);
+                int[] dims = getThumbnailDimensions(image);
+                BufferedImage thumbnail = new BufferedImage(dims[0], dims[1], ImageUtils.thumbnailType(image));
+                Graphics2D g = thumbnail.createGraphics();
+                g.drawImage(image, 0, 0, dims[0], dims[1], Color.BLACK, null);
+                g.dispose();
+                return thumbnail;
+            }
+        });
+        Measurement subsampled = measure(imageData, new Thumbnailer() {
+            @Override
+            public BufferedImage create(InputStream in) throws IOException {
+                BufferedImage image = ImageUtils.readSubsampled(in, THUMBNAIL_SIZE, Configuration.DEFAULT_ARTIFACT_THUMBNAIL_MAX_DECODE_PIXELS);
+                int[] dims = getThumbnailDimensions(image);
+                return ImageUtils.progressiveResize(image, dims[0], dims[1], ImageUtils.thumbnailType(image), Color.BLACK);
+            }
+        });
+
+        assertEquals(fullDecode.thumbnail.getWidth(), subsampled.thumbnail.getWidth());
+        assertEquals(fullDecode.thumbnail.getHeight(), subsampled.thumbnail.getHeight());
+        LOGGER.info("%-4s %d x %d (%5.1f MB): full decode %8.1fms %7.1f MB peak heap, subsampled %8.1fms %7.1f MB peak heap",
+                format, IMAGE_WIDTH, IMAGE_HEIGHT, imageData.length / (1024.0 * 1024.0),
+                fullDecode.millis, fullDecode.peakHeapBytes / (1024.0 * 1024.0),
+                subsampled.millis, subsampled.peakHeapBytes / (1024.0 * 1024.0));
+    }
+
+    private Measurement measure(byte[] imageData, Thumbnailer thumbnailer) throws IOException {
+        for (int i = 0; i < WARM_UP_ITERATIONS; i++) {
+            thumbnailer.create(new ByteArrayInputStream(imageData));
+        }
+
+        long baselineHeapBytes = resetPeakHeapUsage();
+        Measurement measurement = new Measurement();
+        long startTime = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            measurement.thumbnail = thumbnailer.create(new ByteArrayInputStream(imageData));
+        }
+        measurement.millis = (System.nanoTime() - startTime) / 1e6 / ITERATIONS;
+        measurement.peakHeapBytes = getPeakHeapUsage() - baselineHeapBytes;
+        return measurement;
+    }
+
+    private static int[] getThumbnailDimensions(BufferedImage image) {
+        return org.visallo.core.util.ImageUtils.getScaledDimension(image.getWidth(), image.getHeight(), THUMBNAIL_SIZE, THUMBNAIL_SIZE);
+    }
+
+    /**
+     * A gradient with noise, so the image compresses like a photograph rather than a flat color.
+     */
+    private static byte[] createImageData(String format) throws IOException {
+        BufferedImage image = new BufferedImage(IMAGE_WIDTH, IMAGE_HEIGHT, BufferedImage.TYPE_3BYTE_BGR);
+        Graphics2D g = image.createGraphics();
+        g.setPaint(new GradientPaint(0, 0, Color.BLUE, IMAGE_WIDTH, IMAGE_HEIGHT, Color.ORANGE));
+        g.fillRect(0, 0, IMAGE_WIDTH, IMAGE_HEIGHT);
+        g.dispose();
+        Random random = new Random(0);
+        for (int i = 0; i < IMAGE_WIDTH * IMAGE_HEIGHT / 100; i++) {
+            image.setRGB(random.nextInt(IMAGE_WIDTH), random.nextInt(IMAGE_HEIGHT), random.nextInt());
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertTrue(ImageIO.write(image, format, out));
+        return out.toByteArray();
+    }
+
+    private static long resetPeakHeapUsage() {
+        System.gc();
+        long usedBytes = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+                usedBytes += pool.getUsage().getUsed();
+            }
+        }
+        return usedBytes;
+    }
+
+    private static long getPeakHeapUsage() {
+        long usedBytes = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                usedBytes += pool.getPeakUsage().getUsed();
+            }
+        }
+        return usedBytes;
+    }
+
+    private interface Thumbnailer {
+        BufferedImage create(InputStream in) throws IOException;
+    }
+
+    private static class Measurement {
+        BufferedImage thumbnail;
+        double millis;
+        long peakHeapBytes;
+    }
+}
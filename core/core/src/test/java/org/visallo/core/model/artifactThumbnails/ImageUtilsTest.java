@@ -0,0 +1,125 @@
+package org.visallo.core.model.artifactThumbnails;
+
+import org.junit.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class ImageUtilsTest {
+    private static final long MAX_PIXELS = 1000 * 1000;
+
+    @Test
+    public void testGetSubsamplingKeepsTheOversampledSize() {
+        assertEquals(1, ImageUtils.getSubsampling(800, 600, 200, Long.MAX_VALUE));
+        assertEquals(7, ImageUtils.getSubsampling(6000, 4000, 200, Long.MAX_VALUE));
+        assertEquals(7, ImageUtils.getSubsampling(4000, 6000, 200, Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testGetSubsamplingDoesNotSubsampleImagesWithinTheBudget() {
+        assertEquals(1, ImageUtils.getSubsampling(1000, 1000, 1000, MAX_PIXELS));
+        assertEquals(1, ImageUtils.getSubsampling(1, 1, 200, MAX_PIXELS));
+        assertEquals(1, ImageUtils.getSubsampling(1, 1, 200, 1));
+        assertEquals(2, ImageUtils.getSubsampling(1001, 1000, 1000, MAX_PIXELS));
+    }
+
+    @Test
+    public void testGetSubsamplingStaysWithinThePixelBudget() {
+        int[][] dimensions = new int[][]{
+                {6000, 4000},
+                {1001, 1000},
+                {1, 10 * 1000 * 1000},
+                {10 * 1000 * 1000, 1},
+                {3, 2},
+                {100 * 1000, 100 * 1000},
+                {Integer.MAX_VALUE, Integer.MAX_VALUE},
+                {Integer.MAX_VALUE, 1}
+        };
+        long[] budgets = new long[]{1, 100, MAX_PIXELS, 24 * MAX_PIXELS};
+        int[] maxSides = new int[]{1, 200, 2000};
+        for (int[] dimension : dimensions) {
+            for (long budget : budgets) {
+                for (int maxSide : maxSides) {
+                    assertSmallestSubsamplingWithinBudget(dimension[0], dimension[1], maxSide, budget);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testProgressiveResizeProducesTheExactSize() {
+        assertResized(6000, 4000, 200, 133);
+        assertResized(1000, 10, 7, 3);
+        assertResized(1000, 100, 3, 90);
+        assertResized(201, 199, 200, 199);
+        assertResized(10, 10, 20, 20);
+        assertResized(1, 1000, 1, 1);
+    }
+
+    @Test
+    public void testReadSubsampledDoesNotSubsampleImagesUnderTheBudget() throws IOException {
+        BufferedImage image = ImageUtils.readSubsampled(new ByteArrayInputStream(createImageData(300, 200)), 200, MAX_PIXELS);
+        assertEquals(300, image.getWidth());
+        assertEquals(200, image.getHeight());
+    }
+
+    @Test
+    public void testReadSubsampledSubsamplesLargeImages() throws IOException {
+        BufferedImage image = ImageUtils.readSubsampled(new ByteArrayInputStream(createImageData(2000, 100)), 100, MAX_PIXELS);
+        assertEquals(400, image.getWidth());
+        assertEquals(20, image.getHeight());
+
+        image = ImageUtils.readSubsampled(new ByteArrayInputStream(createImageData(1000, 1000)), 1000, 100 * 100);
+        assertEquals(100, image.getWidth());
+        assertEquals(100, image.getHeight());
+
+        image = ImageUtils.readSubsampled(new ByteArrayInputStream(createImageData(1001, 1000)), 1000, MAX_PIXELS);
+        assertTrue((long) image.getWidth() * image.getHeight() <= MAX_PIXELS);
+        assertEquals(501, image.getWidth());
+        assertEquals(500, image.getHeight());
+    }
+
+    @Test
+    public void testReadSubsampledReturnsNullForUnsupportedData() throws IOException {
+        assertNull(ImageUtils.readSubsampled(new ByteArrayInputStream("not an image".getBytes()), 200, MAX_PIXELS));
+    }
+
+    private static void assertSmallestSubsamplingWithinBudget(int width, int height, int maxSide, long maxPixels) {
+        String message = width + " x " + height + ", max side " + maxSide + ", max pixels " + maxPixels;
+        int subsampling = ImageUtils.getSubsampling(width, height, maxSide, maxPixels);
+        assertTrue(message, subsampling >= 1);
+        assertTrue(message, ImageUtils.getSubsampledPixels(width, height, subsampling) <= maxPixels);
+        int oversampledSubsampling = (int) Math.max(1, Math.max(width, height) / (maxSide * 4L));
+        if (subsampling > oversampledSubsampling) {
+            assertTrue(message, ImageUtils.getSubsampledPixels(width, height, subsampling - 1) > maxPixels);
+        } else {
+            assertEquals(message, oversampledSubsampling, subsampling);
+        }
+    }
+
+    private static void assertResized(int sourceWidth, int sourceHeight, int width, int height) {
+        BufferedImage source = new BufferedImage(sourceWidth, sourceHeight, BufferedImage.TYPE_3BYTE_BGR);
+        BufferedImage result = ImageUtils.progressiveResize(source, width, height, BufferedImage.TYPE_3BYTE_BGR, Color.BLACK);
+        assertEquals(width, result.getWidth());
+        assertEquals(height, result.getHeight());
+        assertEquals(BufferedImage.TYPE_3BYTE_BGR, result.getType());
+    }
+
+    private static byte[] createImageData(int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        Graphics2D g = image.createGraphics();
+        g.setPaint(new GradientPaint(0, 0, Color.BLUE, width, height, Color.ORANGE));
+        g.fillRect(0, 0, width, height);
+        g.dispose();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertTrue(ImageIO.write(image, "png", out));
+        return out.toByteArray();
+    }
+}
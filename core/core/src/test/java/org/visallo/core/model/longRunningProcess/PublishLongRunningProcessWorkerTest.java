@@ -0,0 +1,163 @@
+package org.visallo.core.model.longRunningProcess;
+
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+import org.vertexium.Authorizations;
+import org.vertexium.Graph;
+import org.vertexium.inmemory.InMemoryAuthorizations;
+import org.visallo.core.model.workspace.WorkspaceRepository;
+import org.visallo.web.clientapi.model.ClientApiPropertyPublishItem;
+import org.visallo.web.clientapi.model.ClientApiPublishItem;
+import org.visallo.web.clientapi.model.ClientApiWorkspacePublishResponse;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyDouble;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class PublishLongRunningProcessWorkerTest {
+    private static final String WORKSPACE_ID = "WORKSPACE_1";
+    private PublishLongRunningProcessWorker worker;
+
+    @Mock
+    private Graph graph;
+    @Mock
+    private WorkspaceRepository workspaceRepository;
+    @Mock
+    private LongRunningProcessRepository longRunningProcessRepository;
+
+    @Before
+    public void before() {
+        when(graph.createAuthorizations(any(String[].class))).thenAnswer(new Answer<Authorizations>() {
+            @Override
+            public Authorizations answer(InvocationOnMock invocation) throws Throwable {
+                return new InMemoryAuthorizations((String[]) invocation.getArguments()[0]);
+            }
+        });
+        worker = new PublishLongRunningProcessWorker();
+        worker.setGraph(graph);
+        worker.setWorkspaceRepository(workspaceRepository);
+        worker.setLongRunningProcessRepository(longRunningProcessRepository);
+    }
+
+    @Test
+    public void testIsHandled() {
+        assertTrue(worker.isHandled(createQueueItem(createPublishItem("key1"))));
+        assertFalse(worker.isHandled(new JSONObject("{\"type\":\"findPath\"}")));
+    }
+
+    @Test
+    public void testPublishesTheItemsAndPutsTheResultsOnTheQueueItem() {
+        final ClientApiWorkspacePublishResponse publishResponse = new ClientApiWorkspacePublishResponse();
+        ClientApiPropertyPublishItem failure = createPublishItem("key2");
+        failure.setErrorMessage("could not publish");
+        publishResponse.addFailure(failure);
+        when(workspaceRepository.publish(
+                any(ClientApiPublishItem[].class),
+                eq(WORKSPACE_ID),
+                any(WorkspaceRepository.PublishProgressCallback.class),
+                any(Authorizations.class)
+        )).thenReturn(publishResponse);
+
+        JSONObject queueItem = createQueueItem(createPublishItem("key1"), createPublishItem("key2"));
+        worker.processInternal(queueItem);
+
+        ArgumentCaptor<ClientApiPublishItem[]> publishDataCaptor = ArgumentCaptor.forClass(ClientApiPublishItem[].class);
+        ArgumentCaptor<Authorizations> authorizationsCaptor = ArgumentCaptor.forClass(Authorizations.class);
+        verify(workspaceRepository).publish(
+                publishDataCaptor.capture(),
+                eq(WORKSPACE_ID),
+                any(WorkspaceRepository.PublishProgressCallback.class),
+                authorizationsCaptor.capture()
+        );
+        assertEquals(2, publishDataCaptor.getValue().length);
+        assertEquals("key2", ((ClientApiPropertyPublishItem) publishDataCaptor.getValue()[1]).getKey());
+        assertEquals(Arrays.asList(WORKSPACE_ID), Arrays.asList(authorizationsCaptor.getValue().getAuthorizations()));
+
+        assertEquals(1, queueItem.getInt("resultsCount"));
+        JSONObject failureJson = queueItem.getJSONObject("results").getJSONArray("failures").getJSONObject(0);
+        assertEquals("key2", failureJson.getString("key"));
+        assertEquals("could not publish", failureJson.getString("errorMessage"));
+    }
+
+    @Test
+    public void testProgressIsReportedInSteps() {
+        final int totalCount = 40;
+        when(workspaceRepository.publish(
+                any(ClientApiPublishItem[].class),
+                eq(WORKSPACE_ID),
+                any(WorkspaceRepository.PublishProgressCallback.class),
+                any(Authorizations.class)
+        )).thenAnswer(new Answer<ClientApiWorkspacePublishResponse>() {
+            @Override
+            public ClientApiWorkspacePublishResponse answer(InvocationOnMock invocation) throws Throwable {
+                WorkspaceRepository.PublishProgressCallback callback = (WorkspaceRepository.PublishProgressCallback) invocation.getArguments()[2];
+                for (int i = 1; i <= totalCount; i++) {
+                    callback.progress(i, totalCount);
+                }
+                return new ClientApiWorkspacePublishResponse();
+            }
+        });
+
+        JSONObject queueItem = createQueueItem(createPublishItem("key1"));
+        worker.processInternal(queueItem);
+
+        ArgumentCaptor<Double> progressCaptor = ArgumentCaptor.forClass(Double.class);
+        ArgumentCaptor<String> messageCaptor = ArgumentCaptor.forClass(String.class);
+        verify(longRunningProcessRepository, times(20)).reportProgress(eq(queueItem), progressCaptor.capture(), messageCaptor.capture());
+        List<Double> progress = progressCaptor.getAllValues();
+        assertEquals(0.05, progress.get(0), 0.0001);
+        assertEquals(1.0, progress.get(progress.size() - 1), 0.0001);
+        assertEquals("Published 2 of 40 changes", messageCaptor.getAllValues().get(0));
+        assertEquals("Published 40 of 40 changes", messageCaptor.getAllValues().get(19));
+        assertEquals(0, queueItem.getInt("resultsCount"));
+    }
+
+    @Test
+    public void testNoProgressIsReportedBelowTheStep() {
+        when(workspaceRepository.publish(
+                any(ClientApiPublishItem[].class),
+                eq(WORKSPACE_ID),
+                any(WorkspaceRepository.PublishProgressCallback.class),
+                any(Authorizations.class)
+        )).thenAnswer(new Answer<ClientApiWorkspacePublishResponse>() {
+            @Override
+            public ClientApiWorkspacePublishResponse answer(InvocationOnMock invocation) throws Throwable {
+                WorkspaceRepository.PublishProgressCallback callback = (WorkspaceRepository.PublishProgressCallback) invocation.getArguments()[2];
+                callback.progress(1, 1000);
+                callback.progress(49, 1000);
+                return new ClientApiWorkspacePublishResponse();
+            }
+        });
+
+        worker.processInternal(createQueueItem(createPublishItem("key1")));
+
+        verify(longRunningProcessRepository, never()).reportProgress(any(JSONObject.class), anyDouble(), anyString());
+    }
+
+    private static JSONObject createQueueItem(ClientApiPublishItem... publishData) {
+        return new PublishLongRunningProcessQueueItem(publishData, WORKSPACE_ID, new InMemoryAuthorizations(WORKSPACE_ID)).toJson();
+    }
+
+    private static ClientApiPropertyPublishItem createPublishItem(String key) {
+        ClientApiPropertyPublishItem publishItem = new ClientApiPropertyPublishItem();
+        publishItem.setAction(ClientApiPublishItem.Action.addOrUpdate);
+        publishItem.setKey(key);
+        publishItem.setName("prop1");
+        publishItem.setVertexId("v1");
+        return publishItem;
+    }
+}
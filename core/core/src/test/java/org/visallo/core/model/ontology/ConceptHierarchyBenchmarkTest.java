@@ -0,0 +1,95 @@
+package org.visallo.core.model.ontology;
+
+import org.junit.Test;
+import org.visallo.core.util.VisalloLogger;
+import org.visallo.core.util.VisalloLoggerFactory;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares resolving "concept and all children" on a 2,000 concept ontology by walking the hierarchy, the way
+ * {@link OntologyRepositoryBase#getConceptAndAllChildren(Concept)} does, with a {@link ConceptHierarchy} lookup.
+ * The walk here finds children in memory, in the graph backed repository each step is also a graph read.
+ */
+public class ConceptHierarchyBenchmarkTest {
+    private static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(ConceptHierarchyBenchmarkTest.class);
+    private static final int CONCEPT_COUNT = 2000;
+    private static final int CHILDREN_PER_CONCEPT = 5;
+    private static final int WARM_UP_LOOKUPS = 2000;
+    private static final int LOOKUPS = 20000;
+
+    @Test
+    public void benchmark() {
+        final Map<String, String> parentIrisByIri = new LinkedHashMap<>();
+        for (int i = 0; i < CONCEPT_COUNT; i++) {
+            parentIrisByIri.put(iri(i), i == 0 ? null : iri((i - 1) / CHILDREN_PER_CONCEPT));
+        }
+        final List<String> conceptIris = new ArrayList<>(parentIrisByIri.keySet());
+
+        Lookup walk = new Lookup() {
+            @Override
+            public Set<String> getConceptAndAllChildrenIris(String conceptIri) {
+                // the concept lookup by IRI was a scan of all concepts too
+                if (!conceptIris.contains(conceptIri)) {
+                    return null;
+                }
+                Set<String> result = new HashSet<>();
+                addConceptAndAllChildren(conceptIri, result);
+                return result;
+            }
+
+            private void addConceptAndAllChildren(String conceptIri, Set<String> result) {
+                result.add(conceptIri);
+                for (Map.Entry<String, String> entry : parentIrisByIri.entrySet()) {
+                    if (conceptIri.equals(entry.getValue())) {
+                        addConceptAndAllChildren(entry.getKey(), result);
+                    }
+                }
+            }
+        };
+
+        long startTime = System.nanoTime();
+        final ConceptHierarchy conceptHierarchy = new ConceptHierarchy(parentIrisByIri);
+        long buildNanos = System.nanoTime() - startTime;
+        Lookup closure = new Lookup() {
+            @Override
+            public Set<String> getConceptAndAllChildrenIris(String conceptIri) {
+                return conceptHierarchy.getConceptAndAllChildrenIris(conceptIri);
+            }
+        };
+
+        assertEquals(walk.getConceptAndAllChildrenIris(iri(1)), closure.getConceptAndAllChildrenIris(iri(1)));
+        run(walk, conceptIris, WARM_UP_LOOKUPS / 100);
+        run(closure, conceptIris, WARM_UP_LOOKUPS);
+        double walkNanos = run(walk, conceptIris, LOOKUPS / 100);
+        double closureNanos = run(closure, conceptIris, LOOKUPS);
+
+        LOGGER.info("concepts: %d, closure built in %dms", CONCEPT_COUNT, buildNanos / 1000000);
+        LOGGER.info("walk:    %10.0f ns/lookup", walkNanos);
+        LOGGER.info("closure: %10.0f ns/lookup", closureNanos);
+    }
+
+    private double run(Lookup lookup, List<String> conceptIris, int count) {
+        Random random = new Random(1);
+        long startTime = System.nanoTime();
+        long total = 0;
+        for (int i = 0; i < count; i++) {
+            // mostly concepts near the top of the hierarchy, like search filters on entity types
+            String conceptIri = conceptIris.get(random.nextInt(1 + CHILDREN_PER_CONCEPT * CHILDREN_PER_CONCEPT));
+            total += lookup.getConceptAndAllChildrenIris(conceptIri).size();
+        }
+        long nanos = System.nanoTime() - startTime;
+        LOGGER.debug("total concepts: %d", total);
+        return (double) nanos / count;
+    }
+
+    private static String iri(int i) {
+        return "http://example.org/ontology#concept" + i;
+    }
+
+    private interface Lookup {
+        Set<String> getConceptAndAllChildrenIris(String conceptIri);
+    }
+}
@@ -0,0 +1,58 @@
+package org.visallo.core.model.ontology;
+
+import com.google.common.collect.ImmutableSet;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ConceptHierarchyTest {
+    private ConceptHierarchy conceptHierarchy;
+
+    @Before
+    public void before() {
+        Map<String, String> parentIrisByIri = new LinkedHashMap<>();
+        parentIrisByIri.put("person", "thing");
+        parentIrisByIri.put("root", null);
+        parentIrisByIri.put("thing", "root");
+        parentIrisByIri.put("employee", "person");
+        parentIrisByIri.put("place", "thing");
+        conceptHierarchy = new ConceptHierarchy(parentIrisByIri);
+    }
+
+    @Test
+    public void testGetConceptAndAllChildrenIris() {
+        assertEquals(ImmutableSet.of("root", "thing", "person", "employee", "place"), conceptHierarchy.getConceptAndAllChildrenIris("root"));
+        assertEquals(ImmutableSet.of("person", "employee"), conceptHierarchy.getConceptAndAllChildrenIris("person"));
+        assertEquals(ImmutableSet.of("place"), conceptHierarchy.getConceptAndAllChildrenIris("place"));
+        assertNull(conceptHierarchy.getConceptAndAllChildrenIris("missing"));
+    }
+
+    @Test
+    public void testGetConceptAndAllAncestorIris() {
+        assertEquals(Arrays.asList("employee", "person", "thing", "root"), conceptHierarchy.getConceptAndAllAncestorIris("employee"));
+        assertEquals(Arrays.asList("root"), conceptHierarchy.getConceptAndAllAncestorIris("root"));
+        assertNull(conceptHierarchy.getConceptAndAllAncestorIris("missing"));
+    }
+
+    @Test
+    public void testIsConceptOrChildOf() {
+        assertTrue(conceptHierarchy.isConceptOrChildOf("employee", "thing"));
+        assertTrue(conceptHierarchy.isConceptOrChildOf("person", "person"));
+        assertFalse(conceptHierarchy.isConceptOrChildOf("person", "employee"));
+        assertFalse(conceptHierarchy.isConceptOrChildOf("place", "person"));
+    }
+
+    @Test
+    public void testCycleDoesNotLoop() {
+        Map<String, String> parentIrisByIri = new LinkedHashMap<>();
+        parentIrisByIri.put("a", "b");
+        parentIrisByIri.put("b", "a");
+        ConceptHierarchy cyclic = new ConceptHierarchy(parentIrisByIri);
+        assertEquals(ImmutableSet.of("a", "b"), cyclic.getConceptAndAllChildrenIris("a"));
+    }
+}
@@ -1,5 +1,6 @@
 package org.visallo.core.model.termMention;
 
+import com.google.common.collect.Sets;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -10,15 +11,23 @@ import org.vertexium.Edge;
 import org.vertexium.Vertex;
 import org.vertexium.Visibility;
 import org.vertexium.inmemory.InMemoryGraph;
+import org.vertexium.mutation.ExistingElementMutation;
 import org.visallo.core.model.properties.VisalloProperties;
 import org.visallo.core.model.user.AuthorizationRepository;
+import org.visallo.core.security.DirectVisibilityTranslator;
 import org.visallo.web.clientapi.model.VisibilityJson;
 
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 
 @RunWith(MockitoJUnitRunner.class)
 public class TermMentionRepositoryTest {
     private static final String WORKSPACE_ID = "WORKSPACE_1234";
+    private static final String PERSON_IRI = "http://visallo.org/test/person";
     private InMemoryGraph graph;
     private Visibility visibility;
     private Visibility termMentionVisibility;
@@ -59,4 +68,149 @@ public class TermMentionRepositoryTest {
         assertNull("term mention to v2 should not exist", graph.getEdge("c1tm1_to_v2", authorizations));
         assertNull("v1 to term mention should not exist", graph.getEdge("v1_to_c1tm1", authorizations));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testFindBySourceGraphVertexAndPropertyKeyUsesOffsetIndex() {
+        Vertex v1 = graph.addVertex("v1", visibility, authorizations);
+        Vertex k1tm2 = createTermMention(v1, "k1", 10, 15);
+        Vertex k1tm1 = createTermMention(v1, "k1", 0, 5);
+        createTermMention(v1, "k2", 0, 5);
+        graph.flush();
+
+        v1 = graph.getVertex("v1", authorizations);
+        List<TermMentionOffsetIndexEntry> entries = termMentionRepository.findOffsetIndexEntries(v1, "k1");
+        assertEquals(2, entries.size());
+        assertEquals(k1tm1.getId(), entries.get(0).getTermMentionId());
+        assertEquals(k1tm2.getId(), entries.get(1).getTermMentionId());
+        assertEquals(10, entries.get(1).getStart());
+        assertEquals(15, entries.get(1).getEnd());
+        assertEquals(PERSON_IRI, entries.get(1).getConceptIri());
+
+        Set<String> termMentionIds = new HashSet<>();
+        for (Vertex termMention : termMentionRepository.findBySourceGraphVertexAndPropertyKey("v1", "k1", authorizations)) {
+            termMentionIds.add(termMention.getId());
+        }
+        assertEquals(Sets.newHashSet(k1tm1.getId(), k1tm2.getId()), termMentionIds);
+
+        termMentionRepository.delete(k1tm1, authorizations);
+        graph.flush();
+
+        v1 = graph.getVertex("v1", authorizations);
+        entries = termMentionRepository.findOffsetIndexEntries(v1, "k1");
+        assertEquals(1, entries.size());
+        assertEquals(k1tm2.getId(), entries.get(0).getTermMentionId());
+    }
+
+    @Test
+    public void testTermMentionBatch() {
+        Vertex v1 = graph.addVertex("v1", visibility, authorizations);
+        TermMentionBatch termMentionBatch = new TermMentionBatch(v1, "k1");
+        for (int i = 0; i < 3; i++) {
+            termMentionBatch.add()
+                    .conceptIri(PERSON_IRI)
+                    .start(i * 10)
+                    .end(i * 10 + 5)
+                    .title("joe")
+                    .visibilityJson("")
+                    .process(getClass().getSimpleName());
+        }
+        List<Vertex> termMentions = termMentionBatch.save(graph, new DirectVisibilityTranslator(), authorizations);
+        assertEquals(3, termMentions.size());
+
+        v1 = graph.getVertex("v1", authorizations);
+        List<TermMentionOffsetIndexEntry> entries = termMentionRepository.findOffsetIndexEntries(v1, "k1");
+        assertEquals(3, entries.size());
+        Set<String> termMentionIds = new HashSet<>();
+        for (Vertex termMention : termMentionRepository.findBySourceGraphVertexAndPropertyKey("v1", "k1", authorizations)) {
+            termMentionIds.add(termMention.getId());
+        }
+        assertEquals(Sets.newHashSet(termMentions.get(0).getId(), termMentions.get(1).getId(), termMentions.get(2).getId()), termMentionIds);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(termMentions.get(i).getId(), entries.get(i).getTermMentionId());
+            assertEquals(i * 10, entries.get(i).getStart());
+        }
+    }
+
+    @Test
+    public void testFindBySourceGraphVertexAndPropertyKeyWithoutOffsetIndex() {
+        Vertex v1 = graph.addVertex("v1", visibility, authorizations);
+        Vertex k1tm1 = createLegacyTermMention(v1, "k1", 0, 5);
+        Vertex k1tm2 = createLegacyTermMention(v1, "k1", 10, 15);
+        createLegacyTermMention(v1, "k2", 0, 5);
+        graph.flush();
+
+        assertEquals(0, termMentionRepository.findOffsetIndexEntries(graph.getVertex("v1", authorizations), "k1").size());
+        assertEquals(Sets.newHashSet(k1tm1.getId(), k1tm2.getId()), findTermMentionIds("v1", "k1"));
+    }
+
+    @Test
+    public void testFindBySourceGraphVertexAndPropertyKeyWithIndexedAndUnindexedTermMentions() {
+        Vertex v1 = graph.addVertex("v1", visibility, authorizations);
+        Vertex legacyK1 = createLegacyTermMention(v1, "k1", 0, 5);
+        createLegacyTermMention(v1, "k2", 0, 5);
+        v1 = graph.getVertex("v1", authorizations);
+        Vertex indexedK1 = createTermMention(v1, "k1", 10, 15);
+        Vertex indexedK2 = createTermMention(v1, "k2", 10, 15);
+        graph.flush();
+
+        assertEquals(Sets.newHashSet(legacyK1.getId(), indexedK1.getId()), findTermMentionIds("v1", "k1"));
+
+        termMentionRepository.delete(legacyK1, authorizations);
+        termMentionRepository.delete(indexedK2, authorizations);
+        graph.flush();
+
+        assertEquals(Sets.newHashSet(indexedK1.getId()), findTermMentionIds("v1", "k1"));
+    }
+
+    @Test
+    public void testSaveWithSourceVertexMutation() {
+        Vertex v1 = graph.addVertex("v1", visibility, authorizations);
+        ExistingElementMutation<Vertex> sourceVertexMutation = v1.prepareMutation();
+        Vertex tm1 = createTermMentionBuilder(v1, "k1", 0, 5).save(graph, new DirectVisibilityTranslator(), sourceVertexMutation, authorizations);
+        Vertex tm2 = createTermMentionBuilder(v1, "k1", 10, 15).save(graph, new DirectVisibilityTranslator(), sourceVertexMutation, authorizations);
+        graph.flush();
+        assertEquals(0, termMentionRepository.findOffsetIndexEntries(graph.getVertex("v1", authorizations), "k1").size());
+
+        sourceVertexMutation.save(authorizations);
+        graph.flush();
+
+        List<TermMentionOffsetIndexEntry> entries = termMentionRepository.findOffsetIndexEntries(graph.getVertex("v1", authorizations), "k1");
+        assertEquals(2, entries.size());
+        assertEquals(tm1.getId(), entries.get(0).getTermMentionId());
+        assertEquals(tm2.getId(), entries.get(1).getTermMentionId());
+    }
+
+    private Set<String> findTermMentionIds(String sourceVertexId, String propertyKey) {
+        Set<String> termMentionIds = new HashSet<>();
+        for (Vertex termMention : termMentionRepository.findBySourceGraphVertexAndPropertyKey(sourceVertexId, propertyKey, authorizations)) {
+            termMentionIds.add(termMention.getId());
+        }
+        return termMentionIds;
+    }
+
+    /**
+     * Creates a term mention like one saved before the offset index existed.
+     */
+    private Vertex createLegacyTermMention(Vertex sourceVertex, String propertyKey, long start, long end) {
+        Vertex termMention = createTermMention(sourceVertex, propertyKey, start, end);
+        VisalloProperties.TERM_MENTION_OFFSET_INDEX.removeProperty(graph.getVertex(sourceVertex.getId(), authorizations), termMention.getId(), authorizations);
+        return termMention;
+    }
+
+    private Vertex createTermMention(Vertex sourceVertex, String propertyKey, long start, long end) {
+        return createTermMentionBuilder(sourceVertex, propertyKey, start, end)
+                .save(graph, new DirectVisibilityTranslator(), authorizations);
+    }
+
+    private TermMentionBuilder createTermMentionBuilder(Vertex sourceVertex, String propertyKey, long start, long end) {
+        return new TermMentionBuilder()
+                .sourceVertex(sourceVertex)
+                .propertyKey(propertyKey)
+                .conceptIri(PERSON_IRI)
+                .start(start)
+                .end(end)
+                .title("joe")
+                .visibilityJson("")
+                .process(getClass().getSimpleName());
+    }
+}
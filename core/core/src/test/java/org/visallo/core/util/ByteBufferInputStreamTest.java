@@ -0,0 +1,42 @@
+package org.visallo.core.util;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class ByteBufferInputStreamTest {
+    @Test
+    public void testReads() throws IOException {
+        byte[] data = new byte[]{0, 1, (byte) 0xff, 3, 4};
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        ByteBufferInputStream in = new ByteBufferInputStream(buffer.duplicate());
+
+        assertEquals(0, in.read());
+        assertEquals(1, in.read());
+        assertEquals(0xff, in.read());
+        assertEquals(2, in.available());
+
+        byte[] temp = new byte[10];
+        assertEquals(2, in.read(temp, 0, 10));
+        assertArrayEquals(new byte[]{3, 4}, Arrays.copyOfRange(temp, 0, 2));
+        assertEquals(-1, in.read());
+        assertEquals(-1, in.read(temp, 0, 10));
+    }
+
+    @Test
+    public void testDuplicatesAreIndependent() throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(new byte[]{10, 11, 12});
+        ByteBufferInputStream in1 = new ByteBufferInputStream(buffer.duplicate());
+        ByteBufferInputStream in2 = new ByteBufferInputStream(buffer.duplicate());
+
+        assertEquals(2, in1.skip(2));
+        assertEquals(12, in1.read());
+        assertEquals(10, in2.read());
+        assertEquals(3, buffer.remaining());
+    }
+}
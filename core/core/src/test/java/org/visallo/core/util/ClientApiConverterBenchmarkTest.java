@@ -0,0 +1,155 @@
+package org.visallo.core.util;
+
+import org.junit.Test;
+import org.vertexium.*;
+import org.vertexium.inmemory.InMemoryGraph;
+import org.vertexium.util.IterableUtils;
+import org.visallo.core.model.properties.VisalloProperties;
+import org.visallo.web.clientapi.model.ClientApiVertex;
+import org.visallo.web.clientapi.model.SandboxStatus;
+import org.visallo.web.clientapi.model.VisibilityJson;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares the property sandbox status calculation with the previous pairwise implementation, and serial vertex
+ * conversion with {@link ClientApiConverter#toClientApiVerticesInBatches(Iterable, String, Authorizations)}, for
+ * vertices with 10, 100 and 1,000 properties.
+ */
+public class ClientApiConverterBenchmarkTest {
+    private static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(ClientApiConverterBenchmarkTest.class);
+    private static final String WORKSPACE_ID = "WORKSPACE_1234";
+    private static final String PROPERTY_NAME = "http://visallo.org/test#name";
+    private static final int VERTEX_COUNT = 200;
+    private static final int WARM_UP_ITERATIONS = 2;
+    private static final int ITERATIONS = 5;
+
+    @Test
+    public void benchmark10Properties() {
+        benchmark(10);
+    }
+
+    @Test
+    public void benchmark100Properties() {
+        benchmark(100);
+    }
+
+    @Test
+    public void benchmark1000Properties() {
+        benchmark(1000);
+    }
+
+    private void benchmark(int propertyCount) {
+        InMemoryGraph graph = InMemoryGraph.create();
+        final Authorizations authorizations = graph.createAuthorizations(WORKSPACE_ID);
+        final List<Vertex> vertices = createVertices(graph, propertyCount, authorizations);
+
+        final List<Property> properties = IterableUtils.toList(vertices.get(0).getProperties());
+        assertArrayEquals(
+                getPairwisePropertySandboxStatuses(properties, WORKSPACE_ID),
+                SandboxStatusUtil.getPropertySandboxStatuses(properties, WORKSPACE_ID)
+        );
+        double pairwiseMillis = measure(new Runnable() {
+            @Override
+            public void run() {
+                getPairwisePropertySandboxStatuses(properties, WORKSPACE_ID);
+            }
+        });
+        double linearMillis = measure(new Runnable() {
+            @Override
+            public void run() {
+                SandboxStatusUtil.getPropertySandboxStatuses(properties, WORKSPACE_ID);
+            }
+        });
+
+        double serialMillis = measure(new Runnable() {
+            @Override
+            public void run() {
+                List<ClientApiVertex> results = new ArrayList<>();
+                for (Vertex vertex : vertices) {
+                    results.add(ClientApiConverter.toClientApiVertex(vertex, WORKSPACE_ID, authorizations));
+                }
+                assertEquals(VERTEX_COUNT, results.size());
+            }
+        });
+        double batchedMillis = measure(new Runnable() {
+            @Override
+            public void run() {
+                assertEquals(VERTEX_COUNT, ClientApiConverter.toClientApiVertices(vertices, WORKSPACE_ID, authorizations).size());
+            }
+        });
+
+        LOGGER.info("%4d properties: sandbox status pairwise %8.3fms, linear %8.3fms (%.1fx); %d vertices serial %8.1fms, batched %8.1fms (%.1fx)",
+                propertyCount, pairwiseMillis, linearMillis, pairwiseMillis / linearMillis,
+                VERTEX_COUNT, serialMillis, batchedMillis, serialMillis / batchedMillis);
+    }
+
+    private double measure(Runnable runnable) {
+        for (int i = 0; i < WARM_UP_ITERATIONS; i++) {
+            runnable.run();
+        }
+        long startTime = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            runnable.run();
+        }
+        return (System.nanoTime() - startTime) / 1e6 / ITERATIONS;
+    }
+
+    /**
+     * Half of the properties are public and half are private to the workspace, every other private property has a
+     * public property with the same key.
+     */
+    private List<Vertex> createVertices(Graph graph, int propertyCount, Authorizations authorizations) {
+        Visibility publicVisibility = new Visibility("");
+        Visibility workspaceVisibility = new Visibility(WORKSPACE_ID);
+        VisibilityJson workspaceVisibilityJson = new VisibilityJson();
+        workspaceVisibilityJson.addWorkspace(WORKSPACE_ID);
+
+        List<Vertex> vertices = new ArrayList<>(VERTEX_COUNT);
+        for (int v = 0; v < VERTEX_COUNT; v++) {
+            VertexBuilder vertexBuilder = graph.prepareVertex("v" + v, publicVisibility);
+            for (int i = 0; i < propertyCount / 2; i++) {
+                vertexBuilder.addPropertyValue("k" + i, PROPERTY_NAME, "public " + i, publicVisibility);
+                Metadata metadata = new Metadata();
+                VisalloProperties.VISIBILITY_JSON_METADATA.setMetadata(metadata, workspaceVisibilityJson, publicVisibility);
+                String privateKey = i % 2 == 0 ? "k" + i : "private" + i;
+                vertexBuilder.addPropertyValue(privateKey, PROPERTY_NAME, "private " + i, metadata, workspaceVisibility);
+            }
+            vertices.add(vertexBuilder.save(authorizations));
+        }
+        graph.flush();
+        return vertices;
+    }
+
+    /**
+     * The implementation {@link SandboxStatusUtil#getPropertySandboxStatuses(List, String)} replaced, which compares
+     * every private property with every other property.
+     */
+    private static SandboxStatus[] getPairwisePropertySandboxStatuses(List<Property> properties, String workspaceId) {
+        SandboxStatus[] sandboxStatuses = new SandboxStatus[properties.size()];
+        for (int i = 0; i < properties.size(); i++) {
+            VisibilityJson visibilityJson = VisalloProperties.VISIBILITY_JSON_METADATA.getMetadataValue(properties.get(i).getMetadata());
+            sandboxStatuses[i] = SandboxStatus.getFromVisibilityJsonString(visibilityJson, workspaceId);
+        }
+        for (int i = 0; i < properties.size(); i++) {
+            Property property = properties.get(i);
+            if (sandboxStatuses[i] != SandboxStatus.PRIVATE) {
+                continue;
+            }
+            for (int j = 0; j < properties.size(); j++) {
+                Property p = properties.get(j);
+                if (i != j
+                        && sandboxStatuses[j] == SandboxStatus.PUBLIC
+                        && property.getKey().equals(p.getKey())
+                        && property.getName().equals(p.getName())) {
+                    sandboxStatuses[i] = SandboxStatus.PUBLIC_CHANGED;
+                }
+            }
+        }
+        return sandboxStatuses;
+    }
+}
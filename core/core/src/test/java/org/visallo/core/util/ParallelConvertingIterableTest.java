@@ -0,0 +1,57 @@
+package org.visallo.core.util;
+
+import com.google.common.base.Function;
+import org.junit.Test;
+import org.vertexium.util.IterableUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class ParallelConvertingIterableTest {
+    private static final Function<Integer, String> TO_STRING = new Function<Integer, String>() {
+        @Override
+        public String apply(Integer input) {
+            return Integer.toString(input);
+        }
+    };
+
+    @Test
+    public void testResultsAreInSourceOrder() {
+        List<Integer> source = createSource(1234);
+        List<String> results = IterableUtils.toList(new ParallelConvertingIterable<>(source, TO_STRING));
+        assertEquals(source.size(), results.size());
+        for (int i = 0; i < source.size(); i++) {
+            assertEquals(Integer.toString(i), results.get(i));
+        }
+    }
+
+    @Test
+    public void testEmptyAndSmallSources() {
+        assertEquals(0, IterableUtils.count(new ParallelConvertingIterable<>(new ArrayList<Integer>(), TO_STRING)));
+        assertEquals(3, IterableUtils.count(new ParallelConvertingIterable<>(createSource(3), TO_STRING)));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testConverterExceptionIsRethrown() {
+        Function<Integer, String> failing = new Function<Integer, String>() {
+            @Override
+            public String apply(Integer input) {
+                if (input == 500) {
+                    throw new IllegalStateException("bad item");
+                }
+                return Integer.toString(input);
+            }
+        };
+        IterableUtils.toList(new ParallelConvertingIterable<>(createSource(1000), failing));
+    }
+
+    private static List<Integer> createSource(int count) {
+        List<Integer> source = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            source.add(i);
+        }
+        return source;
+    }
+}
@@ -0,0 +1,65 @@
+package org.visallo.core.util;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.vertexium.*;
+import org.vertexium.inmemory.InMemoryGraph;
+import org.visallo.core.model.properties.VisalloProperties;
+import org.visallo.web.clientapi.model.SandboxStatus;
+import org.visallo.web.clientapi.model.VisibilityJson;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class SandboxStatusUtilTest {
+    private static final String WORKSPACE_ID = "WORKSPACE_1234";
+    private static final String PROPERTY_NAME = "http://visallo.org/test#name";
+    private InMemoryGraph graph;
+    private Authorizations authorizations;
+    private Visibility publicVisibility;
+    private Visibility workspaceVisibility;
+
+    @Before
+    public void setUp() {
+        graph = InMemoryGraph.create();
+        authorizations = graph.createAuthorizations(WORKSPACE_ID);
+        publicVisibility = new Visibility("");
+        workspaceVisibility = new Visibility(WORKSPACE_ID);
+    }
+
+    @Test
+    public void testGetPropertySandboxStatuses() {
+        VisibilityJson workspaceVisibilityJson = new VisibilityJson();
+        workspaceVisibilityJson.addWorkspace(WORKSPACE_ID);
+
+        VertexBuilder vertexBuilder = graph.prepareVertex("v1", publicVisibility);
+        vertexBuilder.addPropertyValue("k1", PROPERTY_NAME, "public", publicVisibility);
+        vertexBuilder.addPropertyValue("k1", PROPERTY_NAME, "changed", createMetadata(workspaceVisibilityJson), workspaceVisibility);
+        vertexBuilder.addPropertyValue("k2", PROPERTY_NAME, "private", createMetadata(workspaceVisibilityJson), workspaceVisibility);
+        Vertex v1 = vertexBuilder.save(authorizations);
+        graph.flush();
+
+        List<Property> properties = new ArrayList<>();
+        properties.add(v1.getProperty("k1", PROPERTY_NAME, publicVisibility));
+        properties.add(v1.getProperty("k1", PROPERTY_NAME, workspaceVisibility));
+        properties.add(v1.getProperty("k2", PROPERTY_NAME, workspaceVisibility));
+
+        SandboxStatus[] sandboxStatuses = SandboxStatusUtil.getPropertySandboxStatuses(properties, WORKSPACE_ID);
+        assertEquals(SandboxStatus.PUBLIC, sandboxStatuses[0]);
+        assertEquals(SandboxStatus.PUBLIC_CHANGED, sandboxStatuses[1]);
+        assertEquals(SandboxStatus.PRIVATE, sandboxStatuses[2]);
+
+        sandboxStatuses = SandboxStatusUtil.getPropertySandboxStatuses(properties, "OTHER_WORKSPACE");
+        assertEquals(SandboxStatus.PUBLIC, sandboxStatuses[0]);
+        assertEquals(SandboxStatus.PUBLIC, sandboxStatuses[1]);
+        assertEquals(SandboxStatus.PUBLIC, sandboxStatuses[2]);
+    }
+
+    private Metadata createMetadata(VisibilityJson visibilityJson) {
+        Metadata metadata = new Metadata();
+        VisalloProperties.VISIBILITY_JSON_METADATA.setMetadata(metadata, visibilityJson, publicVisibility);
+        return metadata;
+    }
+}
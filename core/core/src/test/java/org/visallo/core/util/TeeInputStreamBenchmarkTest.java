@@ -0,0 +1,149 @@
+package org.visallo.core.util;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares the throughput of {@link TeeInputStream} with the previous monitor based implementation
+ * ({@link LockingTeeInputStream}) when fanning a stream out to 1, 4 and 16 tees, each read on its own thread.
+ */
+public class TeeInputStreamBenchmarkTest {
+    private static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(TeeInputStreamBenchmarkTest.class);
+    private static final int DATA_SIZE = 64 * 1024 * 1024;
+    private static final int READ_BUFFER_SIZE = 8 * 1024;
+    private static final int WARM_UP_ITERATIONS = 2;
+    private static final int ITERATIONS = 5;
+    private static final byte[] DATA = createData(DATA_SIZE);
+
+    @Test
+    public void benchmark1Tee() throws Exception {
+        benchmark(1);
+    }
+
+    @Test
+    public void benchmark4Tees() throws Exception {
+        benchmark(4);
+    }
+
+    @Test
+    public void benchmark16Tees() throws Exception {
+        benchmark(16);
+    }
+
+    private void benchmark(int teeCount) throws Exception {
+        double lockingMBps = measure(new LockingTee(), teeCount);
+        double ringBufferMBps = measure(new RingBufferTee(), teeCount);
+        LOGGER.info("%2d tees: locking %8.1f MB/s, ring buffer %8.1f MB/s (%.2fx)",
+                teeCount, lockingMBps, ringBufferMBps, ringBufferMBps / lockingMBps);
+    }
+
+    private double measure(Tee tee, int teeCount) throws Exception {
+        for (int i = 0; i < WARM_UP_ITERATIONS; i++) {
+            run(tee, teeCount);
+        }
+        long totalNanos = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            totalNanos += run(tee, teeCount);
+        }
+        double seconds = totalNanos / 1e9;
+        return (double) DATA_SIZE * ITERATIONS / (1024 * 1024) / seconds;
+    }
+
+    private long run(Tee tee, int teeCount) throws Exception {
+        InputStream[] tees = tee.open(new ByteArrayInputStream(DATA), teeCount);
+        Thread[] readers = new Thread[teeCount];
+        final AtomicLong[] bytesRead = new AtomicLong[teeCount];
+        for (int i = 0; i < teeCount; i++) {
+            bytesRead[i] = new AtomicLong();
+            readers[i] = new Thread(new Reader(tees[i], bytesRead[i]));
+        }
+
+        long startTime = System.nanoTime();
+        for (Thread reader : readers) {
+            reader.start();
+        }
+        tee.loopUntilTeesAreClosed();
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        long elapsed = System.nanoTime() - startTime;
+
+        for (AtomicLong count : bytesRead) {
+            assertEquals(DATA_SIZE, count.get());
+        }
+        return elapsed;
+    }
+
+    private static byte[] createData(int size) {
+        byte[] data = new byte[size];
+        new Random(0).nextBytes(data);
+        return data;
+    }
+
+    private static class Reader implements Runnable {
+        private final InputStream in;
+        private final AtomicLong bytesRead;
+
+        public Reader(InputStream in, AtomicLong bytesRead) {
+            this.in = in;
+            this.bytesRead = bytesRead;
+        }
+
+        @Override
+        public void run() {
+            byte[] buffer = new byte[READ_BUFFER_SIZE];
+            try {
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    bytesRead.addAndGet(read);
+                }
+                in.close();
+            } catch (IOException ex) {
+                LOGGER.error("Could not read tee", ex);
+            }
+        }
+    }
+
+    private interface Tee {
+        InputStream[] open(InputStream source, int teeCount);
+
+        void loopUntilTeesAreClosed() throws Exception;
+    }
+
+    private static class RingBufferTee implements Tee {
+        private TeeInputStream teeInputStream;
+
+        @Override
+        public InputStream[] open(InputStream source, int teeCount) {
+            teeInputStream = new TeeInputStream(source, teeCount);
+            return teeInputStream.getTees();
+        }
+
+        @Override
+        public void loopUntilTeesAreClosed() throws Exception {
+            teeInputStream.loopUntilTeesAreClosed();
+        }
+    }
+
+    private static class LockingTee implements Tee {
+        private LockingTeeInputStream teeInputStream;
+
+        @Override
+        public InputStream[] open(InputStream source, int teeCount) {
+            teeInputStream = new LockingTeeInputStream(source, teeCount);
+            return teeInputStream.getTees();
+        }
+
+        @Override
+        public void loopUntilTeesAreClosed() throws Exception {
+            teeInputStream.loopUntilTeesAreClosed();
+        }
+    }
+}
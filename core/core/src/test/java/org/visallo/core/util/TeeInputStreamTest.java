@@ -187,6 +187,28 @@ public class TeeInputStreamTest {
         in.close();
     }
 
+    @Test
+    public void testSingleByteReadsReturnUnsignedBytes() throws Exception {
+        byte[] data = createMockData(256);
+        InputStream source = new ByteArrayInputStream(data);
+        TeeInputStream in = new TeeInputStream(source, 2);
+        in.loop(); // force a read
+        in.loop(); // force setting source complete
+        InputStream[] tees = in.getTees();
+
+        for (int i = 0; i < data.length; i++) {
+            assertEquals(i, tees[0].read());
+        }
+        assertEquals(-1, tees[0].read());
+
+        // 0xff read on its own must not look like the end of the stream
+        assertEquals(255, tees[1].read(new byte[255]));
+        assertEquals(0xff, tees[1].read());
+        assertEquals(-1, tees[1].read());
+
+        in.close();
+    }
+
     private byte[] createMockData(int len) {
         byte[] data = new byte[len];
         for (int i = 0; i < len; i++) {
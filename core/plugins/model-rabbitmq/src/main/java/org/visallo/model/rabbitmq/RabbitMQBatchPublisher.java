@@ -0,0 +1,363 @@
+package org.visallo.model.rabbitmq;
+
+import com.codahale.metrics.Counter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+import org.vertexium.Graph;
+import org.visallo.core.exception.VisalloException;
+import org.visallo.core.model.FlushFlag;
+import org.visallo.core.util.VisalloLogger;
+import org.visallo.core.util.VisalloLoggerFactory;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Buffers messages and publishes them in batches. Channels are not thread-safe so every batch
+ * is published on a channel borrowed from a pool, and waits for publisher confirms before the channel is
+ * returned. Messages pushed with {@link FlushFlag#DEFAULT} need the graph flushed before they are visible,
+ * which is done once per batch.
+ *
+ * Batches are published one at a time and a batch publishes its messages in the order they were pushed, across
+ * all queues, so a message is never published ahead of one pushed before it. A batch that could not be published is kept and published again before any later batch. The thread
+ * that was publishing it gets the error, and a failure on the linger thread is thrown to the next caller of
+ * {@link #publish} until a later attempt succeeds. A batch whose confirms failed may have been partly delivered, so
+ * retried messages can be seen twice.
+ *
+ * A message published with a coalesce key is dropped if a message with the same key is already waiting in the
+ * batch, or takes the waiting message's place if it has a higher priority.
+ */
+public class RabbitMQBatchPublisher {
+    private static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(RabbitMQBatchPublisher.class);
+    private final Connection connection;
+    private final Graph graph;
+    private final int batchSize;
+    private final long confirmTimeoutMillis;
+    private final Counter coalescedCounter;
+    private final BlockingQueue<Channel> channels;
+    private final Set<String> declaredQueues = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private final ScheduledExecutorService lingerExecutor;
+    private final Object pendingLock = new Object();
+    private final Object publishLock = new Object();
+    private Batch pendingBatch = new Batch();
+    private Batch failedBatch;
+    private volatile VisalloException lingerFailure;
+
+    public RabbitMQBatchPublisher(
+            Connection connection,
+            Graph graph,
+            int batchSize,
+            long lingerMillis,
+            int channelPoolSize,
+            long confirmTimeoutMillis,
+            Counter coalescedCounter
+    ) throws IOException {
+        this.connection = connection;
+        this.graph = graph;
+        this.batchSize = Math.max(1, batchSize);
+        this.confirmTimeoutMillis = confirmTimeoutMillis;
+        this.coalescedCounter = coalescedCounter;
+        this.channels = new ArrayBlockingQueue<>(Math.max(1, channelPoolSize));
+        for (int i = 0; i < Math.max(1, channelPoolSize); i++) {
+            this.channels.add(openConfirmChannel());
+        }
+
+        if (this.batchSize > 1 && lingerMillis > 0) {
+            this.lingerExecutor = Executors.newSingleThreadScheduledExecutor(
+                    new ThreadFactoryBuilder().setNameFormat("rabbitmq-publish-linger-%d").setDaemon(true).build()
+            );
+            this.lingerExecutor.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        publishPending();
+                    } catch (VisalloException ex) {
+                        LOGGER.error("Could not publish pending messages, they will be retried", ex);
+                        lingerFailure = ex;
+                    } catch (Throwable ex) {
+                        LOGGER.error("Could not publish pending messages, they will be retried", ex);
+                        lingerFailure = new VisalloException("Could not publish pending messages", ex);
+                    }
+                }
+            }, lingerMillis, lingerMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.lingerExecutor = null;
+        }
+    }
+
+    /**
+     * Queues a message to be published. Messages are published immediately when the batch is full or when
+     * flushFlag is {@link FlushFlag#FLUSH}.
+     *
+     * @throws VisalloException if the message was not queued because waiting messages could not be published in
+     *                          the background, or if the batch this message completed could not be published. The
+     *                          messages of that batch are kept and published with the next batch.
+     */
+    public void publish(String exchange, String routingKey, FlushFlag flushFlag, AMQP.BasicProperties props, byte[] body) {
+        publish(exchange, routingKey, flushFlag, props, body, null);
+    }
+
+    /**
+     * @param coalesceKey identifies messages that do the same work, or null if the message should always be sent
+     */
+    public void publish(String exchange, String routingKey, FlushFlag flushFlag, AMQP.BasicProperties props, byte[] body, String coalesceKey) {
+        VisalloException failure = lingerFailure;
+        if (failure != null) {
+            throw new VisalloException("Could not publish waiting messages, they will be retried", failure);
+        }
+
+        boolean publishNow;
+        synchronized (pendingLock) {
+            if (!pendingBatch.add(new Message(exchange, routingKey, props, body), flushFlag, coalesceKey)) {
+                coalescedCounter.inc();
+            }
+            publishNow = flushFlag == FlushFlag.FLUSH || pendingBatch.size() >= batchSize;
+        }
+        if (publishNow) {
+            publishPending();
+        }
+    }
+
+    /**
+     * Declares the queue the first time it is published to.
+     */
+    public void ensureQueue(String queueName) {
+        if (declaredQueues.contains(queueName)) {
+            return;
+        }
+        Channel channel = borrowChannel();
+        try {
+            RabbitMQWorkQueueRepository.createQueue(channel, queueName);
+            declaredQueues.add(queueName);
+        } catch (IOException ex) {
+            throw new VisalloException("Could not declare queue: " + queueName, ex);
+        } finally {
+            returnChannel(channel);
+        }
+    }
+
+    /**
+     * Publishes every pending message, including messages that failed to publish earlier, and waits for batches
+     * being published by other threads.
+     */
+    public void flush() {
+        publishPending();
+    }
+
+    public void close() {
+        if (lingerExecutor != null) {
+            lingerExecutor.shutdown();
+        }
+        try {
+            flush();
+        } finally {
+            Channel channel;
+            while ((channel = channels.poll()) != null) {
+                try {
+                    channel.close();
+                } catch (Throwable ex) {
+                    LOGGER.error("Could not close RabbitMQ channel", ex);
+                }
+            }
+        }
+    }
+
+    private void publishPending() {
+        synchronized (publishLock) {
+            if (failedBatch != null) {
+                Batch batch = failedBatch;
+                failedBatch = null;
+                publishBatch(batch);
+            }
+
+            Batch batch;
+            synchronized (pendingLock) {
+                if (pendingBatch.size() == 0) {
+                    lingerFailure = null;
+                    return;
+                }
+                batch = pendingBatch;
+                pendingBatch = new Batch();
+            }
+            publishBatch(batch);
+            lingerFailure = null;
+        }
+    }
+
+    /**
+     * Must be called holding publishLock. If the batch can not be published it is kept to be published first the
+     * next time.
+     */
+    private void publishBatch(Batch batch) {
+        boolean published = false;
+        try {
+            if (batch.isGraphFlushRequired()) {
+                graph.flush();
+            }
+            Channel channel = borrowChannel();
+            try {
+                for (Message message : batch.getMessages()) {
+                    channel.basicPublish(message.getExchange(), message.getRoutingKey(), message.getProps(), message.getBody());
+                }
+                channel.waitForConfirmsOrDie(confirmTimeoutMillis);
+                published = true;
+                LOGGER.debug("published %d messages to %d destinations", batch.size(), batch.getDestinationCount());
+            } finally {
+                returnChannel(channel);
+            }
+        } catch (IOException | TimeoutException ex) {
+            throw new VisalloException("Could not publish " + batch.size() + " messages, they will be retried", ex);
+        } catch (InterruptedException ex) {
+            throw new VisalloException("Interrupted waiting for publisher confirms, " + batch.size() + " messages will be retried", ex);
+        } finally {
+            if (!published) {
+                failedBatch = batch;
+            }
+        }
+    }
+
+    private Channel borrowChannel() {
+        try {
+            return channels.take();
+        } catch (InterruptedException ex) {
+            throw new VisalloException("Interrupted waiting for a RabbitMQ channel", ex);
+        }
+    }
+
+    private void returnChannel(Channel channel) {
+        if (!channel.isOpen()) {
+            // a failed confirm closes the channel
+            try {
+                channel = openConfirmChannel();
+            } catch (Exception ex) {
+                LOGGER.error("Could not replace closed RabbitMQ channel", ex);
+                return;
+            }
+        }
+        channels.add(channel);
+    }
+
+    private Channel openConfirmChannel() throws IOException {
+        Channel channel = RabbitMQUtils.openChannel(connection);
+        channel.confirmSelect();
+        return channel;
+    }
+
+    private static class Batch {
+        private final List<Message> messages = new ArrayList<>();
+        private final Set<Destination> destinations = new HashSet<>();
+        private final Map<String, Message> messagesByCoalesceKey = new HashMap<>();
+        private boolean graphFlushRequired;
+
+        /**
+         * @return false if the message was coalesced with a waiting message
+         */
+        public boolean add(Message message, FlushFlag flushFlag, String coalesceKey) {
+            if (flushFlag != FlushFlag.NO_FLUSH) {
+                graphFlushRequired = true;
+            }
+            if (coalesceKey != null) {
+                Message waitingMessage = messagesByCoalesceKey.get(coalesceKey);
+                if (waitingMessage != null) {
+                    if (getPriority(message) > getPriority(waitingMessage)) {
+                        waitingMessage.replace(message);
+                    }
+                    return false;
+                }
+                messagesByCoalesceKey.put(coalesceKey, message);
+            }
+
+            messages.add(message);
+            destinations.add(new Destination(message.getExchange(), message.getRoutingKey()));
+            return true;
+        }
+
+        private static int getPriority(Message message) {
+            if (message.getProps() == null || message.getProps().getPriority() == null) {
+                return 0;
+            }
+            return message.getProps().getPriority();
+        }
+
+        public List<Message> getMessages() {
+            return messages;
+        }
+
+        public int getDestinationCount() {
+            return destinations.size();
+        }
+
+        public int size() {
+            return messages.size();
+        }
+
+        public boolean isGraphFlushRequired() {
+            return graphFlushRequired;
+        }
+    }
+
+    private static class Destination {
+        private final String exchange;
+        private final String routingKey;
+
+        public Destination(String exchange, String routingKey) {
+            this.exchange = exchange;
+            this.routingKey = routingKey;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Destination that = (Destination) o;
+            return exchange.equals(that.exchange) && routingKey.equals(that.routingKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * exchange.hashCode() + routingKey.hashCode();
+        }
+    }
+
+    private static class Message {
+        private final String exchange;
+        private final String routingKey;
+        private AMQP.BasicProperties props;
+        private byte[] body;
+
+        public Message(String exchange, String routingKey, AMQP.BasicProperties props, byte[] body) {
+            this.exchange = exchange;
+            this.routingKey = routingKey;
+            this.props = props;
+            this.body = body;
+        }
+
+        public String getExchange() {
+            return exchange;
+        }
+
+        public String getRoutingKey() {
+            return routingKey;
+        }
+
+        public AMQP.BasicProperties getProps() {
+            return props;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+
+        public void replace(Message message) {
+            this.props = message.getProps();
+            this.body = message.getBody();
+        }
+    }
+}
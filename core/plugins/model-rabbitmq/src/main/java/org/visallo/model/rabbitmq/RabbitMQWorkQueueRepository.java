@@ -13,10 +13,13 @@ import org.visallo.core.exception.VisalloException;
 import org.visallo.core.externalResource.ExternalResourceWorker;
 import org.visallo.core.externalResource.QueueExternalResourceWorker;
 import org.visallo.core.ingest.WorkerSpout;
+import org.visallo.core.ingest.graphProperty.BinaryGraphPropertyMessageCodec;
+import org.visallo.core.ingest.graphProperty.GraphPropertyMessage;
 import org.visallo.core.model.FlushFlag;
 import org.visallo.core.model.WorkQueueNames;
 import org.visallo.core.model.workQueue.Priority;
 import org.visallo.core.model.workQueue.WorkQueueRepository;
+import org.visallo.core.status.MetricsManager;
 import org.visallo.core.util.VisalloLogger;
 import org.visallo.core.util.VisalloLoggerFactory;
 
@@ -26,43 +29,97 @@ import java.util.*;
 public class RabbitMQWorkQueueRepository extends WorkQueueRepository {
     private static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(RabbitMQWorkQueueRepository.class);
     private static final String BROADCAST_EXCHANGE_NAME = "exBroadcast";
+    public static final int DEFAULT_PUBLISH_BATCH_SIZE = 100;
+    public static final int DEFAULT_PUBLISH_LINGER_MS = 50;
+    public static final int DEFAULT_PUBLISH_CHANNEL_POOL_SIZE = 4;
+    public static final int DEFAULT_PUBLISH_CONFIRM_TIMEOUT_MS = 30000;
+    public static final String JSON_CONTENT_TYPE = "application/json";
+    public static final String BINARY_GRAPH_PROPERTY_MESSAGE_CONTENT_TYPE = "application/vnd.visallo.graph-property-message";
     private final Connection connection;
     private final Channel channel;
-    private Set<String> declaredQueues = new HashSet<>();
+    private final RabbitMQBatchPublisher publisher;
+    private final boolean graphPropertyQueueBinaryEncoding;
 
     @Inject
-    public RabbitMQWorkQueueRepository(Graph graph, WorkQueueNames workQueueNames, Configuration configuration)
-            throws IOException {
+    public RabbitMQWorkQueueRepository(
+            Graph graph,
+            WorkQueueNames workQueueNames,
+            Configuration configuration,
+            MetricsManager metricsManager
+    ) throws IOException {
         super(graph, workQueueNames, configuration);
         this.connection = RabbitMQUtils.openConnection(configuration);
         this.channel = RabbitMQUtils.openChannel(this.connection);
         this.channel.exchangeDeclare(BROADCAST_EXCHANGE_NAME, "fanout");
+        this.graphPropertyQueueBinaryEncoding = configuration.getBoolean(Configuration.RABBITMQ_GRAPH_PROPERTY_QUEUE_BINARY_ENCODING, false);
+        this.publisher = new RabbitMQBatchPublisher(
+                this.connection,
+                graph,
+                configuration.getInt(Configuration.RABBITMQ_PUBLISH_BATCH_SIZE, DEFAULT_PUBLISH_BATCH_SIZE),
+                configuration.getInt(Configuration.RABBITMQ_PUBLISH_LINGER_MS, DEFAULT_PUBLISH_LINGER_MS),
+                configuration.getInt(Configuration.RABBITMQ_PUBLISH_CHANNEL_POOL_SIZE, DEFAULT_PUBLISH_CHANNEL_POOL_SIZE),
+                configuration.getInt(Configuration.RABBITMQ_PUBLISH_CONFIRM_TIMEOUT_MS, DEFAULT_PUBLISH_CONFIRM_TIMEOUT_MS),
+                metricsManager.counter(metricsManager.getNamePrefix(this) + "coalesced")
+        );
     }
 
     @Override
     protected void broadcastJson(JSONObject json) {
-        try {
-            LOGGER.debug("publishing message to broadcast exchange [%s]: %s", BROADCAST_EXCHANGE_NAME, json.toString());
-            channel.basicPublish(BROADCAST_EXCHANGE_NAME, "", null, json.toString().getBytes());
-        } catch (IOException ex) {
-            throw new VisalloException("Could not broadcast json", ex);
-        }
+        LOGGER.debug("publishing message to broadcast exchange [%s]: %s", BROADCAST_EXCHANGE_NAME, json);
+        // broadcasts often announce graph changes, so like queued messages they wait for the batch's graph flush
+        publisher.publish(BROADCAST_EXCHANGE_NAME, "", FlushFlag.DEFAULT, null, json.toString().getBytes());
+    }
+
+    @Override
+    protected void flushGraphBeforePush(FlushFlag flushFlag) {
+        // the publisher flushes the graph once per batch
     }
 
     @Override
     public void pushOnQueue(String queueName, FlushFlag flushFlag, JSONObject json, Priority priority) {
         try {
-            ensureQueue(queueName);
+            publisher.ensureQueue(queueName);
             json.put("priority", priority.name());
-            LOGGER.debug("enqueuing message to queue [%s]: %s", queueName, json.toString());
+            LOGGER.debug("enqueuing message to queue [%s]: %s", queueName, json);
             AMQP.BasicProperties.Builder propsBuilder = new AMQP.BasicProperties.Builder();
             propsBuilder.priority(toRabbitMQPriority(priority));
-            channel.basicPublish("", queueName, propsBuilder.build(), json.toString().getBytes());
+            byte[] body;
+            if (isBinaryEncoded(queueName, json)) {
+                propsBuilder.contentType(BINARY_GRAPH_PROPERTY_MESSAGE_CONTENT_TYPE);
+                body = BinaryGraphPropertyMessageCodec.encode(json);
+            } else {
+                propsBuilder.contentType(JSON_CONTENT_TYPE);
+                body = json.toString().getBytes();
+            }
+            publisher.publish("", queueName, flushFlag, propsBuilder.build(), body, getCoalesceKey(queueName, json));
+        } catch (VisalloException ex) {
+            throw ex;
         } catch (Exception ex) {
             throw new VisalloException("Could not push on queue", ex);
         }
     }
 
+    /**
+     * The graph property queue can use the binary message encoding, consumers accept either encoding so it can be
+     * enabled once every consumer understands it.
+     */
+    private boolean isBinaryEncoded(String queueName, JSONObject json) {
+        return graphPropertyQueueBinaryEncoding
+                && queueName.equals(workQueueNames.getGraphPropertyQueueName())
+                && BinaryGraphPropertyMessageCodec.canEncode(json);
+    }
+
+    /**
+     * Graph property messages for the same element and property do the same work, so only one of them needs to be
+     * sent per batch.
+     */
+    private String getCoalesceKey(String queueName, JSONObject json) {
+        if (!queueName.equals(workQueueNames.getGraphPropertyQueueName())) {
+            return null;
+        }
+        return new GraphPropertyMessage(json).getCoalesceKey();
+    }
+
     private Integer toRabbitMQPriority(Priority priority) {
         switch (priority) {
             case HIGH:
@@ -76,13 +133,6 @@ public class RabbitMQWorkQueueRepository extends WorkQueueRepository {
         }
     }
 
-    private void ensureQueue(String queueName) throws IOException {
-        if (!declaredQueues.contains(queueName)) {
-            createQueue(channel, queueName);
-            declaredQueues.add(queueName);
-        }
-    }
-
     public static void createQueue(Channel channel, String queueName) throws IOException {
         Map<String, Object> args = new HashMap<>();
         args.put("x-max-priority", 3);
@@ -91,11 +141,18 @@ public class RabbitMQWorkQueueRepository extends WorkQueueRepository {
 
     @Override
     public void flush() {
+        publisher.flush();
     }
 
     @Override
     public void shutdown() {
         super.shutdown();
+        try {
+            LOGGER.debug("Closing RabbitMQ publisher");
+            this.publisher.close();
+        } catch (Throwable e) {
+            LOGGER.error("Could not close RabbitMQ publisher", e);
+        }
         try {
             LOGGER.debug("Closing RabbitMQ channel");
             this.channel.close();
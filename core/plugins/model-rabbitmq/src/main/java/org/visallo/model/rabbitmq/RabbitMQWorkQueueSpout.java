@@ -1,27 +1,45 @@
 package org.visallo.model.rabbitmq;
 
 import com.google.inject.Inject;
-import com.rabbitmq.client.Channel;
-import com.rabbitmq.client.Connection;
-import com.rabbitmq.client.QueueingConsumer;
+import com.rabbitmq.client.*;
 import org.visallo.core.config.Configuration;
 import org.visallo.core.exception.VisalloException;
 import org.visallo.core.ingest.WorkerSpout;
 import org.visallo.core.ingest.WorkerTuple;
+import org.visallo.core.ingest.graphProperty.BinaryGraphPropertyMessageCodec;
 import org.visallo.core.util.VisalloLogger;
 import org.visallo.core.util.VisalloLoggerFactory;
 import org.json.JSONObject;
 
 import java.io.IOException;
+import java.util.Iterator;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Consumes a queue with a push consumer. Deliveries are buffered locally, the buffer never holds more than the
+ * prefetch count because the broker stops delivering once that many messages are unacknowledged. Acks are sent
+ * once half the prefetch window has completed, or before waiting on an empty buffer. Completed deliveries older than
+ * every outstanding delivery are acked together with multiple=true, later ones are acked one by one so a slow
+ * message does not hold the prefetch window.
+ *
+ * {@link #nextTuple()}, {@link #ack(Object)} and {@link #fail(Object)} must be called from the same thread.
+ */
 public class RabbitMQWorkQueueSpout extends WorkerSpout {
     private static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(RabbitMQWorkQueueSpout.class);
     public static final int DEFAULT_RABBITMQ_PREFETCH_COUNT = 10;
+    private static final int UNLIMITED_PREFETCH_ACK_BATCH_SIZE = 50;
     private final String queueName;
     private Channel channel;
-    private QueueingConsumer consumer;
     private Connection connection;
     private Configuration configuration;
+    private BlockingQueue<Delivery> deliveries;
+    private int ackBatchSize;
+    private final SortedSet<Long> outstandingDeliveryTags = new TreeSet<>();
+    private final SortedSet<Long> unsentAckDeliveryTags = new TreeSet<>();
 
     public RabbitMQWorkQueueSpout(String queueName) {
         this.queueName = queueName;
@@ -30,22 +48,28 @@ public class RabbitMQWorkQueueSpout extends WorkerSpout {
     @Override
     public void open() {
         try {
-            this.connection = RabbitMQUtils.openConnection(configuration);
+            this.connection = openConnection();
             this.channel = RabbitMQUtils.openChannel(this.connection);
             RabbitMQWorkQueueRepository.createQueue(channel, queueName);
-            this.consumer = new QueueingConsumer(channel);
-            Integer prefetchCount = configuration.getInt(Configuration.RABBITMQ_PREFETCH_COUNT, DEFAULT_RABBITMQ_PREFETCH_COUNT);
+            int prefetchCount = configuration.getInt(Configuration.RABBITMQ_PREFETCH_COUNT, DEFAULT_RABBITMQ_PREFETCH_COUNT);
+            this.deliveries = new LinkedBlockingQueue<>(prefetchCount > 0 ? prefetchCount : Integer.MAX_VALUE);
+            this.ackBatchSize = prefetchCount > 0 ? Math.max(1, prefetchCount / 2) : UNLIMITED_PREFETCH_ACK_BATCH_SIZE;
             this.channel.basicQos(prefetchCount, false);
-            this.channel.basicConsume(this.queueName, false, consumer);
+            this.channel.basicConsume(this.queueName, false, new BufferingConsumer(this.channel));
         } catch (IOException ex) {
             throw new VisalloException("Could not startup RabbitMQ", ex);
         }
     }
 
+    protected Connection openConnection() throws IOException {
+        return RabbitMQUtils.openConnection(configuration);
+    }
+
     @Override
     public void close() {
         super.close();
         try {
+            sendAcks();
             LOGGER.debug("Closing RabbitMQ channel");
             this.channel.close();
             LOGGER.debug("Closing RabbitMQ connection");
@@ -57,23 +81,45 @@ public class RabbitMQWorkQueueSpout extends WorkerSpout {
 
     @Override
     public WorkerTuple nextTuple() throws InterruptedException {
-        QueueingConsumer.Delivery delivery = this.consumer.nextDelivery(100);
+        return nextTuple(100);
+    }
+
+    @Override
+    public WorkerTuple nextTuple(long waitMillis) throws InterruptedException {
+        Delivery delivery = this.deliveries.poll();
         if (delivery == null) {
-            return null;
+            // completed messages hold the prefetch window, release them before waiting for more
+            sendAcks();
+            delivery = this.deliveries.poll(waitMillis, TimeUnit.MILLISECONDS);
+            if (delivery == null) {
+                return null;
+            }
+        }
+        long deliveryTag = delivery.getEnvelope().getDeliveryTag();
+        outstandingDeliveryTags.add(deliveryTag);
+        JSONObject json = decode(delivery.getBody());
+        LOGGER.debug("emit (%s): %s", this.queueName, json);
+        return new WorkerTuple(deliveryTag, json);
+    }
+
+    /**
+     * Accepts both JSON and binary encoded messages, whichever the publisher chose.
+     */
+    static JSONObject decode(byte[] body) {
+        if (BinaryGraphPropertyMessageCodec.isEncoded(body)) {
+            return BinaryGraphPropertyMessageCodec.decode(body);
         }
-        JSONObject json = new JSONObject(new String(delivery.getBody()));
-        LOGGER.debug("emit (%s): %s", this.queueName, json.toString());
-        return new WorkerTuple(delivery.getEnvelope().getDeliveryTag(), json);
+        return new JSONObject(new String(body));
     }
 
     @Override
     public void ack(Object msgId) {
         super.ack(msgId);
         long deliveryTag = (Long) msgId;
-        try {
-            this.channel.basicAck(deliveryTag, false);
-        } catch (IOException ex) {
-            LOGGER.error("Could not ack: %d", deliveryTag, ex);
+        outstandingDeliveryTags.remove(deliveryTag);
+        unsentAckDeliveryTags.add(deliveryTag);
+        if (unsentAckDeliveryTags.size() >= ackBatchSize) {
+            sendAcks();
         }
     }
 
@@ -81,19 +127,84 @@ public class RabbitMQWorkQueueSpout extends WorkerSpout {
     public void fail(Object msgId) {
         super.fail(msgId);
         long deliveryTag = (Long) msgId;
+        outstandingDeliveryTags.remove(deliveryTag);
         try {
             this.channel.basicNack(deliveryTag, false, false);
         } catch (IOException ex) {
-            LOGGER.error("Could not ack: %d", deliveryTag, ex);
+            LOGGER.error("Could not nack: %d", deliveryTag, ex);
         }
     }
 
-    protected QueueingConsumer getConsumer() {
-        return this.consumer;
+    /**
+     * Acks every completed delivery below the oldest outstanding delivery with a single multiple=true ack, and every
+     * completed delivery above it on its own, since a multiple=true ack would also ack the outstanding delivery.
+     */
+    private void sendAcks() {
+        if (unsentAckDeliveryTags.isEmpty()) {
+            return;
+        }
+        SortedSet<Long> contiguousDeliveryTags = outstandingDeliveryTags.isEmpty()
+                ? unsentAckDeliveryTags
+                : unsentAckDeliveryTags.headSet(outstandingDeliveryTags.first());
+        if (!contiguousDeliveryTags.isEmpty()) {
+            long deliveryTag = contiguousDeliveryTags.last();
+            try {
+                this.channel.basicAck(deliveryTag, true);
+                contiguousDeliveryTags.clear();
+            } catch (IOException ex) {
+                LOGGER.error("Could not ack: %d", deliveryTag, ex);
+                return;
+            }
+        }
+
+        Iterator<Long> it = unsentAckDeliveryTags.iterator();
+        while (it.hasNext()) {
+            long deliveryTag = it.next();
+            try {
+                this.channel.basicAck(deliveryTag, false);
+                it.remove();
+            } catch (IOException ex) {
+                LOGGER.error("Could not ack: %d", deliveryTag, ex);
+                return;
+            }
+        }
     }
 
     @Inject
     public void setConfiguration(Configuration configuration) {
         this.configuration = configuration;
     }
+
+    private class BufferingConsumer extends DefaultConsumer {
+        public BufferingConsumer(Channel channel) {
+            super(channel);
+        }
+
+        @Override
+        public void handleDelivery(String consumerTag, Envelope envelope, AMQP.BasicProperties properties, byte[] body) throws IOException {
+            try {
+                deliveries.put(new Delivery(envelope, body));
+            } catch (InterruptedException ex) {
+                throw new IOException("Interrupted buffering delivery " + envelope.getDeliveryTag(), ex);
+            }
+        }
+    }
+
+    private static class Delivery {
+        private final Envelope envelope;
+        private final byte[] body;
+
+        public Delivery(Envelope envelope, byte[] body) {
+            this.envelope = envelope;
+            this.body = body;
+        }
+
+        public Envelope getEnvelope() {
+            return envelope;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+    }
 }
@@ -0,0 +1,178 @@
+package org.visallo.model.rabbitmq;
+
+import com.rabbitmq.client.*;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.io.IOException;
+import java.util.*;
+
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Stand-in for a RabbitMQ broker with a single queue, enough to run a consumer without a live broker. Honours
+ * basicQos prefetch, delivers to consumers on a separate thread like the real client and tracks acks.
+ */
+class InProcessRabbitMQBroker {
+    private final Object lock = new Object();
+    private final Deque<byte[]> messages = new ArrayDeque<>();
+    private final SortedSet<Long> unackedDeliveryTags = new TreeSet<>();
+    private final List<Long> nackedDeliveryTags = new ArrayList<>();
+    private long nextDeliveryTag = 1;
+    private int prefetchCount;
+    private Consumer consumer;
+    private int ackCallCount;
+    private long ackedMessageCount;
+    private volatile boolean closed;
+
+    public Connection createConnection() throws IOException {
+        Connection connection = mock(Connection.class);
+        when(connection.createChannel()).thenAnswer(new Answer<Channel>() {
+            @Override
+            public Channel answer(InvocationOnMock invocation) throws Throwable {
+                return createChannel();
+            }
+        });
+        return connection;
+    }
+
+    public void publish(byte[] body) {
+        synchronized (lock) {
+            messages.add(body);
+            lock.notifyAll();
+        }
+    }
+
+    public int getAckCallCount() {
+        synchronized (lock) {
+            return ackCallCount;
+        }
+    }
+
+    public long getAckedMessageCount() {
+        synchronized (lock) {
+            return ackedMessageCount;
+        }
+    }
+
+    public List<Long> getNackedDeliveryTags() {
+        synchronized (lock) {
+            return new ArrayList<>(nackedDeliveryTags);
+        }
+    }
+
+    public int getUnackedMessageCount() {
+        synchronized (lock) {
+            return unackedDeliveryTags.size();
+        }
+    }
+
+    public void close() {
+        closed = true;
+        synchronized (lock) {
+            lock.notifyAll();
+        }
+    }
+
+    private Channel createChannel() throws IOException {
+        Channel channel = mock(Channel.class);
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                synchronized (lock) {
+                    prefetchCount = (Integer) invocation.getArguments()[0];
+                }
+                return null;
+            }
+        }).when(channel).basicQos(anyInt(), anyBoolean());
+        when(channel.basicConsume(anyString(), anyBoolean(), any(Consumer.class))).thenAnswer(new Answer<String>() {
+            @Override
+            public String answer(InvocationOnMock invocation) throws Throwable {
+                startDelivering((Consumer) invocation.getArguments()[2]);
+                return "consumer";
+            }
+        });
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                ack((Long) invocation.getArguments()[0], (Boolean) invocation.getArguments()[1]);
+                return null;
+            }
+        }).when(channel).basicAck(anyLong(), anyBoolean());
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                nack((Long) invocation.getArguments()[0]);
+                return null;
+            }
+        }).when(channel).basicNack(anyLong(), anyBoolean(), anyBoolean());
+        return channel;
+    }
+
+    private void ack(long deliveryTag, boolean multiple) {
+        synchronized (lock) {
+            if (!unackedDeliveryTags.contains(deliveryTag)) {
+                throw new IllegalStateException("unknown delivery tag " + deliveryTag);
+            }
+            ackCallCount++;
+            if (multiple) {
+                SortedSet<Long> acked = unackedDeliveryTags.headSet(deliveryTag + 1);
+                ackedMessageCount += acked.size();
+                acked.clear();
+            } else {
+                unackedDeliveryTags.remove(deliveryTag);
+                ackedMessageCount++;
+            }
+            lock.notifyAll();
+        }
+    }
+
+    private void nack(long deliveryTag) {
+        synchronized (lock) {
+            if (!unackedDeliveryTags.remove(deliveryTag)) {
+                throw new IllegalStateException("unknown delivery tag " + deliveryTag);
+            }
+            nackedDeliveryTags.add(deliveryTag);
+            lock.notifyAll();
+        }
+    }
+
+    private void startDelivering(Consumer consumer) {
+        synchronized (lock) {
+            this.consumer = consumer;
+        }
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    deliverLoop();
+                } catch (Exception ex) {
+                    throw new RuntimeException("delivery failed", ex);
+                }
+            }
+        });
+        thread.setName("in-process-rabbitmq-delivery");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void deliverLoop() throws Exception {
+        while (!closed) {
+            long deliveryTag;
+            byte[] body;
+            synchronized (lock) {
+                while (!closed && (messages.isEmpty() || (prefetchCount > 0 && unackedDeliveryTags.size() >= prefetchCount))) {
+                    lock.wait();
+                }
+                if (closed) {
+                    return;
+                }
+                body = messages.poll();
+                deliveryTag = nextDeliveryTag++;
+                unackedDeliveryTags.add(deliveryTag);
+            }
+            consumer.handleDelivery("consumer", new Envelope(deliveryTag, false, "", "queue"), null, body);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package org.visallo.model.rabbitmq;
+
+import com.codahale.metrics.Counter;
+import com.rabbitmq.client.AMQP;
+import com.rabbitmq.client.Channel;
+import com.rabbitmq.client.Connection;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.vertexium.Graph;
+import org.visallo.core.exception.VisalloException;
+import org.visallo.core.model.FlushFlag;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+
+public class RabbitMQBatchPublisherTest {
+    private static final String QUEUE_NAME = "queue";
+    private Connection connection;
+    private Channel channel;
+    private Graph graph;
+    private Counter coalescedCounter;
+    private final AtomicBoolean brokerDown = new AtomicBoolean();
+
+    @Before
+    public void before() throws Exception {
+        connection = mock(Connection.class);
+        channel = mock(Channel.class);
+        graph = mock(Graph.class);
+        coalescedCounter = new Counter();
+        when(connection.createChannel()).thenReturn(channel);
+        when(channel.isOpen()).thenReturn(true);
+    }
+
+    @Test
+    public void testPublishesFullBatchesWithOneGraphFlush() throws Exception {
+        RabbitMQBatchPublisher publisher = new RabbitMQBatchPublisher(connection, graph, 2, 0, 1, 1000, coalescedCounter);
+        verify(channel).confirmSelect();
+
+        publisher.publish("", QUEUE_NAME, FlushFlag.DEFAULT, null, new byte[]{1});
+        verify(channel, never()).basicPublish(anyString(), anyString(), any(AMQP.BasicProperties.class), any(byte[].class));
+
+        publisher.publish("", QUEUE_NAME, FlushFlag.DEFAULT, null, new byte[]{2});
+        verify(graph, times(1)).flush();
+        verify(channel, times(2)).basicPublish(eq(""), eq(QUEUE_NAME), any(AMQP.BasicProperties.class), any(byte[].class));
+        verify(channel, times(1)).waitForConfirmsOrDie(anyLong());
+
+        publisher.publish("", QUEUE_NAME, FlushFlag.DEFAULT, null, new byte[]{3});
+        publisher.flush();
+        verify(graph, times(2)).flush();
+        verify(channel, times(3)).basicPublish(eq(""), eq(QUEUE_NAME), any(AMQP.BasicProperties.class), any(byte[].class));
+        verify(channel, times(2)).waitForConfirmsOrDie(anyLong());
+    }
+
+    @Test
+    public void testFlushFlags() throws Exception {
+        RabbitMQBatchPublisher publisher = new RabbitMQBatchPublisher(connection, graph, 100, 0, 1, 1000, coalescedCounter);
+
+        publisher.publish("", QUEUE_NAME, FlushFlag.NO_FLUSH, null, new byte[]{1});
+        publisher.flush();
+        verify(graph, never()).flush();
+        verify(channel, times(1)).basicPublish(eq(""), eq(QUEUE_NAME), any(AMQP.BasicProperties.class), any(byte[].class));
+
+        publisher.publish("", QUEUE_NAME, FlushFlag.FLUSH, null, new byte[]{2});
+        verify(graph, times(1)).flush();
+        verify(channel, times(2)).basicPublish(eq(""), eq(QUEUE_NAME), any(AMQP.BasicProperties.class), any(byte[].class));
+    }
+
+    @Test
+    public void testCoalescesWaitingMessagesKeepingHighestPriority() throws Exception {
+        RabbitMQBatchPublisher publisher = new RabbitMQBatchPublisher(connection, graph, 100, 0, 1, 1000, coalescedCounter);
+        AMQP.BasicProperties low = new AMQP.BasicProperties.Builder().priority(0).build();
+        AMQP.BasicProperties high = new AMQP.BasicProperties.Builder().priority(2).build();
+
+        publisher.publish("", QUEUE_NAME, FlushFlag.DEFAULT, low, new byte[]{1}, "a");
+        publisher.publish("", QUEUE_NAME, FlushFlag.DEFAULT, low, new byte[]{2}, "b");
+        publisher.publish("", QUEUE_NAME, FlushFlag.DEFAULT, high, new byte[]{3}, "a");
+        publisher.publish("", QUEUE_NAME, FlushFlag.DEFAULT, low, new byte[]{4}, "a");
+        publisher.flush();
+
+        assertEquals(2, coalescedCounter.getCount());
+        InOrder inOrder = inOrder(channel);
+        inOrder.verify(channel).basicPublish("", QUEUE_NAME, high, new byte[]{3});
+        inOrder.verify(channel).basicPublish("", QUEUE_NAME, low, new byte[]{2});
+        verify(channel, times(2)).basicPublish(eq(""), eq(QUEUE_NAME), any(AMQP.BasicProperties.class), any(byte[].class));
+
+        publisher.publish("", QUEUE_NAME, FlushFlag.DEFAULT, low, new byte[]{5}, "a");
+        publisher.flush();
+        assertEquals("only waiting messages are coalesced", 2, coalescedCounter.getCount());
+    }
+
+    @Test
+    public void testKeepsPublishOrderAcrossQueues() throws Exception {
+        RabbitMQBatchPublisher publisher = new RabbitMQBatchPublisher(connection, graph, 100, 0, 1, 1000, coalescedCounter);
+
+        publisher.publish("", QUEUE_NAME, FlushFlag.NO_FLUSH, null, new byte[]{1});
+        publisher.publish("", "otherQueue", FlushFlag.NO_FLUSH, null, new byte[]{2});
+        publisher.publish("", QUEUE_NAME, FlushFlag.NO_FLUSH, null, new byte[]{3});
+        publisher.flush();
+
+        InOrder inOrder = inOrder(channel);
+        inOrder.verify(channel).basicPublish("", QUEUE_NAME, null, new byte[]{1});
+        inOrder.verify(channel).basicPublish("", "otherQueue", null, new byte[]{2});
+        inOrder.verify(channel).basicPublish("", QUEUE_NAME, null, new byte[]{3});
+    }
+
+    @Test
+    public void testReplacesChannelClosedByFailedConfirm() throws Exception {
+        Channel closedChannel = mock(Channel.class);
+        when(closedChannel.isOpen()).thenReturn(false);
+        when(connection.createChannel()).thenReturn(closedChannel, channel);
+        RabbitMQBatchPublisher publisher = new RabbitMQBatchPublisher(connection, graph, 1, 0, 1, 1000, coalescedCounter);
+
+        publisher.publish("", QUEUE_NAME, FlushFlag.NO_FLUSH, null, new byte[]{1});
+        publisher.publish("", QUEUE_NAME, FlushFlag.NO_FLUSH, null, new byte[]{2});
+
+        verify(closedChannel, times(1)).basicPublish(eq(""), eq(QUEUE_NAME), any(AMQP.BasicProperties.class), any(byte[].class));
+        verify(channel, times(1)).basicPublish(eq(""), eq(QUEUE_NAME), any(AMQP.BasicProperties.class), any(byte[].class));
+    }
+
+    @Test
+    public void testFailedBatchIsThrownAndRetriedBeforeLaterMessages() throws Exception {
+        List<Byte> published = failWhileBrokerIsDown();
+        RabbitMQBatchPublisher publisher = new RabbitMQBatchPublisher(connection, graph, 1, 0, 1, 1000, coalescedCounter);
+
+        brokerDown.set(true);
+        try {
+            publisher.publish("", QUEUE_NAME, FlushFlag.NO_FLUSH, null, new byte[]{1});
+            fail("expected the publish failure to be thrown");
+        } catch (VisalloException ex) {
+            // expected
+        }
+
+        brokerDown.set(false);
+        publisher.publish("", QUEUE_NAME, FlushFlag.NO_FLUSH, null, new byte[]{2});
+
+        assertEquals(Arrays.asList((byte) 1, (byte) 2), published);
+    }
+
+    @Test
+    public void testLingerFailureIsThrownToNextPublishAndRetried() throws Exception {
+        List<Byte> published = failWhileBrokerIsDown();
+        RabbitMQBatchPublisher publisher = new RabbitMQBatchPublisher(connection, graph, 100, 10, 1, 1000, coalescedCounter);
+
+        brokerDown.set(true);
+        publisher.publish("", QUEUE_NAME, FlushFlag.NO_FLUSH, null, new byte[]{1});
+        // the second attempt only starts once the first failure was recorded
+        verify(channel, timeout(5000).atLeast(2)).basicPublish(eq(""), eq(QUEUE_NAME), any(AMQP.BasicProperties.class), any(byte[].class));
+        try {
+            publisher.publish("", QUEUE_NAME, FlushFlag.NO_FLUSH, null, new byte[]{2});
+            fail("expected the linger failure to be thrown");
+        } catch (VisalloException ex) {
+            // expected
+        }
+
+        brokerDown.set(false);
+        publisher.flush();
+        publisher.publish("", QUEUE_NAME, FlushFlag.NO_FLUSH, null, new byte[]{3});
+        publisher.close();
+
+        assertEquals(Arrays.asList((byte) 1, (byte) 3), published);
+    }
+
+    /**
+     * @return the first byte of every message the channel accepted, in order
+     */
+    private List<Byte> failWhileBrokerIsDown() throws IOException {
+        final List<Byte> published = Collections.synchronizedList(new ArrayList<Byte>());
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                if (brokerDown.get()) {
+                    throw new IOException("broker down");
+                }
+                published.add(((byte[]) invocation.getArguments()[3])[0]);
+                return null;
+            }
+        }).when(channel).basicPublish(anyString(), anyString(), any(AMQP.BasicProperties.class), any(byte[].class));
+        return published;
+    }
+}
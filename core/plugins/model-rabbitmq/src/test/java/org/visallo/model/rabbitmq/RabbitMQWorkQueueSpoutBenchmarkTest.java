@@ -0,0 +1,58 @@
+package org.visallo.model.rabbitmq;
+
+import org.junit.Test;
+import org.visallo.core.ingest.WorkerTuple;
+import org.visallo.core.util.VisalloLogger;
+import org.visallo.core.util.VisalloLoggerFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Measures how many messages per second {@link RabbitMQWorkQueueSpout} can hand out and acknowledge against
+ * {@link InProcessRabbitMQBroker} at different prefetch counts, along with the number of ack calls needed.
+ */
+public class RabbitMQWorkQueueSpoutBenchmarkTest {
+    private static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(RabbitMQWorkQueueSpoutBenchmarkTest.class);
+    private static final int MESSAGE_COUNT = 200000;
+    private static final byte[] MESSAGE = "{\"graphVertexId\":\"v1\",\"propertyKey\":\"k\",\"propertyName\":\"p\"}".getBytes();
+
+    @Test
+    public void benchmarkPrefetch1() throws Exception {
+        benchmark(1);
+    }
+
+    @Test
+    public void benchmarkPrefetch10() throws Exception {
+        benchmark(10);
+    }
+
+    @Test
+    public void benchmarkPrefetch100() throws Exception {
+        benchmark(100);
+    }
+
+    private void benchmark(int prefetchCount) throws Exception {
+        InProcessRabbitMQBroker broker = new InProcessRabbitMQBroker();
+        try {
+            for (int i = 0; i < MESSAGE_COUNT; i++) {
+                broker.publish(MESSAGE);
+            }
+            RabbitMQWorkQueueSpout spout = RabbitMQWorkQueueSpoutTest.createSpout(broker, prefetchCount);
+
+            long startTime = System.nanoTime();
+            for (int i = 0; i < MESSAGE_COUNT; i++) {
+                WorkerTuple tuple = spout.nextTuple(1000);
+                assertNotNull(tuple);
+                spout.ack(tuple.getMessageId());
+            }
+            spout.close();
+            double seconds = (System.nanoTime() - startTime) / 1e9;
+
+            assertEquals(MESSAGE_COUNT, broker.getAckedMessageCount());
+            LOGGER.info("prefetch %3d: %10.0f messages/s, %d ack calls", prefetchCount, MESSAGE_COUNT / seconds, broker.getAckCallCount());
+        } finally {
+            broker.close();
+        }
+    }
+}
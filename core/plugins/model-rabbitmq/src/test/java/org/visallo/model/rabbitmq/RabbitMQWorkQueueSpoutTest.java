@@ -0,0 +1,148 @@
+package org.visallo.model.rabbitmq;
+
+import com.rabbitmq.client.Connection;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.visallo.core.config.Configuration;
+import org.visallo.core.ingest.WorkerTuple;
+import org.visallo.core.ingest.graphProperty.BinaryGraphPropertyMessageCodec;
+import org.visallo.core.ingest.graphProperty.GraphPropertyMessage;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class RabbitMQWorkQueueSpoutTest {
+    private InProcessRabbitMQBroker broker;
+
+    @Before
+    public void before() {
+        broker = new InProcessRabbitMQBroker();
+    }
+
+    @After
+    public void after() {
+        broker.close();
+    }
+
+    @Test
+    public void testAcksAreBatched() throws Exception {
+        RabbitMQWorkQueueSpout spout = createSpout(broker, 10);
+        for (int i = 0; i < 20; i++) {
+            broker.publish(("{\"i\":" + i + "}").getBytes());
+        }
+
+        for (int i = 0; i < 20; i++) {
+            WorkerTuple tuple = spout.nextTuple(1000);
+            assertNotNull("message " + i, tuple);
+            assertEquals(i, tuple.getJson().getInt("i"));
+            spout.ack(tuple.getMessageId());
+        }
+        spout.close();
+
+        assertEquals(20, broker.getAckedMessageCount());
+        assertEquals(0, broker.getUnackedMessageCount());
+        assertTrue("expected batched acks but was " + broker.getAckCallCount(), broker.getAckCallCount() <= 20 / 5 + 1);
+    }
+
+    @Test
+    public void testOutOfOrderCompletion() throws Exception {
+        RabbitMQWorkQueueSpout spout = createSpout(broker, 10);
+        for (int i = 0; i < 3; i++) {
+            broker.publish(("{\"i\":" + i + "}").getBytes());
+        }
+
+        WorkerTuple tuple1 = spout.nextTuple(1000);
+        WorkerTuple tuple2 = spout.nextTuple(1000);
+        WorkerTuple tuple3 = spout.nextTuple(1000);
+        spout.ack(tuple3.getMessageId());
+        spout.ack(tuple2.getMessageId());
+        assertNull(spout.nextTuple(10));
+        assertEquals("completed messages are acked while the first message is outstanding", 2, broker.getAckedMessageCount());
+        assertEquals(1, broker.getUnackedMessageCount());
+
+        spout.fail(tuple1.getMessageId());
+        assertNull(spout.nextTuple(10));
+
+        assertEquals(1, broker.getNackedDeliveryTags().size());
+        assertEquals(tuple1.getMessageId(), broker.getNackedDeliveryTags().get(0));
+        assertEquals(2, broker.getAckedMessageCount());
+        assertEquals(0, broker.getUnackedMessageCount());
+        spout.close();
+    }
+
+    @Test
+    public void testSlowMessageDoesNotHoldPrefetchWindow() throws Exception {
+        RabbitMQWorkQueueSpout spout = createSpout(broker, 2);
+        for (int i = 0; i < 4; i++) {
+            broker.publish(("{\"i\":" + i + "}").getBytes());
+        }
+
+        WorkerTuple slowTuple = spout.nextTuple(1000);
+        for (int i = 1; i < 4; i++) {
+            WorkerTuple tuple = spout.nextTuple(1000);
+            assertNotNull("message " + i + " was not delivered while message 0 is outstanding", tuple);
+            assertEquals(i, tuple.getJson().getInt("i"));
+            spout.ack(tuple.getMessageId());
+        }
+        assertEquals(3, broker.getAckedMessageCount());
+
+        spout.ack(slowTuple.getMessageId());
+        spout.close();
+        assertEquals(4, broker.getAckedMessageCount());
+        assertEquals(0, broker.getUnackedMessageCount());
+    }
+
+    @Test
+    public void testPrefetchBoundsDeliveries() throws Exception {
+        RabbitMQWorkQueueSpout spout = createSpout(broker, 2);
+        for (int i = 0; i < 5; i++) {
+            broker.publish(("{\"i\":" + i + "}").getBytes());
+        }
+
+        WorkerTuple tuple1 = spout.nextTuple(1000);
+        WorkerTuple tuple2 = spout.nextTuple(1000);
+        assertNotNull(tuple1);
+        assertNotNull(tuple2);
+        assertNull(spout.nextTuple(50));
+        assertEquals(2, broker.getUnackedMessageCount());
+
+        spout.ack(tuple1.getMessageId());
+        assertNotNull(spout.nextTuple(1000));
+        spout.close();
+    }
+
+    @Test
+    public void testAcceptsJsonAndBinaryMessages() throws Exception {
+        RabbitMQWorkQueueSpout spout = createSpout(broker, 10);
+        JSONObject message = new JSONObject();
+        message.put(GraphPropertyMessage.GRAPH_VERTEX_ID, "v1");
+        message.put(GraphPropertyMessage.PROPERTY_NAME, "name");
+        broker.publish(message.toString().getBytes());
+        broker.publish(BinaryGraphPropertyMessageCodec.encode(message));
+
+        assertEquals("v1", spout.nextTuple(1000).getJson().getString(GraphPropertyMessage.GRAPH_VERTEX_ID));
+        assertEquals("v1", spout.nextTuple(1000).getJson().getString(GraphPropertyMessage.GRAPH_VERTEX_ID));
+        spout.close();
+    }
+
+    static RabbitMQWorkQueueSpout createSpout(final InProcessRabbitMQBroker broker, int prefetchCount) {
+        Configuration configuration = mock(Configuration.class);
+        when(configuration.getInt(eq(Configuration.RABBITMQ_PREFETCH_COUNT), anyInt())).thenReturn(prefetchCount);
+        RabbitMQWorkQueueSpout spout = new RabbitMQWorkQueueSpout("queue") {
+            @Override
+            protected Connection openConnection() throws IOException {
+                return broker.createConnection();
+            }
+        };
+        spout.setConfiguration(configuration);
+        spout.open();
+        return spout;
+    }
+}
@@ -351,7 +351,7 @@ public class SqlWorkspaceRepository extends WorkspaceRepository {
     }
 
     @Override
-    public ClientApiWorkspaceDiff getDiff(Workspace workspace, User user, Locale locale, String timeZone) {
+    public ClientApiWorkspaceDiff getDiff(Workspace workspace, User user, Locale locale, String timeZone, Long since) {
         return new ClientApiWorkspaceDiff();
     }
 
@@ -0,0 +1,172 @@
+package model.ontology;
+
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.vertexium.Graph;
+import org.vertexium.TextIndexHint;
+import org.vertexium.VertexBuilder;
+import org.vertexium.id.UUIDIdGenerator;
+import org.vertexium.inmemory.InMemoryGraph;
+import org.vertexium.inmemory.InMemoryGraphConfiguration;
+import org.vertexium.search.DefaultSearchIndex;
+import org.visallo.core.config.Configuration;
+import org.visallo.core.config.HashMapConfigurationLoader;
+import org.visallo.core.ingest.WorkerSpout;
+import org.visallo.core.model.FlushFlag;
+import org.visallo.core.model.WorkQueueNames;
+import org.visallo.core.model.ontology.Concept;
+import org.visallo.core.model.ontology.OntologyProperties;
+import org.visallo.core.model.ontology.OntologyProperty;
+import org.visallo.core.model.ontology.OntologyRepository;
+import org.visallo.core.model.properties.VisalloProperties;
+import org.visallo.core.model.user.AuthorizationRepository;
+import org.visallo.core.model.workQueue.Priority;
+import org.visallo.core.model.workQueue.WorkQueueRepository;
+import org.visallo.vertexium.model.ontology.VertexiumOntologyRepository;
+import org.visallo.vertexium.model.user.InMemoryAuthorizationRepository;
+import org.visallo.web.clientapi.model.PropertyType;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Two repositories on the same graph stand in for two servers that share the ontology.
+ */
+public class VertexiumOntologyRepositoryTest {
+    private static final String PERSON_CONCEPT_IRI = "http://visallo.org/test#person";
+    private static final String AGE_PROPERTY_IRI = "http://visallo.org/test#age";
+    private Graph graph;
+    private FanoutWorkQueueRepository workQueueRepository;
+    private VertexiumOntologyRepository server1;
+    private VertexiumOntologyRepository server2;
+
+    private Configuration configuration;
+    private AuthorizationRepository authorizationRepository;
+
+    @Before
+    public void setup() throws Exception {
+        graph = createGraph();
+        configuration = new HashMapConfigurationLoader(new HashMap()).createConfiguration();
+        authorizationRepository = new InMemoryAuthorizationRepository();
+        workQueueRepository = new FanoutWorkQueueRepository(graph, configuration);
+
+        server1 = new VertexiumOntologyRepository(graph, configuration, authorizationRepository, workQueueRepository);
+        server2 = new VertexiumOntologyRepository(graph, configuration, authorizationRepository, workQueueRepository);
+        workQueueRepository.broadcasts.clear();
+    }
+
+    @Test
+    public void testLoadingTheOntologyDoesNotBroadcast() throws Exception {
+        Graph emptyGraph = createGraph();
+        FanoutWorkQueueRepository emptyGraphWorkQueueRepository = new FanoutWorkQueueRepository(emptyGraph, configuration);
+
+        VertexiumOntologyRepository server = new VertexiumOntologyRepository(emptyGraph, configuration, authorizationRepository, emptyGraphWorkQueueRepository);
+
+        assertNotNull(server.getEntityConcept());
+        for (JSONObject broadcast : emptyGraphWorkQueueRepository.broadcasts) {
+            assertNotEquals(WorkQueueRepository.ONTOLOGY_CACHE_INVALIDATE_TYPE, broadcast.optString("type"));
+        }
+
+        server.getOrCreateConcept(server.getEntityConcept(), PERSON_CONCEPT_IRI, "Person", null);
+        assertEquals(1, emptyGraphWorkQueueRepository.broadcasts.size());
+    }
+
+    @Test
+    public void testConceptCreatedOnOneServerIsSeenByTheOther() {
+        assertNull(server2.getConceptByIRI(PERSON_CONCEPT_IRI));
+
+        server1.getOrCreateConcept(server1.getEntityConcept(), PERSON_CONCEPT_IRI, "Person", null);
+
+        Concept person = server2.getConceptByIRI(PERSON_CONCEPT_IRI);
+        assertNotNull(person);
+        assertEquals("Person", person.getDisplayName());
+        assertEquals(OntologyRepository.ENTITY_CONCEPT_IRI, person.getParentConceptIRI());
+        assertEquals(1, workQueueRepository.broadcasts.size());
+    }
+
+    @Test
+    public void testPropertyAddedOnOneServerIsSeenByTheOther() {
+        Concept person = server1.getOrCreateConcept(server1.getEntityConcept(), PERSON_CONCEPT_IRI, "Person", null);
+        assertNull(server2.getPropertyByIRI(AGE_PROPERTY_IRI));
+
+        server1.addPropertyTo(
+                Collections.singletonList(person), AGE_PROPERTY_IRI, "Age", PropertyType.INTEGER, null, TextIndexHint.NONE,
+                true, true, true, null, null, null, null, null, null, new String[]{"age"}
+        );
+
+        OntologyProperty age = server2.getPropertyByIRI(AGE_PROPERTY_IRI);
+        assertNotNull(age);
+        assertEquals("Age", age.getDisplayName());
+        assertSame(age, server2.getPropertyByIntent("age"));
+        List<String> personPropertyIris = new ArrayList<>();
+        for (OntologyProperty property : server2.getConceptByIRI(PERSON_CONCEPT_IRI).getProperties()) {
+            personPropertyIris.add(property.getTitle());
+        }
+        assertEquals(Collections.singletonList(AGE_PROPERTY_IRI), personPropertyIris);
+    }
+
+    @Test
+    public void testClearCacheReloadsTheOtherServer() {
+        VertexBuilder builder = graph.prepareVertex(VertexiumOntologyRepository.ID_PREFIX_CONCEPT + PERSON_CONCEPT_IRI, OntologyRepository.VISIBILITY.getVisibility());
+        VisalloProperties.CONCEPT_TYPE.setProperty(builder, OntologyRepository.TYPE_CONCEPT, OntologyRepository.VISIBILITY.getVisibility());
+        OntologyProperties.ONTOLOGY_TITLE.setProperty(builder, PERSON_CONCEPT_IRI, OntologyRepository.VISIBILITY.getVisibility());
+        OntologyProperties.DISPLAY_NAME.setProperty(builder, "Person", OntologyRepository.VISIBILITY.getVisibility());
+        builder.save(graph.createAuthorizations(OntologyRepository.VISIBILITY_STRING));
+        graph.flush();
+        assertNull(server2.getConceptByIRI(PERSON_CONCEPT_IRI));
+
+        server1.clearCache();
+
+        assertNotNull(server2.getConceptByIRI(PERSON_CONCEPT_IRI));
+        assertFalse(workQueueRepository.broadcasts.get(0).has("conceptIris"));
+    }
+
+    private static Graph createGraph() {
+        InMemoryGraphConfiguration graphConfig = new InMemoryGraphConfiguration(new HashMap());
+        return InMemoryGraph.create(graphConfig, new UUIDIdGenerator(graphConfig), new DefaultSearchIndex(graphConfig));
+    }
+
+    /**
+     * Delivers every broadcast to every subscriber, including the sender, like the RabbitMQ fanout exchange.
+     */
+    private static class FanoutWorkQueueRepository extends WorkQueueRepository {
+        private final List<BroadcastConsumer> broadcastConsumers = new ArrayList<>();
+        private final List<JSONObject> broadcasts = new ArrayList<>();
+
+        public FanoutWorkQueueRepository(Graph graph, Configuration configuration) {
+            super(graph, new WorkQueueNames(configuration), configuration);
+        }
+
+        @Override
+        protected void broadcastJson(JSONObject json) {
+            broadcasts.add(json);
+            for (BroadcastConsumer broadcastConsumer : broadcastConsumers) {
+                broadcastConsumer.broadcastReceived(json);
+            }
+        }
+
+        @Override
+        public void pushOnQueue(String queueName, FlushFlag flushFlag, JSONObject json, Priority priority) {
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void format() {
+        }
+
+        @Override
+        public void subscribeToBroadcastMessages(BroadcastConsumer broadcastConsumer) {
+            broadcastConsumers.add(broadcastConsumer);
+        }
+
+        @Override
+        public WorkerSpout createWorkerSpout(String queueName) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package model.user;
 
+import com.google.common.collect.Sets;
 import com.v5analytics.simpleorm.SimpleOrmSession;
 import org.junit.Before;
 import org.junit.Test;
@@ -22,14 +23,17 @@ import org.visallo.core.model.user.UserRepository;
 import org.visallo.core.model.user.UserSessionCounterRepository;
 import org.visallo.core.model.workQueue.WorkQueueRepository;
 import org.visallo.core.security.VisalloVisibility;
+import org.visallo.core.status.JmxMetricsManager;
+import org.visallo.core.user.User;
 import org.visallo.vertexium.model.user.InMemoryAuthorizationRepository;
 import org.visallo.vertexium.model.user.VertexiumUser;
 import org.visallo.vertexium.model.user.VertexiumUserRepository;
 
 import java.util.HashMap;
 
-import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.*;
 import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -75,7 +79,8 @@ public class VertexiumUserRepositoryTest {
                 userSessionCounterRepository,
                 workQueueRepository,
                 userNotificationRepository,
-                lockRepository
+                lockRepository,
+                new JmxMetricsManager()
         );
     }
 
@@ -86,4 +91,35 @@ public class VertexiumUserRepositoryTest {
         VertexiumUser vertexiumUser = (VertexiumUser) vertexiumUserRepository.findByUsername("12345");
         assertEquals("testUser", vertexiumUser.getDisplayName());
     }
+
+    @Test
+    public void testGetAuthorizationsCachedUntilAuthorizationChanges() {
+        User user = vertexiumUserRepository.findOrAddUser("12345", "testUser", null, "testPassword", new String[]{"auth1"});
+
+        org.vertexium.Authorizations authorizations = vertexiumUserRepository.getAuthorizations(user, "workspace1");
+        assertSame(authorizations, vertexiumUserRepository.getAuthorizations(user, "workspace1"));
+        assertNotSame(authorizations, vertexiumUserRepository.getAuthorizations(user, "workspace2"));
+        assertEquals(Sets.newHashSet("auth1", "workspace1"), Sets.newHashSet(authorizations.getAuthorizations()));
+
+        vertexiumUserRepository.addAuthorization(user, "auth2", vertexiumUserRepository.getSystemUser());
+        verify(workQueueRepository).pushUserAuthorizationsInvalidate(user.getUserId());
+        authorizations = vertexiumUserRepository.getAuthorizations(user, "workspace1");
+        assertEquals(Sets.newHashSet("auth1", "auth2", "workspace1"), Sets.newHashSet(authorizations.getAuthorizations()));
+
+        vertexiumUserRepository.removeAuthorization(user, "auth2", vertexiumUserRepository.getSystemUser());
+        assertEquals(Sets.newHashSet("auth1", "workspace1"), Sets.newHashSet(vertexiumUserRepository.getAuthorizations(user, "workspace1").getAuthorizations()));
+    }
+
+    @Test
+    public void testDeleteInvalidatesTheCachedUserAndAuthorizations() {
+        User user = vertexiumUserRepository.findOrAddUser("12345", "testUser", null, "testPassword", new String[]{"auth1"});
+        vertexiumUserRepository.getAuthorizations(user, "workspace1");
+        assertNotNull(vertexiumUserRepository.findByIdUserVertex(user.getUserId()));
+
+        vertexiumUserRepository.delete(user);
+
+        verify(workQueueRepository).pushUserAuthorizationsInvalidate(user.getUserId());
+        assertNull(vertexiumUserRepository.findByIdUserVertex(user.getUserId()));
+        assertNull(vertexiumUserRepository.findById(user.getUserId()));
+    }
 }
@@ -232,6 +232,47 @@ public class VertexiumWorkspaceRepositorySandboxingTest extends VertexiumWorkspa
         assertDeletedPropertyDiff(diffs.get(2));
     }
 
+    @Test
+    public void getIncrementalDiffSkipsElementsNotChangedSinceMarker() {
+        changePublicPropertyValueOnWorkspace();
+
+        ClientApiWorkspaceDiff workspaceDiff = workspaceRepository.getDiff(workspace, user1, LOCALE, TIME_ZONE);
+        assertFalse(workspaceDiff.isIncremental());
+        assertNotNull(workspaceDiff.getMarker());
+
+        workspaceDiff = workspaceRepository.getDiff(workspace, user1, LOCALE, TIME_ZONE, 0L);
+        assertTrue(workspaceDiff.isIncremental());
+        assertEquals(1, workspaceDiff.getDiffs().size());
+        assertChangedPropertyValueDiff((PropertyItem) workspaceDiff.getDiffs().get(0));
+
+        workspaceDiff = workspaceRepository.getDiff(workspace, user1, LOCALE, TIME_ZONE, Long.MAX_VALUE);
+        assertTrue(workspaceDiff.getDiffs().isEmpty());
+    }
+
+    @Test
+    public void getIncrementalDiffWithMarkerIncludesChangesWrittenJustBeforeTheDiff() {
+        changePublicPropertyValueOnWorkspace();
+        long changedAt = System.currentTimeMillis();
+
+        ClientApiWorkspaceDiff workspaceDiff = workspaceRepository.getDiff(workspace, user1, LOCALE, TIME_ZONE);
+        assertTrue(workspaceDiff.getMarker() < changedAt);
+
+        workspaceDiff = workspaceRepository.getDiff(workspace, user1, LOCALE, TIME_ZONE, workspaceDiff.getMarker());
+        assertTrue(workspaceDiff.isIncremental());
+        assertEquals(1, workspaceDiff.getDiffs().size());
+        assertChangedPropertyValueDiff((PropertyItem) workspaceDiff.getDiffs().get(0));
+    }
+
+    @Test
+    public void getIncrementalDiffIncludesElementsWithHiddenProperties() {
+        deletePublicPropertyOnWorkspace();
+
+        ClientApiWorkspaceDiff workspaceDiff = workspaceRepository.getDiff(workspace, user1, LOCALE, TIME_ZONE, Long.MAX_VALUE);
+
+        assertEquals(1, workspaceDiff.getDiffs().size());
+        assertDeletedPropertyDiff((PropertyItem) workspaceDiff.getDiffs().get(0));
+    }
+
     @Test
     public void publishWithChangedPublicPropertyValueSucceeds() {
         markPublicPropertyHiddenOnWorkspace(); // TODO: why is this necessary?
@@ -1,13 +1,19 @@
 package model.workspace;
 
 import com.google.common.collect.Lists;
+import org.json.JSONObject;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.vertexium.*;
 import org.vertexium.inmemory.InMemoryAuthorizations;
 import org.visallo.core.exception.VisalloAccessDeniedException;
 import org.visallo.core.model.graph.VisibilityAndElementMutation;
 import org.visallo.core.model.user.UserRepository;
+import org.visallo.core.model.workQueue.WorkQueueRepository;
 import org.visallo.core.model.workspace.*;
+import org.visallo.vertexium.model.ontology.InMemoryOntologyProperty;
 import org.visallo.vertexium.model.workspace.VertexiumWorkspaceRepository;
 import org.visallo.web.clientapi.model.*;
 
@@ -16,8 +22,9 @@ import java.util.List;
 
 import static org.junit.Assert.*;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.*;
 import static org.vertexium.util.IterableUtils.count;
 import static org.vertexium.util.IterableUtils.toList;
 
@@ -216,6 +223,35 @@ public class VertexiumWorkspaceRepositoryTest extends VertexiumWorkspaceReposito
         assertTrue(foundRemovedEdge);
     }
 
+    @Test
+    public void testEntitiesCacheInvalidatedPerWorkspaceAndAcrossServers() {
+        VertexiumWorkspaceRepository otherServerWorkspaceRepository = createWorkspaceRepository();
+        ArgumentCaptor<WorkQueueRepository.BroadcastConsumer> broadcastConsumers = ArgumentCaptor.forClass(WorkQueueRepository.BroadcastConsumer.class);
+        verify(workQueueRepository, times(2)).subscribeToBroadcastMessages(broadcastConsumers.capture());
+        WorkQueueRepository.BroadcastConsumer broadcastConsumer = broadcastConsumers.getAllValues().get(0);
+
+        Workspace workspace1 = workspaceRepository.add("workspace1", user1);
+        Workspace workspace2 = workspaceRepository.add("workspace2", user1);
+        workspaceRepository.updateEntityOnWorkspace(workspace1, entity1Vertex.getId(), true, GRAPH_POSITION, user1);
+        workspaceRepository.updateEntityOnWorkspace(workspace2, entity1Vertex.getId(), true, GRAPH_POSITION, user1);
+        assertEquals(1, workspaceRepository.findEntities(workspace1, user1).size());
+        assertEquals(1, workspaceRepository.findEntities(workspace2, user1).size());
+
+        otherServerWorkspaceRepository.softDeleteEntitiesFromWorkspace(workspace2, Lists.newArrayList(entity1Vertex.getId()), user1);
+        verify(workQueueRepository).pushWorkspaceCacheInvalidate(workspace2.getWorkspaceId());
+        assertEquals("cached until the broadcast arrives", 1, workspaceRepository.findEntities(workspace2, user1).size());
+
+        workspaceRepository.softDeleteEntitiesFromWorkspace(workspace1, Lists.newArrayList(entity1Vertex.getId()), user1);
+        assertEquals(0, workspaceRepository.findEntities(workspace1, user1).size());
+        assertEquals("a change to another workspace should keep the cache", 1, workspaceRepository.findEntities(workspace2, user1).size());
+
+        JSONObject invalidateJson = new JSONObject();
+        invalidateJson.put("type", WorkQueueRepository.WORKSPACE_CACHE_INVALIDATE_TYPE);
+        invalidateJson.put("workspaceId", workspace2.getWorkspaceId());
+        broadcastConsumer.broadcastReceived(invalidateJson);
+        assertEquals(0, workspaceRepository.findEntities(workspace2, user1).size());
+    }
+
     @Test
     public void testPublishPropertyWithoutChange() {
         String workspaceId = "testWorkspaceId";
@@ -237,6 +273,33 @@ public class VertexiumWorkspaceRepositoryTest extends VertexiumWorkspaceReposito
         assertEquals("no property with key 'key1' and name 'prop1' found on workspace 'WORKSPACE_testWorkspaceId'", response.getFailures().get(0).getErrorMessage());
     }
 
+    @Test
+    public void testPublishReportsProgressForEachItem() {
+        String workspaceId = "testWorkspaceId";
+        idGenerator.push(workspaceId);
+        idGenerator.push(workspaceId + "_to_" + user1.getUserId());
+        Workspace workspace = workspaceRepository.add("workspace1", user1);
+
+        ClientApiPublishItem[] publishDate = new ClientApiPublishItem[2];
+        for (int i = 0; i < publishDate.length; i++) {
+            publishDate[i] = new ClientApiPropertyPublishItem() {{
+                setAction(Action.addOrUpdate);
+                setKey("key1");
+                setName("prop1");
+                setVertexId(entity1Vertex.getId());
+            }};
+        }
+        final List<String> progress = new ArrayList<>();
+        ClientApiWorkspacePublishResponse response = workspaceRepository.publish(publishDate, workspace.getWorkspaceId(), new WorkspaceRepository.PublishProgressCallback() {
+            @Override
+            public void progress(int publishedCount, int totalCount) {
+                progress.add(publishedCount + "/" + totalCount);
+            }
+        }, NO_AUTHORIZATIONS);
+        assertEquals(2, response.getFailures().size());
+        assertEquals(Lists.newArrayList("1/2", "2/2"), progress);
+    }
+
     @Test
     public void testPublishPropertyWithChange() {
         String workspaceId = "testWorkspaceId";
@@ -283,4 +346,86 @@ public class VertexiumWorkspaceRepositoryTest extends VertexiumWorkspaceReposito
             assertEquals(failMessage, 0, response.getFailures().size());
         }
     }
+
+    @Test
+    public void testPublishFlushesOncePerKindAndBroadcastsAfterTheFlush() {
+        final List<String> events = new ArrayList<>();
+        graph = spy(graph);
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                events.add("flush");
+                invocation.callRealMethod();
+                return null;
+            }
+        }).when(graph).flush();
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                events.add("broadcast " + invocation.getArguments()[1]);
+                return null;
+            }
+        }).when(workQueueRepository).broadcastPublishProperty(any(Element.class), anyString(), anyString());
+        workspaceRepository = createWorkspaceRepository();
+
+        InMemoryOntologyProperty prop9 = new InMemoryOntologyProperty();
+        prop9.setUserVisible(true);
+        when(ontologyRepository.getPropertyByIRI("prop9")).thenReturn(prop9);
+        when(termMentionRepository.findByVertexIdAndProperty(
+                anyString(),
+                anyString(),
+                anyString(),
+                any(Visibility.class),
+                any(Authorizations.class)
+        )).thenReturn(new ArrayList<Vertex>());
+
+        String workspaceId = "testWorkspaceId";
+        idGenerator.push(workspaceId);
+        idGenerator.push(workspaceId + "_to_" + user1.getUserId());
+        Workspace workspace = workspaceRepository.add("workspace1", user1);
+        InMemoryAuthorizations workspaceAuthorizations = new InMemoryAuthorizations(workspace.getWorkspaceId());
+        changeProperty("key1", "prop1", workspace, workspaceAuthorizations);
+        changeProperty("key9", "prop9", workspace, workspaceAuthorizations);
+
+        ClientApiPublishItem[] publishDate = new ClientApiPublishItem[]{
+                createPropertyPublishItem("key1", "prop1"),
+                createPropertyPublishItem("key9", "prop9")
+        };
+        events.clear();
+        ClientApiWorkspacePublishResponse response = workspaceRepository.publish(publishDate, workspace.getWorkspaceId(), workspaceAuthorizations);
+
+        assertEquals(0, response.getFailures().size());
+        // one flush each for vertices, edges and properties, the broadcasts wait for the last one
+        assertEquals(Lists.newArrayList("flush", "flush", "flush", "broadcast key1", "broadcast key9"), events);
+        assertEquals("newValue", graph.getVertex(entity1Vertex.getId(), NO_AUTHORIZATIONS).getPropertyValue("key1", "prop1"));
+        assertEquals("newValue", graph.getVertex(entity1Vertex.getId(), NO_AUTHORIZATIONS).getPropertyValue("key9", "prop9"));
+    }
+
+    private void changeProperty(String key, String name, Workspace workspace, Authorizations workspaceAuthorizations) {
+        VisibilityAndElementMutation<Vertex> setPropertyResult = graphRepository.setProperty(
+                graph.getVertex(entity1Vertex.getId(), workspaceAuthorizations),
+                name,
+                key,
+                "newValue",
+                new Metadata(),
+                "",
+                "",
+                workspace.getWorkspaceId(),
+                "I changed it",
+                new ClientApiSourceInfo(),
+                user1,
+                workspaceAuthorizations
+        );
+        setPropertyResult.elementMutation.save(workspaceAuthorizations);
+        graph.flush();
+    }
+
+    private static ClientApiPropertyPublishItem createPropertyPublishItem(final String key, final String name) {
+        return new ClientApiPropertyPublishItem() {{
+            setAction(Action.addOrUpdate);
+            setKey(key);
+            setName(name);
+            setVertexId("entity1Id");
+        }};
+    }
 }
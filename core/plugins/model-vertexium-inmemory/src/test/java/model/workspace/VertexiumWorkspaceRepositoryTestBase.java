@@ -31,6 +31,7 @@ import org.visallo.core.model.workspace.WorkspaceRepository;
 import org.visallo.core.model.workspace.diff.WorkspaceDiffHelper;
 import org.visallo.core.security.DirectVisibilityTranslator;
 import org.visallo.core.security.VisibilityTranslator;
+import org.visallo.core.status.JmxMetricsManager;
 import org.visallo.vertexium.model.ontology.InMemoryOntologyProperty;
 import org.visallo.vertexium.model.user.InMemoryAuthorizationRepository;
 import org.visallo.vertexium.model.user.InMemoryUser;
@@ -59,6 +60,9 @@ public abstract class VertexiumWorkspaceRepositoryTestBase {
     protected AuthorizationRepository authorizationRepository;
     protected GraphRepository graphRepository;
     protected UserRepository userRepository;
+    protected Configuration visalloConfiguration;
+    protected LockRepository lockRepository;
+    protected WorkspaceDiffHelper workspaceDiff;
 
     @Mock
     protected TermMentionRepository termMentionRepository;
@@ -93,8 +97,8 @@ public abstract class VertexiumWorkspaceRepositoryTestBase {
         graph = InMemoryGraph.create(config, idGenerator, new DefaultSearchIndex(config));
         authorizationRepository = new InMemoryAuthorizationRepository();
 
-        Configuration visalloConfiguration = new HashMapConfigurationLoader(new HashMap()).createConfiguration();
-        LockRepository lockRepository = new NonLockingLockRepository();
+        visalloConfiguration = new HashMapConfigurationLoader(new HashMap()).createConfiguration();
+        lockRepository = new NonLockingLockRepository();
 
         userRepository = new InMemoryUserRepository(
                 graph,
@@ -113,19 +117,9 @@ public abstract class VertexiumWorkspaceRepositoryTestBase {
         graph.addVertex(user2.getUserId(), DEFAULT_VISIBILITY, NO_AUTHORIZATIONS);
 
         FormulaEvaluator formulaEvaluator = new FormulaEvaluator(visalloConfiguration, ontologyRepository);
-        WorkspaceDiffHelper workspaceDiff = new WorkspaceDiffHelper(graph, userRepository, formulaEvaluator);
+        workspaceDiff = new WorkspaceDiffHelper(graph, userRepository, formulaEvaluator);
 
-        workspaceRepository = new VertexiumWorkspaceRepository(
-                graph,
-                userRepository,
-                authorizationRepository,
-                workspaceDiff,
-                lockRepository,
-                VISIBILITY_TRANSLATOR,
-                termMentionRepository,
-                ontologyRepository,
-                workQueueRepository
-        );
+        workspaceRepository = createWorkspaceRepository();
 
         graphRepository = new GraphRepository(
                 graph,
@@ -143,4 +137,20 @@ public abstract class VertexiumWorkspaceRepositoryTestBase {
                 .addPropertyValue("key9", "prop9", "value9", new Metadata(), DEFAULT_VISIBILITY)
                 .save(NO_AUTHORIZATIONS);
     }
+
+    protected VertexiumWorkspaceRepository createWorkspaceRepository() {
+        return new VertexiumWorkspaceRepository(
+                graph,
+                userRepository,
+                authorizationRepository,
+                workspaceDiff,
+                lockRepository,
+                VISIBILITY_TRANSLATOR,
+                termMentionRepository,
+                ontologyRepository,
+                workQueueRepository,
+                visalloConfiguration,
+                new JmxMetricsManager()
+        );
+    }
 }
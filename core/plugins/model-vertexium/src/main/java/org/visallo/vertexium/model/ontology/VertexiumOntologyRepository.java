@@ -2,8 +2,6 @@ package org.visallo.vertexium.model.ontology;
 
 import com.google.common.base.Function;
 import com.google.common.base.Predicate;
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
@@ -14,12 +12,14 @@ import org.visallo.core.exception.VisalloException;
 import org.visallo.core.model.ontology.*;
 import org.visallo.core.model.properties.VisalloProperties;
 import org.visallo.core.model.user.AuthorizationRepository;
+import org.visallo.core.model.workQueue.WorkQueueRepository;
 import org.visallo.core.util.JSONUtil;
 import org.visallo.core.util.VisalloLogger;
 import org.visallo.core.util.VisalloLoggerFactory;
 import org.visallo.core.util.TimingCallable;
 import org.visallo.web.clientapi.model.ClientApiOntology;
 import org.visallo.web.clientapi.model.PropertyType;
+import org.json.JSONObject;
 import org.semanticweb.owlapi.io.OWLOntologyDocumentSource;
 import org.semanticweb.owlapi.io.ReaderDocumentSource;
 import org.semanticweb.owlapi.model.*;
@@ -31,8 +31,6 @@ import org.vertexium.util.FilterIterable;
 import javax.annotation.Nullable;
 import java.io.*;
 import java.util.*;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -46,27 +44,44 @@ public class VertexiumOntologyRepository extends OntologyRepositoryBase {
     public static final String DEPENDENT_PROPERTY_ORDER_PROPERTY_NAME = "order";
     private Graph graph;
     private Authorizations authorizations;
-    private Cache<String, List<Concept>> allConceptsWithPropertiesCache = CacheBuilder.newBuilder()
-            .expireAfterWrite(15, TimeUnit.HOURS)
-            .build();
-    protected Cache<String, List<OntologyProperty>> allPropertiesCache = CacheBuilder.newBuilder()
-            .expireAfterWrite(15, TimeUnit.HOURS)
-            .build();
-    private Cache<String, List<Relationship>> relationshipLabelsCache = CacheBuilder.newBuilder()
-            .expireAfterWrite(15, TimeUnit.HOURS)
-            .build();
-    private Cache<String, ClientApiOntology> clientApiCache = CacheBuilder.newBuilder()
-            .expireAfterWrite(15, TimeUnit.HOURS)
-            .build();
+    private final Object snapshotLock = new Object();
+    private volatile VertexiumOntologySnapshot snapshot;
+    private final WorkQueueRepository workQueueRepository;
+    private final String cacheInvalidateSourceId = UUID.randomUUID().toString();
+    private volatile boolean ontologiesLoaded;
 
-    @Inject
+    /**
+     * Creates a repository that does not tell other servers about ontology changes, for standalone tools.
+     */
     public VertexiumOntologyRepository(
             final Graph graph,
             final Configuration config,
             final AuthorizationRepository authorizationRepository
+    ) throws Exception {
+        this(graph, config, authorizationRepository, null);
+    }
+
+    @Inject
+    public VertexiumOntologyRepository(
+            final Graph graph,
+            final Configuration config,
+            final AuthorizationRepository authorizationRepository,
+            final WorkQueueRepository workQueueRepository
     ) throws Exception {
         super(config);
         this.graph = graph;
+        this.workQueueRepository = workQueueRepository;
+
+        if (workQueueRepository != null) {
+            workQueueRepository.subscribeToBroadcastMessages(new WorkQueueRepository.BroadcastConsumer() {
+                @Override
+                public void broadcastReceived(JSONObject json) {
+                    if (WorkQueueRepository.ONTOLOGY_CACHE_INVALIDATE_TYPE.equals(json.optString("type"))) {
+                        cacheInvalidateReceived(json);
+                    }
+                }
+            });
+        }
 
         authorizationRepository.addAuthorizationToGraph(VISIBILITY_STRING);
 
@@ -75,6 +90,7 @@ public class VertexiumOntologyRepository extends OntologyRepositoryBase {
         this.authorizations = graph.createAuthorizations(authorizationsSet);
 
         loadOntologies(config, authorizations);
+        ontologiesLoaded = true;
     }
 
     @Override
@@ -91,23 +107,156 @@ public class VertexiumOntologyRepository extends OntologyRepositoryBase {
 
     @Override
     public ClientApiOntology getClientApiObject() {
-        ClientApiOntology o = this.clientApiCache.getIfPresent("clientApi");
-        if (o != null) {
-            return o;
-        }
-        o = super.getClientApiObject();
-        this.clientApiCache.put("clientApi", o);
-        return o;
+        return getSnapshot().getClientApiObject();
     }
 
+    /**
+     * Reloads the whole ontology from the graph. Readers keep using the previous snapshot until the new one is swapped in.
+     */
     @Override
     public void clearCache() {
+        reloadSnapshot();
+        if (ontologiesLoaded) {
+            // the load at startup only reads what the other servers already have
+            pushCacheInvalidate(null, null, null);
+        }
+    }
+
+    private void reloadSnapshot() {
         LOGGER.info("clearing ontology cache");
         graph.flush();
-        this.clientApiCache.invalidateAll();
-        this.allConceptsWithPropertiesCache.invalidateAll();
-        this.allPropertiesCache.invalidateAll();
-        this.relationshipLabelsCache.invalidateAll();
+        synchronized (snapshotLock) {
+            long version = snapshot == null ? 1 : snapshot.getVersion() + 1;
+            snapshot = loadSnapshot(version);
+        }
+    }
+
+    /**
+     * Applies a change made by another server. Nothing is broadcast from here, so servers do not echo changes back.
+     */
+    private void cacheInvalidateReceived(JSONObject json) {
+        if (cacheInvalidateSourceId.equals(json.optString("sourceId"))) {
+            return;
+        }
+        if (snapshot == null) {
+            // nothing is loaded yet, the first read loads the current ontology
+            return;
+        }
+        if (!json.has("conceptIris") || !json.has("propertyIris") || !json.has("relationshipIris")) {
+            reloadSnapshot();
+            return;
+        }
+        replaceInSnapshot(
+                JSONUtil.toStringList(json.getJSONArray("conceptIris")),
+                JSONUtil.toStringList(json.getJSONArray("propertyIris")),
+                JSONUtil.toStringList(json.getJSONArray("relationshipIris"))
+        );
+    }
+
+    private void pushCacheInvalidate(Collection<String> conceptIris, Collection<String> propertyIris, Collection<String> relationshipIris) {
+        if (workQueueRepository == null) {
+            return;
+        }
+        workQueueRepository.pushOntologyCacheInvalidate(cacheInvalidateSourceId, conceptIris, propertyIris, relationshipIris);
+    }
+
+    @Override
+    protected void importStepCompleted() {
+        // the snapshot is updated as each concept, property and relationship is saved
+        graph.flush();
+    }
+
+    private VertexiumOntologySnapshot getSnapshot() {
+        VertexiumOntologySnapshot result = snapshot;
+        if (result != null) {
+            return result;
+        }
+        synchronized (snapshotLock) {
+            if (snapshot == null) {
+                snapshot = loadSnapshot(1);
+            }
+            return snapshot;
+        }
+    }
+
+    private VertexiumOntologySnapshot loadSnapshot(long version) {
+        long startTime = System.currentTimeMillis();
+        List<OntologyProperty> properties = loadProperties();
+        List<Concept> concepts = loadConcepts();
+        List<Relationship> relationships = loadRelationships();
+        VertexiumOntologySnapshot result = VertexiumOntologySnapshot.create(version, concepts, properties, relationships);
+        LOGGER.debug(
+                "loaded ontology snapshot %d (concepts: %d, properties: %d, relationships: %d) in %dms",
+                version, concepts.size(), properties.size(), relationships.size(), System.currentTimeMillis() - startTime
+        );
+        return result;
+    }
+
+    /**
+     * Reads only the given concepts, properties and relationships from the graph and swaps in a snapshot with them
+     * replaced, then tells the other servers to do the same once startup has finished loading. The graph must be
+     * flushed before calling this so the reads see the changes.
+     */
+    private VertexiumOntologySnapshot updateSnapshot(Collection<String> conceptIris, Collection<String> propertyIris, Collection<String> relationshipIris) {
+        VertexiumOntologySnapshot result = replaceInSnapshot(conceptIris, propertyIris, relationshipIris);
+        if (ontologiesLoaded) {
+            pushCacheInvalidate(conceptIris, propertyIris, relationshipIris);
+        }
+        return result;
+    }
+
+    private VertexiumOntologySnapshot replaceInSnapshot(Collection<String> conceptIris, Collection<String> propertyIris, Collection<String> relationshipIris) {
+        synchronized (snapshotLock) {
+            VertexiumOntologySnapshot current = getSnapshot();
+            List<Concept> concepts = new ArrayList<>();
+            for (Vertex vertex : getVertices(ID_PREFIX_CONCEPT, conceptIris)) {
+                concepts.add(toConcept(vertex));
+            }
+            List<OntologyProperty> properties = new ArrayList<>();
+            for (Vertex vertex : getVertices(ID_PREFIX_PROPERTY, propertyIris)) {
+                properties.add(createOntologyProperty(vertex, getDependentPropertyIris(vertex)));
+            }
+            List<Relationship> relationships = new ArrayList<>();
+            for (Vertex vertex : getVertices(ID_PREFIX_RELATIONSHIP, relationshipIris)) {
+                relationships.add(toVertexiumRelationship(vertex));
+            }
+            snapshot = current.update(concepts, properties, relationships);
+            LOGGER.debug(
+                    "updated ontology snapshot %d (concepts: %s, properties: %s, relationships: %s)",
+                    snapshot.getVersion(), conceptIris, propertyIris, relationshipIris
+            );
+            return snapshot;
+        }
+    }
+
+    private Iterable<Vertex> getVertices(String idPrefix, Collection<String> iris) {
+        if (iris.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> vertexIds = new ArrayList<>();
+        for (String iri : iris) {
+            vertexIds.add(idPrefix + iri);
+        }
+        return graph.getVertices(vertexIds, getAuthorizations());
+    }
+
+    private VertexiumOntologySnapshot updateConcepts(String... conceptIris) {
+        return updateSnapshot(Arrays.asList(conceptIris), Collections.<String>emptyList(), Collections.<String>emptyList());
+    }
+
+    private VertexiumOntologySnapshot updateRelationships(String... relationshipIris) {
+        return updateSnapshot(Collections.<String>emptyList(), Collections.<String>emptyList(), Arrays.asList(relationshipIris));
+    }
+
+    @Override
+    protected Concept importOntologyClass(OWLOntology o, OWLClass ontologyClass, File inDir, Authorizations authorizations) throws IOException {
+        Concept concept = super.importOntologyClass(o, ontologyClass, inDir, authorizations);
+        if (concept == null) {
+            return null;
+        }
+        // annotations such as intents were set on the vertex after the concept was created
+        graph.flush();
+        return updateConcepts(concept.getIRI()).getConceptByIri(concept.getIRI());
     }
 
     @Override
@@ -116,6 +265,7 @@ public class VertexiumOntologyRepository extends OntologyRepositoryBase {
         raw.searchIndex(false);
         entityConcept.setProperty(OntologyProperties.GLYPH_ICON.getPropertyName(), raw, authorizations);
         graph.flush();
+        updateConcepts(entityConcept.getIRI());
     }
 
     @Override
@@ -127,6 +277,7 @@ public class VertexiumOntologyRepository extends OntologyRepositoryBase {
         metadata.add("index", Iterables.size(OntologyProperties.ONTOLOGY_FILE.getProperties(rootConceptVertex)), VISIBILITY.getVisibility());
         OntologyProperties.ONTOLOGY_FILE.addPropertyValue(rootConceptVertex, documentIRI.toString(), value, metadata, VISIBILITY.getVisibility(), authorizations);
         graph.flush();
+        updateConcepts(ROOT_CONCEPT_IRI);
     }
 
     @Override
@@ -182,8 +333,12 @@ public class VertexiumOntologyRepository extends OntologyRepositoryBase {
 
     @Override
     public Iterable<Relationship> getRelationships() {
+        return getSnapshot().getRelationships();
+    }
+
+    private List<Relationship> loadRelationships() {
         try {
-            return relationshipLabelsCache.get("", new TimingCallable<List<Relationship>>("getRelationships") {
+            return new TimingCallable<List<Relationship>>("getRelationships") {
                 @Override
                 public List<Relationship> callWithTime() throws Exception {
                     Iterable<Vertex> vertices = graph.getVerticesWithPrefix(ID_PREFIX_RELATIONSHIP, getAuthorizations());
@@ -201,9 +356,9 @@ public class VertexiumOntologyRepository extends OntologyRepositoryBase {
                         }
                     }));
                 }
-            });
-        } catch (ExecutionException e) {
-            throw new VisalloException("Could not get relationship labels");
+            }.call();
+        } catch (Exception e) {
+            throw new VisalloException("Could not get relationship labels", e);
         }
     }
 
@@ -256,8 +411,12 @@ public class VertexiumOntologyRepository extends OntologyRepositoryBase {
 
     @Override
     public Iterable<OntologyProperty> getProperties() {
+        return getSnapshot().getProperties();
+    }
+
+    private List<OntologyProperty> loadProperties() {
         try {
-            return allPropertiesCache.get("", new TimingCallable<List<OntologyProperty>>("getProperties") {
+            return new TimingCallable<List<OntologyProperty>>("getProperties") {
                 @Override
                 public List<OntologyProperty> callWithTime() throws Exception {
                     Iterable<Vertex> vertices = graph.getVerticesWithPrefix(ID_PREFIX_PROPERTY, getAuthorizations());
@@ -275,8 +434,8 @@ public class VertexiumOntologyRepository extends OntologyRepositoryBase {
                         }
                     }));
                 }
-            });
-        } catch (ExecutionException e) {
+            }.call();
+        } catch (Exception e) {
             throw new VisalloException("Could not get properties", e);
         }
     }
@@ -308,8 +467,42 @@ public class VertexiumOntologyRepository extends OntologyRepositoryBase {
 
     @Override
     public Iterable<Concept> getConceptsWithProperties() {
+        return getSnapshot().getConcepts();
+    }
+
+    @Override
+    public Concept getConceptByIRI(String conceptIRI) {
+        return getSnapshot().getConceptByIri(conceptIRI);
+    }
+
+    @Override
+    public OntologyProperty getPropertyByIRI(String propertyIRI) {
+        return getSnapshot().getPropertyByIri(propertyIRI);
+    }
+
+    @Override
+    public Relationship getRelationshipByIRI(String relationshipIRI) {
+        return getSnapshot().getRelationshipByIri(relationshipIRI);
+    }
+
+    @Override
+    protected List<Concept> findLoadedConceptsByIntent(String intent) {
+        return getSnapshot().getConceptsByIntent(intent);
+    }
+
+    @Override
+    protected List<OntologyProperty> findLoadedPropertiesByIntent(String intent) {
+        return getSnapshot().getPropertiesByIntent(intent);
+    }
+
+    @Override
+    protected List<Relationship> findLoadedRelationshipsByIntent(String intent) {
+        return getSnapshot().getRelationshipsByIntent(intent);
+    }
+
+    private List<Concept> loadConcepts() {
         try {
-            return allConceptsWithPropertiesCache.get("", new TimingCallable<List<Concept>>("getConceptsWithProperties") {
+            return new TimingCallable<List<Concept>>("getConceptsWithProperties") {
                 @Override
                 public List<Concept> callWithTime() throws Exception {
                     Iterable<Vertex> vertices = graph.getVerticesWithPrefix(ID_PREFIX_CONCEPT, getAuthorizations());
@@ -323,19 +516,23 @@ public class VertexiumOntologyRepository extends OntologyRepositoryBase {
                         @Nullable
                         @Override
                         public Concept apply(@Nullable Vertex vertex) {
-                            List<OntologyProperty> conceptProperties = getPropertiesByVertexNoRecursion(vertex);
-                            Vertex parentConceptVertex = getParentConceptVertex(vertex);
-                            String parentConceptIRI = OntologyProperties.ONTOLOGY_TITLE.getPropertyValue(parentConceptVertex);
-                            return createConcept(vertex, conceptProperties, parentConceptIRI);
+                            return toConcept(vertex);
                         }
                     }));
                 }
-            });
-        } catch (ExecutionException e) {
+            }.call();
+        } catch (Exception e) {
             throw new VisalloException("could not get concepts with properties", e);
         }
     }
 
+    private Concept toConcept(Vertex vertex) {
+        List<OntologyProperty> conceptProperties = getPropertiesByVertexNoRecursion(vertex);
+        Vertex parentConceptVertex = getParentConceptVertex(vertex);
+        String parentConceptIRI = parentConceptVertex == null ? null : OntologyProperties.ONTOLOGY_TITLE.getPropertyValue(parentConceptVertex);
+        return createConcept(vertex, conceptProperties, parentConceptIRI);
+    }
+
     private Concept getRootConcept() {
         return getConceptByIRI(VertexiumOntologyRepository.ROOT_CONCEPT_IRI);
     }
@@ -345,27 +542,38 @@ public class VertexiumOntologyRepository extends OntologyRepositoryBase {
         return getConceptByIRI(VertexiumOntologyRepository.ENTITY_CONCEPT_IRI);
     }
 
+    @Override
+    public Set<Concept> getConceptAndAllChildren(Concept concept) {
+        VertexiumOntologySnapshot snapshot = getSnapshot();
+        Set<String> conceptIris = snapshot.getConceptHierarchy().getConceptAndAllChildrenIris(concept.getIRI());
+        if (conceptIris == null) {
+            return super.getConceptAndAllChildren(concept);
+        }
+        Set<Concept> result = new HashSet<>(conceptIris.size() * 2);
+        for (String conceptIri : conceptIris) {
+            result.add(snapshot.getConceptByIri(conceptIri));
+        }
+        return result;
+    }
+
+    @Override
+    protected ConceptHierarchy getConceptHierarchy() {
+        return getSnapshot().getConceptHierarchy();
+    }
+
     @Override
     protected List<Concept> getChildConcepts(Concept concept) {
-        Vertex conceptVertex = ((VertexiumConcept) concept).getVertex();
-        return toConcepts(conceptVertex.getVertices(Direction.IN, LabelName.IS_A.toString(), getAuthorizations()));
+        return getSnapshot().getChildConcepts(concept.getIRI());
     }
 
     @Override
     public Concept getParentConcept(final Concept concept) {
-        Vertex parentConceptVertex = getParentConceptVertex(((VertexiumConcept) concept).getVertex());
-        if (parentConceptVertex == null) {
+        Concept snapshotConcept = getConceptByIRI(concept.getIRI());
+        String parentConceptIRI = snapshotConcept == null ? concept.getParentConceptIRI() : snapshotConcept.getParentConceptIRI();
+        if (parentConceptIRI == null) {
             return null;
         }
-        return createConcept(parentConceptVertex);
-    }
-
-    private List<Concept> toConcepts(Iterable<Vertex> vertices) {
-        ArrayList<Concept> concepts = new ArrayList<>();
-        for (Vertex vertex : vertices) {
-            concepts.add(createConcept(vertex));
-        }
-        return concepts;
+        return getConceptByIRI(parentConceptIRI);
     }
 
     private List<OntologyProperty> getPropertiesByVertexNoRecursion(Vertex vertex) {
@@ -395,13 +603,12 @@ public class VertexiumOntologyRepository extends OntologyRepositoryBase {
         }
         Vertex vertex = builder.save(getAuthorizations());
 
-        concept = createConcept(vertex);
         if (parent != null) {
-            findOrAddEdge(((VertexiumConcept) concept).getVertex(), ((VertexiumConcept) parent).getVertex(), LabelName.IS_A.toString());
+            findOrAddEdge(vertex, ((VertexiumConcept) parent).getVertex(), LabelName.IS_A.toString());
         }
 
         graph.flush();
-        return concept;
+        return updateConcepts(conceptIRI).getConceptByIri(conceptIRI);
     }
 
     protected void findOrAddEdge(Vertex fromVertex, final Vertex toVertex, String edgeLabel) {
@@ -457,12 +664,14 @@ public class VertexiumOntologyRepository extends OntologyRepositoryBase {
         );
         checkNotNull(property, "Could not find property: " + propertyIri);
 
+        List<String> conceptIris = new ArrayList<>();
         for (Concept concept : concepts) {
             findOrAddEdge(((VertexiumConcept) concept).getVertex(), ((VertexiumOntologyProperty) property).getVertex(), LabelName.HAS_PROPERTY.toString());
+            conceptIris.add(concept.getIRI());
         }
 
         graph.flush();
-        return property;
+        return updateSnapshot(conceptIris, Collections.singletonList(propertyIri), Collections.<String>emptyList()).getPropertyByIri(propertyIri);
     }
 
     @Override
@@ -481,6 +690,8 @@ public class VertexiumOntologyRepository extends OntologyRepositoryBase {
 
         findOrAddEdge(fromVertex, inverseVertex, LabelName.INVERSE_OF.toString());
         findOrAddEdge(inverseVertex, fromVertex, LabelName.INVERSE_OF.toString());
+        graph.flush();
+        updateRelationships(fromRelationship.getIRI(), inverseOfRelationship.getIRI());
     }
 
     @Override
@@ -515,25 +726,8 @@ public class VertexiumOntologyRepository extends OntologyRepositoryBase {
             findOrAddEdge(relationshipVertex, ((VertexiumConcept) rangeConcept).getVertex(), LabelName.HAS_EDGE.toString());
         }
 
-        List<String> inverseOfIRIs = new ArrayList<>(); // no inverse of because this relationship is new
-
         graph.flush();
-
-        List<String> domainConceptIris = Lists.newArrayList(new ConvertingIterable<Concept, String>(domainConcepts) {
-            @Override
-            protected String convert(Concept o) {
-                return o.getIRI();
-            }
-        });
-
-        List<String> rangeConceptIris = Lists.newArrayList(new ConvertingIterable<Concept, String>(rangeConcepts) {
-            @Override
-            protected String convert(Concept o) {
-                return o.getIRI();
-            }
-        });
-
-        return createRelationship(relationshipVertex, inverseOfIRIs, domainConceptIris, rangeConceptIris);
+        return updateRelationships(relationshipIRI).getRelationshipByIri(relationshipIRI);
     }
 
     private OntologyProperty getOrCreatePropertyType(
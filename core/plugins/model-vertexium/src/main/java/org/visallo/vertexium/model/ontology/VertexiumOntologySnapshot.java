@@ -0,0 +1,202 @@
+package org.visallo.vertexium.model.ontology;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import org.visallo.core.model.ontology.Concept;
+import org.visallo.core.model.ontology.ConceptHierarchy;
+import org.visallo.core.model.ontology.OntologyProperty;
+import org.visallo.core.model.ontology.Relationship;
+import org.visallo.web.clientapi.model.ClientApiOntology;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable view of the ontology with lookup maps by IRI, intent and parent concept. A change never modifies a
+ * snapshot, {@link #update(Iterable, Iterable, Iterable)} returns a new snapshot with the next version that shares
+ * every concept, property and relationship that did not change.
+ */
+class VertexiumOntologySnapshot {
+    private final long version;
+    private final Map<String, Concept> conceptsByIri;
+    private final Map<String, OntologyProperty> propertiesByIri;
+    private final Map<String, Relationship> relationshipsByIri;
+    private final List<Concept> concepts;
+    private final List<OntologyProperty> properties;
+    private final List<Relationship> relationships;
+    private final ImmutableListMultimap<String, Concept> conceptsByIntent;
+    private final ImmutableListMultimap<String, OntologyProperty> propertiesByIntent;
+    private final ImmutableListMultimap<String, Relationship> relationshipsByIntent;
+    private final ImmutableListMultimap<String, Concept> childConceptsByParentIri;
+    private volatile ClientApiOntology clientApiOntology;
+    private volatile ConceptHierarchy conceptHierarchy;
+
+    private VertexiumOntologySnapshot(
+            long version,
+            Map<String, Concept> conceptsByIri,
+            Map<String, OntologyProperty> propertiesByIri,
+            Map<String, Relationship> relationshipsByIri
+    ) {
+        this.version = version;
+        this.conceptsByIri = Collections.unmodifiableMap(conceptsByIri);
+        this.propertiesByIri = Collections.unmodifiableMap(propertiesByIri);
+        this.relationshipsByIri = Collections.unmodifiableMap(relationshipsByIri);
+        this.concepts = ImmutableList.copyOf(conceptsByIri.values());
+        this.properties = ImmutableList.copyOf(propertiesByIri.values());
+        this.relationships = ImmutableList.copyOf(relationshipsByIri.values());
+
+        ImmutableListMultimap.Builder<String, Concept> conceptsByIntent = ImmutableListMultimap.builder();
+        ImmutableListMultimap.Builder<String, Concept> childConceptsByParentIri = ImmutableListMultimap.builder();
+        for (Concept concept : this.concepts) {
+            for (String intent : nullToEmpty(concept.getIntents())) {
+                conceptsByIntent.put(intent, concept);
+            }
+            if (concept.getParentConceptIRI() != null) {
+                childConceptsByParentIri.put(concept.getParentConceptIRI(), concept);
+            }
+        }
+        this.conceptsByIntent = conceptsByIntent.build();
+        this.childConceptsByParentIri = childConceptsByParentIri.build();
+
+        ImmutableListMultimap.Builder<String, OntologyProperty> propertiesByIntent = ImmutableListMultimap.builder();
+        for (OntologyProperty property : this.properties) {
+            for (String intent : nullToEmpty(property.getIntents())) {
+                propertiesByIntent.put(intent, property);
+            }
+        }
+        this.propertiesByIntent = propertiesByIntent.build();
+
+        ImmutableListMultimap.Builder<String, Relationship> relationshipsByIntent = ImmutableListMultimap.builder();
+        for (Relationship relationship : this.relationships) {
+            for (String intent : nullToEmpty(relationship.getIntents())) {
+                relationshipsByIntent.put(intent, relationship);
+            }
+        }
+        this.relationshipsByIntent = relationshipsByIntent.build();
+    }
+
+    static VertexiumOntologySnapshot create(
+            long version,
+            Iterable<Concept> concepts,
+            Iterable<OntologyProperty> properties,
+            Iterable<Relationship> relationships
+    ) {
+        return new VertexiumOntologySnapshot(
+                version,
+                putConcepts(new LinkedHashMap<String, Concept>(), concepts),
+                putProperties(new LinkedHashMap<String, OntologyProperty>(), properties),
+                putRelationships(new LinkedHashMap<String, Relationship>(), relationships)
+        );
+    }
+
+    /**
+     * @return a new snapshot with the given concepts, properties and relationships added or replaced by IRI
+     */
+    VertexiumOntologySnapshot update(
+            Iterable<Concept> changedConcepts,
+            Iterable<OntologyProperty> changedProperties,
+            Iterable<Relationship> changedRelationships
+    ) {
+        return new VertexiumOntologySnapshot(
+                version + 1,
+                putConcepts(new LinkedHashMap<>(conceptsByIri), changedConcepts),
+                putProperties(new LinkedHashMap<>(propertiesByIri), changedProperties),
+                putRelationships(new LinkedHashMap<>(relationshipsByIri), changedRelationships)
+        );
+    }
+
+    private static Map<String, Concept> putConcepts(Map<String, Concept> conceptsByIri, Iterable<Concept> concepts) {
+        for (Concept concept : concepts) {
+            conceptsByIri.put(concept.getIRI(), concept);
+        }
+        return conceptsByIri;
+    }
+
+    private static Map<String, OntologyProperty> putProperties(Map<String, OntologyProperty> propertiesByIri, Iterable<OntologyProperty> properties) {
+        for (OntologyProperty property : properties) {
+            propertiesByIri.put(property.getTitle(), property);
+        }
+        return propertiesByIri;
+    }
+
+    private static Map<String, Relationship> putRelationships(Map<String, Relationship> relationshipsByIri, Iterable<Relationship> relationships) {
+        for (Relationship relationship : relationships) {
+            relationshipsByIri.put(relationship.getIRI(), relationship);
+        }
+        return relationshipsByIri;
+    }
+
+    private static String[] nullToEmpty(String[] intents) {
+        return intents == null ? new String[0] : intents;
+    }
+
+    long getVersion() {
+        return version;
+    }
+
+    List<Concept> getConcepts() {
+        return concepts;
+    }
+
+    List<OntologyProperty> getProperties() {
+        return properties;
+    }
+
+    List<Relationship> getRelationships() {
+        return relationships;
+    }
+
+    Concept getConceptByIri(String conceptIri) {
+        return conceptsByIri.get(conceptIri);
+    }
+
+    OntologyProperty getPropertyByIri(String propertyIri) {
+        return propertiesByIri.get(propertyIri);
+    }
+
+    Relationship getRelationshipByIri(String relationshipIri) {
+        return relationshipsByIri.get(relationshipIri);
+    }
+
+    List<Concept> getConceptsByIntent(String intent) {
+        return conceptsByIntent.get(intent);
+    }
+
+    List<OntologyProperty> getPropertiesByIntent(String intent) {
+        return propertiesByIntent.get(intent);
+    }
+
+    List<Relationship> getRelationshipsByIntent(String intent) {
+        return relationshipsByIntent.get(intent);
+    }
+
+    List<Concept> getChildConcepts(String parentConceptIri) {
+        return childConceptsByParentIri.get(parentConceptIri);
+    }
+
+    /**
+     * Built on first use rather than with the snapshot because an import creates a snapshot per saved concept.
+     */
+    ConceptHierarchy getConceptHierarchy() {
+        ConceptHierarchy result = conceptHierarchy;
+        if (result == null) {
+            result = ConceptHierarchy.create(concepts);
+            conceptHierarchy = result;
+        }
+        return result;
+    }
+
+    ClientApiOntology getClientApiObject() {
+        ClientApiOntology result = clientApiOntology;
+        if (result == null) {
+            result = new ClientApiOntology();
+            result.addAllConcepts(Concept.toClientApiConcepts(concepts));
+            result.addAllProperties(OntologyProperty.toClientApiProperties(properties));
+            result.addAllRelationships(Relationship.toClientApiRelationships(relationships));
+            clientApiOntology = result;
+        }
+        return result;
+    }
+}
@@ -1,7 +1,9 @@
 package org.visallo.vertexium.model.user;
 
+import com.codahale.metrics.Timer;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSet;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import com.v5analytics.simpleorm.SimpleOrmContext;
@@ -14,6 +16,7 @@ import org.vertexium.VertexBuilder;
 import org.vertexium.mutation.ExistingElementMutation;
 import org.vertexium.util.ConvertingIterable;
 import org.visallo.core.config.Configuration;
+import org.visallo.core.exception.VisalloException;
 import org.visallo.core.model.lock.LockRepository;
 import org.visallo.core.model.notification.UserNotificationRepository;
 import org.visallo.core.model.ontology.Concept;
@@ -22,6 +25,7 @@ import org.visallo.core.model.properties.VisalloProperties;
 import org.visallo.core.model.user.*;
 import org.visallo.core.model.workQueue.WorkQueueRepository;
 import org.visallo.core.security.VisalloVisibility;
+import org.visallo.core.status.MetricsManager;
 import org.visallo.core.trace.Traced;
 import org.visallo.core.user.SystemUser;
 import org.visallo.core.user.User;
@@ -30,10 +34,11 @@ import org.visallo.core.util.VisalloLoggerFactory;
 import org.visallo.web.clientapi.model.Privilege;
 import org.visallo.web.clientapi.model.UserStatus;
 
-import java.util.Collections;
-import java.util.Date;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -47,9 +52,17 @@ public class VertexiumUserRepository extends UserRepository {
     private Graph graph;
     private String userConceptId;
     private org.vertexium.Authorizations authorizations;
+    private final WorkQueueRepository workQueueRepository;
     private final Cache<String, Vertex> userVertexCache = CacheBuilder.newBuilder()
             .expireAfterWrite(15, TimeUnit.SECONDS)
             .build();
+    // user id to the authorizations of the user by additional authorizations
+    private final Cache<String, ConcurrentMap<List<String>, org.vertexium.Authorizations>> userAuthorizationsCache;
+    // users with the same authorizations share one authorizations object
+    private final Cache<Set<String>, org.vertexium.Authorizations> internedAuthorizations = CacheBuilder.newBuilder()
+            .weakValues()
+            .build();
+    private final Timer getAuthorizationsTimer;
 
     @Inject
     public VertexiumUserRepository(
@@ -61,7 +74,8 @@ public class VertexiumUserRepository extends UserRepository {
             UserSessionCounterRepository userSessionCounterRepository,
             WorkQueueRepository workQueueRepository,
             UserNotificationRepository userNotificationRepository,
-            LockRepository lockRepository
+            LockRepository lockRepository,
+            MetricsManager metricsManager
     ) {
         super(
                 configuration,
@@ -73,6 +87,27 @@ public class VertexiumUserRepository extends UserRepository {
         );
         this.authorizationRepository = authorizationRepository;
         this.graph = graph;
+        this.workQueueRepository = workQueueRepository;
+
+        int authorizationsCacheExpireSeconds = configuration.getInt(
+                Configuration.USER_REPOSITORY_AUTHORIZATIONS_CACHE_EXPIRE_SECONDS,
+                Configuration.DEFAULT_USER_REPOSITORY_AUTHORIZATIONS_CACHE_EXPIRE_SECONDS
+        );
+        this.userAuthorizationsCache = CacheBuilder.newBuilder()
+                .expireAfterWrite(authorizationsCacheExpireSeconds, TimeUnit.SECONDS)
+                .build();
+        this.getAuthorizationsTimer = metricsManager.timer(metricsManager.getNamePrefix(this) + "getAuthorizations");
+
+        workQueueRepository.subscribeToBroadcastMessages(new WorkQueueRepository.BroadcastConsumer() {
+            @Override
+            public void broadcastReceived(JSONObject json) {
+                if (WorkQueueRepository.USER_AUTHORIZATIONS_INVALIDATE_TYPE.equals(json.optString("type"))) {
+                    String userId = json.getString("userId");
+                    userVertexCache.invalidate(userId);
+                    userAuthorizationsCache.invalidate(userId);
+                }
+            }
+        });
 
         authorizationRepository.addAuthorizationToGraph(VISIBILITY_STRING);
         authorizationRepository.addAuthorizationToGraph(VisalloVisibility.SUPER_USER_VISIBILITY_STRING);
@@ -327,7 +362,7 @@ public class VertexiumUserRepository extends UserRepository {
         String authorizationsString = StringUtils.join(authorizationSet, ",");
         UserVisalloProperties.AUTHORIZATIONS.setProperty(userVertex, authorizationsString, VISIBILITY.getVisibility(), authorizations);
         graph.flush();
-        userVertexCache.invalidate(user.getUserId());
+        invalidateAuthorizations(user.getUserId());
     }
 
     @Override
@@ -341,12 +376,48 @@ public class VertexiumUserRepository extends UserRepository {
         String authorizationsString = StringUtils.join(authorizationSet, ",");
         UserVisalloProperties.AUTHORIZATIONS.setProperty(userVertex, authorizationsString, VISIBILITY.getVisibility(), authorizations);
         graph.flush();
-        userVertexCache.invalidate(user.getUserId());
+        invalidateAuthorizations(user.getUserId());
+    }
+
+    private void invalidateAuthorizations(String userId) {
+        userVertexCache.invalidate(userId);
+        userAuthorizationsCache.invalidate(userId);
+        workQueueRepository.pushUserAuthorizationsInvalidate(userId);
     }
 
+    /**
+     * The authorizations of a user are cached by the additional authorizations until an authorization is added to or
+     * removed from the user, on any server, or the cache expires.
+     */
     @Override
     @Traced
     public org.vertexium.Authorizations getAuthorizations(User user, String... additionalAuthorizations) {
+        Timer.Context timerContext = getAuthorizationsTimer.time();
+        try {
+            if (user instanceof SystemUser) {
+                return createAuthorizations(user, additionalAuthorizations);
+            }
+            List<String> cacheKey = Arrays.asList(additionalAuthorizations);
+            ConcurrentMap<List<String>, org.vertexium.Authorizations> userAuthorizations = userAuthorizationsCache.get(user.getUserId(), new Callable<ConcurrentMap<List<String>, org.vertexium.Authorizations>>() {
+                @Override
+                public ConcurrentMap<List<String>, org.vertexium.Authorizations> call() throws Exception {
+                    return new ConcurrentHashMap<>();
+                }
+            });
+            org.vertexium.Authorizations result = userAuthorizations.get(cacheKey);
+            if (result == null) {
+                result = createAuthorizations(user, additionalAuthorizations);
+                userAuthorizations.put(cacheKey, result);
+            }
+            return result;
+        } catch (ExecutionException ex) {
+            throw new VisalloException("Could not get authorizations for user " + user.getUserId(), ex);
+        } finally {
+            timerContext.stop();
+        }
+    }
+
+    private org.vertexium.Authorizations createAuthorizations(User user, String... additionalAuthorizations) throws ExecutionException {
         Set<String> userAuthorizations;
         if (user instanceof SystemUser) {
             userAuthorizations = new HashSet<>();
@@ -366,9 +437,14 @@ public class VertexiumUserRepository extends UserRepository {
             LOGGER.debug("END getAuthorizations query");
         }
 
-        Set<String> authorizationsSet = new HashSet<>(userAuthorizations);
+        final Set<String> authorizationsSet = new HashSet<>(userAuthorizations);
         Collections.addAll(authorizationsSet, additionalAuthorizations);
-        return graph.createAuthorizations(authorizationsSet);
+        return internedAuthorizations.get(ImmutableSet.copyOf(authorizationsSet), new Callable<org.vertexium.Authorizations>() {
+            @Override
+            public org.vertexium.Authorizations call() throws Exception {
+                return graph.createAuthorizations(authorizationsSet);
+            }
+        });
     }
 
     public static Set<String> getAuthorizations(Vertex userVertex) {
@@ -433,6 +509,7 @@ public class VertexiumUserRepository extends UserRepository {
         Vertex userVertex = findByIdUserVertex(user.getUserId());
         graph.softDeleteVertex(userVertex, authorizations);
         graph.flush();
+        invalidateAuthorizations(user.getUserId());
     }
 
     @Override
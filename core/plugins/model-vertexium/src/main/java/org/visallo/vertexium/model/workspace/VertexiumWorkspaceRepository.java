@@ -2,19 +2,19 @@ package org.visallo.vertexium.model.workspace;
 
 import com.google.common.base.Function;
 import com.google.common.base.Predicates;
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import org.json.JSONObject;
 import org.vertexium.*;
 import org.vertexium.mutation.ExistingEdgeMutation;
 import org.vertexium.search.IndexHint;
 import org.vertexium.util.ConvertingIterable;
 import org.vertexium.util.FilterIterable;
+import org.visallo.core.config.Configuration;
 import org.visallo.core.exception.VisalloAccessDeniedException;
 import org.visallo.core.exception.VisalloResourceNotFoundException;
 import org.visallo.core.formula.FormulaEvaluator;
@@ -29,6 +29,7 @@ import org.visallo.core.model.workspace.*;
 import org.visallo.core.model.workspace.diff.WorkspaceDiffHelper;
 import org.visallo.core.security.VisalloVisibility;
 import org.visallo.core.security.VisibilityTranslator;
+import org.visallo.core.status.MetricsManager;
 import org.visallo.core.trace.Traced;
 import org.visallo.core.user.SystemUser;
 import org.visallo.core.user.User;
@@ -45,7 +46,6 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.Callable;
-import java.util.concurrent.TimeUnit;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static org.vertexium.util.IterableUtils.toList;
@@ -57,24 +57,13 @@ public class VertexiumWorkspaceRepository extends WorkspaceRepository {
     private AuthorizationRepository authorizationRepository;
     private WorkspaceDiffHelper workspaceDiff;
     private final LockRepository lockRepository;
-    private Cache<String, Boolean> usersWithReadAccessCache = CacheBuilder.newBuilder()
-            .expireAfterWrite(15, TimeUnit.SECONDS)
-            .build();
-    private Cache<String, Boolean> usersWithCommentAccessCache = CacheBuilder.newBuilder()
-            .expireAfterWrite(15, TimeUnit.SECONDS)
-            .build();
-    private Cache<String, Boolean> usersWithWriteAccessCache = CacheBuilder.newBuilder()
-            .expireAfterWrite(15, TimeUnit.SECONDS)
-            .build();
-    private Cache<String, List<WorkspaceUser>> usersWithAccessCache = CacheBuilder.newBuilder()
-            .expireAfterWrite(15, TimeUnit.SECONDS)
-            .build();
-    private Cache<String, Vertex> userWorkspaceVertexCache = CacheBuilder.newBuilder()
-            .expireAfterWrite(15, TimeUnit.SECONDS)
-            .build();
-    private Cache<String, List<WorkspaceEntity>> workspaceEntitiesCached = CacheBuilder.newBuilder()
-            .expireAfterWrite(15, TimeUnit.SECONDS)
-            .build();
+    private final WorkQueueRepository workQueueRepository;
+    private final WorkspaceScopedCache<Boolean> usersWithReadAccessCache;
+    private final WorkspaceScopedCache<Boolean> usersWithCommentAccessCache;
+    private final WorkspaceScopedCache<Boolean> usersWithWriteAccessCache;
+    private final WorkspaceScopedCache<List<WorkspaceUser>> usersWithAccessCache;
+    private final WorkspaceScopedCache<Vertex> userWorkspaceVertexCache;
+    private final WorkspaceScopedCache<List<WorkspaceEntity>> workspaceEntitiesCached;
 
     public void clearCache() {
         usersWithReadAccessCache.invalidateAll();
@@ -85,6 +74,24 @@ public class VertexiumWorkspaceRepository extends WorkspaceRepository {
         workspaceEntitiesCached.invalidateAll();
     }
 
+    private void clearCache(String workspaceId) {
+        usersWithReadAccessCache.invalidate(workspaceId);
+        usersWithCommentAccessCache.invalidate(workspaceId);
+        usersWithWriteAccessCache.invalidate(workspaceId);
+        usersWithAccessCache.invalidate(workspaceId);
+        userWorkspaceVertexCache.invalidate(workspaceId);
+        workspaceEntitiesCached.invalidate(workspaceId);
+    }
+
+    /**
+     * Clears the cached entries of the workspace on this server and, through the work queue broadcast, on every
+     * other server.
+     */
+    private void invalidateWorkspace(String workspaceId) {
+        clearCache(workspaceId);
+        workQueueRepository.pushWorkspaceCacheInvalidate(workspaceId);
+    }
+
     @Inject
     public VertexiumWorkspaceRepository(
             final Graph graph,
@@ -95,7 +102,9 @@ public class VertexiumWorkspaceRepository extends WorkspaceRepository {
             final VisibilityTranslator visibilityTranslator,
             final TermMentionRepository termMentionRepository,
             final OntologyRepository ontologyRepository,
-            final WorkQueueRepository workQueueRepository
+            final WorkQueueRepository workQueueRepository,
+            final Configuration configuration,
+            final MetricsManager metricsManager
     ) {
         super(
                 graph,
@@ -108,6 +117,26 @@ public class VertexiumWorkspaceRepository extends WorkspaceRepository {
         this.authorizationRepository = authorizationRepository;
         this.workspaceDiff = workspaceDiff;
         this.lockRepository = lockRepository;
+        this.workQueueRepository = workQueueRepository;
+
+        int cacheExpireSeconds = configuration.getInt(
+                Configuration.WORKSPACE_REPOSITORY_CACHE_EXPIRE_SECONDS,
+                Configuration.DEFAULT_WORKSPACE_REPOSITORY_CACHE_EXPIRE_SECONDS
+        );
+        this.usersWithReadAccessCache = new WorkspaceScopedCache<>("usersWithReadAccess", cacheExpireSeconds, metricsManager);
+        this.usersWithCommentAccessCache = new WorkspaceScopedCache<>("usersWithCommentAccess", cacheExpireSeconds, metricsManager);
+        this.usersWithWriteAccessCache = new WorkspaceScopedCache<>("usersWithWriteAccess", cacheExpireSeconds, metricsManager);
+        this.usersWithAccessCache = new WorkspaceScopedCache<>("usersWithAccess", cacheExpireSeconds, metricsManager);
+        this.userWorkspaceVertexCache = new WorkspaceScopedCache<>("userWorkspaceVertex", cacheExpireSeconds, metricsManager);
+        this.workspaceEntitiesCached = new WorkspaceScopedCache<>("workspaceEntities", cacheExpireSeconds, metricsManager);
+        workQueueRepository.subscribeToBroadcastMessages(new WorkQueueRepository.BroadcastConsumer() {
+            @Override
+            public void broadcastReceived(JSONObject json) {
+                if (WorkQueueRepository.WORKSPACE_CACHE_INVALIDATE_TYPE.equals(json.optString("type"))) {
+                    clearCache(json.getString("workspaceId"));
+                }
+            }
+        });
 
         authorizationRepository.addAuthorizationToGraph(VISIBILITY_STRING);
         authorizationRepository.addAuthorizationToGraph(VisalloVisibility.SUPER_USER_VISIBILITY_STRING);
@@ -126,6 +155,7 @@ public class VertexiumWorkspaceRepository extends WorkspaceRepository {
                 Vertex workspaceVertex = getVertexFromWorkspace(workspace, true, authorizations);
                 getGraph().softDeleteVertex(workspaceVertex, authorizations);
                 getGraph().flush();
+                invalidateWorkspace(workspace.getWorkspaceId());
 
                 authorizationRepository.removeAuthorizationFromGraph(workspace.getWorkspaceId());
             }
@@ -141,22 +171,19 @@ public class VertexiumWorkspaceRepository extends WorkspaceRepository {
     }
 
     public Vertex getVertex(String workspaceId, User user) {
-        String cacheKey = getUserWorkspaceVertexCacheKey(workspaceId, user);
-        Vertex workspaceVertex = userWorkspaceVertexCache.getIfPresent(cacheKey);
+        Vertex workspaceVertex = userWorkspaceVertexCache.getIfPresent(workspaceId, user.getUserId());
         if (workspaceVertex != null) {
             return workspaceVertex;
         }
 
         Authorizations authorizations = userRepository.getAuthorizations(user, UserRepository.VISIBILITY_STRING, VisalloVisibility.SUPER_USER_VISIBILITY_STRING, workspaceId);
         workspaceVertex = getGraph().getVertex(workspaceId, authorizations);
-        userWorkspaceVertexCache.put(cacheKey, workspaceVertex);
+        if (workspaceVertex != null) {
+            userWorkspaceVertexCache.put(workspaceId, user.getUserId(), workspaceVertex);
+        }
         return workspaceVertex;
     }
 
-    public String getUserWorkspaceVertexCacheKey(String workspaceId, User user) {
-        return workspaceId + user.getUserId();
-    }
-
     private Vertex getVertexFromWorkspace(Workspace workspace, boolean includeHidden, Authorizations authorizations) {
         if (workspace instanceof VertexiumWorkspace) {
             return ((VertexiumWorkspace) workspace).getVertex(getGraph(), includeHidden, authorizations);
@@ -214,8 +241,7 @@ public class VertexiumWorkspaceRepository extends WorkspaceRepository {
         return toList(new ConvertingIterable<Vertex, Workspace>(userVertex.getVertices(Direction.IN, WORKSPACE_TO_USER_RELATIONSHIP_IRI, authorizations)) {
             @Override
             protected Workspace convert(Vertex workspaceVertex) {
-                String cacheKey = getUserWorkspaceVertexCacheKey(workspaceVertex.getId(), user);
-                userWorkspaceVertexCache.put(cacheKey, workspaceVertex);
+                userWorkspaceVertexCache.put(workspaceVertex.getId(), user.getUserId(), workspaceVertex);
                 return new VertexiumWorkspace(workspaceVertex);
             }
         });
@@ -230,13 +256,13 @@ public class VertexiumWorkspaceRepository extends WorkspaceRepository {
         Vertex workspaceVertex = getVertexFromWorkspace(workspace, false, authorizations);
         WorkspaceProperties.TITLE.setProperty(workspaceVertex, title, VISIBILITY.getVisibility(), authorizations);
         getGraph().flush();
+        invalidateWorkspace(workspace.getWorkspaceId());
     }
 
     @Override
     @Traced
     public List<WorkspaceUser> findUsersWithAccess(final String workspaceId, final User user) {
-        String cacheKey = workspaceId + user.getUserId();
-        List<WorkspaceUser> usersWithAccess = this.usersWithAccessCache.getIfPresent(cacheKey);
+        List<WorkspaceUser> usersWithAccess = this.usersWithAccessCache.getIfPresent(workspaceId, user.getUserId());
         if (usersWithAccess != null) {
             return usersWithAccess;
         }
@@ -261,7 +287,7 @@ public class VertexiumWorkspaceRepository extends WorkspaceRepository {
                 return new WorkspaceUser(userId, workspaceAccess, isCreator);
             }
         });
-        this.usersWithAccessCache.put(cacheKey, usersWithAccess);
+        this.usersWithAccessCache.put(workspaceId, user.getUserId(), usersWithAccess);
         LOGGER.debug("END findUsersWithAccess query");
         return usersWithAccess;
     }
@@ -284,8 +310,8 @@ public class VertexiumWorkspaceRepository extends WorkspaceRepository {
     private List<WorkspaceEntity> findEntitiesNoLock(final Workspace workspace, final boolean includeHidden, final boolean fetchVertices, User user) {
         LOGGER.debug("BEGIN findEntitiesNoLock(workspaceId: %s, includeHidden: %b, userId: %s)", workspace.getWorkspaceId(), includeHidden, user.getUserId());
         long startTime = System.currentTimeMillis();
-        String cacheKey = workspace.getWorkspaceId() + includeHidden + user.getUserId();
-        List<WorkspaceEntity> results = workspaceEntitiesCached.getIfPresent(cacheKey);
+        String cacheKey = includeHidden + user.getUserId();
+        List<WorkspaceEntity> results = workspaceEntitiesCached.getIfPresent(workspace.getWorkspaceId(), cacheKey);
         if (results != null) {
             LOGGER.debug("END findEntitiesNoLock (cache hit, found: %d entities)", results.size());
             return results;
@@ -322,7 +348,7 @@ public class VertexiumWorkspaceRepository extends WorkspaceRepository {
                 return new WorkspaceEntity(entityVertexId, visible, graphPositionX, graphPositionY, graphLayoutJson, workspaceVertex);
             }
         }), Predicates.notNull()));
-        workspaceEntitiesCached.put(cacheKey, results);
+        workspaceEntitiesCached.put(workspace.getWorkspaceId(), cacheKey, results);
         LOGGER.debug("END findEntitiesNoLock (found: %d entities, time: %dms)", results.size(), System.currentTimeMillis() - startTime);
         return results;
     }
@@ -397,6 +423,7 @@ public class VertexiumWorkspaceRepository extends WorkspaceRepository {
             }
         }
         getGraph().flush();
+        invalidateWorkspace(workspace.getWorkspaceId());
     }
 
     @Override
@@ -438,7 +465,7 @@ public class VertexiumWorkspaceRepository extends WorkspaceRepository {
                     createEdge(workspaceVertex, otherVertex, update.getGraphPosition(), update.getGraphLayoutJson(), update.getVisible(), authorizations);
                 }
                 getGraph().flush();
-                workspaceEntitiesCached.invalidateAll();
+                invalidateWorkspace(workspace.getWorkspaceId());
             }
         });
     }
@@ -483,7 +510,7 @@ public class VertexiumWorkspaceRepository extends WorkspaceRepository {
                 }
                 getGraph().flush();
 
-                clearCache();
+                invalidateWorkspace(workspace.getWorkspaceId());
             }
         });
     }
@@ -494,8 +521,7 @@ public class VertexiumWorkspaceRepository extends WorkspaceRepository {
             return true;
         }
 
-        String cacheKey = workspaceId + user.getUserId();
-        Boolean hasCommentAccess = usersWithCommentAccessCache.getIfPresent(cacheKey);
+        Boolean hasCommentAccess = usersWithCommentAccessCache.getIfPresent(workspaceId, user.getUserId());
         if (hasCommentAccess != null && hasCommentAccess) {
             return true;
         }
@@ -506,7 +532,7 @@ public class VertexiumWorkspaceRepository extends WorkspaceRepository {
                     userWithAccess.getWorkspaceAccess() == WorkspaceAccess.WRITE ||
                             userWithAccess.getWorkspaceAccess() == WorkspaceAccess.COMMENT
             )) {
-                usersWithCommentAccessCache.put(cacheKey, true);
+                usersWithCommentAccessCache.put(workspaceId, user.getUserId(), true);
                 return true;
             }
         }
@@ -519,8 +545,7 @@ public class VertexiumWorkspaceRepository extends WorkspaceRepository {
             return true;
         }
 
-        String cacheKey = workspaceId + user.getUserId();
-        Boolean hasWriteAccess = usersWithWriteAccessCache.getIfPresent(cacheKey);
+        Boolean hasWriteAccess = usersWithWriteAccessCache.getIfPresent(workspaceId, user.getUserId());
         if (hasWriteAccess != null && hasWriteAccess) {
             return true;
         }
@@ -528,7 +553,7 @@ public class VertexiumWorkspaceRepository extends WorkspaceRepository {
         List<WorkspaceUser> usersWithAccess = findUsersWithAccess(workspaceId, user);
         for (WorkspaceUser userWithAccess : usersWithAccess) {
             if (userWithAccess.getUserId().equals(user.getUserId()) && userWithAccess.getWorkspaceAccess() == WorkspaceAccess.WRITE) {
-                usersWithWriteAccessCache.put(cacheKey, true);
+                usersWithWriteAccessCache.put(workspaceId, user.getUserId(), true);
                 return true;
             }
         }
@@ -542,8 +567,7 @@ public class VertexiumWorkspaceRepository extends WorkspaceRepository {
             return true;
         }
 
-        String cacheKey = workspaceId + user.getUserId();
-        Boolean hasReadAccess = usersWithReadAccessCache.getIfPresent(cacheKey);
+        Boolean hasReadAccess = usersWithReadAccessCache.getIfPresent(workspaceId, user.getUserId());
         if (hasReadAccess != null && hasReadAccess) {
             return true;
         }
@@ -597,14 +621,14 @@ public class VertexiumWorkspaceRepository extends WorkspaceRepository {
 
                 getGraph().flush();
 
-                clearCache();
+                invalidateWorkspace(workspace.getWorkspaceId());
             }
         });
     }
 
     @Override
     @Traced
-    public ClientApiWorkspaceDiff getDiff(final Workspace workspace, final User user, final Locale locale, final String timeZone) {
+    public ClientApiWorkspaceDiff getDiff(final Workspace workspace, final User user, final Locale locale, final String timeZone, final Long since) {
         if (!hasReadPermissions(workspace.getWorkspaceId(), user)) {
             throw new VisalloAccessDeniedException("user " + user.getUserId() + " does not have write access to workspace " + workspace.getWorkspaceId(), user, workspace.getWorkspaceId());
         }
@@ -616,7 +640,7 @@ public class VertexiumWorkspaceRepository extends WorkspaceRepository {
                 Iterable<Edge> workspaceEdges = findModifiedEdges(workspace, workspaceEntities, true, user);
 
                 FormulaEvaluator.UserContext userContext = new FormulaEvaluator.UserContext(locale, timeZone, workspace.getWorkspaceId());
-                return workspaceDiff.diff(workspace, workspaceEntities, workspaceEdges, userContext, user);
+                return workspaceDiff.diff(workspace, workspaceEntities, workspaceEdges, userContext, user, since);
             }
         });
     }
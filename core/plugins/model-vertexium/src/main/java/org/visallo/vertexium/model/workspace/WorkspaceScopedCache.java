@@ -0,0 +1,79 @@
+package org.visallo.vertexium.model.workspace;
+
+import com.codahale.metrics.Meter;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import org.visallo.core.exception.VisalloException;
+import org.visallo.core.status.MetricsManager;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache of values grouped by workspace id, so a change to one workspace invalidates only the entries of that
+ * workspace. The entries of a workspace expire together, at most expireSeconds after the first of them was added.
+ *
+ * Hits, misses and evicted entries are reported as meters named after the cache.
+ */
+class WorkspaceScopedCache<V> {
+    private final Cache<String, ConcurrentMap<String, V>> cache;
+    private final Meter hitMeter;
+    private final Meter missMeter;
+    private final Meter evictionMeter;
+
+    WorkspaceScopedCache(String name, long expireSeconds, MetricsManager metricsManager) {
+        String namePrefix = metricsManager.getNamePrefix(this, name);
+        this.hitMeter = metricsManager.meter(namePrefix + "hits");
+        this.missMeter = metricsManager.meter(namePrefix + "misses");
+        this.evictionMeter = metricsManager.meter(namePrefix + "evictions");
+        this.cache = CacheBuilder.newBuilder()
+                .expireAfterWrite(expireSeconds, TimeUnit.SECONDS)
+                .removalListener(new RemovalListener<String, ConcurrentMap<String, V>>() {
+                    @Override
+                    public void onRemoval(RemovalNotification<String, ConcurrentMap<String, V>> notification) {
+                        if (notification.wasEvicted() && notification.getValue() != null) {
+                            evictionMeter.mark(notification.getValue().size());
+                        }
+                    }
+                })
+                .build();
+    }
+
+    public V getIfPresent(String workspaceId, String key) {
+        Map<String, V> entries = cache.getIfPresent(workspaceId);
+        V value = entries == null ? null : entries.get(key);
+        if (value == null) {
+            missMeter.mark();
+        } else {
+            hitMeter.mark();
+        }
+        return value;
+    }
+
+    public void put(String workspaceId, String key, V value) {
+        try {
+            cache.get(workspaceId, new Callable<ConcurrentMap<String, V>>() {
+                @Override
+                public ConcurrentMap<String, V> call() throws Exception {
+                    return new ConcurrentHashMap<>();
+                }
+            }).put(key, value);
+        } catch (ExecutionException ex) {
+            throw new VisalloException("Could not cache value for workspace " + workspaceId, ex);
+        }
+    }
+
+    public void invalidate(String workspaceId) {
+        cache.invalidate(workspaceId);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+}
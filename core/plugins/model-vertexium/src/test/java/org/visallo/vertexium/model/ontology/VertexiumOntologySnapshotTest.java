@@ -0,0 +1,117 @@
+package org.visallo.vertexium.model.ontology;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.visallo.core.model.ontology.Concept;
+import org.visallo.core.model.ontology.OntologyProperty;
+import org.visallo.core.model.ontology.Relationship;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class VertexiumOntologySnapshotTest {
+    private Concept thing;
+    private Concept person;
+    private Concept place;
+    private OntologyProperty name;
+    private Relationship knows;
+    private VertexiumOntologySnapshot snapshot;
+
+    @Before
+    public void before() {
+        thing = createConcept("thing", null, null);
+        person = createConcept("person", "thing", new String[]{"person"});
+        place = createConcept("place", "thing", null);
+        name = createProperty("name", new String[]{"name", "title"});
+        knows = createRelationship("knows", new String[]{"knows"});
+        snapshot = VertexiumOntologySnapshot.create(
+                1,
+                Arrays.asList(thing, person, place),
+                Collections.singletonList(name),
+                Collections.singletonList(knows)
+        );
+    }
+
+    @Test
+    public void testLookupByIri() {
+        assertSame(person, snapshot.getConceptByIri("person"));
+        assertSame(name, snapshot.getPropertyByIri("name"));
+        assertSame(knows, snapshot.getRelationshipByIri("knows"));
+        assertNull(snapshot.getConceptByIri("missing"));
+        assertNull(snapshot.getPropertyByIri("missing"));
+        assertNull(snapshot.getRelationshipByIri("missing"));
+    }
+
+    @Test
+    public void testLookupByIntent() {
+        assertEquals(Collections.singletonList(person), snapshot.getConceptsByIntent("person"));
+        assertEquals(Collections.singletonList(name), snapshot.getPropertiesByIntent("name"));
+        assertEquals(Collections.singletonList(name), snapshot.getPropertiesByIntent("title"));
+        assertEquals(Collections.singletonList(knows), snapshot.getRelationshipsByIntent("knows"));
+        assertTrue(snapshot.getConceptsByIntent("missing").isEmpty());
+    }
+
+    @Test
+    public void testChildConcepts() {
+        assertEquals(Arrays.asList(person, place), snapshot.getChildConcepts("thing"));
+        assertTrue(snapshot.getChildConcepts("person").isEmpty());
+    }
+
+    @Test
+    public void testUpdateReplacesByIriAndKeepsThePreviousSnapshot() {
+        Concept movedPerson = createConcept("person", "place", null);
+        OntologyProperty renamedName = createProperty("name", new String[]{"name"});
+        OntologyProperty age = createProperty("age", null);
+
+        VertexiumOntologySnapshot updated = snapshot.update(
+                Collections.singletonList(movedPerson),
+                Arrays.asList(renamedName, age),
+                Collections.<Relationship>emptyList()
+        );
+
+        assertEquals(2, updated.getVersion());
+        assertSame(movedPerson, updated.getConceptByIri("person"));
+        assertSame(thing, updated.getConceptByIri("thing"));
+        assertEquals(Collections.singletonList(place), updated.getChildConcepts("thing"));
+        assertEquals(Collections.singletonList(movedPerson), updated.getChildConcepts("place"));
+        assertTrue(updated.getConceptsByIntent("person").isEmpty());
+        assertSame(renamedName, updated.getPropertyByIri("name"));
+        assertSame(age, updated.getPropertyByIri("age"));
+        assertTrue(updated.getPropertiesByIntent("title").isEmpty());
+        assertSame(knows, updated.getRelationshipByIri("knows"));
+        assertEquals(3, updated.getConcepts().size());
+        assertEquals(2, updated.getProperties().size());
+
+        assertEquals(1, snapshot.getVersion());
+        assertSame(person, snapshot.getConceptByIri("person"));
+        assertSame(name, snapshot.getPropertyByIri("name"));
+        assertNull(snapshot.getPropertyByIri("age"));
+        assertEquals(Collections.singletonList(name), snapshot.getPropertiesByIntent("title"));
+    }
+
+    private static Concept createConcept(String iri, String parentIri, String[] intents) {
+        Concept concept = mock(Concept.class);
+        when(concept.getIRI()).thenReturn(iri);
+        when(concept.getParentConceptIRI()).thenReturn(parentIri);
+        when(concept.getIntents()).thenReturn(intents);
+        return concept;
+    }
+
+    private static OntologyProperty createProperty(String iri, String[] intents) {
+        OntologyProperty property = mock(OntologyProperty.class);
+        when(property.getTitle()).thenReturn(iri);
+        when(property.getIntents()).thenReturn(intents);
+        return property;
+    }
+
+    private static Relationship createRelationship(String iri, String[] intents) {
+        Relationship relationship = mock(Relationship.class);
+        when(relationship.getIRI()).thenReturn(iri);
+        when(relationship.getIntents()).thenReturn(intents);
+        return relationship;
+    }
+}
@@ -22,6 +22,8 @@ import org.visallo.web.clientapi.model.Privilege;
 import org.visallo.web.clientapi.util.ObjectMapperFactory;
 import org.visallo.web.routes.workspace.WorkspaceHelper;
 
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
@@ -109,6 +111,22 @@ public abstract class RouteTestBase {
 
         responseByteArrayOutputStream = new ByteArrayOutputStream();
         when(response.getWriter()).thenReturn(new PrintWriter(responseByteArrayOutputStream));
+        when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+                throw new UnsupportedOperationException("not supported in tests");
+            }
+
+            @Override
+            public void write(int b) throws IOException {
+                responseByteArrayOutputStream.write(b);
+            }
+        });
     }
 
     protected byte[] getResponse() {
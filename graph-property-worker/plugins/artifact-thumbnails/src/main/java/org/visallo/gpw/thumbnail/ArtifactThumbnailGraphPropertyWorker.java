@@ -0,0 +1,120 @@
+package org.visallo.gpw.thumbnail;
+
+import com.google.inject.Inject;
+import org.vertexium.Element;
+import org.vertexium.Property;
+import org.vertexium.Vertex;
+import org.vertexium.property.StreamingPropertyValue;
+import org.visallo.core.ingest.graphProperty.GraphPropertyWorkData;
+import org.visallo.core.ingest.graphProperty.GraphPropertyWorker;
+import org.visallo.core.ingest.graphProperty.GraphPropertyWorkerPrepareData;
+import org.visallo.core.model.Description;
+import org.visallo.core.model.Name;
+import org.visallo.core.model.artifactThumbnails.ArtifactThumbnailRepository;
+import org.visallo.core.model.properties.MediaVisalloProperties;
+import org.visallo.core.model.properties.VisalloProperties;
+import org.visallo.core.util.VisalloLogger;
+import org.visallo.core.util.VisalloLoggerFactory;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stores the thumbnails the web application requests for an image, and for the preview strip of a video, when the
+ * image is ingested, so they are served from the store instead of being generated by the first request. All sizes are
+ * generated from one decode of the image.
+ *
+ * The thumbnails of an image are generated again when its orientation properties change.
+ */
+@Name("Artifact Thumbnails")
+@Description("Generates the thumbnails of images and video previews")
+public class ArtifactThumbnailGraphPropertyWorker extends GraphPropertyWorker {
+    private static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(ArtifactThumbnailGraphPropertyWorker.class);
+    /**
+     * The widths requested by the graph, lists and the detail pane, and the default width of the thumbnail route.
+     */
+    private static final int[] RAW_THUMBNAIL_SIZES = new int[]{80, 150, 200, 800};
+    /**
+     * The frame heights the video scrubber requests the preview strip at.
+     */
+    private static final int[] VIDEO_PREVIEW_HEIGHTS = new int[]{200};
+    private ArtifactThumbnailRepository artifactThumbnailRepository;
+    private String yAxisFlippedIri;
+    private String clockwiseRotationIri;
+
+    @Override
+    public void prepare(GraphPropertyWorkerPrepareData workerPrepareData) throws Exception {
+        super.prepare(workerPrepareData);
+        yAxisFlippedIri = getOntologyRepository().getPropertyIRIByIntent("media.yAxisFlipped");
+        clockwiseRotationIri = getOntologyRepository().getPropertyIRIByIntent("media.clockwiseRotation");
+    }
+
+    @Override
+    public void execute(InputStream in, GraphPropertyWorkData data) throws Exception {
+        Vertex vertex = (Vertex) data.getElement();
+        if (isVideoPreviewImage(data.getProperty())) {
+            List<int[]> boundaryDimsList = new ArrayList<>();
+            for (int height : VIDEO_PREVIEW_HEIGHTS) {
+                boundaryDimsList.add(new int[]{height * ArtifactThumbnailRepository.FRAMES_PER_PREVIEW, height});
+            }
+            createThumbnails(vertex, data.getProperty(), in, "video-preview", boundaryDimsList);
+            return;
+        }
+
+        List<int[]> boundaryDimsList = new ArrayList<>();
+        for (int size : RAW_THUMBNAIL_SIZES) {
+            boundaryDimsList.add(new int[]{size, size});
+        }
+        createThumbnails(vertex, VisalloProperties.RAW.getProperty(vertex), in, "raw", boundaryDimsList);
+    }
+
+    /**
+     * Generates the thumbnails from the stream the runner passed when the property is the image itself, so the image
+     * is read once and the other workers sharing its tee are not held up. An orientation change has no stream, so
+     * the image is read from the property.
+     */
+    private void createThumbnails(Vertex vertex, Property property, InputStream in, String thumbnailType, List<int[]> boundaryDimsList) throws Exception {
+        LOGGER.debug("Generating %d %s thumbnails for: %s", boundaryDimsList.size(), thumbnailType, vertex.getId());
+        if (in != null) {
+            artifactThumbnailRepository.createThumbnails(vertex, property.getKey(), thumbnailType, in, boundaryDimsList, getUser());
+            return;
+        }
+        StreamingPropertyValue value = (StreamingPropertyValue) property.getValue();
+        try (InputStream propertyIn = value.getInputStream()) {
+            artifactThumbnailRepository.createThumbnails(vertex, property.getKey(), thumbnailType, propertyIn, boundaryDimsList, getUser());
+        }
+    }
+
+    @Override
+    public boolean isHandled(Element element, Property property) {
+        if (property == null || !(element instanceof Vertex)) {
+            return false;
+        }
+
+        if (isVideoPreviewImage(property)) {
+            return true;
+        }
+
+        if (property.getName().equals(yAxisFlippedIri) || property.getName().equals(clockwiseRotationIri)) {
+            property = VisalloProperties.RAW.getProperty(element);
+            if (property == null) {
+                return false;
+            }
+        }
+        if (!property.getName().equals(VisalloProperties.RAW.getPropertyName())) {
+            return false;
+        }
+        String mimeType = VisalloProperties.MIME_TYPE_METADATA.getMetadataValue(property.getMetadata(), null);
+        return mimeType != null && mimeType.startsWith("image");
+    }
+
+    private static boolean isVideoPreviewImage(Property property) {
+        return property.getName().equals(MediaVisalloProperties.VIDEO_PREVIEW_IMAGE.getPropertyName());
+    }
+
+    @Inject
+    public void setArtifactThumbnailRepository(ArtifactThumbnailRepository artifactThumbnailRepository) {
+        this.artifactThumbnailRepository = artifactThumbnailRepository;
+    }
+}
@@ -0,0 +1,182 @@
+package org.visallo.gpw.thumbnail;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.vertexium.Metadata;
+import org.vertexium.Property;
+import org.vertexium.Vertex;
+import org.vertexium.VertexBuilder;
+import org.vertexium.Visibility;
+import org.vertexium.property.StreamingPropertyValue;
+import org.visallo.core.model.artifactThumbnails.ArtifactThumbnailRepository;
+import org.visallo.core.model.ontology.OntologyRepository;
+import org.visallo.core.model.properties.MediaVisalloProperties;
+import org.visallo.core.model.properties.VisalloProperties;
+import org.visallo.core.user.User;
+import org.visallo.test.GraphPropertyWorkerTestBase;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ArtifactThumbnailGraphPropertyWorkerTest extends GraphPropertyWorkerTestBase {
+    private static final String Y_AXIS_FLIPPED_IRI = "http://visallo.org/test#media.yAxisFlipped";
+    private static final String CLOCKWISE_ROTATION_IRI = "http://visallo.org/test#media.clockwiseRotation";
+    private Visibility visibility = new Visibility("");
+    private ArtifactThumbnailGraphPropertyWorker gpw;
+
+    @Mock
+    private OntologyRepository ontologyRepository;
+
+    @Mock
+    private ArtifactThumbnailRepository artifactThumbnailRepository;
+
+    @Before
+    public void setUp() {
+        when(ontologyRepository.getPropertyIRIByIntent(eq("media.yAxisFlipped"))).thenReturn(Y_AXIS_FLIPPED_IRI);
+        when(ontologyRepository.getPropertyIRIByIntent(eq("media.clockwiseRotation"))).thenReturn(CLOCKWISE_ROTATION_IRI);
+
+        gpw = new ArtifactThumbnailGraphPropertyWorker();
+        gpw.setOntologyRepository(ontologyRepository);
+        gpw.setArtifactThumbnailRepository(artifactThumbnailRepository);
+    }
+
+    @Test
+    public void testRawImageGeneratesAllSizesFromOneStream() throws Exception {
+        Vertex v1 = createVertex("v1", "image/png", false);
+        Property raw = VisalloProperties.RAW.getProperty(v1);
+        InputStream in = new ByteArrayInputStream(new byte[]{1, 2, 3});
+
+        assertTrue(run(gpw, getWorkerPrepareData(), v1, raw, in));
+
+        assertSame(in, verifyCreateThumbnailsInput());
+        List<int[]> boundaryDimsList = verifyCreateThumbnails(v1, raw.getKey(), "raw");
+        assertEquals(4, boundaryDimsList.size());
+        int[] expectedSizes = new int[]{80, 150, 200, 800};
+        for (int i = 0; i < expectedSizes.length; i++) {
+            assertArrayEquals(new int[]{expectedSizes[i], expectedSizes[i]}, boundaryDimsList.get(i));
+        }
+    }
+
+    @Test
+    public void testRawOfOtherMimeTypesIsNotHandled() throws Exception {
+        Vertex v1 = createVertex("v1", "text/plain", false);
+
+        assertFalse(run(gpw, getWorkerPrepareData(), v1, VisalloProperties.RAW.getProperty(v1), null));
+
+        verifyZeroInteractions(artifactThumbnailRepository);
+    }
+
+    @Test
+    public void testOrientationChangeRegeneratesTheRawThumbnails() throws Exception {
+        Vertex v1 = createVertex("v1", "image/jpeg", false);
+        v1.prepareMutation()
+                .addPropertyValue("", CLOCKWISE_ROTATION_IRI, 90, visibility)
+                .addPropertyValue("", Y_AXIS_FLIPPED_IRI, true, visibility)
+                .save(getGraphAuthorizations());
+        getGraph().flush();
+        v1 = getGraph().getVertex("v1", getGraphAuthorizations());
+
+        assertTrue(gpwHandles(v1, v1.getProperty("", CLOCKWISE_ROTATION_IRI)));
+        assertTrue(gpwHandles(v1, v1.getProperty("", Y_AXIS_FLIPPED_IRI)));
+        assertTrue(run(gpw, getWorkerPrepareData(), v1, v1.getProperty("", CLOCKWISE_ROTATION_IRI), null));
+
+        // the runner has no stream for the orientation property, so the image is read from RAW
+        assertNotNull(verifyCreateThumbnailsInput());
+        List<int[]> boundaryDimsList = verifyCreateThumbnails(v1, VisalloProperties.RAW.getProperty(v1).getKey(), "raw");
+        assertEquals(4, boundaryDimsList.size());
+    }
+
+    @Test
+    public void testOrientationOfNonImagesIsNotHandled() throws Exception {
+        Vertex v1 = getGraph().prepareVertex("v1", visibility)
+                .addPropertyValue("", CLOCKWISE_ROTATION_IRI, 90, visibility)
+                .save(getGraphAuthorizations());
+        getGraph().flush();
+        assertFalse(gpwHandles(v1, v1.getProperty("", CLOCKWISE_ROTATION_IRI)));
+
+        Vertex v2 = createVertex("v2", "text/plain", false);
+        v2.prepareMutation()
+                .addPropertyValue("", CLOCKWISE_ROTATION_IRI, 90, visibility)
+                .save(getGraphAuthorizations());
+        getGraph().flush();
+        v2 = getGraph().getVertex("v2", getGraphAuthorizations());
+        assertFalse(gpwHandles(v2, v2.getProperty("", CLOCKWISE_ROTATION_IRI)));
+    }
+
+    @Test
+    public void testVideoPreviewGeneratesTheStripSize() throws Exception {
+        Vertex v1 = createVertex("v1", "video/mp4", true);
+        Property previewImage = MediaVisalloProperties.VIDEO_PREVIEW_IMAGE.getProperty(v1);
+        InputStream in = new ByteArrayInputStream(new byte[]{1, 2, 3});
+
+        assertTrue(run(gpw, getWorkerPrepareData(), v1, previewImage, in));
+
+        assertSame(in, verifyCreateThumbnailsInput());
+        List<int[]> boundaryDimsList = verifyCreateThumbnails(v1, previewImage.getKey(), "video-preview");
+        assertEquals(1, boundaryDimsList.size());
+        assertArrayEquals(new int[]{200 * ArtifactThumbnailRepository.FRAMES_PER_PREVIEW, 200}, boundaryDimsList.get(0));
+    }
+
+    private boolean gpwHandles(Vertex vertex, Property property) throws Exception {
+        gpw.prepare(getWorkerPrepareData());
+        return gpw.isHandled(vertex, property);
+    }
+
+    private InputStream verifyCreateThumbnailsInput() {
+        ArgumentCaptor<InputStream> in = ArgumentCaptor.forClass(InputStream.class);
+        verify(artifactThumbnailRepository).createThumbnails(
+                any(Vertex.class), anyString(), anyString(), in.capture(), anyListOf(int[].class), any(User.class)
+        );
+        return in.getValue();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<int[]> verifyCreateThumbnails(Vertex vertex, String propertyKey, String thumbnailType) {
+        ArgumentCaptor<List> boundaryDimsList = ArgumentCaptor.forClass(List.class);
+        verify(artifactThumbnailRepository, times(1)).createThumbnails(
+                eq(vertex),
+                eq(propertyKey),
+                eq(thumbnailType),
+                any(InputStream.class),
+                boundaryDimsList.capture(),
+                any(User.class)
+        );
+        verify(artifactThumbnailRepository, never()).createThumbnail(
+                any(Vertex.class), anyString(), anyString(), any(InputStream.class), any(int[].class), any(User.class)
+        );
+        return (List<int[]>) boundaryDimsList.getValue();
+    }
+
+    private Vertex createVertex(String vertexId, String mimeType, boolean withVideoPreview) {
+        VertexBuilder m = getGraph().prepareVertex(vertexId, visibility);
+        Metadata metadata = new Metadata();
+        VisalloProperties.MIME_TYPE_METADATA.setMetadata(metadata, mimeType, visibility);
+        VisalloProperties.RAW.setProperty(m, createStreamingPropertyValue(), metadata, visibility);
+        if (withVideoPreview) {
+            MediaVisalloProperties.VIDEO_PREVIEW_IMAGE.setProperty(m, createStreamingPropertyValue(), visibility);
+        }
+        m.save(getGraphAuthorizations());
+        getGraph().flush();
+        return getGraph().getVertex(vertexId, getGraphAuthorizations());
+    }
+
+    private static StreamingPropertyValue createStreamingPropertyValue() {
+        StreamingPropertyValue spv = new StreamingPropertyValue(new ByteArrayInputStream(new byte[]{1, 2, 3}), byte[].class);
+        spv.store(true);
+        spv.searchIndex(false);
+        return spv;
+    }
+}
@@ -7,6 +7,7 @@ import org.vertexium.Property;
 import org.vertexium.Vertex;
 import org.vertexium.mutation.ExistingElementMutation;
 import org.visallo.core.ingest.graphProperty.GraphPropertyWorkData;
+import org.visallo.core.ingest.graphProperty.GraphPropertyWorkerInterest;
 import org.visallo.core.ingest.graphProperty.GraphPropertyWorker;
 import org.visallo.core.ingest.video.VideoTranscript;
 import org.visallo.core.model.Description;
@@ -80,6 +81,12 @@ public class CCExtractorGraphPropertyWorker extends GraphPropertyWorker {
         return true;
     }
 
+    @Override
+    public GraphPropertyWorkerInterest getInterest() {
+        return GraphPropertyWorkerInterest.forPropertyNames(VisalloProperties.RAW.getPropertyName())
+                .withMimeTypePrefixes("video");
+    }
+
     @Override
     public boolean isLocalFileRequired() {
         return true;
@@ -9,6 +9,7 @@ import com.bericotech.clavin.resolver.ResolvedLocation;
 import com.google.inject.Inject;
 import org.apache.lucene.queryparser.classic.ParseException;
 import org.vertexium.*;
+import org.vertexium.mutation.ExistingElementMutation;
 import org.vertexium.type.GeoPoint;
 import org.visallo.core.config.Configuration;
 import org.visallo.core.ingest.graphProperty.TermMentionFilter;
@@ -195,6 +196,7 @@ public class ClavinTermMentionFilter extends TermMentionFilter {
 
         ResolvedLocation loc;
         String processId = getClass().getName();
+        ExistingElementMutation<Vertex> sourceVertexMutation = sourceVertex.prepareMutation();
         for (Vertex termMention : termMentions) {
             loc = resolvedLocationOffsetMap.get((int) VisalloProperties.TERM_MENTION_START_OFFSET.getPropertyValue(termMention, 0));
             if (isLocation(termMention) && loc != null) {
@@ -233,11 +235,12 @@ public class ClavinTermMentionFilter extends TermMentionFilter {
                         .conceptIri(conceptType)
                         .process(processId)
                         .visibilityJson(VisalloProperties.TERM_MENTION_VISIBILITY_JSON.getPropertyValue(termMention))
-                        .save(getGraph(), getVisibilityTranslator(), authorizations);
+                        .save(getGraph(), getVisibilityTranslator(), sourceVertexMutation, authorizations);
 
                 LOGGER.debug("Replacing original location [%s] with resolved location [%s]", termMention.getId(), resolvedMention.getId());
             }
         }
+        sourceVertexMutation.save(authorizations);
     }
 
     private String toSign(final ResolvedLocation location) {
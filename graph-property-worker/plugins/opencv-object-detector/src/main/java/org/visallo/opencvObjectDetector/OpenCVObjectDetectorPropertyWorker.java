@@ -16,6 +16,7 @@ import org.vertexium.Vertex;
 import org.visallo.core.exception.VisalloException;
 import org.visallo.core.ingest.ArtifactDetectedObject;
 import org.visallo.core.ingest.graphProperty.GraphPropertyWorkData;
+import org.visallo.core.ingest.graphProperty.GraphPropertyWorkerInterest;
 import org.visallo.core.ingest.graphProperty.GraphPropertyWorker;
 import org.visallo.core.ingest.graphProperty.GraphPropertyWorkerPrepareData;
 import org.visallo.core.model.Description;
@@ -172,6 +173,11 @@ public class OpenCVObjectDetectorPropertyWorker extends GraphPropertyWorker {
         return !(mimeType == null || !mimeType.startsWith("image"));
     }
 
+    @Override
+    public GraphPropertyWorkerInterest getInterest() {
+        return GraphPropertyWorkerInterest.anyProperty().withMimeTypePrefixes("image");
+    }
+
     @Inject
     public void setArtifactThumbnailRepository(ArtifactThumbnailRepository artifactThumbnailRepository) {
         this.artifactThumbnailRepository = artifactThumbnailRepository;
@@ -6,7 +6,7 @@ import org.visallo.core.ingest.graphProperty.GraphPropertyWorkerPrepareData;
 import org.visallo.core.model.Description;
 import org.visallo.core.model.Name;
 import org.visallo.core.model.properties.VisalloProperties;
-import org.visallo.core.model.termMention.TermMentionBuilder;
+import org.visallo.core.model.termMention.TermMentionBatch;
 import org.visallo.core.util.VisalloLogger;
 import org.visallo.core.util.VisalloLoggerFactory;
 import org.visallo.web.clientapi.model.VisibilityJson;
@@ -68,12 +68,13 @@ public class OpenNLPMaximumEntropyExtractorGraphPropertyWorker extends GraphProp
 
         LOGGER.debug("Processing artifact content stream");
         Vertex sourceVertex = (Vertex) data.getElement();
-        List<Vertex> termMentions = new ArrayList<>();
+        VisibilityJson visibilityJson = VisalloProperties.VISIBILITY_JSON.getPropertyValue(sourceVertex);
+        TermMentionBatch termMentionBatch = new TermMentionBatch(sourceVertex, data.getProperty().getKey());
         while ((line = untokenizedLineStream.read()) != null) {
-            termMentions.addAll(processLine(sourceVertex, data.getProperty().getKey(), line, charOffset, VisalloProperties.VISIBILITY_JSON.getPropertyValue(sourceVertex)));
-            getGraph().flush();
+            processLine(termMentionBatch, line, charOffset, visibilityJson);
             charOffset += line.length() + NEW_LINE_CHARACTER_LENGTH;
         }
+        List<Vertex> termMentions = termMentionBatch.save(getGraph(), getVisibilityTranslator(), getAuthorizations());
         applyTermMentionFilters(sourceVertex, termMentions);
         pushTextUpdated(data);
 
@@ -81,37 +82,32 @@ public class OpenNLPMaximumEntropyExtractorGraphPropertyWorker extends GraphProp
         LOGGER.debug("Stream processing completed");
     }
 
-    private List<Vertex> processLine(Vertex sourceVertex, String propertyKey, String line, int charOffset, VisibilityJson visibilityJson) {
-        List<Vertex> termMentions = new ArrayList<>();
+    private void processLine(TermMentionBatch termMentionBatch, String line, int charOffset, VisibilityJson visibilityJson) {
         String tokenList[] = tokenizer.tokenize(line);
         Span[] tokenListPositions = tokenizer.tokenizePos(line);
         for (TokenNameFinder finder : finders) {
             Span[] foundSpans = finder.find(tokenList);
             for (Span span : foundSpans) {
-                termMentions.add(createTermMention(sourceVertex, propertyKey, charOffset, span, tokenList, tokenListPositions, visibilityJson));
+                addTermMention(termMentionBatch, charOffset, span, tokenList, tokenListPositions, visibilityJson);
             }
             finder.clearAdaptiveData();
         }
-        return termMentions;
     }
 
-    private Vertex createTermMention(Vertex sourceVertex, String propertyKey, int charOffset, Span foundName, String[] tokens, Span[] tokenListPositions, VisibilityJson visibilityJson) {
+    private void addTermMention(TermMentionBatch termMentionBatch, int charOffset, Span foundName, String[] tokens, Span[] tokenListPositions, VisibilityJson visibilityJson) {
         String name = Span.spansToStrings(new Span[]{foundName}, tokens)[0];
         int start = charOffset + tokenListPositions[foundName.getStart()].getStart();
         int end = charOffset + tokenListPositions[foundName.getEnd() - 1].getEnd();
         String type = foundName.getType();
         String ontologyClassUri = mapToOntologyIri(type);
 
-        return new TermMentionBuilder()
-                .sourceVertex(sourceVertex)
-                .propertyKey(propertyKey)
+        termMentionBatch.add()
                 .start(start)
                 .end(end)
                 .title(name)
                 .conceptIri(ontologyClassUri)
                 .visibilityJson(visibilityJson)
-                .process(getClass().getName())
-                .save(getGraph(), getVisibilityTranslator(), getAuthorizations());
+                .process(getClass().getName());
     }
 
     protected String mapToOntologyIri(String type) {
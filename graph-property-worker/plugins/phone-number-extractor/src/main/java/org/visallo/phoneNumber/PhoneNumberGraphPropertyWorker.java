@@ -10,7 +10,7 @@ import org.visallo.core.ingest.graphProperty.GraphPropertyWorkerPrepareData;
 import org.visallo.core.model.Description;
 import org.visallo.core.model.Name;
 import org.visallo.core.model.properties.VisalloProperties;
-import org.visallo.core.model.termMention.TermMentionBuilder;
+import org.visallo.core.model.termMention.TermMentionBatch;
 import org.visallo.core.util.VisalloLogger;
 import org.visallo.core.util.VisalloLoggerFactory;
 import org.visallo.web.clientapi.model.VisibilityJson;
@@ -20,7 +20,6 @@ import org.vertexium.Vertex;
 
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.util.ArrayList;
 import java.util.List;
 
 import static org.vertexium.util.IterableUtils.count;
@@ -57,25 +56,21 @@ public class PhoneNumberGraphPropertyWorker extends GraphPropertyWorker {
         Vertex sourceVertex = (Vertex) data.getElement();
         VisibilityJson visibilityJson = VisalloProperties.VISIBILITY_JSON.getPropertyValue(sourceVertex);
         final Iterable<PhoneNumberMatch> phoneNumbers = phoneNumberUtil.findNumbers(text, defaultRegionCode);
-        List<Vertex> termMentions = new ArrayList<>();
+        TermMentionBatch termMentionBatch = new TermMentionBatch(sourceVertex, data.getProperty().getKey());
         for (final PhoneNumberMatch phoneNumber : phoneNumbers) {
             final String formattedNumber = phoneNumberUtil.format(phoneNumber.number(), PhoneNumberUtil.PhoneNumberFormat.E164);
             int start = phoneNumber.start();
             int end = phoneNumber.end();
 
-            Vertex termMention = new TermMentionBuilder()
-                    .sourceVertex(sourceVertex)
-                    .propertyKey(data.getProperty().getKey())
+            termMentionBatch.add()
                     .start(start)
                     .end(end)
                     .title(formattedNumber)
                     .conceptIri(entityType)
                     .visibilityJson(visibilityJson)
-                    .process(getClass().getName())
-                    .save(getGraph(), getVisibilityTranslator(), getAuthorizations());
-            termMentions.add(termMention);
+                    .process(getClass().getName());
         }
-        getGraph().flush();
+        List<Vertex> termMentions = termMentionBatch.save(getGraph(), getVisibilityTranslator(), getAuthorizations());
         applyTermMentionFilters(sourceVertex, termMentions);
         pushTextUpdated(data);
 
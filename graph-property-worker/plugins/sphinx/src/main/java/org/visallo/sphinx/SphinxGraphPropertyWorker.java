@@ -7,6 +7,7 @@ import org.vertexium.Property;
 import org.vertexium.Vertex;
 import org.vertexium.mutation.ExistingElementMutation;
 import org.visallo.core.ingest.graphProperty.GraphPropertyWorkData;
+import org.visallo.core.ingest.graphProperty.GraphPropertyWorkerInterest;
 import org.visallo.core.ingest.graphProperty.GraphPropertyWorker;
 import org.visallo.core.ingest.video.VideoTranscript;
 import org.visallo.core.model.Description;
@@ -59,6 +60,11 @@ public class SphinxGraphPropertyWorker extends GraphPropertyWorker {
         return !(mimeType == null || !mimeType.startsWith("audio"));
     }
 
+    @Override
+    public GraphPropertyWorkerInterest getInterest() {
+        return GraphPropertyWorkerInterest.anyProperty().withMimeTypePrefixes("audio");
+    }
+
     private VideoTranscript extractTranscriptFromAudio(File localFile) throws IOException, InterruptedException {
         checkNotNull(localFile, "localFile cannot be null");
         File wavFile = File.createTempFile("encode_wav_", ".wav");
@@ -7,6 +7,7 @@ import org.vertexium.*;
 import org.vertexium.mutation.ExistingElementMutation;
 import org.vertexium.property.StreamingPropertyValue;
 import org.visallo.core.ingest.graphProperty.GraphPropertyWorkData;
+import org.visallo.core.ingest.graphProperty.GraphPropertyWorkerInterest;
 import org.visallo.core.ingest.graphProperty.GraphPropertyWorker;
 import org.visallo.core.ingest.graphProperty.GraphPropertyWorkerPrepareData;
 import org.visallo.core.ingest.video.VideoFrameInfo;
@@ -150,6 +151,12 @@ public class VideoFrameExtractGraphPropertyWorker extends GraphPropertyWorker {
         return true;
     }
 
+    @Override
+    public GraphPropertyWorkerInterest getInterest() {
+        return GraphPropertyWorkerInterest.forPropertyNames(VisalloProperties.RAW.getPropertyName())
+                .withMimeTypePrefixes("video");
+    }
+
     private void generateAndSaveVideoPreviewImage(GraphPropertyWorkData data, Vertex artifactVertex, int videoRotation) {
         LOGGER.info("Generating video preview for %s", artifactVertex.getId());
 
@@ -2,6 +2,7 @@ package org.visallo.zipCodeResolver;
 
 import com.google.inject.Inject;
 import org.vertexium.*;
+import org.vertexium.mutation.ExistingElementMutation;
 import org.vertexium.type.GeoPoint;
 import org.visallo.core.ingest.graphProperty.TermMentionFilter;
 import org.visallo.core.ingest.graphProperty.TermMentionFilterPrepareData;
@@ -50,6 +51,7 @@ public class ZipCodeResolverTermMentionFilter extends TermMentionFilter {
 
     @Override
     public void apply(Vertex sourceVertex, final Iterable<Vertex> termMentions, final Authorizations authorizations) throws Exception {
+        ExistingElementMutation<Vertex> sourceVertexMutation = sourceVertex.prepareMutation();
         for (Vertex termMention : termMentions) {
             if (!zipCodeConceptIri.equals(VisalloProperties.TERM_MENTION_CONCEPT_TYPE.getPropertyValue(termMention))) {
                 continue;
@@ -103,8 +105,9 @@ public class ZipCodeResolverTermMentionFilter extends TermMentionFilter {
                     .conceptIri(zipCodeConceptIri)
                     .process(getClass().getName())
                     .visibilityJson(VisalloProperties.TERM_MENTION_VISIBILITY_JSON.getPropertyValue(termMention))
-                    .save(getGraph(), getVisibilityTranslator(), authorizations);
+                    .save(getGraph(), getVisibilityTranslator(), sourceVertexMutation, authorizations);
         }
+        sourceVertexMutation.save(authorizations);
     }
 
     @Inject
@@ -36,6 +36,9 @@ public class Import extends CommandLineTool {
     @Parameter(names = {"--conceptTypeIRI"}, arity = 1, description = "IRI of the concept type to force for all imported files")
     private String conceptTypeIRI;
 
+    @Parameter(names = {"--parallelism"}, arity = 1, description = "Number of files to hash and import at the same time")
+    private int parallelism = 1;
+
     public static void main(String[] args) throws Exception {
         CommandLineTool.main(new Import(), args);
     }
@@ -48,7 +51,7 @@ public class Import extends CommandLineTool {
         } else {
             workspace = workspaceRepository.findById(workspaceId, getUser());
         }
-        fileImport.importDirectory(dataDir, queueDuplicates, conceptTypeIRI, visibilitySource, workspace, priority, getUser(), getAuthorizations());
+        fileImport.importDirectory(dataDir, queueDuplicates, conceptTypeIRI, visibilitySource, workspace, priority, parallelism, getUser(), getAuthorizations());
         return 0;
     }
 
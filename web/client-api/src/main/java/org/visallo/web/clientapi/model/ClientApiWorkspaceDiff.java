@@ -11,6 +11,8 @@ import java.util.List;
 
 public class ClientApiWorkspaceDiff implements ClientApiObject {
     private List<Item> diffs = new ArrayList<>();
+    private Long marker;
+    private boolean incremental;
 
     public void addAll(List<Item> diffs) {
         this.diffs.addAll(diffs);
@@ -20,6 +22,29 @@ public class ClientApiWorkspaceDiff implements ClientApiObject {
         return diffs;
     }
 
+    /**
+     * Pass as the since parameter of a later diff to get only the elements changed after this diff started.
+     */
+    public Long getMarker() {
+        return marker;
+    }
+
+    public void setMarker(Long marker) {
+        this.marker = marker;
+    }
+
+    /**
+     * True if the diffs only cover the elements changed since an earlier marker. The diffs of an element replace
+     * the earlier diffs of that element.
+     */
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
+
     @Override
     public String toString() {
         return ClientApiConverter.clientApiToString(this);
@@ -84,15 +84,21 @@ public class AnalystsNotebookExporter {
 
         LOGGER.debug("adding %d vertices", vertexWorkspaceEntityMap.size());
         FormulaEvaluator.UserContext userContext = new FormulaEvaluator.UserContext(locale, timeZone, workspace.getWorkspaceId());
-        for (Map.Entry<Vertex, WorkspaceEntity> entry : vertexWorkspaceEntityMap.entrySet()) {
+        List<Map.Entry<Vertex, WorkspaceEntity>> vertexEntries = new ArrayList<>(vertexWorkspaceEntityMap.entrySet());
+        List<Vertex> chartVertices = new ArrayList<>(vertexEntries.size());
+        for (Map.Entry<Vertex, WorkspaceEntity> entry : vertexEntries) {
+            chartVertices.add(entry.getKey());
+        }
+        List<FormulaEvaluator.FormulaResult> formulaResults = formulaEvaluator.evaluateFormulas(chartVertices, userContext, authorizations);
+        for (int i = 0; i < vertexEntries.size(); i++) {
+            Map.Entry<Vertex, WorkspaceEntity> entry = vertexEntries.get(i);
             ChartItem fromVertexAndWorkspaceEntity = ChartItem.createFromVertexAndWorkspaceEntity(
                     version,
                     entry.getKey(),
                     entry.getValue(),
                     ontologyRepository,
                     artifactThumbnailRepository,
-                    formulaEvaluator,
-                    userContext,
+                    formulaResults.get(i),
                     workspace.getWorkspaceId(),
                     authorizations,
                     user,
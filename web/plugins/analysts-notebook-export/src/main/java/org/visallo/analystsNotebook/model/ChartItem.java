@@ -18,7 +18,6 @@ import org.vertexium.*;
 import org.vertexium.property.StreamingPropertyValue;
 
 import java.io.IOException;
-import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -164,8 +163,7 @@ public class ChartItem {
             WorkspaceEntity workspaceEntity,
             OntologyRepository ontologyRepository,
             ArtifactThumbnailRepository artifactThumbnailRepository,
-            FormulaEvaluator formulaEvaluator,
-            FormulaEvaluator.UserContext userContext,
+            FormulaEvaluator.FormulaResult formulaResult,
             String workspaceId,
             Authorizations authorizations,
             User user,
@@ -174,7 +172,7 @@ public class ChartItem {
     ) {
         String conceptType = VisalloProperties.CONCEPT_TYPE.getPropertyValue(vertex);
         String vertexId = vertex.getId();
-        String title = formulaEvaluator.evaluateTitleFormula(vertex, userContext, authorizations);
+        String title = formulaResult.getTitle();
         int x = workspaceEntity.getGraphPositionX();
         int y = workspaceEntity.getGraphPositionY();
 
@@ -194,14 +192,14 @@ public class ChartItem {
             }
         }
         if (analystsNotebookExportConfiguration.includeSubtitle()) {
-            String subtitle = formulaEvaluator.evaluateSubtitleFormula(vertex, userContext, authorizations);
+            String subtitle = formulaResult.getSubtitle();
             if (subtitle != null && subtitle.trim().length() > 0) {
                 Attribute subtitleAttribute = new Attribute(AttributeClass.NAME_SUBTITLE, subtitle);
                 attributeCollection.add(subtitleAttribute);
             }
         }
         if (analystsNotebookExportConfiguration.includeTime()) {
-            String time = formulaEvaluator.evaluateTimeFormula(vertex, userContext, authorizations);
+            String time = formulaResult.getTime();
             if (time != null && time.trim().length() > 0) {
                 Attribute timeAttribute = new Attribute(AttributeClass.NAME_TIME, time);
                 attributeCollection.add(timeAttribute);
@@ -236,19 +234,16 @@ public class ChartItem {
         int[] dimensions = new int[]{analystsNotebookExportConfiguration.getThumbnailWidth(), analystsNotebookExportConfiguration.getThumbnailHeight()};
         String type = "raw";
 
-        ArtifactThumbnail thumbnail = artifactThumbnailRepository.getThumbnail(vertex.getId(), type, dimensions[0], dimensions[1], user);
+        Property rawProperty = VisalloProperties.RAW.getProperty(vertex);
+        StreamingPropertyValue rawPropertyValue = VisalloProperties.RAW.getPropertyValue(vertex);
+        ArtifactThumbnail thumbnail;
+        try {
+            thumbnail = artifactThumbnailRepository.getOrCreateThumbnail(vertex, rawProperty == null ? null : rawProperty.getKey(), type, rawPropertyValue, dimensions, user);
+        } catch (IOException e) {
+            throw new VisalloException("error creating thumbnail", e);
+        }
         if (thumbnail == null) {
-            Property rawProperty = VisalloProperties.RAW.getProperty(vertex);
-            StreamingPropertyValue rawPropertyValue = VisalloProperties.RAW.getPropertyValue(vertex);
-            if (rawPropertyValue == null) {
-                return null;
-            }
-            InputStream in = rawPropertyValue.getInputStream();
-            try {
-                thumbnail = artifactThumbnailRepository.createThumbnail(vertex, rawProperty.getKey(), type, in, dimensions, user);
-            } catch (IOException e) {
-                throw new VisalloException("error creating thumbnail", e);
-            }
+            return null;
         }
 
         return thumbnail.getData();
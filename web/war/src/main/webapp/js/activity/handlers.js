@@ -41,6 +41,13 @@ define([], function() {
                 });
             },
             finishedComponentPath: 'activity/builtin/findPath'
+        },
+        {
+            type: 'publish',
+            kind: 'longRunningProcess',
+            titleRenderer: function(el, process) {
+                el.textContent = i18n('activity.tasks.publish.title', process.publishData.length);
+            }
         }
     ];
 })
@@ -1,10 +1,17 @@
 
 define([
     '../util/ajax',
-    './storeHelper'
-], function(ajax, storeHelper) {
+    './storeHelper',
+    './workspace'
+], function(ajax, storeHelper, workspace) {
     'use strict';
 
+    // A deleted edge or edge property has no newer timestamp for an incremental diff to find
+    function invalidateDiff(result) {
+        workspace.invalidateDiff();
+        return result;
+    }
+
     var api = {
 
         audit: function(edgeId) {
@@ -20,7 +27,7 @@ define([
         'delete': function(edgeId) {
             return ajax('DELETE', '/edge', {
                 edgeId: edgeId
-            });
+            }).then(invalidateDiff);
         },
 
         exists: function(edgeIds) {
@@ -68,7 +75,7 @@ define([
                 edgeId: edgeId,
                 propertyName: property.name,
                 propertyKey: property.key
-            })
+            }).then(invalidateDiff)
         },
 
         multiple: function(options) {
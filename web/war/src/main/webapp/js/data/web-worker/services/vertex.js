@@ -1,10 +1,17 @@
 
 define([
     '../util/ajax',
-    './storeHelper'
-], function(ajax, storeHelper) {
+    './storeHelper',
+    './workspace'
+], function(ajax, storeHelper, workspace) {
     'use strict';
 
+    // Sandboxed deletes are only dropped from the diff by a full diff
+    function invalidateDiff(result) {
+        workspace.invalidateDiff();
+        return result;
+    }
+
     var api = {
 
         audit: function(vertexId) {
@@ -94,7 +101,7 @@ define([
         'delete': function(vertexId) {
             return ajax('DELETE', '/vertex', {
                 graphVertexId: vertexId
-            })
+            }).then(invalidateDiff)
         },
 
         deleteProperty: function(vertexId, property) {
@@ -102,7 +109,7 @@ define([
                 graphVertexId: vertexId,
                 propertyName: property.name,
                 propertyKey: property.key
-            })
+            }).then(invalidateDiff)
         },
 
         'highlighted-text': function(vertexId, propertyKey) {
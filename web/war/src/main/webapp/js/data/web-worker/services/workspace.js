@@ -6,13 +6,81 @@ define([
 ], function(ajax, store, abortPrevious) {
     'use strict';
 
+    var LONG_RUNNING_PROCESS_POLL_MILLIS = 1000,
+        // Incremental diffs miss removed items, so a full diff is requested at least this often
+        FULL_DIFF_MILLIS = 60 * 1000,
+        diffsByWorkspaceId = {},
+        diffGenerations = {};
+
+    function diffElementId(item) {
+        return item.vertexId || item.edgeId || item.elementId;
+    }
+
+    // The items of an element in an incremental diff replace all its earlier items
+    function mergeDiff(previous, diff) {
+        var changedElementIds = {};
+        _.each(diff.diffs, function(item) {
+            changedElementIds[diffElementId(item)] = true;
+        });
+        return _.extend({}, diff, {
+            diffs: _.reject(previous.diffs, function(item) {
+                return changedElementIds[diffElementId(item)];
+            }).concat(diff.diffs)
+        });
+    }
+
+    function waitForLongRunningProcess(processId) {
+        return new Promise(function(fulfill, reject) {
+            (function poll() {
+                ajax('GET', '/long-running-process', {
+                    longRunningProcessId: processId
+                }).then(function(process) {
+                    if (process.error) {
+                        reject(new Error(process.error));
+                    } else if (process.endTime) {
+                        fulfill(process.results);
+                    } else {
+                        setTimeout(poll, LONG_RUNNING_PROCESS_POLL_MILLIS);
+                    }
+                }).catch(reject);
+            })();
+        });
+    }
+
     var api = {
         diff: function(workspaceId) {
-            return ajax('GET', '/workspace/diff', {
-                workspaceId: workspaceId || publicData.currentWorkspaceId
+            workspaceId = workspaceId || publicData.currentWorkspaceId;
+            var previous = diffsByWorkspaceId[workspaceId],
+                generation = diffGenerations[workspaceId],
+                incremental = previous && (Date.now() - previous.fullDiffTime) < FULL_DIFF_MILLIS,
+                params = { workspaceId: workspaceId };
+
+            if (incremental) {
+                params.since = previous.diff.marker;
+            }
+            return ajax('GET', '/workspace/diff', params).then(function(diff) {
+                if (diffGenerations[workspaceId] !== generation) {
+                    // invalidated while the request was running
+                    return incremental ? api.diff(workspaceId) : diff;
+                }
+                if (incremental) {
+                    diff = mergeDiff(diffsByWorkspaceId[workspaceId].diff, diff);
+                }
+                diffsByWorkspaceId[workspaceId] = {
+                    diff: diff,
+                    fullDiffTime: incremental ? previous.fullDiffTime : Date.now()
+                };
+                return diff;
             });
         },
 
+        invalidateDiff: function(workspaceId) {
+            workspaceId = workspaceId || publicData.currentWorkspaceId;
+            diffGenerations[workspaceId] = (diffGenerations[workspaceId] || 0) + 1;
+            delete diffsByWorkspaceId[workspaceId];
+            return Promise.resolve();
+        },
+
         getOrCreate: function() {
             return (publicData.currentWorkspaceId ? api.get() : Promise.reject())
                 .catch(function() {
@@ -218,6 +286,10 @@ define([
                 workspaceId: workspaceId,
                 data: JSON.stringify(allChanges)
             }).then(function() {
+                // Incremental diffs only return changed elements, so removed entities would linger
+                if (allChanges.entityDeletes.length) {
+                    api.invalidateDiff(workspaceId);
+                }
                 return { saved: true, workspace: store.updateWorkspace(workspaceId, allChanges) };
             })
         }),
@@ -231,12 +303,24 @@ define([
         publish: function(changes) {
             return ajax('POST', '/workspace/publish', {
                 publishData: JSON.stringify(changes)
+            }).then(function(result) {
+                // Large publishes run as a long running process
+                if ('failures' in result) {
+                    return result;
+                }
+                return waitForLongRunningProcess(result.id);
+            }).then(function(result) {
+                api.invalidateDiff();
+                return result;
             });
         },
 
         undo: function(changes) {
             return ajax('POST', '/workspace/undo', {
                 undoData: JSON.stringify(changes)
+            }).then(function(result) {
+                api.invalidateDiff();
+                return result;
             });
         },
 
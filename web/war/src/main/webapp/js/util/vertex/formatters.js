@@ -355,9 +355,11 @@ define([
                     return p.name === 'http://visallo.org#videoPreviewImage';
                 });
                 if (videoPreview) {
+                    // the 200 pixel high strip is the one generated when the preview is ingested
                     return 'vertex/video-preview?' + $.param({
                         workspaceId: optionalWorkspaceId || visalloData.currentWorkspaceId,
-                        graphVertexId: vertex.id
+                        graphVertexId: vertex.id,
+                        width: 200
                     });
                 }
             },
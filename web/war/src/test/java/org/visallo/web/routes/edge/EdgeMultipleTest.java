@@ -0,0 +1,93 @@
+package org.visallo.web.routes.edge;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.vertexium.Authorizations;
+import org.vertexium.Vertex;
+import org.vertexium.Visibility;
+import org.visallo.web.RouteTestBase;
+import org.visallo.web.clientapi.model.ClientApiEdgeMultipleResponse;
+import org.visallo.web.clientapi.model.ClientApiEdgeWithVertexData;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class EdgeMultipleTest extends RouteTestBase {
+    private Authorizations authorizations;
+
+    @Before
+    public void setUp() throws IOException {
+        super.setUp();
+
+        Visibility visibility = new Visibility("");
+        authorizations = graph.createAuthorizations("");
+        Vertex v1 = graph.addVertex("v1", visibility, authorizations);
+        Vertex v2 = graph.addVertex("v2", visibility, authorizations);
+        Vertex v3 = graph.addVertex("v3", visibility, authorizations);
+        graph.addEdge("e1", v1, v2, "label1", visibility, authorizations);
+        graph.addEdge("e2", v1, v3, "label1", visibility, authorizations);
+        graph.flush();
+
+        when(userRepository.getAuthorizations(eq(user), eq(WORKSPACE_ID))).thenReturn(authorizations);
+        setArrayParameter("edgeIds[]", new String[]{"e1", "e2"});
+    }
+
+    @Test
+    public void testEdgesAreStreamedWithTheirVertices() throws Exception {
+        EdgeMultiple edgeMultiple = new EdgeMultiple(graph, userRepository, workspaceRepository, configuration);
+
+        ClientApiEdgeMultipleResponse response = handle(edgeMultiple, ClientApiEdgeMultipleResponse.class);
+
+        assertEquals(2, response.getEdges().size());
+        for (ClientApiEdgeWithVertexData edge : response.getEdges()) {
+            assertEquals("v1", edge.getSourceVertexId());
+            assertEquals("v1", edge.getSource().getId());
+        }
+    }
+
+    @Test
+    public void testOverriddenGetEdgesIsUsedForTheResponse() throws Exception {
+        EdgeMultiple edgeMultiple = new EdgeMultiple(graph, userRepository, workspaceRepository, configuration) {
+            @Override
+            protected ClientApiEdgeMultipleResponse getEdges(HttpServletRequest request, String workspaceId, Iterable<String> edgeIds, Authorizations authorizations) {
+                ClientApiEdgeMultipleResponse result = super.getEdges(request, workspaceId, edgeIds, authorizations);
+                result.getEdges().remove(0);
+                return result;
+            }
+        };
+
+        ClientApiEdgeMultipleResponse response = handle(edgeMultiple, ClientApiEdgeMultipleResponse.class);
+
+        assertEquals(1, response.getEdges().size());
+    }
+
+    @Test
+    public void testOverriddenGetClientApiEdgesIsStreamed() throws Exception {
+        EdgeMultiple edgeMultiple = new EdgeMultiple(graph, userRepository, workspaceRepository, configuration) {
+            @Override
+            protected Iterable<ClientApiEdgeWithVertexData> getClientApiEdges(HttpServletRequest request, String workspaceId, Iterable<String> edgeIds, Authorizations authorizations) {
+                List<ClientApiEdgeWithVertexData> result = new ArrayList<>();
+                for (ClientApiEdgeWithVertexData edge : super.getClientApiEdges(request, workspaceId, edgeIds, authorizations)) {
+                    if (edge.getDestVertexId().equals("v3")) {
+                        result.add(edge);
+                    }
+                }
+                return result;
+            }
+        };
+
+        ClientApiEdgeMultipleResponse response = handle(edgeMultiple, ClientApiEdgeMultipleResponse.class);
+
+        assertEquals(1, response.getEdges().size());
+        assertEquals("e2", response.getEdges().get(0).getId());
+    }
+}
@@ -0,0 +1,71 @@
+package org.visallo.web.routes.vertex;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.vertexium.Authorizations;
+import org.vertexium.Visibility;
+import org.visallo.web.RouteTestBase;
+import org.visallo.web.clientapi.model.ClientApiVertex;
+import org.visallo.web.clientapi.model.ClientApiVertexMultipleResponse;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class VertexMultipleTest extends RouteTestBase {
+    private VertexMultiple vertexMultiple;
+    private Authorizations authorizations;
+
+    @Before
+    public void setUp() throws IOException {
+        super.setUp();
+
+        Visibility visibility = new Visibility("");
+        authorizations = graph.createAuthorizations("");
+        graph.addVertex("v1", visibility, authorizations);
+        graph.addVertex("v2", visibility, authorizations);
+        graph.addVertex("v3", visibility, authorizations);
+        graph.flush();
+
+        vertexMultiple = new VertexMultiple(graph, userRepository, workspaceRepository, configuration);
+    }
+
+    @Test
+    public void testVerticesAreStreamed() throws Exception {
+        setArrayParameter("vertexIds[]", new String[]{"v1", "v2"});
+        when(userRepository.getAuthorizations(eq(user), eq(WORKSPACE_ID))).thenReturn(authorizations);
+
+        ClientApiVertexMultipleResponse response = handle(vertexMultiple, ClientApiVertexMultipleResponse.class);
+
+        assertFalse(response.isRequiredFallback());
+        Set<String> vertexIds = new HashSet<>();
+        for (ClientApiVertex vertex : response.getVertices()) {
+            vertexIds.add(vertex.getId());
+        }
+        assertEquals(2, response.getVertices().size());
+        assertTrue(vertexIds.contains("v1"));
+        assertTrue(vertexIds.contains("v2"));
+    }
+
+    @Test
+    public void testFallbackToPublicIsWrittenBeforeTheVertices() throws Exception {
+        setArrayParameter("vertexIds[]", new String[]{"v3"});
+        setParameter("fallbackToPublic", "true");
+        when(workspaceRepository.hasReadPermissions(eq(WORKSPACE_ID), eq(user))).thenReturn(false);
+        when(userRepository.getAuthorizations(eq(user))).thenReturn(authorizations);
+
+        ClientApiVertexMultipleResponse response = handle(vertexMultiple, ClientApiVertexMultipleResponse.class);
+
+        assertTrue(response.isRequiredFallback());
+        assertEquals(1, response.getVertices().size());
+        assertEquals("v3", response.getVertices().get(0).getId());
+        assertTrue(getResponseAsString().indexOf("requiredFallback") < getResponseAsString().indexOf("vertices"));
+    }
+}
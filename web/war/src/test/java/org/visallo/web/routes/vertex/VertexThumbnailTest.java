@@ -0,0 +1,98 @@
+package org.visallo.web.routes.vertex;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.vertexium.Authorizations;
+import org.vertexium.Vertex;
+import org.vertexium.Visibility;
+import org.vertexium.property.StreamingPropertyValue;
+import org.visallo.core.model.artifactThumbnails.ArtifactThumbnail;
+import org.visallo.core.model.artifactThumbnails.ArtifactThumbnailRepository;
+import org.visallo.core.user.User;
+import org.visallo.web.RouteTestBase;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class VertexThumbnailTest extends RouteTestBase {
+    private static final byte[] THUMBNAIL_DATA = new byte[]{1, 2, 3};
+
+    @Mock
+    private ArtifactThumbnailRepository artifactThumbnailRepository;
+
+    private VertexThumbnail vertexThumbnail;
+    private ArtifactThumbnail thumbnail;
+
+    @Before
+    public void setUp() throws IOException {
+        super.setUp();
+
+        Authorizations authorizations = graph.createAuthorizations("");
+        graph.addVertex("v1", new Visibility(""), authorizations);
+        graph.flush();
+        when(userRepository.getAuthorizations(eq(user), eq(WORKSPACE_ID))).thenReturn(authorizations);
+        when(request.getAttribute(eq("graphVertexId"))).thenReturn("v1");
+
+        thumbnail = new ArtifactThumbnail("v1", "raw", THUMBNAIL_DATA, "png", 200, 200);
+        when(artifactThumbnailRepository.getOrCreateThumbnail(
+                any(Vertex.class),
+                anyString(),
+                eq("raw"),
+                any(StreamingPropertyValue.class),
+                any(int[].class),
+                any(User.class)
+        )).thenReturn(thumbnail);
+
+        vertexThumbnail = new VertexThumbnail(artifactThumbnailRepository, graph, userRepository, workspaceRepository, configuration);
+    }
+
+    @Test
+    public void testThumbnailIsWrittenWithItsETag() throws Exception {
+        handle(vertexThumbnail);
+
+        verify(response).setHeader("ETag", "\"" + thumbnail.getETag() + "\"");
+        verify(response).setContentType("image/png");
+        assertArrayEquals(THUMBNAIL_DATA, getResponse());
+    }
+
+    @Test
+    public void testMatchingIfNoneMatchRespondsNotModified() throws Exception {
+        when(request.getHeader(eq("If-None-Match"))).thenReturn("\"" + thumbnail.getETag() + "\"");
+
+        handle(vertexThumbnail);
+
+        verify(response).sendError(HttpServletResponse.SC_NOT_MODIFIED);
+        verify(response).setHeader("ETag", "\"" + thumbnail.getETag() + "\"");
+        assertEquals(0, getResponse().length);
+    }
+
+    @Test
+    public void testOtherIfNoneMatchWritesTheThumbnail() throws Exception {
+        when(request.getHeader(eq("If-None-Match"))).thenReturn("\"0123456789abcdef\"");
+
+        handle(vertexThumbnail);
+
+        verify(response, never()).sendError(anyInt());
+        assertArrayEquals(THUMBNAIL_DATA, getResponse());
+    }
+
+    @Test
+    public void testMissingThumbnailRespondsNotFound() throws Exception {
+        reset(artifactThumbnailRepository);
+
+        handle(vertexThumbnail);
+
+        verify(response).sendError(HttpServletResponse.SC_NOT_FOUND);
+    }
+}
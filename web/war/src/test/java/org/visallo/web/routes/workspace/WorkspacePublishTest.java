@@ -0,0 +1,113 @@
+package org.visallo.web.routes.workspace;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.vertexium.Authorizations;
+import org.visallo.core.config.Configuration;
+import org.visallo.core.model.longRunningProcess.LongRunningProcessRepository;
+import org.visallo.core.user.User;
+import org.visallo.web.RouteTestBase;
+import org.visallo.web.clientapi.model.ClientApiLongRunningProcessSubmitResponse;
+import org.visallo.web.clientapi.model.ClientApiPublishItem;
+import org.visallo.web.clientapi.model.ClientApiWorkspacePublishResponse;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class WorkspacePublishTest extends RouteTestBase {
+    @Mock
+    private LongRunningProcessRepository longRunningProcessRepository;
+
+    private Authorizations authorizations;
+
+    @Before
+    public void setUp() throws IOException {
+        super.setUp();
+
+        authorizations = graph.createAuthorizations(WORKSPACE_ID);
+        when(userRepository.getAuthorizations(eq(user), eq(WORKSPACE_ID))).thenReturn(authorizations);
+        when(workspaceRepository.publish(any(ClientApiPublishItem[].class), eq(WORKSPACE_ID), eq(authorizations)))
+                .thenReturn(new ClientApiWorkspacePublishResponse());
+        when(longRunningProcessRepository.enqueue(any(JSONObject.class), any(User.class), eq(authorizations)))
+                .thenReturn("lrp1");
+    }
+
+    @Test
+    public void testBelowTheThresholdIsPublishedInTheRequest() throws Exception {
+        setParameter("publishData", createPublishData(Configuration.DEFAULT_WORKSPACE_PUBLISH_LONG_RUNNING_PROCESS_THRESHOLD - 1));
+
+        handle(new WorkspacePublish(userRepository, configuration, workspaceRepository, longRunningProcessRepository));
+
+        ArgumentCaptor<ClientApiPublishItem[]> publishDataCaptor = ArgumentCaptor.forClass(ClientApiPublishItem[].class);
+        verify(workspaceRepository).publish(publishDataCaptor.capture(), eq(WORKSPACE_ID), eq(authorizations));
+        assertEquals(999, publishDataCaptor.getValue().length);
+        verify(longRunningProcessRepository, never()).enqueue(any(JSONObject.class), any(User.class), any(Authorizations.class));
+        assertEquals(0, new JSONObject(getResponseAsString()).getJSONArray("failures").length());
+    }
+
+    @Test
+    public void testAtTheThresholdIsPublishedAsALongRunningProcess() throws Exception {
+        setParameter("publishData", createPublishData(Configuration.DEFAULT_WORKSPACE_PUBLISH_LONG_RUNNING_PROCESS_THRESHOLD));
+
+        ClientApiLongRunningProcessSubmitResponse response = handle(
+                new WorkspacePublish(userRepository, configuration, workspaceRepository, longRunningProcessRepository),
+                ClientApiLongRunningProcessSubmitResponse.class
+        );
+
+        assertEquals("lrp1", response.getId());
+        ArgumentCaptor<JSONObject> queueItemCaptor = ArgumentCaptor.forClass(JSONObject.class);
+        verify(longRunningProcessRepository).enqueue(queueItemCaptor.capture(), any(User.class), eq(authorizations));
+        JSONObject queueItem = queueItemCaptor.getValue();
+        assertEquals("publish", queueItem.getString("type"));
+        assertEquals(WORKSPACE_ID, queueItem.getString("workspaceId"));
+        assertEquals(1000, queueItem.getJSONArray("publishData").length());
+        assertEquals(WORKSPACE_ID, queueItem.getJSONArray("authorizations").getString(0));
+        verify(workspaceRepository, never()).publish(any(ClientApiPublishItem[].class), anyString(), any(Authorizations.class));
+    }
+
+    @Test
+    public void testThresholdIsConfigurable() throws Exception {
+        configuration.set(Configuration.WORKSPACE_PUBLISH_LONG_RUNNING_PROCESS_THRESHOLD, 2);
+        setParameter("publishData", createPublishData(2));
+
+        handle(new WorkspacePublish(userRepository, configuration, workspaceRepository, longRunningProcessRepository));
+
+        verify(longRunningProcessRepository).enqueue(any(JSONObject.class), any(User.class), eq(authorizations));
+    }
+
+    @Test
+    public void testZeroThresholdAlwaysPublishesInTheRequest() throws Exception {
+        configuration.set(Configuration.WORKSPACE_PUBLISH_LONG_RUNNING_PROCESS_THRESHOLD, 0);
+        setParameter("publishData", createPublishData(Configuration.DEFAULT_WORKSPACE_PUBLISH_LONG_RUNNING_PROCESS_THRESHOLD));
+
+        handle(new WorkspacePublish(userRepository, configuration, workspaceRepository, longRunningProcessRepository));
+
+        verify(workspaceRepository).publish(any(ClientApiPublishItem[].class), eq(WORKSPACE_ID), eq(authorizations));
+        verify(longRunningProcessRepository, never()).enqueue(any(JSONObject.class), any(User.class), any(Authorizations.class));
+    }
+
+    private static JSONArray createPublishData(int count) {
+        JSONArray publishData = new JSONArray();
+        for (int i = 0; i < count; i++) {
+            JSONObject publishItem = new JSONObject();
+            publishItem.put("type", "property");
+            publishItem.put("action", "addOrUpdate");
+            publishItem.put("key", "key" + i);
+            publishItem.put("name", "prop1");
+            publishItem.put("vertexId", "v1");
+            publishData.put(publishItem);
+        }
+        return publishData;
+    }
+}
@@ -208,6 +208,13 @@ public abstract class BaseRequestHandler extends MinimalRequestHandler {
         }
     }
 
+    /**
+     * Starts a JSON object response that is written as it is built, for responses too large to hold in memory.
+     */
+    protected JsonResponseStream startJsonResponseStream(HttpServletResponse response) throws IOException {
+        return new JsonResponseStream(response);
+    }
+
     /**
      * Configures the content type for the provided response to contain {@link JSONArray} data
      *
@@ -0,0 +1,103 @@
+package org.visallo.web;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.visallo.core.util.VisalloLogger;
+import org.visallo.core.util.VisalloLoggerFactory;
+import org.visallo.web.clientapi.model.ClientApiObject;
+import org.visallo.web.clientapi.util.ObjectMapperFactory;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Writes a JSON object response straight to the servlet output stream, so large arrays of client api objects can be
+ * written as they are converted instead of being collected into one response object first.
+ *
+ * Fields are written in the order they are called, null values are skipped to match
+ * {@link ObjectMapperFactory#getInstance()}. Once the first byte is written the response is committed, an error after
+ * that leaves the client with incomplete JSON. Call {@link #finish()} as the last step of a successful response;
+ * closing a stream that was not finished leaves the JSON unterminated, so a failure part-way through reaches the client
+ * as a parse error rather than as a complete response missing some of its items.
+ */
+public class JsonResponseStream implements Closeable {
+    private static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(JsonResponseStream.class);
+    private final JsonGenerator generator;
+    private final ObjectWriter objectWriter;
+    private boolean finished;
+
+    public JsonResponseStream(HttpServletResponse response) throws IOException {
+        ObjectMapper objectMapper = ObjectMapperFactory.getInstance();
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        this.generator = objectMapper.getFactory().createGenerator(response.getOutputStream(), JsonEncoding.UTF8);
+        this.generator.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+        this.objectWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.generator.writeStartObject();
+    }
+
+    public JsonResponseStream writeArrayFieldStart(String fieldName) throws IOException {
+        generator.writeArrayFieldStart(fieldName);
+        return this;
+    }
+
+    public JsonResponseStream writeArrayItem(ClientApiObject item) throws IOException {
+        objectWriter.writeValue(generator, item);
+        return this;
+    }
+
+    public JsonResponseStream writeArrayEnd() throws IOException {
+        generator.writeEndArray();
+        return this;
+    }
+
+    public JsonResponseStream writeField(String fieldName, Object value) throws IOException {
+        if (value != null) {
+            generator.writeFieldName(fieldName);
+            objectWriter.writeValue(generator, value);
+        }
+        return this;
+    }
+
+    /**
+     * Ends every array and object that is still open, including the response object.
+     */
+    public void finish() throws IOException {
+        JsonStreamContext context = generator.getOutputContext();
+        while (!context.inRoot()) {
+            if (context.inArray()) {
+                generator.writeEndArray();
+            } else {
+                generator.writeEndObject();
+            }
+            context = generator.getOutputContext();
+        }
+        finished = true;
+    }
+
+    /**
+     * Closes the generator. A finished stream is flushed and any write failure is thrown. An unfinished stream is
+     * left unterminated and closed quietly, so the failure that stopped it is the one the caller sees.
+     */
+    @Override
+    public void close() throws IOException {
+        if (finished) {
+            generator.close();
+        } else {
+            closeQuietly();
+        }
+    }
+
+    private void closeQuietly() {
+        try {
+            generator.close();
+        } catch (IOException ex) {
+            LOGGER.debug("could not close unfinished json generator", ex);
+        }
+    }
+}
@@ -3,6 +3,7 @@ package org.visallo.web;
 import com.google.inject.Inject;
 import org.visallo.core.bootstrap.InjectHelper;
 import org.visallo.core.model.user.UserRepository;
+import org.visallo.core.model.workQueue.WorkQueueRepository;
 import org.visallo.core.util.JSONUtil;
 import org.visallo.core.util.VisalloLogger;
 import org.visallo.core.util.VisalloLoggerFactory;
@@ -34,7 +35,10 @@ public class MessagingFilter implements PerRequestBroadcastFilter {
             JSONObject json = new JSONObject("" + originalMessage);
 
             String type = json.optString("type");
-            if (type != null && type.equals("setActiveWorkspace")) {
+            if (type != null && (type.equals("setActiveWorkspace")
+                    || type.equals(WorkQueueRepository.WORKSPACE_CACHE_INVALIDATE_TYPE)
+                    || type.equals(WorkQueueRepository.USER_AUTHORIZATIONS_INVALIDATE_TYPE)
+                    || type.equals(WorkQueueRepository.ONTOLOGY_CACHE_INVALIDATE_TYPE))) {
                 return new BroadcastAction(BroadcastAction.ACTION.ABORT, message);
             }
 
@@ -42,6 +42,13 @@ public class VisalloResponse {
         }
     }
 
+    /**
+     * Starts a JSON object response that is written as it is built, for responses too large to hold in memory.
+     */
+    public JsonResponseStream startJsonResponseStream() throws IOException {
+        return new JsonResponseStream(response);
+    }
+
     public void respondWithNotFound() throws IOException {
         response.sendError(HttpServletResponse.SC_NOT_FOUND);
     }
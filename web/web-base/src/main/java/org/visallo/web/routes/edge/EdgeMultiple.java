@@ -3,6 +3,7 @@ package org.visallo.web.routes.edge;
 import com.google.inject.Inject;
 import com.v5analytics.webster.HandlerChain;
 import org.vertexium.*;
+import org.vertexium.util.ConvertingIterable;
 import org.visallo.core.config.Configuration;
 import org.visallo.core.exception.VisalloAccessDeniedException;
 import org.visallo.core.exception.VisalloException;
@@ -11,6 +12,7 @@ import org.visallo.core.model.workspace.WorkspaceRepository;
 import org.visallo.core.user.User;
 import org.visallo.core.util.ClientApiConverter;
 import org.visallo.web.BaseRequestHandler;
+import org.visallo.web.JsonResponseStream;
 import org.visallo.web.clientapi.model.ClientApiEdgeMultipleResponse;
 import org.visallo.web.clientapi.model.ClientApiEdgeWithVertexData;
 
@@ -23,6 +25,7 @@ import static org.vertexium.util.IterableUtils.toList;
 
 public class EdgeMultiple extends BaseRequestHandler {
     private final Graph graph;
+    private final boolean getEdgesOverridden;
 
     @Inject
     public EdgeMultiple(
@@ -32,6 +35,7 @@ public class EdgeMultiple extends BaseRequestHandler {
             final Configuration configuration) {
         super(userRepository, workspaceRepository, configuration);
         this.graph = graph;
+        this.getEdgesOverridden = isGetEdgesOverridden();
     }
 
     @Override
@@ -43,13 +47,26 @@ public class EdgeMultiple extends BaseRequestHandler {
         String workspaceId = getWorkspaceId(request);
 
         Iterable<String> edgeIds = toIterable(edgeStringIds.toArray(new String[edgeStringIds.size()]));
-        ClientApiEdgeMultipleResponse result = getEdges(request, workspaceId, edgeIds, authorizations);
+        if (getEdgesOverridden) {
+            respondWithClientApiObject(response, getEdges(request, workspaceId, edgeIds, authorizations));
+            return;
+        }
 
-        respondWithClientApiObject(response, result);
+        Iterable<ClientApiEdgeWithVertexData> edges = getClientApiEdges(request, workspaceId, edgeIds, authorizations);
+        try (JsonResponseStream out = startJsonResponseStream(response)) {
+            out.writeArrayFieldStart("edges");
+            for (ClientApiEdgeWithVertexData edge : edges) {
+                out.writeArrayItem(edge);
+            }
+            out.writeArrayEnd();
+            out.finish();
+        }
     }
 
     /**
-     * This is overridable so web plugins can modify the resulting set of edges.
+     * This is overridable so web plugins can modify the resulting set of edges. It builds the whole response in
+     * memory, so the response is only written from it when a subclass overrides it. Override
+     * {@link #getClientApiEdges(HttpServletRequest, String, Iterable, Authorizations)} to keep the response streamed.
      */
     protected ClientApiEdgeMultipleResponse getEdges(
             HttpServletRequest request,
@@ -57,25 +74,54 @@ public class EdgeMultiple extends BaseRequestHandler {
             Iterable<String> edgeIds,
             Authorizations authorizations
     ) {
-        List<Edge> graphEdges = toList(graph.getEdges(edgeIds, FetchHint.ALL, authorizations));
         ClientApiEdgeMultipleResponse edgeResult = new ClientApiEdgeMultipleResponse();
-        Set<String> vertexIds = getAllVertexIdsOnEdges(graphEdges);
-        Map<String, Vertex> vertices = verticesToMapById(graph.getVertices(vertexIds, authorizations));
-        for (Edge e : graphEdges) {
-            Vertex source = vertices.get(e.getVertexId(Direction.OUT));
-            Vertex destination = vertices.get(e.getVertexId(Direction.IN));
-            ClientApiEdgeWithVertexData clientApiEdgeWithVertexData = (ClientApiEdgeWithVertexData) ClientApiConverter.toClientApiEdgeWithVertexData(
-                    e,
-                    source,
-                    destination,
-                    workspaceId,
-                    authorizations
-            );
-            edgeResult.getEdges().add(clientApiEdgeWithVertexData);
+        for (ClientApiEdgeWithVertexData edge : getClientApiEdges(request, workspaceId, edgeIds, authorizations)) {
+            edgeResult.getEdges().add(edge);
         }
         return edgeResult;
     }
 
+    /**
+     * This is overridable so web plugins can modify the resulting set of edges. Edges are converted as the
+     * response iterates them so that only one converted edge is held at a time.
+     */
+    protected Iterable<ClientApiEdgeWithVertexData> getClientApiEdges(
+            HttpServletRequest request,
+            final String workspaceId,
+            Iterable<String> edgeIds,
+            final Authorizations authorizations
+    ) {
+        List<Edge> graphEdges = toList(graph.getEdges(edgeIds, FetchHint.ALL, authorizations));
+        Set<String> vertexIds = getAllVertexIdsOnEdges(graphEdges);
+        final Map<String, Vertex> vertices = verticesToMapById(graph.getVertices(vertexIds, authorizations));
+        return new ConvertingIterable<Edge, ClientApiEdgeWithVertexData>(graphEdges) {
+            @Override
+            protected ClientApiEdgeWithVertexData convert(Edge e) {
+                Vertex source = vertices.get(e.getVertexId(Direction.OUT));
+                Vertex destination = vertices.get(e.getVertexId(Direction.IN));
+                return (ClientApiEdgeWithVertexData) ClientApiConverter.toClientApiEdgeWithVertexData(
+                        e,
+                        source,
+                        destination,
+                        workspaceId,
+                        authorizations
+                );
+            }
+        };
+    }
+
+    private boolean isGetEdgesOverridden() {
+        for (Class<?> c = getClass(); c != EdgeMultiple.class; c = c.getSuperclass()) {
+            try {
+                c.getDeclaredMethod("getEdges", HttpServletRequest.class, String.class, Iterable.class, Authorizations.class);
+                return true;
+            } catch (NoSuchMethodException ex) {
+                // not overridden at this level
+            }
+        }
+        return false;
+    }
+
     private Map<String, Vertex> verticesToMapById(Iterable<Vertex> vertices) {
         Map<String, Vertex> results = new HashMap<>();
         for (Vertex vertex : vertices) {
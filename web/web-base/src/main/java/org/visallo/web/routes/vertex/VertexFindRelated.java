@@ -5,7 +5,6 @@ import com.google.inject.Inject;
 import com.v5analytics.webster.HandlerChain;
 import org.vertexium.*;
 import org.visallo.core.config.Configuration;
-import org.visallo.core.model.ontology.Concept;
 import org.visallo.core.model.ontology.OntologyRepository;
 import org.visallo.core.model.properties.VisalloProperties;
 import org.visallo.core.model.user.UserRepository;
@@ -50,14 +49,11 @@ public class VertexFindRelated extends BaseRequestHandler {
         Set<String> limitConceptIds = new HashSet<>();
 
         if (limitParentConceptId != null) {
-            Set<Concept> limitConcepts = ontologyRepository.getConceptAndAllChildrenByIri(limitParentConceptId);
-            if (limitConcepts == null) {
+            limitConceptIds = ontologyRepository.getConceptAndAllChildrenIris(limitParentConceptId);
+            if (limitConceptIds == null) {
                 throw new RuntimeException("Bad 'limitParentConceptId', no concept found for id: " +
                         limitParentConceptId);
             }
-            for (Concept con : limitConcepts) {
-                limitConceptIds.add(con.getIRI());
-            }
         }
 
         ClientApiVertexFindRelatedResponse result = getVertices(request, workspaceId, graphVertexIds, limitEdgeLabel,
@@ -15,7 +15,7 @@ import org.visallo.core.util.VisalloLogger;
 import org.visallo.core.util.VisalloLoggerFactory;
 import com.v5analytics.webster.HandlerChain;
 import org.visallo.web.BaseRequestHandler;
-import org.apache.commons.io.IOUtils;
+import org.visallo.web.ConnectionClosedException;
 import org.vertexium.Authorizations;
 import org.vertexium.Graph;
 import org.vertexium.Vertex;
@@ -23,6 +23,9 @@ import org.vertexium.property.StreamingPropertyValue;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.Reader;
 
 public class VertexHighlightedText extends BaseRequestHandler {
     private static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(VertexHighlightedText.class);
@@ -63,16 +66,16 @@ public class VertexHighlightedText extends BaseRequestHandler {
         StreamingPropertyValue textPropertyValue = VisalloProperties.TEXT.getPropertyValue(artifactVertex, propertyKey);
         if (textPropertyValue != null) {
             LOGGER.debug("returning text for vertexId:%s property:%s", artifactVertex.getId(), propertyKey);
-            String highlightedText;
-            String text = IOUtils.toString(textPropertyValue.getInputStream(), "UTF-8");
-            if (text == null) {
-                highlightedText = "";
-            } else {
-                Iterable<Vertex> termMentions = termMentionRepository.findBySourceGraphVertexAndPropertyKey(artifactVertex.getId(), propertyKey, authorizationsWithTermMention);
-                highlightedText = entityHighlighter.getHighlightedText(text, termMentions, workspaceId, authorizationsWithTermMention);
+            Iterable<Vertex> termMentions = termMentionRepository.findBySourceGraphVertexAndPropertyKey(artifactVertex.getId(), propertyKey, authorizationsWithTermMention);
+            response.setContentType("text/html");
+            response.setCharacterEncoding("UTF-8");
+            PrintWriter out = response.getWriter();
+            try (Reader text = new InputStreamReader(textPropertyValue.getInputStream(), "UTF-8")) {
+                entityHighlighter.writeHighlightedText(text, termMentions, workspaceId, authorizationsWithTermMention, out);
+            }
+            if (out.checkError()) {
+                throw new ConnectionClosedException();
             }
-
-            respondWithHtml(response, highlightedText);
             return;
         }
 
@@ -13,7 +13,8 @@ import org.visallo.core.model.workspace.WorkspaceRepository;
 import org.visallo.core.user.User;
 import org.visallo.core.util.ClientApiConverter;
 import org.visallo.web.BaseRequestHandler;
-import org.visallo.web.clientapi.model.ClientApiVertexMultipleResponse;
+import org.visallo.web.JsonResponseStream;
+import org.visallo.web.clientapi.model.ClientApiVertex;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -45,13 +46,15 @@ public class VertexMultiple extends BaseRequestHandler {
 
         Iterable<String> vertexIds = toIterable(vertexStringIds.toArray(new String[vertexStringIds.size()]));
         Iterable<Vertex> graphVertices = graph.getVertices(vertexIds, ClientApiConverter.SEARCH_FETCH_HINTS, getAuthorizationsResult.authorizations);
-        ClientApiVertexMultipleResponse result = new ClientApiVertexMultipleResponse();
-        result.setRequiredFallback(getAuthorizationsResult.requiredFallback);
-        for (Vertex v : graphVertices) {
-            result.getVertices().add(ClientApiConverter.toClientApiVertex(v, workspaceId, getAuthorizationsResult.authorizations));
+        try (JsonResponseStream out = startJsonResponseStream(response)) {
+            out.writeField("requiredFallback", getAuthorizationsResult.requiredFallback);
+            out.writeArrayFieldStart("vertices");
+            for (ClientApiVertex v : ClientApiConverter.toClientApiVerticesInBatches(graphVertices, workspaceId, getAuthorizationsResult.authorizations)) {
+                out.writeArrayItem(v);
+            }
+            out.writeArrayEnd();
+            out.finish();
         }
-
-        respondWithClientApiObject(response, result);
     }
 
     private GetAuthorizationsResult getAuthorizations(HttpServletRequest request, boolean fallbackToPublic, User user) {
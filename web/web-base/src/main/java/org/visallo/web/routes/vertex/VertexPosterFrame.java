@@ -4,6 +4,7 @@ import com.google.inject.Inject;
 import com.v5analytics.webster.HandlerChain;
 import com.v5analytics.webster.utils.UrlUtils;
 import org.visallo.core.config.Configuration;
+import org.visallo.core.model.artifactThumbnails.ArtifactThumbnail;
 import org.visallo.core.model.artifactThumbnails.ArtifactThumbnailRepository;
 import org.visallo.core.model.properties.MediaVisalloProperties;
 import org.visallo.core.model.user.UserRepository;
@@ -12,6 +13,7 @@ import org.visallo.core.user.User;
 import org.visallo.core.util.VisalloLogger;
 import org.visallo.core.util.VisalloLoggerFactory;
 import org.visallo.web.BaseRequestHandler;
+import org.visallo.web.VisalloResponse;
 import org.apache.commons.io.IOUtils;
 import org.vertexium.Authorizations;
 import org.vertexium.Graph;
@@ -19,7 +21,6 @@ import org.vertexium.Property;
 import org.vertexium.Vertex;
 import org.vertexium.property.StreamingPropertyValue;
 
-import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.InputStream;
@@ -60,18 +61,33 @@ public class VertexPosterFrame extends BaseRequestHandler {
         if (widthStr != null) {
             boundaryDims[0] = boundaryDims[1] = Integer.parseInt(widthStr);
 
-            response.setContentType("image/jpeg");
-            response.addHeader("Content-Disposition", "inline; filename=thumbnail" + boundaryDims[0] + ".jpg");
-            setMaxAge(response, EXPIRES_1_HOUR);
+            Property sourceProperty = MediaVisalloProperties.RAW_POSTER_FRAME.getOnlyProperty(artifactVertex);
+            StreamingPropertyValue sourceValue = sourceProperty == null ? null : MediaVisalloProperties.RAW_POSTER_FRAME.getPropertyValue(sourceProperty);
+            ArtifactThumbnail thumbnail = artifactThumbnailRepository.getOrCreateThumbnail(
+                    artifactVertex,
+                    sourceProperty == null ? null : sourceProperty.getKey(),
+                    "poster-frame",
+                    sourceValue,
+                    boundaryDims,
+                    user
+            );
+            if (thumbnail == null) {
+                LOGGER.warn("Could not find raw poster from for artifact: %s", artifactVertex.getId());
+                respondWithNotFound(response);
+                return;
+            }
 
-            byte[] thumbnailData = artifactThumbnailRepository.getThumbnailData(artifactVertex.getId(), "poster-frame", boundaryDims[0], boundaryDims[1], user);
-            if (thumbnailData != null) {
-                LOGGER.debug("Cache hit for: %s (poster-frame) %d x %d", graphVertexId, boundaryDims[0], boundaryDims[1]);
-                ServletOutputStream out = response.getOutputStream();
-                out.write(thumbnailData);
-                out.close();
+            VisalloResponse visalloResponse = new VisalloResponse(request, response);
+            if (visalloResponse.testEtagHeaders(thumbnail.getETag())) {
                 return;
             }
+            visalloResponse.addETagHeader(thumbnail.getETag());
+
+            response.setContentType("image/jpeg");
+            response.addHeader("Content-Disposition", "inline; filename=thumbnail" + boundaryDims[0] + ".jpg");
+            setMaxAge(response, EXPIRES_1_HOUR);
+            visalloResponse.write(thumbnail.getData());
+            return;
         }
 
         Property rawPosterFrame = MediaVisalloProperties.RAW_POSTER_FRAME.getOnlyProperty(artifactVertex);
@@ -83,21 +99,8 @@ public class VertexPosterFrame extends BaseRequestHandler {
         }
 
         try (InputStream in = rawPosterFrameValue.getInputStream()) {
-            if (widthStr != null) {
-                LOGGER.info("Cache miss for: %s (poster-frame) %d x %d", graphVertexId, boundaryDims[0], boundaryDims[1]);
-
-                response.setContentType("image/jpeg");
-                response.addHeader("Content-Disposition", "inline; filename=thumbnail" + boundaryDims[0] + ".jpg");
-                setMaxAge(response, EXPIRES_1_HOUR);
-
-                byte[] thumbnailData = artifactThumbnailRepository.createThumbnail(artifactVertex, rawPosterFrame.getKey(), "poster-frame", in, boundaryDims, user).getData();
-                ServletOutputStream out = response.getOutputStream();
-                out.write(thumbnailData);
-                out.close();
-            } else {
-                response.setContentType("image/png");
-                IOUtils.copy(in, response.getOutputStream());
-            }
+            response.setContentType("image/png");
+            IOUtils.copy(in, response.getOutputStream());
         }
     }
 }
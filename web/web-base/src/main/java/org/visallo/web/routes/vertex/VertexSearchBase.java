@@ -1,5 +1,6 @@
 package org.visallo.web.routes.vertex;
 
+import com.google.common.base.Function;
 import com.google.inject.Inject;
 import com.v5analytics.webster.HandlerChain;
 import org.json.JSONArray;
@@ -10,9 +11,10 @@ import org.vertexium.Graph;
 import org.vertexium.Vertex;
 import org.vertexium.query.*;
 import org.vertexium.util.CloseableIterable;
+import org.vertexium.util.IterableUtils;
 import org.visallo.core.config.Configuration;
 import org.visallo.core.exception.VisalloException;
-import org.visallo.core.model.ontology.Concept;
+import org.visallo.core.exception.VisalloResourceNotFoundException;
 import org.visallo.core.model.ontology.OntologyProperty;
 import org.visallo.core.model.ontology.OntologyRepository;
 import org.visallo.core.model.properties.VisalloProperties;
@@ -22,11 +24,12 @@ import org.visallo.core.trace.Trace;
 import org.visallo.core.trace.TraceSpan;
 import org.visallo.core.user.User;
 import org.visallo.core.util.ClientApiConverter;
+import org.visallo.core.util.ParallelConvertingIterable;
 import org.visallo.core.util.VisalloLogger;
 import org.visallo.core.util.VisalloLoggerFactory;
 import org.visallo.web.BaseRequestHandler;
+import org.visallo.web.JsonResponseStream;
 import org.visallo.web.clientapi.model.ClientApiVertex;
-import org.visallo.web.clientapi.model.ClientApiVertexSearchResponse;
 import org.visallo.web.clientapi.model.PropertyType;
 
 import javax.servlet.http.HttpServletRequest;
@@ -75,41 +78,60 @@ public abstract class VertexSearchBase extends BaseRequestHandler {
         queryAndData.getQuery().skip(offset);
 
         Iterable<Vertex> searchResults = getSearchResults(queryAndData, fetchHints);
+        try {
+            Map<String, Double> scores = null;
+            if (searchResults instanceof IterableWithScores) {
+                scores = ((IterableWithScores<?>) searchResults).getScores();
+            }
 
-        Map<String, Double> scores = null;
-        if (searchResults instanceof IterableWithScores) {
-            scores = ((IterableWithScores<?>) searchResults).getScores();
-        }
-
-        long retrievalStartTime = System.nanoTime();
-        List<ClientApiVertex> verticesList = convertVerticesToClientApi(queryAndData, searchResults, scores, workspaceId, authorizations);
-        long retrievalEndTime = System.nanoTime();
-
-        sortVertices(verticesList);
-
-        long totalEndTime = System.nanoTime();
-
-        ClientApiVertexSearchResponse results = new ClientApiVertexSearchResponse();
-        results.getVertices().addAll(verticesList);
-        results.setNextOffset(offset + size);
-        results.setRetrievalTime(retrievalEndTime - retrievalStartTime);
-        results.setTotalTime(totalEndTime - totalStartTime);
-
-        if (searchResults instanceof IterableWithTotalHits) {
-            results.setTotalHits(((IterableWithTotalHits) searchResults).getTotalHits());
-        }
-        if (searchResults instanceof IterableWithSearchTime) {
-            results.setSearchTime(((IterableWithSearchTime) searchResults).getSearchTimeNanoSeconds());
-        }
-
-        long endTime = System.nanoTime();
-        LOGGER.info("Search found %d vertices in %dms", verticesList.size(), (endTime - startTime) / 1000 / 1000);
+            int vertexCount = 0;
+            try (JsonResponseStream out = startJsonResponseStream(response)) {
+                long retrievalStartTime = System.nanoTime();
+                out.writeArrayFieldStart("vertices");
+                if (isOrderedByScore(queryAndData, searchResults)) {
+                    for (ClientApiVertex vertex : convertVerticesToClientApiInBatches(queryAndData, searchResults, scores, workspaceId, authorizations)) {
+                        out.writeArrayItem(vertex);
+                        vertexCount++;
+                    }
+                } else {
+                    List<ClientApiVertex> verticesList = convertVerticesToClientApi(queryAndData, searchResults, scores, workspaceId, authorizations);
+                    sortVertices(verticesList);
+                    for (ClientApiVertex vertex : verticesList) {
+                        out.writeArrayItem(vertex);
+                    }
+                    vertexCount = verticesList.size();
+                }
+                out.writeArrayEnd();
+                long retrievalEndTime = System.nanoTime();
+
+                out.writeField("nextOffset", offset + size);
+                out.writeField("retrievalTime", retrievalEndTime - retrievalStartTime);
+                out.writeField("totalTime", System.nanoTime() - totalStartTime);
+                if (searchResults instanceof IterableWithTotalHits) {
+                    out.writeField("totalHits", ((IterableWithTotalHits) searchResults).getTotalHits());
+                }
+                if (searchResults instanceof IterableWithSearchTime) {
+                    out.writeField("searchTime", ((IterableWithSearchTime) searchResults).getSearchTimeNanoSeconds());
+                }
+                out.writeField("itemCount", vertexCount);
+                out.finish();
+            }
 
-        if (searchResults instanceof CloseableIterable) {
-            ((CloseableIterable) searchResults).close();
+            long endTime = System.nanoTime();
+            LOGGER.info("Search found %d vertices in %dms", vertexCount, (endTime - startTime) / 1000 / 1000);
+        } finally {
+            if (searchResults instanceof CloseableIterable) {
+                ((CloseableIterable) searchResults).close();
+            }
         }
+    }
 
-        respondWithClientApiObject(response, results);
+    /**
+     * The search index returns scored hits by descending score so they can be written as they are read. Results without
+     * scores, or concatenated from several queries, are collected and sorted by {@link #sortVertices(List)} first.
+     */
+    protected boolean isOrderedByScore(QueryAndData queryAndData, Iterable<Vertex> searchResults) {
+        return searchResults instanceof IterableWithScores && !(queryAndData.getQuery() instanceof CompositeGraphQuery);
     }
 
     protected List<ClientApiVertex> convertVerticesToClientApi(
@@ -119,16 +141,37 @@ public abstract class VertexSearchBase extends BaseRequestHandler {
             String workspaceId,
             Authorizations authorizations
     ) {
-        List<ClientApiVertex> verticesList = new ArrayList<>();
-        for (Vertex vertex : searchResults) {
-            Integer commonCount = getCommonCount(queryAndData, vertex);
-            ClientApiVertex v = ClientApiConverter.toClientApiVertex(vertex, workspaceId, commonCount, authorizations);
-            if (scores != null) {
-                v.setScore(scores.get(vertex.getId()));
+        return IterableUtils.toList(convertVerticesToClientApiInBatches(queryAndData, searchResults, scores, workspaceId, authorizations));
+    }
+
+    protected Iterable<ClientApiVertex> convertVerticesToClientApiInBatches(
+            final QueryAndData queryAndData,
+            Iterable<Vertex> searchResults,
+            final Map<String, Double> scores,
+            final String workspaceId,
+            final Authorizations authorizations
+    ) {
+        return new ParallelConvertingIterable<>(searchResults, new Function<Vertex, ClientApiVertex>() {
+            @Override
+            public ClientApiVertex apply(Vertex vertex) {
+                return convertVertexToClientApi(queryAndData, vertex, scores, workspaceId, authorizations);
             }
-            verticesList.add(v);
+        });
+    }
+
+    protected ClientApiVertex convertVertexToClientApi(
+            QueryAndData queryAndData,
+            Vertex vertex,
+            Map<String, Double> scores,
+            String workspaceId,
+            Authorizations authorizations
+    ) {
+        Integer commonCount = getCommonCount(queryAndData, vertex);
+        ClientApiVertex v = ClientApiConverter.toClientApiVertex(vertex, workspaceId, commonCount, authorizations);
+        if (scores != null) {
+            v.setScore(scores.get(vertex.getId()));
         }
-        return verticesList;
+        return v;
     }
 
     protected Iterable<Vertex> getSearchResults(QueryAndData queryAndData, EnumSet<FetchHint> fetchHints) {
@@ -158,18 +201,13 @@ public abstract class VertexSearchBase extends BaseRequestHandler {
         final String conceptType = getOptionalParameter(request, "conceptType");
         final String includeChildNodes = getOptionalParameter(request, "includeChildNodes");
         if (conceptType != null) {
-            Concept concept = ontologyRepository.getConceptByIRI(conceptType);
             if (includeChildNodes == null || !includeChildNodes.equals("false")) {
-                Set<Concept> childConcepts = ontologyRepository.getConceptAndAllChildren(concept);
-                if (childConcepts.size() > 0) {
-                    String[] conceptIds = new String[childConcepts.size()];
-                    int count = 0;
-                    for (Concept c : childConcepts) {
-                        conceptIds[count] = c.getIRI();
-                        count++;
-                    }
-                    queryAndData.getQuery().has(VisalloProperties.CONCEPT_TYPE.getPropertyName(), Contains.IN, conceptIds);
+                Set<String> conceptIris = ontologyRepository.getConceptAndAllChildrenIris(conceptType);
+                if (conceptIris == null) {
+                    throw new VisalloResourceNotFoundException("Could not find concept: " + conceptType);
                 }
+                String[] conceptIds = conceptIris.toArray(new String[conceptIris.size()]);
+                queryAndData.getQuery().has(VisalloProperties.CONCEPT_TYPE.getPropertyName(), Contains.IN, conceptIds);
             } else {
                 queryAndData.getQuery().has(VisalloProperties.CONCEPT_TYPE.getPropertyName(), conceptType);
             }
@@ -10,23 +10,18 @@ import org.visallo.core.model.properties.VisalloProperties;
 import org.visallo.core.model.user.UserRepository;
 import org.visallo.core.model.workspace.WorkspaceRepository;
 import org.visallo.core.user.User;
-import org.visallo.core.util.VisalloLogger;
-import org.visallo.core.util.VisalloLoggerFactory;
 import org.visallo.web.BaseRequestHandler;
+import org.visallo.web.VisalloResponse;
 import org.vertexium.Authorizations;
 import org.vertexium.Graph;
 import org.vertexium.Property;
 import org.vertexium.Vertex;
 import org.vertexium.property.StreamingPropertyValue;
 
-import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.io.InputStream;
 
 public class VertexThumbnail extends BaseRequestHandler {
-    private static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(VertexThumbnail.class);
-
     private final ArtifactThumbnailRepository artifactThumbnailRepository;
     private final Graph graph;
 
@@ -61,45 +56,31 @@ public class VertexThumbnail extends BaseRequestHandler {
             boundaryDims[0] = boundaryDims[1] = Integer.parseInt(widthStr);
         }
 
-        byte[] thumbnailData;
-        ArtifactThumbnail thumbnail =
-                artifactThumbnailRepository.getThumbnail(artifactVertex.getId(), "raw", boundaryDims[0], boundaryDims[1], user);
-        if (thumbnail != null) {
-            String format = thumbnail.getFormat();
-            response.setContentType("image/" + format);
-            response.addHeader("Content-Disposition", "inline; filename=thumbnail" + boundaryDims[0] + "." + format);
-            setMaxAge(response, EXPIRES_1_HOUR);
-
-            thumbnailData = thumbnail.getData();
-            if (thumbnailData != null) {
-                LOGGER.debug("Cache hit for: %s (raw) %d x %d", artifactVertex.getId(), boundaryDims[0], boundaryDims[1]);
-                ServletOutputStream out = response.getOutputStream();
-                out.write(thumbnailData);
-                out.close();
-                return;
-            }
-        }
-
-        LOGGER.info("Cache miss for: %s (raw) %d x %d", artifactVertex.getId(), boundaryDims[0], boundaryDims[1]);
         Property rawProperty = VisalloProperties.RAW.getProperty(artifactVertex);
         StreamingPropertyValue rawPropertyValue = VisalloProperties.RAW.getPropertyValue(artifactVertex);
-        if (rawPropertyValue == null) {
+        ArtifactThumbnail thumbnail = artifactThumbnailRepository.getOrCreateThumbnail(
+                artifactVertex,
+                rawProperty == null ? null : rawProperty.getKey(),
+                "raw",
+                rawPropertyValue,
+                boundaryDims,
+                user
+        );
+        if (thumbnail == null) {
             respondWithNotFound(response);
             return;
         }
 
-        try (InputStream in = rawPropertyValue.getInputStream()) {
-            thumbnail = artifactThumbnailRepository.createThumbnail(artifactVertex, rawProperty.getKey(), "raw", in, boundaryDims, user);
-
-            String format = thumbnail.getFormat();
-            response.setContentType("image/" + format);
-            response.addHeader("Content-Disposition", "inline; filename=thumbnail" + boundaryDims[0] + "." + format);
-            setMaxAge(response, EXPIRES_1_HOUR);
-
-            thumbnailData = thumbnail.getData();
+        VisalloResponse visalloResponse = new VisalloResponse(request, response);
+        if (visalloResponse.testEtagHeaders(thumbnail.getETag())) {
+            return;
         }
-        ServletOutputStream out = response.getOutputStream();
-        out.write(thumbnailData);
-        out.close();
+        visalloResponse.addETagHeader(thumbnail.getETag());
+
+        String format = thumbnail.getFormat();
+        response.setContentType("image/" + format);
+        response.addHeader("Content-Disposition", "inline; filename=thumbnail" + boundaryDims[0] + "." + format);
+        setMaxAge(response, EXPIRES_1_HOUR);
+        visalloResponse.write(thumbnail.getData());
     }
 }
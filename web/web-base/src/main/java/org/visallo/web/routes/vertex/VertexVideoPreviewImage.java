@@ -4,6 +4,7 @@ import com.google.inject.Inject;
 import com.v5analytics.webster.HandlerChain;
 import com.v5analytics.webster.utils.UrlUtils;
 import org.visallo.core.config.Configuration;
+import org.visallo.core.model.artifactThumbnails.ArtifactThumbnail;
 import org.visallo.core.model.artifactThumbnails.ArtifactThumbnailRepository;
 import org.visallo.core.model.user.UserRepository;
 import org.visallo.core.model.workspace.WorkspaceRepository;
@@ -11,6 +12,7 @@ import org.visallo.core.user.User;
 import org.visallo.core.util.VisalloLogger;
 import org.visallo.core.util.VisalloLoggerFactory;
 import org.visallo.web.BaseRequestHandler;
+import org.visallo.web.VisalloResponse;
 import org.apache.commons.io.IOUtils;
 import org.vertexium.Authorizations;
 import org.vertexium.Graph;
@@ -18,7 +20,6 @@ import org.vertexium.Property;
 import org.vertexium.Vertex;
 import org.vertexium.property.StreamingPropertyValue;
 
-import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.InputStream;
@@ -62,21 +63,35 @@ public class VertexVideoPreviewImage extends BaseRequestHandler {
             boundaryDims[0] = Integer.parseInt(widthStr) * ArtifactThumbnailRepository.FRAMES_PER_PREVIEW;
             boundaryDims[1] = Integer.parseInt(widthStr);
 
-            response.setContentType("image/jpeg");
-            response.addHeader("Content-Disposition", "inline; filename=videoPreview" + boundaryDims[0] + ".jpg");
-            setMaxAge(response, EXPIRES_1_HOUR);
+            Property sourceProperty = VIDEO_PREVIEW_IMAGE.getProperty(artifactVertex);
+            StreamingPropertyValue sourceValue = VIDEO_PREVIEW_IMAGE.getPropertyValue(artifactVertex);
+            ArtifactThumbnail thumbnail = artifactThumbnailRepository.getOrCreateThumbnail(
+                    artifactVertex,
+                    sourceProperty == null ? null : sourceProperty.getKey(),
+                    "video-preview",
+                    sourceValue,
+                    boundaryDims,
+                    user
+            );
+            if (thumbnail == null) {
+                LOGGER.warn("Could not find video preview image for artifact: %s", artifactVertex.getId());
+                respondWithNotFound(response);
+                return;
+            }
 
-            byte[] thumbnailData = artifactThumbnailRepository.getThumbnailData(artifactVertex.getId(), "video-preview", boundaryDims[0], boundaryDims[1], user);
-            if (thumbnailData != null) {
-                LOGGER.debug("Cache hit for: %s (video-preview) %d x %d", artifactVertex.getId(), boundaryDims[0], boundaryDims[1]);
-                ServletOutputStream out = response.getOutputStream();
-                out.write(thumbnailData);
-                out.close();
+            VisalloResponse visalloResponse = new VisalloResponse(request, response);
+            if (visalloResponse.testEtagHeaders(thumbnail.getETag())) {
                 return;
             }
+            visalloResponse.addETagHeader(thumbnail.getETag());
+
+            response.setContentType("image/jpeg");
+            response.addHeader("Content-Disposition", "inline; filename=videoPreview" + boundaryDims[0] + ".jpg");
+            setMaxAge(response, EXPIRES_1_HOUR);
+            visalloResponse.write(thumbnail.getData());
+            return;
         }
 
-        Property videoPreviewImage = VIDEO_PREVIEW_IMAGE.getProperty(artifactVertex);
         StreamingPropertyValue videoPreviewImageValue = VIDEO_PREVIEW_IMAGE.getPropertyValue(artifactVertex);
         if (videoPreviewImageValue == null) {
             LOGGER.warn("Could not find video preview image for artifact: %s", artifactVertex.getId());
@@ -84,21 +99,8 @@ public class VertexVideoPreviewImage extends BaseRequestHandler {
             return;
         }
         try (InputStream in = videoPreviewImageValue.getInputStream()) {
-            if (widthStr != null) {
-                LOGGER.info("Cache miss for: %s (video-preview) %d x %d", artifactVertex.getId(), boundaryDims[0], boundaryDims[1]);
-
-                response.setContentType("image/jpeg");
-                response.addHeader("Content-Disposition", "inline; filename=videoPreview" + boundaryDims[0] + ".jpg");
-                setMaxAge(response, EXPIRES_1_HOUR);
-
-                byte[] thumbnailData = artifactThumbnailRepository.createThumbnail(artifactVertex, videoPreviewImage.getKey(), "video-preview", in, boundaryDims, user).getData();
-                ServletOutputStream out = response.getOutputStream();
-                out.write(thumbnailData);
-                out.close();
-            } else {
-                response.setContentType("image/png");
-                IOUtils.copy(in, response.getOutputStream());
-            }
+            response.setContentType("image/png");
+            IOUtils.copy(in, response.getOutputStream());
         }
     }
 }
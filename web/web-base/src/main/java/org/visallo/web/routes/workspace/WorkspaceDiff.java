@@ -32,16 +32,21 @@ public class WorkspaceDiff extends BaseRequestHandler {
         String workspaceId = getActiveWorkspaceId(request);
         Locale locale = getLocale(request);
         String timeZone = getTimeZone(request);
-        ClientApiWorkspaceDiff diff = handle(workspaceId, user, locale, timeZone);
+        Long since = getOptionalParameterLong(request, "since", null);
+        ClientApiWorkspaceDiff diff = handle(workspaceId, since, user, locale, timeZone);
         respondWithClientApiObject(response, diff);
     }
 
     public ClientApiWorkspaceDiff handle(String workspaceId, User user, Locale locale, String timeZone) {
+        return handle(workspaceId, null, user, locale, timeZone);
+    }
+
+    public ClientApiWorkspaceDiff handle(String workspaceId, Long since, User user, Locale locale, String timeZone) {
         Workspace workspace = workspaceRepository.findById(workspaceId, true, user);
         if (workspace == null) {
             return null;
         }
 
-        return this.workspaceRepository.getDiff(workspace, user, locale, timeZone);
+        return this.workspaceRepository.getDiff(workspace, user, locale, timeZone, since);
     }
 }
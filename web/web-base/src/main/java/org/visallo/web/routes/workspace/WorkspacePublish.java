@@ -5,12 +5,15 @@ import com.google.inject.Inject;
 import com.v5analytics.webster.HandlerChain;
 import org.vertexium.Authorizations;
 import org.visallo.core.config.Configuration;
+import org.visallo.core.model.longRunningProcess.LongRunningProcessRepository;
+import org.visallo.core.model.longRunningProcess.PublishLongRunningProcessQueueItem;
 import org.visallo.core.model.user.UserRepository;
 import org.visallo.core.model.workspace.WorkspaceRepository;
 import org.visallo.core.user.User;
 import org.visallo.core.util.VisalloLogger;
 import org.visallo.core.util.VisalloLoggerFactory;
 import org.visallo.web.BaseRequestHandler;
+import org.visallo.web.clientapi.model.ClientApiLongRunningProcessSubmitResponse;
 import org.visallo.web.clientapi.model.ClientApiPublishItem;
 import org.visallo.web.clientapi.model.ClientApiWorkspacePublishResponse;
 
@@ -19,15 +22,22 @@ import javax.servlet.http.HttpServletResponse;
 
 public class WorkspacePublish extends BaseRequestHandler {
     private static final VisalloLogger LOGGER = VisalloLoggerFactory.getLogger(WorkspacePublish.class);
+    private final LongRunningProcessRepository longRunningProcessRepository;
+    private final int longRunningProcessThreshold;
 
     @Inject
     public WorkspacePublish(
             final UserRepository userRepository,
             final Configuration configuration,
-            final WorkspaceRepository workspaceRepository
+            final WorkspaceRepository workspaceRepository,
+            final LongRunningProcessRepository longRunningProcessRepository
     ) {
         super(userRepository, workspaceRepository, configuration);
-
+        this.longRunningProcessRepository = longRunningProcessRepository;
+        this.longRunningProcessThreshold = configuration.getInt(
+                Configuration.WORKSPACE_PUBLISH_LONG_RUNNING_PROCESS_THRESHOLD,
+                Configuration.DEFAULT_WORKSPACE_PUBLISH_LONG_RUNNING_PROCESS_THRESHOLD
+        );
     }
 
     @Override
@@ -38,6 +48,14 @@ public class WorkspacePublish extends BaseRequestHandler {
         Authorizations authorizations = getAuthorizations(request, user);
         String workspaceId = getActiveWorkspaceId(request);
 
+        if (longRunningProcessThreshold > 0 && publishData.length >= longRunningProcessThreshold) {
+            LOGGER.debug("publishing %d items as a long running process", publishData.length);
+            PublishLongRunningProcessQueueItem publishQueueItem = new PublishLongRunningProcessQueueItem(publishData, workspaceId, authorizations);
+            String id = longRunningProcessRepository.enqueue(publishQueueItem.toJson(), user, authorizations);
+            respondWithClientApiObject(response, new ClientApiLongRunningProcessSubmitResponse(id));
+            return;
+        }
+
         LOGGER.debug("publishing:\n%s", Joiner.on("\n").join(publishData));
         ClientApiWorkspacePublishResponse workspacePublishResponse = getWorkspaceRepository().publish(publishData, workspaceId, authorizations);
 
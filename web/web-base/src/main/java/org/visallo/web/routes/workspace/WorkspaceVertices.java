@@ -12,8 +12,9 @@ import org.visallo.core.model.workspace.WorkspaceEntity;
 import org.visallo.core.model.workspace.WorkspaceRepository;
 import org.visallo.core.user.User;
 import org.visallo.core.util.ClientApiConverter;
+import org.visallo.web.JsonResponseStream;
 import org.visallo.web.VisalloResponse;
-import org.visallo.web.clientapi.model.ClientApiWorkspaceVertices;
+import org.visallo.web.clientapi.model.ClientApiVertex;
 import org.visallo.web.parameterProviders.ActiveWorkspaceId;
 
 import java.util.Iterator;
@@ -42,9 +43,14 @@ public class WorkspaceVertices implements ParameterizedHandler {
         final List<WorkspaceEntity> workspaceEntities = workspaceRepository.findEntities(workspace, user);
         Iterable<String> vertexIds = getVisibleWorkspaceEntityIds(workspaceEntities);
         Iterable<Vertex> graphVertices = graph.getVertices(vertexIds, ClientApiConverter.SEARCH_FETCH_HINTS, authorizations);
-        ClientApiWorkspaceVertices results = new ClientApiWorkspaceVertices();
-        results.getVertices().addAll(ClientApiConverter.toClientApiVertices(graphVertices, workspaceId, authorizations));
-        response.respondWithClientApiObject(results);
+        try (JsonResponseStream out = response.startJsonResponseStream()) {
+            out.writeArrayFieldStart("vertices");
+            for (ClientApiVertex vertex : ClientApiConverter.toClientApiVerticesInBatches(graphVertices, workspaceId, authorizations)) {
+                out.writeArrayItem(vertex);
+            }
+            out.writeArrayEnd();
+            out.finish();
+        }
     }
 
     private LookAheadIterable<WorkspaceEntity, String> getVisibleWorkspaceEntityIds(final List<WorkspaceEntity> workspaceEntities) {
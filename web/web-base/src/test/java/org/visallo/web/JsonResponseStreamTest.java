@@ -0,0 +1,155 @@
+package org.visallo.web;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.visallo.web.clientapi.model.ClientApiVertex;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class JsonResponseStreamTest {
+    @Mock
+    private HttpServletResponse response;
+
+    private TestOutputStream out;
+
+    @Before
+    public void before() throws IOException {
+        out = new TestOutputStream();
+        when(response.getOutputStream()).thenReturn(out);
+    }
+
+    @Test
+    public void testFieldsAndArraysAreWrittenInOrder() throws IOException {
+        try (JsonResponseStream stream = new JsonResponseStream(response)) {
+            stream.writeField("count", 2);
+            stream.writeField("skipped", null);
+            stream.writeArrayFieldStart("vertices");
+            stream.writeArrayItem(createVertex("v1"));
+            stream.writeArrayItem(createVertex("v2"));
+            stream.writeArrayEnd();
+            stream.finish();
+        }
+
+        JSONObject json = new JSONObject(out.toString());
+        assertEquals(2, json.getInt("count"));
+        assertFalse(json.has("skipped"));
+        assertEquals("v1", json.getJSONArray("vertices").getJSONObject(0).getString("id"));
+        assertEquals("v2", json.getJSONArray("vertices").getJSONObject(1).getString("id"));
+        assertTrue(out.toString().indexOf("count") < out.toString().indexOf("vertices"));
+        assertTrue(out.closed);
+        verify(response).setContentType("application/json");
+    }
+
+    @Test
+    public void testFinishEndsOpenArrays() throws IOException {
+        try (JsonResponseStream stream = new JsonResponseStream(response)) {
+            stream.writeArrayFieldStart("vertices");
+            stream.writeArrayItem(createVertex("v1"));
+            stream.finish();
+        }
+
+        JSONObject json = new JSONObject(out.toString());
+        assertEquals(1, json.getJSONArray("vertices").length());
+        assertTrue(out.closed);
+    }
+
+    @Test
+    public void testUnfinishedStreamIsLeftUnterminated() throws IOException {
+        try {
+            try (JsonResponseStream stream = new JsonResponseStream(response)) {
+                stream.writeArrayFieldStart("vertices");
+                stream.writeArrayItem(createVertex("v1"));
+                throw new IllegalStateException("conversion failed");
+            }
+        } catch (IllegalStateException ex) {
+            assertEquals("conversion failed", ex.getMessage());
+        }
+
+        String written = out.toString();
+        assertTrue(written, written.startsWith("{\"vertices\":[{"));
+        assertTrue(written, written.endsWith("}"));
+        try {
+            new JSONObject(written);
+            fail("expected unterminated json: " + written);
+        } catch (JSONException ex) {
+            // the client sees a parse error instead of a complete response missing items
+        }
+        assertTrue(out.closed);
+    }
+
+    @Test
+    public void testWriteFailureIsThrownFromClose() throws IOException {
+        out.failWrites = true;
+        JsonResponseStream stream = new JsonResponseStream(response);
+        stream.writeArrayFieldStart("vertices");
+        stream.finish();
+        try {
+            stream.close();
+            fail("expected the write failure");
+        } catch (IOException ex) {
+            assertEquals("write failed", ex.getMessage());
+        }
+    }
+
+    @Test
+    public void testWriteFailureOfAnUnfinishedStreamIsNotThrownFromClose() throws IOException {
+        out.failWrites = true;
+        JsonResponseStream stream = new JsonResponseStream(response);
+        stream.writeArrayFieldStart("vertices");
+        stream.close();
+    }
+
+    private static ClientApiVertex createVertex(String id) {
+        ClientApiVertex vertex = new ClientApiVertex();
+        vertex.setId(id);
+        return vertex;
+    }
+
+    private static class TestOutputStream extends ServletOutputStream {
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private boolean failWrites;
+        private boolean closed;
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            throw new UnsupportedOperationException("not supported in tests");
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (failWrites) {
+                throw new IOException("write failed");
+            }
+            buffer.write(b);
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+
+        @Override
+        public String toString() {
+            return new String(buffer.toByteArray());
+        }
+    }
+}